@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Regenerates src/main/resources/com/robomotion/app/icons.tsv.gz, the
+ * resource behind IconIndex, from the constants in Icons.java. Run it from
+ * the repository root after changing Icons:
+ *
+ * <pre>
+ * java scripts/IconIndexGen.java
+ * </pre>
+ *
+ * IconIndexTest fails while the two are out of sync.
+ */
+public class IconIndexGen {
+
+    private static final Path SOURCE = Path.of("src/main/java/com/robomotion/app/Icons.java");
+    private static final Path RESOURCE = Path.of("src/main/resources/com/robomotion/app/icons.tsv.gz");
+
+    private static final Pattern CONSTANT = Pattern.compile(
+            "public\\s+(?:final\\s+static|static\\s+final)\\s+String\\s+(\\w+)\\s*=\\s*\"([^\"\\\\]*)\"\\s*;");
+
+    public static void main(String[] args) throws IOException {
+        String src = Files.readString(SOURCE, StandardCharsets.UTF_8);
+        Matcher m = CONSTANT.matcher(src);
+        int n = 0;
+        try (OutputStream file = Files.newOutputStream(RESOURCE);
+             Writer out = new OutputStreamWriter(new GZIPOutputStream(file, 64 * 1024), StandardCharsets.UTF_8)) {
+            while (m.find()) {
+                out.write(m.group(1));
+                out.write('\t');
+                out.write(m.group(2));
+                out.write('\n');
+                n++;
+            }
+        }
+        System.out.printf("%s: %d icons%n", RESOURCE, n);
+    }
+}
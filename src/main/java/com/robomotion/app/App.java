@@ -81,9 +81,42 @@ public class App {
 					return;
 				}
 
+				// Handle --session-daemon-spare <id> (internal: started by CLISparePool)
+				if (arg.equals("--session-daemon-spare")) {
+					if (args.length < 2) {
+						System.err.println("--session-daemon-spare requires a spare ID");
+						System.exit(1);
+						return;
+					}
+					java.util.Map<String, String> daemonFlags;
+					try {
+						daemonFlags = CLI.parseFlags(args, 2);
+					} catch (Exception e) {
+						daemonFlags = java.util.Map.of();
+					}
+					String idle = daemonFlags.get("session-timeout");
+					long idleMs = idle != null ? CLISession.parseSessionTimeout(idle) : CLISparePool.DEFAULT_IDLE_MS;
+					CLISession.runSpareDaemon(args[1], idleMs);
+					return;
+				}
+
+				// AppCDS archive generation (--cds-training is internal: run by --generate-cds)
+				if (arg.equals("--generate-cds")) {
+					AppCDS.generate(args);
+					return;
+				}
+				if (arg.equals("--cds-training")) {
+					AppCDS.train();
+					return;
+				}
+				if (arg.startsWith("--cds-benchmark")) {
+					AppCDS.benchmark(args);
+					return;
+				}
+
 				// CLI-specific flags
 				if (arg.equals("--list-commands") || arg.equals("--skill-md") ||
-					arg.equals("--help") || arg.equals("-h")) {
+					arg.equals("--help") || arg.equals("-h") || arg.equals("--batch")) {
 					CLI.run(args);
 					return;
 				}
@@ -0,0 +1,323 @@
+package com.robomotion.app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import grpc.health.v1.HealthGrpc;
+import grpc.health.v1.HealthOuterClass.HealthCheckRequest;
+import grpc.health.v1.HealthOuterClass.HealthCheckResponse.ServingStatus;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+
+/**
+ * Dynamic AppCDS archive for plugin and CLI JVMs.
+ * <p>
+ * {@code --generate-cds [--output=<path>]} starts a child JVM with
+ * -XX:ArchiveClassesAtExit that runs a training workload over the registered
+ * nodes (spec generation, config binding, an OnCreate/OnMessage/OnClose cycle
+ * over loopback gRPC, a CLI dry run) and exits, leaving the archive of every
+ * class it loaded. By default the archive is written next to the jar, with
+ * the .jsa extension; robomotion.cds_archive overrides the location.
+ * <p>
+ * Daemons started by the SDK (sessions, spares) use the archive when it
+ * exists. Other launchers pass the options printed by --generate-cds.
+ * {@code --cds-benchmark[=<runs>] [--archive=<path>]} measures the startup gain.
+ */
+final class AppCDS {
+
+    static final String TRAINING_NODE = "Robomotion.AppCDS.Training";
+
+    private AppCDS() {
+    }
+
+    /**
+     * Returns the archive location, or null when not running from a jar.
+     */
+    static Path archivePath() {
+        String p = Runtime.getProperty("robomotion.cds_archive", "");
+        if (!p.isEmpty()) {
+            return Path.of(p).toAbsolutePath();
+        }
+        String jar = CLISession.jarPath();
+        if (jar == null) {
+            return null;
+        }
+        return Path.of(jar.substring(0, jar.length() - ".jar".length()) + ".jsa");
+    }
+
+    static List<String> jvmOptions(Path archive) {
+        return options("-XX:SharedArchiveFile=" + archive);
+    }
+
+    // -Xshare:auto falls back to a normal start if the archive is stale or
+    // was built by another JDK; the warnings it would print are turned off.
+    private static List<String> options(String archiveOption) {
+        return List.of(archiveOption, "-Xshare:auto", "-Xlog:cds=off", "-Xlog:cds+dynamic=off");
+    }
+
+    /**
+     * Returns the JVM options that map the archive, or none if there is no archive.
+     */
+    static List<String> jvmOptions() {
+        if (CLISession.isNativeImage()) {
+            return List.of();
+        }
+        Path archive = archivePath();
+        if (archive == null || !Files.isRegularFile(archive)) {
+            return List.of();
+        }
+        return jvmOptions(archive);
+    }
+
+    // --- Generation ---
+
+    /**
+     * Handles --generate-cds: trains a child JVM and moves its archive in place.
+     */
+    static void generate(String[] args) {
+        if (CLISession.isNativeImage()) {
+            CLI.cliError("--generate-cds is not supported by native images");
+            return;
+        }
+        Map<String, String> flags;
+        try {
+            flags = CLI.parseFlags(args, 1);
+        } catch (Exception e) {
+            CLI.cliError("%s", e.getMessage());
+            return;
+        }
+        Path archive = flags.containsKey("output") ? Path.of(flags.get("output")).toAbsolutePath() : archivePath();
+        if (archive == null) {
+            CLI.cliError("cannot locate the plugin jar, use --output=<path>");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(archive.toAbsolutePath().getParent());
+            Path tmp = archive.resolveSibling(archive.getFileName() + ".tmp");
+            Files.deleteIfExists(tmp);
+
+            List<String> cmd = new ArrayList<>(CLISession.launchCommand(
+                    options("-XX:ArchiveClassesAtExit=" + tmp)));
+            cmd.add("--cds-training");
+            Process p = new ProcessBuilder(cmd)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            int code = p.waitFor();
+            if (code != 0 || !Files.isRegularFile(tmp)) {
+                Files.deleteIfExists(tmp);
+                CLI.cliError("training run failed (exit code %d)", code);
+                return;
+            }
+            Files.move(tmp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("archive", archive.toString());
+            out.put("size", Files.size(archive));
+            out.put("ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            out.put("jvm_options", jvmOptions(archive));
+            System.out.println(new ObjectMapper().writeValueAsString(out));
+        } catch (IOException e) {
+            CLI.cliError("cannot write archive: %s", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CLI.cliError("interrupted");
+        }
+    }
+
+    /**
+     * Handles --cds-training (internal: run by --generate-cds). Every step is
+     * best-effort; a node that fails to train is only missing from the archive.
+     */
+    static void train() {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            App.Init();
+        } catch (Exception e) {
+            System.err.println("cds: " + e);
+        }
+        List<Class<?>> classes = Runtime.RegisteredNodes();
+        if (classes == null) {
+            classes = List.of();
+        }
+
+        // Spec generation and config binding
+        for (Class<?> c : classes) {
+            try {
+                Spec.SpecMapper().writeValueAsString(Spec.NodeSpec(SpecModel.of(c)));
+                String guid = "cds-" + c.getName();
+                NodeFactory factory = new NodeFactory(c);
+                factory.Create(("{\"guid\":\"" + guid + "\"}").getBytes(StandardCharsets.UTF_8));
+                Runtime.Nodes().remove(guid);
+            } catch (Exception | LinkageError e) {
+                System.err.println("cds: " + c.getName() + ": " + e);
+            }
+        }
+
+        // Node lifecycle over gRPC
+        try {
+            trainServer();
+        } catch (Exception e) {
+            System.err.println("cds: grpc: " + e);
+        }
+
+        // CLI dry run
+        for (CLI.CommandEntry cmd : CLI.buildCommandMap().values()) {
+            try {
+                Node node = CLI.newNode(cmd, "cds-cli", cmd.toolName, null, null);
+                CLI.buildFlagMap(cmd.nodeClass, node);
+                CLI.buildContext(cmd, node, Map.of());
+            } catch (Exception e) {
+                System.err.println("cds: " + cmd.toolName + ": " + e);
+            }
+        }
+        CLI.gatherCommands();
+
+        System.setOut(stdout);
+        System.exit(0);
+    }
+
+    /**
+     * A node that does nothing, so the RPC path can run without side effects.
+     */
+    static final class TrainingNode extends Node {
+    }
+
+    private static void trainServer() throws Exception {
+        Runtime.CreateNode(TRAINING_NODE, new NodeFactory(TrainingNode.class));
+
+        HealthServiceImpl health = new HealthServiceImpl();
+        health.SetStatus("plugin", ServingStatus.SERVING);
+        Server server = ServerBuilder.forPort(0).addService(health).addService(new NodeServer()).build().start();
+        ManagedChannel channel = ManagedChannelBuilder.forAddress("127.0.0.1", server.getPort())
+                .usePlaintext()
+                .build();
+        try {
+            HealthGrpc.newBlockingStub(channel).check(HealthCheckRequest.newBuilder().setService("plugin").build());
+            NodeGrpc.NodeBlockingStub node = NodeGrpc.newBlockingStub(channel);
+            node.getCapabilities(Empty.newBuilder().build());
+
+            String guid = "cds-training";
+            node.onCreate(OnCreateRequest.newBuilder()
+                    .setName(TRAINING_NODE)
+                    .setConfig(ByteString.copyFromUtf8("{\"guid\":\"" + guid + "\",\"name\":\"training\"}"))
+                    .build());
+            node.onMessage(OnMessageRequest.newBuilder()
+                    .setGuid(guid)
+                    .setInMessage(ByteString.copyFrom(Runtime.Compress(
+                            "{\"text\":\"hello\",\"n\":1}".getBytes(StandardCharsets.UTF_8))))
+                    .build());
+            node.onClose(OnCloseRequest.newBuilder().setGuid(guid).build());
+            Runtime.Nodes().remove(guid);
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    // --- Benchmark ---
+
+    /**
+     * Handles --cds-benchmark[=runs] [--archive=path]: times --list-commands
+     * launches with and without the archive and prints the medians.
+     */
+    static void benchmark(String[] args) {
+        if (CLISession.isNativeImage()) {
+            CLI.cliError("--cds-benchmark is not supported by native images");
+            return;
+        }
+        int runs = 10;
+        int eq = args[0].indexOf('=');
+        if (eq >= 0) {
+            try {
+                runs = Math.max(1, Integer.parseInt(args[0].substring(eq + 1)));
+            } catch (NumberFormatException e) {
+                CLI.cliError("invalid run count: %s", args[0].substring(eq + 1));
+                return;
+            }
+        }
+        Map<String, String> flags;
+        try {
+            flags = CLI.parseFlags(args, 1);
+        } catch (Exception e) {
+            CLI.cliError("%s", e.getMessage());
+            return;
+        }
+        List<String> options = jvmOptions();
+        if (flags.containsKey("archive")) {
+            Path archive = Path.of(flags.get("archive")).toAbsolutePath();
+            options = Files.isRegularFile(archive) ? jvmOptions(archive) : List.of();
+        }
+        if (options.isEmpty()) {
+            CLI.cliError("no CDS archive, run --generate-cds first");
+            return;
+        }
+
+        try {
+            // One untimed launch each warms the page cache.
+            long[] baseline = new long[runs];
+            long[] cds = new long[runs];
+            launch(List.of());
+            launch(options);
+            for (int i = 0; i < runs; i++) {
+                baseline[i] = launch(List.of());
+                cds[i] = launch(options);
+            }
+            double b = median(baseline);
+            double c = median(cds);
+
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("runs", runs);
+            out.put("baseline_ms", b);
+            out.put("cds_ms", c);
+            out.put("speedup", Math.round(b / c * 100) / 100.0);
+            System.out.println(new ObjectMapper().writeValueAsString(out));
+        } catch (IOException e) {
+            CLI.cliError("benchmark failed: %s", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CLI.cliError("interrupted");
+        }
+    }
+
+    private static long launch(List<String> options) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>(CLISession.launchCommand(options));
+        cmd.add("--list-commands");
+        long start = System.nanoTime();
+        Process p = new ProcessBuilder(cmd)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        int code = p.waitFor();
+        if (code != 0) {
+            throw new IOException("launch exited with " + code + ": " + String.join(" ", cmd));
+        }
+        return System.nanoTime() - start;
+    }
+
+    static double median(long[] nanos) {
+        long[] s = nanos.clone();
+        Arrays.sort(s);
+        int n = s.length;
+        long m = n % 2 == 1 ? s[n / 2] : (s[n / 2 - 1] + s[n / 2]) / 2;
+        return Math.round(m / 1e5) / 10.0;
+    }
+}
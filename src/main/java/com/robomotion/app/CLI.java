@@ -1,7 +1,6 @@
 package com.robomotion.app;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -12,8 +11,6 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.robomotion.app.Runtime.Credential;
-import com.robomotion.app.Runtime.InVariable;
-import com.robomotion.app.Runtime.OptVariable;
 import com.robomotion.app.Runtime.OutVariable;
 
 import org.json.simple.JSONObject;
@@ -58,6 +55,9 @@ public class CLI {
             case "-h":
                 printHelp();
                 return;
+            case "--batch":
+                CLIBatch.run(args);
+                return;
         }
 
         // Build tool name → node class mapping
@@ -156,27 +156,10 @@ public class CLI {
         Runtime.cliMode = true;
 
         try {
-            // Instantiate node
-            Node node = (Node) cmd.nodeClass.getDeclaredConstructor().newInstance();
-            node.guid = "cli-node";
-            node.name = commandName;
-
-            // Initialize null Variable/Credential/option fields from annotations
-            // (needed for legacy-style nodes where fields lack initializers)
-            initializeNodeFields(cmd.nodeClass, node);
-
-            // If vault flags: set credential vaultId/itemId on Credential fields
-            if (vaultID != null && itemID != null) {
-                injectCredentials(cmd.nodeClass, node, vaultID, itemID);
-            }
+            Node node = newNode(cmd, "cli-node", commandName, vaultID, itemID);
 
             // Build message context from flags
-            Map<String, Object> msgData = new LinkedHashMap<>();
-            applyFlags(cmd.nodeClass, node, flags, msgData);
-
-            // Build message context
-            byte[] msgJSON = Runtime.Serialize(msgData);
-            Context ctx = new Message(msgJSON != null ? msgJSON : "{}".getBytes(StandardCharsets.UTF_8));
+            Context ctx = buildContext(cmd, node, flags);
 
             // Run node lifecycle: OnCreate → OnMessage → OnClose
             node.OnCreate();
@@ -216,6 +199,39 @@ public class CLI {
         }
     }
 
+    /**
+     * Instantiates a command's node with its fields initialized and, given
+     * vault flags, its credentials pointed at the vault item.
+     */
+    static Node newNode(CommandEntry cmd, String guid, String commandName,
+            String vaultID, String itemID) throws Exception {
+        Node node = NodeDescriptor.of(cmd.nodeClass).newInstance();
+        node.guid = guid;
+        node.name = commandName;
+
+        // Initialize null Variable/Credential/option fields from annotations
+        // (needed for legacy-style nodes where fields lack initializers)
+        initializeNodeFields(cmd.nodeClass, node);
+
+        // If vault flags: set credential vaultId/itemId on Credential fields
+        if (vaultID != null && itemID != null) {
+            injectCredentials(cmd.nodeClass, node, vaultID, itemID);
+        }
+        return node;
+    }
+
+    /**
+     * Applies flags to node (options, custom-scope variables) and returns a
+     * message context holding the rest.
+     */
+    static Context buildContext(CommandEntry cmd, Node node, Map<String, String> flags) {
+        Map<String, Object> msgData = new LinkedHashMap<>();
+        applyFlags(cmd.nodeClass, node, flags, msgData);
+
+        byte[] msgJSON = Runtime.Serialize(msgData);
+        return new Message(msgJSON != null ? msgJSON : "{}".getBytes(StandardCharsets.UTF_8));
+    }
+
     // --- Command map ---
 
     static Map<String, CommandEntry> buildCommandMap() {
@@ -224,15 +240,9 @@ public class CLI {
         if (classes == null) return commands;
 
         for (Class<?> c : classes) {
-            for (Field f : c.getFields()) {
-                if (Tool.class.isAssignableFrom(f.getType())) {
-                    Tool.ToolInfo info = f.getAnnotation(Tool.ToolInfo.class);
-                    if (info != null && !info.name().isEmpty()) {
-                        commands.put(info.name(), new CommandEntry(
-                                c, Spec.GetNamespace(c), info.name(), info.description()));
-                        break;
-                    }
-                }
+            NodeDescriptor d = NodeDescriptor.of(c);
+            if (d.toolName != null) {
+                commands.put(d.toolName, new CommandEntry(c, d.namespace, d.toolName, d.toolDescription));
             }
         }
 
@@ -293,46 +303,39 @@ public class CLI {
     static Map<String, FlagEntry> buildFlagMap(Class<?> nodeClass, Node node) {
         Map<String, FlagEntry> mapping = new LinkedHashMap<>();
 
-        for (Field f : nodeClass.getFields()) {
-            java.lang.reflect.Type t = f.getGenericType();
+        for (NodeDescriptor.FieldInfo fi : NodeDescriptor.of(nodeClass).fields) {
+            if (fi.isVariable()) {
+                try {
+                    Runtime.Variable<?> variable = (Runtime.Variable<?>) fi.get(node);
+                    if (variable == null) continue;
 
-            if (t instanceof ParameterizedType pT) {
-                Class<?> rawType = (Class<?>) pT.getRawType();
-                if (Runtime.Variable.class.isAssignableFrom(rawType)) {
-                    try {
-                        f.setAccessible(true);
-                        Runtime.Variable<?> variable = (Runtime.Variable<?>) f.get(node);
-                        if (variable == null) continue;
+                    String specName = variable.getNameString();
+                    String scope = variable.scope;
 
-                        String specName = variable.getNameString();
-                        String scope = variable.scope;
-
-                        if (specName != null && !specName.isEmpty()) {
-                            String flagName = camelToKebab(specName);
-                            mapping.put(flagName, new FlagEntry(f, specName, scope, false));
-                        } else {
-                            // Unnamed variable (Custom scope): derive from title
-                            String title = Spec.GetTitle(f);
-                            if (title != null && !title.isEmpty()) {
-                                String flagName = camelToKebab(title);
-                                mapping.put(flagName, new FlagEntry(f, "", "Custom", false));
-                            }
+                    if (specName != null && !specName.isEmpty()) {
+                        String flagName = camelToKebab(specName);
+                        mapping.put(flagName, new FlagEntry(fi, specName, scope, false));
+                    } else {
+                        // Unnamed variable (Custom scope): derive from title
+                        String title = fi.title;
+                        if (title != null && !title.isEmpty()) {
+                            String flagName = camelToKebab(title);
+                            mapping.put(flagName, new FlagEntry(fi, "", "Custom", false));
                         }
-                    } catch (Exception e) {
-                        continue;
                     }
+                } catch (Exception e) {
+                    continue;
                 }
-            } else if (!Tool.class.isAssignableFrom(f.getType())
-                    && !Credential.class.isAssignableFrom(f.getType())) {
+            } else if (fi.kind == NodeDescriptor.Kind.PLAIN) {
                 // Check for enum option fields
-                String enumValues = getEnumValues(f);
+                String enumValues = fi.enumValues;
                 if (enumValues != null && !enumValues.isEmpty()) {
-                    String title = Spec.GetTitle(f);
+                    String title = fi.title;
                     if (title == null || title.isEmpty()) {
-                        title = Spec.LowerFirstLetter(f.getName());
+                        title = fi.specName;
                     }
                     String flagName = camelToKebab(title);
-                    mapping.put(flagName, new FlagEntry(f, Spec.LowerFirstLetter(f.getName()), "", true));
+                    mapping.put(flagName, new FlagEntry(fi, fi.specName, "", true));
                 }
             }
         }
@@ -359,12 +362,10 @@ public class CLI {
             try {
                 if (fe.isOption) {
                     // Set field value directly on node
-                    fe.field.setAccessible(true);
-                    setFieldValue(fe.field, node, value);
+                    setFieldValue(fe.info, node, value);
                 } else if ("Custom".equals(fe.scope)) {
                     // Custom-scope: set variable.name = value
-                    fe.field.setAccessible(true);
-                    Runtime.Variable<?> variable = (Runtime.Variable<?>) fe.field.get(node);
+                    Runtime.Variable<?> variable = (Runtime.Variable<?>) fe.info.get(node);
                     variable.name = value;
                 } else {
                     // Message scope: put in message context
@@ -378,11 +379,10 @@ public class CLI {
     }
 
     private static void injectCredentials(Class<?> nodeClass, Node node, String vaultID, String itemID) {
-        for (Field f : nodeClass.getFields()) {
-            if (Credential.class.isAssignableFrom(f.getType())) {
+        for (NodeDescriptor.FieldInfo fi : NodeDescriptor.of(nodeClass).fields) {
+            if (fi.kind == NodeDescriptor.Kind.CREDENTIAL) {
                 try {
-                    f.setAccessible(true);
-                    Credential cred = (Credential) f.get(node);
+                    Credential cred = (Credential) fi.get(node);
                     if (cred != null) {
                         cred.vaultId = vaultID;
                         cred.itemId = itemID;
@@ -399,91 +399,62 @@ public class CLI {
      * Needed for legacy-style nodes where fields lack initializers (populated by
      * Gson deserialization in gRPC mode but null after plain constructor call).
      */
-    @SuppressWarnings("unchecked")
     static void initializeNodeFields(Class<?> nodeClass, Node node) throws Exception {
-        for (Field f : nodeClass.getFields()) {
-            f.setAccessible(true);
-
-            java.lang.reflect.Type t = f.getGenericType();
-            if (t instanceof ParameterizedType pT) {
-                Class<?> rawType = (Class<?>) pT.getRawType();
-
-                // Initialize null Variable fields from @FieldAnnotations.Default or @Var
-                if (Runtime.Variable.class.isAssignableFrom(rawType) && f.get(node) == null) {
-                    String scope = "";
-                    String name = "";
-
-                    FieldAnnotations.Default defAnn = f.getAnnotation(FieldAnnotations.Default.class);
-                    if (defAnn != null) {
-                        scope = defAnn.scope();
-                        name = defAnn.name();
+        for (NodeDescriptor.FieldInfo fi : NodeDescriptor.of(nodeClass).fields) {
+            switch (fi.kind) {
+                case IN_VARIABLE:
+                case OUT_VARIABLE:
+                case OPT_VARIABLE:
+                    // Initialize null Variable fields from @FieldAnnotations.Default or @Var
+                    if (fi.get(node) == null) {
+                        fi.set(node, fi.newVariable());
                     }
-
-                    // Also check @Var annotation
-                    if (scope.isEmpty()) {
-                        Var varAnn = f.getAnnotation(Var.class);
-                        if (varAnn != null) {
-                            scope = varAnn.defaultScope();
-                            if (name.isEmpty()) name = varAnn.defaultName();
-                        }
+                    break;
+                case CREDENTIAL:
+                    // Initialize null Credential fields
+                    if (fi.get(node) == null) {
+                        fi.set(node, new Credential("Custom", null, null, null));
                     }
-
-                    if (scope.isEmpty()) scope = "Custom";
-
-                    Runtime.Variable<?> variable;
-                    if (InVariable.class.isAssignableFrom(rawType)) {
-                        variable = new InVariable<>(scope, name);
-                    } else if (OutVariable.class.isAssignableFrom(rawType)) {
-                        variable = new OutVariable<>(scope, name);
-                    } else if (OptVariable.class.isAssignableFrom(rawType)) {
-                        variable = new OptVariable<>(scope, name);
-                    } else {
-                        continue;
-                    }
-
-                    f.set(node, variable);
-                }
-            } else if (Credential.class.isAssignableFrom(f.getType()) && f.get(node) == null) {
-                // Initialize null Credential fields
-                f.set(node, new Credential("Custom", null, null, null));
-            } else {
-                // Initialize non-variable option fields from @FieldAnnotations.Default(value=...)
-                FieldAnnotations.Default defAnn = f.getAnnotation(FieldAnnotations.Default.class);
-                if (defAnn != null && !defAnn.value().isEmpty()) {
-                    try {
-                        Class<?> type = f.getType();
-                        if (type == String.class && f.get(node) == null) {
-                            f.set(node, defAnn.value());
-                        } else if ((type == int.class || type == Integer.class) && ((int) f.get(node)) == 0) {
-                            f.set(node, Integer.parseInt(defAnn.value()));
-                        } else if ((type == float.class || type == Float.class) && ((float) f.get(node)) == 0.0f) {
-                            f.set(node, Float.parseFloat(defAnn.value()));
-                        } else if ((type == double.class || type == Double.class) && ((double) f.get(node)) == 0.0) {
-                            f.set(node, Double.parseDouble(defAnn.value()));
-                        } else if ((type == boolean.class || type == Boolean.class)) {
-                            f.set(node, Boolean.parseBoolean(defAnn.value()));
+                    break;
+                case TOOL:
+                case PLAIN:
+                    // Initialize non-variable option fields from @FieldAnnotations.Default(value=...)
+                    if (!fi.defaultValue.isEmpty()) {
+                        try {
+                            Class<?> type = fi.field.getType();
+                            String value = fi.defaultValue;
+                            if (type == String.class && fi.get(node) == null) {
+                                fi.set(node, value);
+                            } else if ((type == int.class || type == Integer.class) && ((int) fi.get(node)) == 0) {
+                                fi.set(node, Integer.parseInt(value));
+                            } else if ((type == float.class || type == Float.class) && ((float) fi.get(node)) == 0.0f) {
+                                fi.set(node, Float.parseFloat(value));
+                            } else if ((type == double.class || type == Double.class) && ((double) fi.get(node)) == 0.0) {
+                                fi.set(node, Double.parseDouble(value));
+                            } else if ((type == boolean.class || type == Boolean.class)) {
+                                fi.set(node, Boolean.parseBoolean(value));
+                            }
+                        } catch (Exception e) {
+                            // Skip on parse error
                         }
-                    } catch (Exception e) {
-                        // Skip on parse error
                     }
-                }
+                    break;
+                default:
+                    break;
             }
         }
     }
 
     // --- Output collection ---
 
-    private static Map<String, Object> collectOutput(Class<?> nodeClass, Node node, Context ctx) {
+    static Map<String, Object> collectOutput(Class<?> nodeClass, Node node, Context ctx) {
         Map<String, Object> output = new LinkedHashMap<>();
 
-        for (Field f : nodeClass.getFields()) {
-            java.lang.reflect.Type t = f.getGenericType();
-            if (!(t instanceof ParameterizedType pT)) continue;
-            if (!OutVariable.class.isAssignableFrom((Class<?>) pT.getRawType())) continue;
+        for (NodeDescriptor.FieldInfo fi : NodeDescriptor.of(nodeClass).fields) {
+            if (fi.kind != NodeDescriptor.Kind.OUT_VARIABLE) continue;
 
             try {
-                f.setAccessible(true);
-                OutVariable<?> variable = (OutVariable<?>) f.get(node);
+                OutVariable<?> variable = (OutVariable<?>) fi.get(node);
                 if (variable == null) continue;
 
                 String name = variable.getNameString();
@@ -513,69 +484,53 @@ public class CLI {
         if (classes == null) return commands;
 
         for (Class<?> c : classes) {
-            // Find Tool field with @ToolInfo
-            String toolName = null;
-            String toolDescription = null;
-
-            for (Field f : c.getFields()) {
-                if (Tool.class.isAssignableFrom(f.getType())) {
-                    Tool.ToolInfo info = f.getAnnotation(Tool.ToolInfo.class);
-                    if (info != null && !info.name().isEmpty()) {
-                        toolName = info.name();
-                        toolDescription = info.description();
-                        break;
-                    }
-                }
-            }
+            NodeDescriptor d = NodeDescriptor.of(c);
+            String toolName = d.toolName;
+            String toolDescription = d.toolDescription;
 
             if (toolName == null) continue;
 
             Map<String, Object> cmd = new LinkedHashMap<>();
             cmd.put("name", toolName);
             cmd.put("description", toolDescription != null ? toolDescription : "");
-            cmd.put("node_id", Spec.GetNamespace(c));
+            cmd.put("node_id", d.namespace);
 
             List<Map<String, Object>> params = new ArrayList<>();
             List<Map<String, Object>> outputs = new ArrayList<>();
 
             // Instantiate temp node to read variable names
             try {
-                Node tempNode = (Node) c.getDeclaredConstructor().newInstance();
+                Node tempNode = d.newInstance();
                 initializeNodeFields(c, tempNode);
 
-                for (Field f : c.getFields()) {
+                for (NodeDescriptor.FieldInfo fi : d.fields) {
                     // Skip Tool and Credential fields
-                    if (Tool.class.isAssignableFrom(f.getType())) continue;
-                    if (Credential.class.isAssignableFrom(f.getType())) continue;
+                    if (fi.kind == NodeDescriptor.Kind.TOOL) continue;
+                    if (fi.kind == NodeDescriptor.Kind.CREDENTIAL) continue;
+                    if (fi.kind == NodeDescriptor.Kind.GENERIC) continue;
 
-                    java.lang.reflect.Type t = f.getGenericType();
-
-                    if (t instanceof ParameterizedType pT) {
-                        Class<?> rawType = (Class<?>) pT.getRawType();
-                        if (!Runtime.Variable.class.isAssignableFrom(rawType)) continue;
-
-                        f.setAccessible(true);
-                        Runtime.Variable<?> variable = (Runtime.Variable<?>) f.get(tempNode);
+                    if (fi.isVariable()) {
+                        Runtime.Variable<?> variable = (Runtime.Variable<?>) fi.get(tempNode);
                         if (variable == null) continue;
 
                         String specName = variable.getNameString();
-                        String varType = getVariableType(f);
+                        String varType = fi.valueType;
 
                         // Derive flag name
                         String flagName = "";
                         if (specName != null && !specName.isEmpty()) {
                             flagName = camelToKebab(specName);
                         } else {
-                            String title = Spec.GetTitle(f);
+                            String title = fi.title;
                             if (title != null && !title.isEmpty()) {
                                 flagName = camelToKebab(title);
                             }
                         }
                         if (flagName.isEmpty()) continue;
 
-                        String description = Spec.GetDescription(f);
+                        String description = fi.description;
 
-                        if (InVariable.class.isAssignableFrom(rawType)) {
+                        if (fi.kind == NodeDescriptor.Kind.IN_VARIABLE) {
                             Map<String, Object> param = new LinkedHashMap<>();
                             param.put("name", flagName);
                             param.put("type", varType);
@@ -584,7 +539,7 @@ public class CLI {
                                 param.put("description", description);
                             }
                             params.add(param);
-                        } else if (OptVariable.class.isAssignableFrom(rawType)) {
+                        } else if (fi.kind == NodeDescriptor.Kind.OPT_VARIABLE) {
                             Map<String, Object> param = new LinkedHashMap<>();
                             param.put("name", flagName);
                             param.put("type", varType);
@@ -593,7 +548,7 @@ public class CLI {
                                 param.put("description", description);
                             }
                             params.add(param);
-                        } else if (OutVariable.class.isAssignableFrom(rawType)) {
+                        } else if (fi.kind == NodeDescriptor.Kind.OUT_VARIABLE) {
                             if (specName != null && !specName.isEmpty()) {
                                 Map<String, Object> out = new LinkedHashMap<>();
                                 out.put("name", specName);
@@ -603,14 +558,14 @@ public class CLI {
                         }
                     } else {
                         // Check for enum option fields (non-variable)
-                        String enumValues = getEnumValues(f);
+                        String enumValues = fi.enumValues;
                         if (enumValues != null && !enumValues.isEmpty()) {
-                            String title = Spec.GetTitle(f);
+                            String title = fi.title;
                             if (title == null || title.isEmpty()) {
-                                title = f.getName();
+                                title = fi.name;
                             }
                             String flagName = camelToKebab(title);
-                            String description = Spec.GetDescription(f);
+                            String description = fi.description;
 
                             Map<String, Object> param = new LinkedHashMap<>();
                             param.put("name", flagName);
@@ -784,6 +739,11 @@ public class CLI {
         System.err.printf("  %-32s %s%n", "--vault NAME", "Vault name (resolved to ID via API)");
         System.err.printf("  %-32s %s%n", "--item NAME", "Item name (resolved to ID via API)");
 
+        System.err.println("\nBatch Mode:");
+        System.err.printf("  %-32s %s%n", "--batch [FILE]", "Run JSONL commands from FILE or stdin");
+        System.err.printf("  %-32s %s%n", "--parallel N", "Commands run concurrently (default 1)");
+        System.err.printf("  %-32s %s%n", "--order input|completion", "Result order (default input)");
+
         System.err.println("\nEnvironment:");
         System.err.printf("  %-32s %s%n", "ROBOMOTION_API_TOKEN",
                 "API bearer token (from runner, skips robomotion login)");
@@ -837,34 +797,7 @@ public class CLI {
     }
 
     static String getVariableType(Field f) {
-        java.lang.reflect.Type t = f.getGenericType();
-        if (t instanceof ParameterizedType pT) {
-            java.lang.reflect.Type[] typeArgs = pT.getActualTypeArguments();
-            if (typeArgs.length > 0) {
-                String typeName = typeArgs[0].getTypeName();
-                if (typeName.contains("String")) return "string";
-                if (typeName.contains("Integer") || typeName.contains("Long")) return "number";
-                if (typeName.contains("Double") || typeName.contains("Float")) return "number";
-                if (typeName.contains("Boolean")) return "boolean";
-                if (typeName.contains("Map")) return "object";
-                if (typeName.contains("List")) return "array";
-            }
-        }
-        return "string";
-    }
-
-    private static String getEnumValues(Field f) {
-        // Check combined annotation first
-        Var var = f.getAnnotation(Var.class);
-        if (var != null && !var.enumValues().isEmpty()) {
-            return var.enumValues();
-        }
-        // Fall back to legacy annotation
-        FieldAnnotations.Enum enumAnn = f.getAnnotation(FieldAnnotations.Enum.class);
-        if (enumAnn != null && !enumAnn.enumeration().isEmpty()) {
-            return enumAnn.enumeration();
-        }
-        return null;
+        return NodeDescriptor.FieldInfo.valueType(f.getGenericType());
     }
 
     @SuppressWarnings("unchecked")
@@ -876,9 +809,8 @@ public class CLI {
         }
     }
 
-    private static void setFieldValue(Field field, Object target, String value) throws Exception {
-        field.setAccessible(true);
-        Class<?> type = field.getType();
+    private static void setFieldValue(NodeDescriptor.FieldInfo field, Object target, String value) throws Exception {
+        Class<?> type = field.field.getType();
         if (type == String.class) {
             field.set(target, value);
         } else if (type == boolean.class || type == Boolean.class) {
@@ -925,13 +857,15 @@ public class CLI {
     }
 
     static class FlagEntry {
+        final NodeDescriptor.FieldInfo info;
         final Field field;
         final String specName;
         final String scope;
         final boolean isOption;
 
-        FlagEntry(Field field, String specName, String scope, boolean isOption) {
-            this.field = field;
+        FlagEntry(NodeDescriptor.FieldInfo info, String specName, String scope, boolean isOption) {
+            this.info = info;
+            this.field = info.field;
             this.specName = specName;
             this.scope = scope;
             this.isOption = isOption;
@@ -0,0 +1,398 @@
+package com.robomotion.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Batch mode: runs many commands in one process.
+ * <p>
+ * Input is JSONL, one invocation per line:
+ * <pre>{@code
+ * {"id": 1, "command": "fetch", "flags": {"url": "https://..."}, "vault_id": "...", "item_id": "..."}
+ * }</pre>
+ * ("vault"/"item" resolve names, like the CLI flags). Each invocation yields
+ * one JSONL line on stdout with its input sequence number, the id if given,
+ * and either "result" or "error". Results come out in input order, or as
+ * they complete with --order=completion.
+ * <p>
+ * Commands run on --parallel worker threads. Nodes are kept after OnCreate
+ * and reused by later invocations of the same command with the same
+ * node-level settings (options, custom variables, vault item); a node is
+ * only used by one invocation at a time. All nodes are closed at the end.
+ */
+final class CLIBatch {
+
+    static final int DEFAULT_PARALLEL = 1;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /** One input line. */
+    static class Invocation {
+        public Object id;
+        public String command;
+        public Map<String, Object> flags = new LinkedHashMap<>();
+        public String vault_id;
+        public String item_id;
+        public String vault;
+        public String item;
+    }
+
+    private final Map<String, CLI.CommandEntry> commands;
+    private final CLIRuntimeHelper helper;
+    private final int parallel;
+    private final boolean inputOrder;
+    private final PrintStream out;
+
+    // Idle nodes by reuse key, and every node created (for OnClose).
+    private final Map<String, ConcurrentLinkedDeque<Node>> idle = new ConcurrentHashMap<>();
+    private final List<Node> created = new ArrayList<>();
+    private final Map<String, Map<String, CLI.FlagEntry>> flagMaps = new ConcurrentHashMap<>();
+    private final AtomicInteger nodeSeq = new AtomicInteger();
+
+    // Vault lookups, guarded by this.
+    private CLIVaultClient vaultClient;
+    private final Map<String, String> vaultIDs = new HashMap<>();
+    private final Map<String, String> itemIDs = new HashMap<>();
+
+    // Credential fetches by vault/item; different items are fetched concurrently.
+    private final Map<String, CompletableFuture<Void>> fetched = new ConcurrentHashMap<>();
+
+    // Output, guarded by pending.
+    private final TreeMap<Long, Map<String, Object>> pending = new TreeMap<>();
+    // One permit per invocation read but not yet printed, so reading ahead
+    // bounds both queued work and results held back for input order.
+    private final Semaphore inFlight;
+    private long next;
+    private int failed;
+
+    CLIBatch(Map<String, CLI.CommandEntry> commands, CLIRuntimeHelper helper, int parallel,
+            boolean inputOrder, PrintStream out) {
+        this.commands = commands;
+        this.helper = helper;
+        this.parallel = Math.max(1, parallel);
+        this.inputOrder = inputOrder;
+        this.out = out;
+        this.inFlight = new Semaphore(this.parallel * 4);
+    }
+
+    /**
+     * Entry point for --batch [FILE] [--parallel N] [--order input|completion].
+     */
+    static void run(String[] args) {
+        Map<String, String> opts;
+        try {
+            opts = CLI.parseFlags(args, 0);
+        } catch (Exception e) {
+            CLI.cliError("%s", e.getMessage());
+            return;
+        }
+
+        int parallel = DEFAULT_PARALLEL;
+        try {
+            parallel = Integer.parseInt(opts.getOrDefault("parallel", String.valueOf(DEFAULT_PARALLEL)));
+        } catch (NumberFormatException e) {
+            CLI.cliError("--parallel must be a number");
+            return;
+        }
+        String order = opts.getOrDefault("order", "input");
+        if (!order.equals("input") && !order.equals("completion")) {
+            CLI.cliError("--order must be \"input\" or \"completion\"");
+            return;
+        }
+
+        CLIRuntimeHelper helper = new CLIRuntimeHelper();
+        Runtime.testHelper = helper;
+        Runtime.cliMode = true;
+
+        String file = opts.get("batch");
+        int failed;
+        try (BufferedReader in = file == null || file.equals("true") || file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+            failed = new CLIBatch(CLI.buildCommandMap(), helper, parallel, order.equals("input"), System.out)
+                    .run(in);
+        } catch (IOException e) {
+            CLI.cliError("batch input: %s", e.getMessage());
+            return;
+        }
+
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs every invocation read from in and returns the number that failed.
+     */
+    int run(BufferedReader in) throws IOException {
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(parallel, r -> {
+            Thread t = new Thread(r, "cli-batch-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            long seq = 0;
+            for (String line; (line = in.readLine()) != null; ) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                long n = seq++;
+                inFlight.acquireUninterruptibly();
+                Invocation inv;
+                try {
+                    inv = mapper.readValue(line, Invocation.class);
+                } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+                    emit(n, failure(n, null, null, "invalid input line: " + e.getOriginalMessage()));
+                    continue;
+                }
+                pool.execute(() -> emit(n, execute(n, inv)));
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        } finally {
+            closeAll();
+        }
+
+        synchronized (pending) {
+            return failed;
+        }
+    }
+
+    private Map<String, Object> execute(long seq, Invocation inv) {
+        CLI.CommandEntry cmd = inv.command != null ? commands.get(inv.command) : null;
+        if (cmd == null) {
+            return failure(seq, inv.id, inv.command, "unknown command \"" + inv.command + "\"");
+        }
+
+        Map<String, String> flags = stringFlags(inv.flags);
+        String vaultID = firstNonNull(inv.vault_id, flags.remove("vault-id"));
+        String itemID = firstNonNull(inv.item_id, flags.remove("item-id"));
+        String vaultName = firstNonNull(inv.vault, flags.remove("vault"));
+        String itemName = firstNonNull(inv.item, flags.remove("item"));
+        flags.remove("output");
+
+        Node node = null;
+        String key = null;
+        try {
+            if (vaultName != null || itemName != null) {
+                if (vaultName == null || itemName == null) {
+                    throw new Exception("vault and item must both be provided");
+                }
+                String[] ids = resolveNames(vaultName, itemName);
+                vaultID = ids[0];
+                itemID = ids[1];
+            }
+            if (vaultID != null && itemID != null) {
+                fetchCredentials(vaultID, itemID);
+            }
+
+            key = reuseKey(cmd, inv.command, vaultID, itemID, flags);
+            node = idle.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>()).poll();
+            boolean fresh = node == null;
+            if (fresh) {
+                node = CLI.newNode(cmd, "batch-node-" + nodeSeq.incrementAndGet(), inv.command, vaultID, itemID);
+            }
+
+            Context ctx = CLI.buildContext(cmd, node, flags);
+            if (fresh) {
+                try {
+                    node.OnCreate();
+                } catch (Exception e) {
+                    node = null;
+                    throw e;
+                }
+                synchronized (created) {
+                    created.add(node);
+                }
+            }
+            node.OnMessage(ctx);
+
+            Map<String, Object> line = header(seq, inv.id, inv.command);
+            line.put("result", CLI.collectOutput(cmd.nodeClass, node, ctx));
+            return line;
+        } catch (Exception e) {
+            return failure(seq, inv.id, inv.command, e.getMessage());
+        } finally {
+            if (node != null) {
+                idle.get(key).push(node);
+            }
+        }
+    }
+
+    /**
+     * Nodes are interchangeable when everything applied to the node itself
+     * (as opposed to the message) is the same.
+     */
+    private String reuseKey(CLI.CommandEntry cmd, String command, String vaultID, String itemID,
+            Map<String, String> flags) throws Exception {
+        Map<String, CLI.FlagEntry> flagMap = flagMaps.get(command);
+        if (flagMap == null) {
+            Node template = CLI.newNode(cmd, "", command, null, null);
+            flagMap = CLI.buildFlagMap(cmd.nodeClass, template);
+            flagMaps.put(command, flagMap);
+        }
+        StringBuilder sb = new StringBuilder(command).append('\0').append(vaultID).append('\0').append(itemID);
+        for (Map.Entry<String, String> e : new TreeMap<>(flags).entrySet()) {
+            CLI.FlagEntry fe = flagMap.get(e.getKey());
+            if (fe != null && (fe.isOption || "Custom".equals(fe.scope))) {
+                sb.append('\0').append(e.getKey()).append('=').append(e.getValue());
+            }
+        }
+        return sb.toString();
+    }
+
+    private synchronized String[] resolveNames(String vaultName, String itemName) throws Exception {
+        String vaultID = vaultIDs.get(vaultName);
+        if (vaultID == null) {
+            vaultID = vault().resolveVaultByName(vaultName);
+            vaultIDs.put(vaultName, vaultID);
+        }
+        String itemKey = vaultID + "/" + itemName;
+        String itemID = itemIDs.get(itemKey);
+        if (itemID == null) {
+            itemID = vault().resolveItemByName(vaultID, itemName);
+            itemIDs.put(itemKey, itemID);
+        }
+        return new String[] {vaultID, itemID};
+    }
+
+    private void fetchCredentials(String vaultID, String itemID) throws Exception {
+        String key = vaultID + "/" + itemID;
+        CLIVaultClient client = vault();
+        CompletableFuture<Void> f = fetched.computeIfAbsent(key, k -> client.fetchVaultItemAsync(vaultID, itemID)
+                .thenAccept(creds -> helper.setCredentials(vaultID, itemID, creds)));
+        try {
+            f.join();
+        } catch (CompletionException e) {
+            // Let a later invocation try again.
+            fetched.remove(key, f);
+            throw CLIVaultClient.unwrap(e);
+        }
+    }
+
+    private synchronized CLIVaultClient vault() throws Exception {
+        if (vaultClient == null) {
+            vaultClient = new CLIVaultClient();
+        }
+        return vaultClient;
+    }
+
+    private void closeAll() {
+        List<Node> nodes;
+        synchronized (created) {
+            nodes = new ArrayList<>(created);
+            created.clear();
+        }
+        for (Node node : nodes) {
+            try {
+                node.OnClose();
+            } catch (Exception e) {
+                System.err.printf("{\"warning\":\"OnClose %s: %s\"}%n", node.name, e.getMessage());
+            }
+        }
+        idle.clear();
+    }
+
+    // --- Output ---
+
+    private void emit(long seq, Map<String, Object> line) {
+        synchronized (pending) {
+            if (line.containsKey("error")) {
+                failed++;
+            }
+            if (!inputOrder) {
+                print(line);
+                inFlight.release();
+                return;
+            }
+            pending.put(seq, line);
+            for (Map<String, Object> l; (l = pending.remove(next)) != null; next++) {
+                print(l);
+                inFlight.release();
+            }
+        }
+    }
+
+    private void print(Map<String, Object> line) {
+        try {
+            out.println(mapper.writeValueAsString(line));
+        } catch (IOException e) {
+            out.println("{\"seq\":" + line.get("seq") + ",\"error\":\"unserializable result\"}");
+        }
+        out.flush();
+    }
+
+    private static Map<String, Object> header(long seq, Object id, String command) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("seq", seq);
+        if (id != null) {
+            line.put("id", id);
+        }
+        if (command != null) {
+            line.put("command", command);
+        }
+        return line;
+    }
+
+    private static Map<String, Object> failure(long seq, Object id, String command, String message) {
+        Map<String, Object> line = header(seq, id, command);
+        line.put("error", message != null ? message : "unknown error");
+        return line;
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Converts JSON flag values to the strings the CLI flag parser would
+     * produce (objects and arrays as JSON, booleans as "true"/"false").
+     */
+    static Map<String, String> stringFlags(Map<String, Object> flags) {
+        Map<String, String> out = new LinkedHashMap<>();
+        if (flags == null) {
+            return out;
+        }
+        for (Map.Entry<String, Object> e : flags.entrySet()) {
+            Object v = e.getValue();
+            if (v == null) {
+                continue;
+            }
+            if (v instanceof String || v instanceof Number || v instanceof Boolean) {
+                out.put(e.getKey(), v.toString());
+            } else {
+                byte[] json = Runtime.Serialize(v);
+                out.put(e.getKey(), json != null ? new String(json, StandardCharsets.UTF_8) : v.toString());
+            }
+        }
+        return out;
+    }
+
+    private static String firstNonNull(String a, String b) {
+        return a != null ? a : b;
+    }
+}
@@ -0,0 +1,285 @@
+package com.robomotion.app;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps node instances warm inside a session daemon so repeated commands
+ * skip OnCreate/OnClose and keep whatever the node set up (connection pools,
+ * browser handles, logins).
+ * <p>
+ * Clients derive a pool key from the command name and a hash of its config
+ * and send a guid of key.nonce, unique per call. {@link #acquire} checks out
+ * an idle instance created for the same key, exclusively: nodes are not
+ * assumed to be thread-safe, so concurrent identical calls get separate
+ * instances. The call's guid is an alias of the instance until
+ * {@link #release}. The pool is bounded (the least recently used idle
+ * instance is closed first) and idle instances are closed after a timeout.
+ * <p>
+ * A checkout is a lease: if no message arrives for it within the lease time
+ * (the client went away between OnCreate and OnMessage), the sweeper closes
+ * the instance instead of leaving it checked out forever. Once the message
+ * has started ({@link #begin}) the lease no longer applies.
+ */
+final class CLINodePool {
+
+    static final int DEFAULT_MAX_SIZE = 16;
+    static final long DEFAULT_IDLE_MS = 10 * 60 * 1000;
+    static final long DEFAULT_LEASE_MS = 10 * 60 * 1000;
+
+    /**
+     * A pooled node; callGuid is the call that has it checked out, or null if
+     * idle, and running is set once that call's message is being handled.
+     */
+    private static final class Instance {
+        final String key;
+        final String guid;
+        long lastUsed;
+        String callGuid;
+        boolean running;
+
+        Instance(String key, String guid, long lastUsed) {
+            this.key = key;
+            this.guid = guid;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private final int maxSize;
+    private final long idleMs;
+    private final long leaseMs;
+
+    // Instances by their own guid, in access order; and checkouts by call guid.
+    private final LinkedHashMap<String, Instance> instances = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Instance> checkedOut = new HashMap<>();
+    private ScheduledExecutorService sweeper;
+
+    CLINodePool(int maxSize, long idleMs, long leaseMs) {
+        this.maxSize = Math.max(1, maxSize);
+        this.idleMs = idleMs;
+        this.leaseMs = leaseMs;
+    }
+
+    /**
+     * Creates a pool sized from robomotion.session.pool_size,
+     * robomotion.session.pool_idle_seconds and
+     * robomotion.session.pool_lease_seconds.
+     */
+    static CLINodePool fromProperties() {
+        int size = DEFAULT_MAX_SIZE;
+        long idle = DEFAULT_IDLE_MS;
+        long lease = DEFAULT_LEASE_MS;
+        try {
+            size = Integer.parseInt(Runtime.getProperty("robomotion.session.pool_size", String.valueOf(size)).trim());
+            idle = Long.parseLong(Runtime.getProperty("robomotion.session.pool_idle_seconds",
+                    String.valueOf(idle / 1000)).trim()) * 1000;
+            lease = Long.parseLong(Runtime.getProperty("robomotion.session.pool_lease_seconds",
+                    String.valueOf(lease / 1000)).trim()) * 1000;
+        } catch (NumberFormatException e) {
+            // keep defaults
+        }
+        return new CLINodePool(size, idle, lease);
+    }
+
+    /**
+     * Starts the background pass that closes idle instances and expired checkouts.
+     */
+    synchronized void startSweeper() {
+        if (sweeper != null || (idleMs <= 0 && leaseMs <= 0)) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-node-pool");
+            t.setDaemon(true);
+            return t;
+        });
+        long shortest = Math.min(idleMs > 0 ? idleMs : Long.MAX_VALUE, leaseMs > 0 ? leaseMs : Long.MAX_VALUE);
+        long period = Math.max(1000, Math.min(shortest / 2, 60_000));
+        sweeper.scheduleWithFixedDelay(() -> sweep(System.currentTimeMillis()), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks out the most recently used idle instance for key and makes
+     * callGuid an alias of it. Returns false if there is none.
+     */
+    synchronized boolean acquire(String key, String callGuid) {
+        Instance found = null;
+        for (Instance inst : new ArrayList<>(instances.values())) {
+            if (inst.callGuid != null || !inst.key.equals(key)) {
+                continue;
+            }
+            if (!Runtime.Nodes().containsKey(inst.guid)) {
+                instances.remove(inst.guid);
+                continue;
+            }
+            found = inst;
+        }
+        if (found == null) {
+            return false;
+        }
+        instances.get(found.guid);
+        found.callGuid = callGuid;
+        found.lastUsed = System.currentTimeMillis();
+        checkedOut.put(callGuid, found);
+        if (!callGuid.equals(found.guid)) {
+            Runtime.Nodes().put(callGuid, Runtime.Nodes().get(found.guid));
+        }
+        return true;
+    }
+
+    /**
+     * Registers a node newly created for key, checked out by its own guid,
+     * and closes the least recently used idle instances beyond the pool size.
+     */
+    void add(String key, String guid) {
+        List<String> evicted;
+        synchronized (this) {
+            Instance inst = new Instance(key, guid, System.currentTimeMillis());
+            inst.callGuid = guid;
+            instances.put(guid, inst);
+            checkedOut.put(guid, inst);
+            evicted = trim();
+        }
+        for (String g : evicted) {
+            closeNode(g);
+        }
+    }
+
+    /**
+     * Marks the checkout of callGuid as handling its message, which ends its
+     * lease. A no-op for other guids.
+     */
+    synchronized void begin(String callGuid) {
+        Instance inst = checkedOut.get(callGuid);
+        if (inst != null) {
+            inst.running = true;
+        }
+    }
+
+    /**
+     * Returns the instance checked out by callGuid to the pool, or closes it
+     * if keep is false (its OnCreate failed). A no-op for other guids.
+     */
+    void release(String callGuid, boolean keep) {
+        List<String> evicted;
+        synchronized (this) {
+            Instance inst = checkedOut.remove(callGuid);
+            if (inst == null) {
+                return;
+            }
+            if (!callGuid.equals(inst.guid)) {
+                Runtime.Nodes().remove(callGuid);
+            }
+            inst.callGuid = null;
+            inst.running = false;
+            inst.lastUsed = System.currentTimeMillis();
+            if (keep) {
+                instances.get(inst.guid);
+                evicted = trim();
+            } else {
+                instances.remove(inst.guid);
+                evicted = List.of(inst.guid);
+            }
+        }
+        for (String g : evicted) {
+            closeNode(g);
+        }
+    }
+
+    // Removes idle instances beyond maxSize, least recently used first; the caller closes them.
+    private List<String> trim() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Instance> it = instances.values().iterator();
+        while (instances.size() > maxSize && it.hasNext()) {
+            Instance inst = it.next();
+            if (inst.callGuid == null) {
+                it.remove();
+                evicted.add(inst.guid);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Closes every instance of a pool key (or the instance with that guid).
+     * Returns false if the pool has none.
+     */
+    boolean close(String keyOrGuid) {
+        List<String> closing = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Instance> it = instances.values().iterator();
+            while (it.hasNext()) {
+                Instance inst = it.next();
+                if (inst.key.equals(keyOrGuid) || inst.guid.equals(keyOrGuid)) {
+                    it.remove();
+                    if (inst.callGuid != null) {
+                        checkedOut.remove(inst.callGuid);
+                        if (!inst.callGuid.equals(inst.guid)) {
+                            Runtime.Nodes().remove(inst.callGuid);
+                        }
+                    }
+                    closing.add(inst.guid);
+                }
+            }
+        }
+        for (String g : closing) {
+            closeNode(g);
+        }
+        return !closing.isEmpty();
+    }
+
+    synchronized int size() {
+        return instances.size();
+    }
+
+    /**
+     * Closes every instance idle for longer than the timeout, and every
+     * instance checked out longer than the lease without its message starting.
+     */
+    void sweep(long now) {
+        List<String> idle = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Instance> it = instances.values().iterator();
+            while (it.hasNext()) {
+                Instance inst = it.next();
+                if (inst.callGuid == null) {
+                    if (idleMs <= 0 || now - inst.lastUsed < idleMs) {
+                        continue;
+                    }
+                } else if (inst.running || leaseMs <= 0 || now - inst.lastUsed < leaseMs) {
+                    continue;
+                } else {
+                    checkedOut.remove(inst.callGuid);
+                    if (!inst.callGuid.equals(inst.guid)) {
+                        Runtime.Nodes().remove(inst.callGuid);
+                    }
+                }
+                it.remove();
+                idle.add(inst.guid);
+            }
+        }
+        for (String g : idle) {
+            closeNode(g);
+        }
+    }
+
+    private static void closeNode(String guid) {
+        Node node = Runtime.Nodes().remove(guid);
+        if (node == null) {
+            return;
+        }
+        try {
+            node.OnClose();
+        } catch (Exception e) {
+            System.err.printf("{\"warning\":\"OnClose %s: %s\"}%n", guid, e.getMessage());
+        }
+        Runtime.activeNodes--;
+    }
+}
@@ -1,6 +1,7 @@
 package com.robomotion.app;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.robomotion.testing.TestRuntimeHelper;
 
@@ -12,10 +13,13 @@ import com.robomotion.testing.TestRuntimeHelper;
 public class CLIRuntimeHelper implements TestRuntimeHelper {
 
     private Map<String, Object> credentials;
+    // Per-item credentials, for batches that use several vault items.
+    private final Map<String, Map<String, Object>> items = new ConcurrentHashMap<>();
 
     @Override
     public Map<String, Object> getVaultItem(String vaultId, String itemId) {
-        return credentials;
+        Map<String, Object> item = items.get(vaultId + "/" + itemId);
+        return item != null ? item : credentials;
     }
 
     @Override
@@ -26,4 +30,8 @@ public class CLIRuntimeHelper implements TestRuntimeHelper {
     public void setCredentials(Map<String, Object> creds) {
         this.credentials = creds;
     }
+
+    public void setCredentials(String vaultId, String itemId, Map<String, Object> creds) {
+        items.put(vaultId + "/" + itemId, creds);
+    }
 }
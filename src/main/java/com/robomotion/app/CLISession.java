@@ -1,26 +1,37 @@
 package com.robomotion.app;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.ByteString;
 
+import grpc.health.v1.HealthGrpc;
+import grpc.health.v1.HealthOuterClass.HealthCheckRequest;
+import grpc.health.v1.HealthOuterClass.HealthCheckResponse;
+import grpc.health.v1.HealthOuterClass.HealthCheckResponse.ServingStatus;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.Metadata;
@@ -41,12 +52,14 @@ import io.grpc.ServerInterceptors;
 public class CLISession {
 
     static final long DEFAULT_SESSION_TIMEOUT_MS = 30 * 60 * 1000; // 30 minutes
-    private static final long DAEMON_POLL_INTERVAL_MS = 100;
-    private static final long DAEMON_POLL_MAX_WAIT_MS = 3000;
+    private static final long DAEMON_START_TIMEOUT_MS = 3000;
     private static final int MAX_SESSION_MSG_SIZE = 64 * 1024 * 1024; // 64 MB
 
     private static final ObjectMapper mapper = new ObjectMapper();
 
+    // Warm node instances in a daemon process; null outside the daemon.
+    static volatile CLINodePool nodePool;
+
     // --- Daemon ---
 
     /**
@@ -54,33 +67,60 @@ public class CLISession {
      * Blocks until timeout or explicit close.
      */
     public static void runDaemon(String sessionID, long timeoutMs, String vaultID, String itemID) {
+        CLIRuntimeHelper cliHelper = initDaemonRuntime();
+        applyVaultCredentials(cliHelper, vaultID, itemID);
+        serve(sessionID, timeoutMs, null, 0, cliHelper);
+    }
+
+    /**
+     * Runs a pre-started spare daemon. Called internally via
+     * --session-daemon-spare &lt;id&gt;. It starts the server, warms up, and
+     * waits to be claimed by a session start; unclaimed after idleMs it exits.
+     */
+    public static void runSpareDaemon(String spareID, long idleMs) {
+        CLIRuntimeHelper cliHelper = initDaemonRuntime();
+        serve(null, DEFAULT_SESSION_TIMEOUT_MS, spareID, idleMs, cliHelper);
+    }
+
+    private static CLIRuntimeHelper initDaemonRuntime() {
         // Set up CLI runtime helper
         CLIRuntimeHelper cliHelper = new CLIRuntimeHelper();
 
-        if (vaultID != null && !vaultID.isEmpty() && itemID != null && !itemID.isEmpty()) {
-            try {
-                CLIVaultClient vc = new CLIVaultClient();
-                Map<String, Object> creds = vc.fetchVaultItem(vaultID, itemID);
-                cliHelper.setCredentials(creds);
-            } catch (Exception e) {
-                daemonError("vault: %s", e.getMessage());
-            }
-        }
-
         Runtime.testHelper = cliHelper;
         Runtime.cliMode = true;
         Runtime.sessionMode = true;
 
+        nodePool = CLINodePool.fromProperties();
+        nodePool.startSweeper();
+
         // Register node factories
         try {
             App.Init();
         } catch (Exception e) {
             daemonError("init: %s", e.getMessage());
         }
+        return cliHelper;
+    }
 
+    private static void applyVaultCredentials(CLIRuntimeHelper cliHelper, String vaultID, String itemID) {
+        if (vaultID != null && !vaultID.isEmpty() && itemID != null && !itemID.isEmpty()) {
+            try {
+                CLIVaultClient vc = new CLIVaultClient();
+                Map<String, Object> creds = vc.fetchVaultItem(vaultID, itemID);
+                cliHelper.setCredentials(creds);
+            } catch (Exception e) {
+                daemonError("vault: %s", e.getMessage());
+            }
+        }
+    }
+
+    private static void serve(String sessionID, long timeoutMs, String spareID, long spareIdleMs,
+            CLIRuntimeHelper cliHelper) {
         try {
             // Shared references for timeout interceptor
             AtomicReference<Server> serverRef = new AtomicReference<>();
+            AtomicReference<String> sessionRef = new AtomicReference<>(sessionID);
+            AtomicLong timeoutMsRef = new AtomicLong(timeoutMs);
             ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
                 Thread t = new Thread(r, "session-timeout");
                 t.setDaemon(true);
@@ -89,11 +129,11 @@ public class CLISession {
             AtomicReference<ScheduledFuture<?>> timeoutRef = new AtomicReference<>();
 
             Runnable timeoutAction = () -> {
-                System.err.printf("{\"info\":\"session.timeout\",\"session_id\":\"%s\"}%n", sessionID);
+                System.err.printf("{\"info\":\"session.timeout\",\"session_id\":\"%s\"}%n", sessionRef.get());
                 closeAllSessionNodes();
                 Server s = serverRef.get();
                 if (s != null) s.shutdown();
-                sessionCleanup(sessionID);
+                sessionCleanup(sessionRef.get());
             };
 
             // Interceptor resets timeout on each gRPC call
@@ -103,13 +143,17 @@ public class CLISession {
                         ServerCall<ReqT, RespT> call, Metadata headers,
                         ServerCallHandler<ReqT, RespT> next) {
                     ScheduledFuture<?> old = timeoutRef.getAndSet(
-                            scheduler.schedule(timeoutAction, timeoutMs, TimeUnit.MILLISECONDS));
+                            scheduler.schedule(timeoutAction, timeoutMsRef.get(), TimeUnit.MILLISECONDS));
                     if (old != null) old.cancel(false);
                     return next.startCall(call, headers);
                 }
             };
 
+            HealthServiceImpl health = new HealthServiceImpl();
+            health.SetStatus("plugin", ServingStatus.SERVING);
+
             Server server = ServerBuilder.forPort(0)
+                    .addService(health)
                     .addService(ServerInterceptors.intercept(new NodeServer(), interceptor))
                     .maxInboundMessageSize(MAX_SESSION_MSG_SIZE)
                     .build()
@@ -118,12 +162,31 @@ public class CLISession {
             serverRef.set(server);
             int port = server.getPort();
 
+            // Spare: wait until a session start claims us, then adopt its settings
+            if (spareID != null) {
+                warmUp();
+                Path spareDir = CLISparePool.dir(getBaseCommand());
+                CLISparePool.register(spareDir, spareID);
+                CLISparePool.Claim claim = CLISparePool.await(spareDir, spareID, spareIdleMs);
+                if (claim == null || !claim.matchesCurrentProcess()) {
+                    server.shutdownNow();
+                    System.exit(0);
+                }
+                sessionRef.set(claim.session_id);
+                if (claim.timeout_ms > 0) timeoutMsRef.set(claim.timeout_ms);
+                applyVaultCredentials(cliHelper, claim.vault_id, claim.item_id);
+            }
+
             // Write port file and metadata
-            writePortFile(sessionID, port);
-            writeSessionMetadata(sessionID);
+            writePortFile(sessionRef.get(), port);
+            writeSessionMetadata(sessionRef.get());
+
+            // Handshake: tells the starting client the daemon is serving
+            System.out.printf("1|1|tcp|127.0.0.1:%d|grpc\n", port);
+            System.out.flush();
 
             // Start inactivity timeout
-            timeoutRef.set(scheduler.schedule(timeoutAction, timeoutMs, TimeUnit.MILLISECONDS));
+            timeoutRef.set(scheduler.schedule(timeoutAction, timeoutMsRef.get(), TimeUnit.MILLISECONDS));
 
             // Block until server stops
             server.awaitTermination();
@@ -134,6 +197,24 @@ public class CLISession {
         }
     }
 
+    /**
+     * Exercises the command path (reflection over node classes, config
+     * serialization, compression) so a spare's first real command runs on
+     * loaded classes and partly compiled code.
+     */
+    private static void warmUp() {
+        for (CLI.CommandEntry cmd : CLI.buildCommandMap().values()) {
+            try {
+                Node tempNode = NodeDescriptor.of(cmd.nodeClass).newInstance();
+                CLI.initializeNodeFields(cmd.nodeClass, tempNode);
+                CLI.buildFlagMap(cmd.nodeClass, tempNode);
+                Map<String, Object> config = buildNodeConfig(cmd.nodeClass, tempNode, "", cmd.toolName,
+                        null, null, new LinkedHashMap<>());
+                Runtime.Decompress(Runtime.Compress(Runtime.Serialize(config)));
+            } catch (Exception e) { /* skip */ }
+        }
+    }
+
     // --- Client ---
 
     /**
@@ -158,9 +239,6 @@ public class CLISession {
         try {
             NodeGrpc.NodeBlockingStub nodeClient = NodeGrpc.newBlockingStub(channel);
 
-            // Unique guid per invocation
-            String guid = commandName + "-" + generateSessionID();
-
             // Extract vault flags
             String vaultID = flags.remove("vault-id");
             String itemID = flags.remove("item-id");
@@ -168,7 +246,7 @@ public class CLISession {
             // Build flag map from temp node
             Node tempNode;
             try {
-                tempNode = (Node) cmd.nodeClass.getDeclaredConstructor().newInstance();
+                tempNode = NodeDescriptor.of(cmd.nodeClass).newInstance();
                 CLI.initializeNodeFields(cmd.nodeClass, tempNode);
             } catch (Exception e) {
                 CLI.cliError("failed to inspect node: %s", e.getMessage());
@@ -204,9 +282,14 @@ public class CLISession {
                 }
             }
 
-            // Build node config JSON
+            // Build node config JSON. The pool key is derived from the config so
+            // identical invocations reuse the daemon's warm node instances; the
+            // guid adds a nonce, so concurrent calls never share an instance.
             Map<String, Object> nodeConfig = buildNodeConfig(
-                    cmd.nodeClass, tempNode, guid, commandName, vaultID, itemID, configPatches);
+                    cmd.nodeClass, tempNode, "", commandName, vaultID, itemID, configPatches);
+            String key = pooledGuid(commandName, Runtime.Serialize(nodeConfig));
+            String guid = callGuid(key);
+            nodeConfig.put("guid", guid);
 
             byte[] configJSON = Runtime.Serialize(nodeConfig);
 
@@ -216,10 +299,10 @@ public class CLISession {
                     .setConfig(ByteString.copyFrom(configJSON))
                     .build());
 
-            // Update metadata with new node guid
+            // Update metadata with the pool key; closing it closes its instances
             SessionMetadata meta = readSessionMetadata(sessionID);
             if (meta != null) {
-                meta.nodes.add(guid);
+                if (!meta.nodes.contains(key)) meta.nodes.add(key);
                 meta.lastActivity = java.time.Instant.now().toString();
                 saveSessionMetadata(sessionID, meta);
             }
@@ -310,11 +393,40 @@ public class CLISession {
     // --- Daemon process management ---
 
     /**
-     * Forks the current binary as a session daemon, waits for it to be ready.
+     * Starts a session daemon and waits for it to be ready. A pre-started
+     * spare is claimed when one is available; otherwise the current binary
+     * is forked. Either way the spare pool is topped up afterwards.
      */
     public static void startDaemonProcess(String sessionID, long timeoutMs,
             String vaultID, String itemID) {
-        List<String> cmd = getBaseCommand();
+        List<String> base = getBaseCommand();
+        try {
+            if (CLISparePool.targetSize() > 0) {
+                CLISparePool.Claim claim = new CLISparePool.Claim();
+                claim.session_id = sessionID;
+                claim.timeout_ms = timeoutMs;
+                claim.vault_id = vaultID;
+                claim.item_id = itemID;
+                claim.fromCurrentProcess();
+                Path dir = CLISparePool.dir(base);
+                CLISparePool.Claimed spare = CLISparePool.claim(dir, claim);
+                if (spare != null) {
+                    if (awaitPortFile(sessionID)) {
+                        return;
+                    }
+                    // Don't leave it to serve the session next to the forked daemon.
+                    CLISparePool.abandon(dir, spare);
+                }
+            }
+            forkDaemon(base, sessionID, timeoutMs, vaultID, itemID);
+        } finally {
+            CLISparePool.replenish(base);
+        }
+    }
+
+    private static void forkDaemon(List<String> base, String sessionID, long timeoutMs,
+            String vaultID, String itemID) {
+        List<String> cmd = new ArrayList<>(base);
         cmd.add("--session-daemon");
         cmd.add(sessionID);
 
@@ -331,28 +443,110 @@ public class CLISession {
         try {
             ProcessBuilder pb = new ProcessBuilder(cmd);
             pb.directory(new File("."));
-            pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
             pb.redirectError(ProcessBuilder.Redirect.DISCARD);
             Process proc = pb.start();
             proc.getOutputStream().close();
-            // Don't wait — it's a daemon
+            // Don't wait — it's a daemon. Its first stdout line is the handshake.
 
-            // Poll for port file to appear
-            long deadline = System.currentTimeMillis() + DAEMON_POLL_MAX_WAIT_MS;
-            while (System.currentTimeMillis() < deadline) {
-                if (sessionReady(sessionID)) {
-                    return;
-                }
-                Thread.sleep(DAEMON_POLL_INTERVAL_MS);
+            String addr = readHandshake(proc.getInputStream(), DAEMON_START_TIMEOUT_MS);
+            proc.getInputStream().close();
+            if (addr != null && healthy(addr, DAEMON_START_TIMEOUT_MS)) {
+                return;
+            }
+            if (!proc.isAlive()) {
+                CLI.cliError("session daemon exited with code %d", proc.exitValue());
+                return;
             }
 
-            CLI.cliError("session daemon did not start within %dms", DAEMON_POLL_MAX_WAIT_MS);
+            CLI.cliError("session daemon did not start within %dms", DAEMON_START_TIMEOUT_MS);
 
         } catch (Exception e) {
             CLI.cliError("failed to start session daemon: %s", e.getMessage());
         }
     }
 
+    /**
+     * Reads the daemon's stdout up to its handshake line
+     * ("1|1|tcp|host:port|grpc") and returns the address, or null if the
+     * daemon exits or does not shake hands within timeoutMs.
+     */
+    static String readHandshake(InputStream out, long timeoutMs) {
+        CompletableFuture<String> addr = CompletableFuture.supplyAsync(() -> {
+            try {
+                BufferedReader r = new BufferedReader(new InputStreamReader(out, StandardCharsets.UTF_8));
+                for (String line; (line = r.readLine()) != null; ) {
+                    String[] parts = line.trim().split("\\|");
+                    if (parts.length == 5 && "tcp".equals(parts[2])) {
+                        return parts[3];
+                    }
+                }
+            } catch (IOException e) {
+                // daemon went away
+            }
+            return null;
+        });
+        try {
+            return addr.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Waits for a claimed spare to write the session's port file, watching
+     * the session directory rather than polling it, then health-checks it.
+     */
+    private static boolean awaitPortFile(String sessionID) {
+        long deadline = System.currentTimeMillis() + DAEMON_START_TIMEOUT_MS;
+        Path dir = Path.of(sessionDir());
+        try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+            Files.createDirectories(dir);
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (true) {
+                String addr = sessionDialAddr(sessionID);
+                if (addr != null) {
+                    return healthy(addr, Math.max(deadline - System.currentTimeMillis(), 100));
+                }
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return false;
+                }
+                WatchKey key = watcher.poll(left, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if the daemon at addr answers a health check.
+     */
+    private static boolean healthy(String addr, long timeoutMs) {
+        String[] hostPort = addr.split(":");
+        ManagedChannel channel = ManagedChannelBuilder
+                .forAddress(hostPort[0], Integer.parseInt(hostPort[1]))
+                .usePlaintext()
+                .build();
+        try {
+            HealthCheckResponse resp = HealthGrpc.newBlockingStub(channel)
+                    .withDeadlineAfter(timeoutMs, TimeUnit.MILLISECONDS)
+                    .check(HealthCheckRequest.newBuilder().setService("plugin").build());
+            return resp.getStatus() == ServingStatus.SERVING;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
     // --- Node config builder ---
 
     private static Map<String, Object> buildNodeConfig(Class<?> nodeClass, Node tempNode,
@@ -362,17 +556,17 @@ public class CLISession {
         config.put("guid", guid);
         config.put("name", commandName);
 
-        for (Field f : nodeClass.getFields()) {
-            String fieldName = Spec.LowerFirstLetter(f.getName());
+        for (NodeDescriptor.FieldInfo fi : NodeDescriptor.of(nodeClass).fields) {
+            String fieldName = fi.specName;
             if (configPatches.containsKey(fieldName)) continue;
 
-            java.lang.reflect.Type t = f.getGenericType();
-            if (t instanceof ParameterizedType pT) {
-                Class<?> rawType = (Class<?>) pT.getRawType();
-                if (Runtime.Variable.class.isAssignableFrom(rawType)) {
+            switch (fi.kind) {
+                case IN_VARIABLE:
+                case OUT_VARIABLE:
+                case OPT_VARIABLE:
+                case VARIABLE:
                     try {
-                        f.setAccessible(true);
-                        Runtime.Variable<?> variable = (Runtime.Variable<?>) f.get(tempNode);
+                        Runtime.Variable<?> variable = (Runtime.Variable<?>) fi.get(tempNode);
                         if (variable != null) {
                             Map<String, Object> varConfig = new LinkedHashMap<>();
                             varConfig.put("scope", variable.scope);
@@ -380,26 +574,29 @@ public class CLISession {
                             config.put(fieldName, varConfig);
                         }
                     } catch (Exception e) { /* skip */ }
-                }
-            } else if (Runtime.Credential.class.isAssignableFrom(f.getType())) {
-                if (vaultID != null && !vaultID.isEmpty() && itemID != null && !itemID.isEmpty()) {
-                    Map<String, Object> credConfig = new LinkedHashMap<>();
-                    credConfig.put("scope", "Custom");
-                    Map<String, String> credName = new LinkedHashMap<>();
-                    credName.put("vaultId", vaultID);
-                    credName.put("itemId", itemID);
-                    credConfig.put("name", credName);
-                    config.put(fieldName, credConfig);
-                }
-            } else if (!Tool.class.isAssignableFrom(f.getType())) {
-                // Option field defaults
-                try {
-                    f.setAccessible(true);
-                    Object val = f.get(tempNode);
-                    if (val != null && !isNodeField(f)) {
-                        config.put(fieldName, val);
+                    break;
+                case CREDENTIAL:
+                    if (vaultID != null && !vaultID.isEmpty() && itemID != null && !itemID.isEmpty()) {
+                        Map<String, Object> credConfig = new LinkedHashMap<>();
+                        credConfig.put("scope", "Custom");
+                        Map<String, String> credName = new LinkedHashMap<>();
+                        credName.put("vaultId", vaultID);
+                        credName.put("itemId", itemID);
+                        credConfig.put("name", credName);
+                        config.put(fieldName, credConfig);
                     }
-                } catch (Exception e) { /* skip */ }
+                    break;
+                case PLAIN:
+                    // Option field defaults
+                    try {
+                        Object val = fi.get(tempNode);
+                        if (val != null && !fi.inherited) {
+                            config.put(fieldName, val);
+                        }
+                    } catch (Exception e) { /* skip */ }
+                    break;
+                default:
+                    break;
             }
         }
 
@@ -407,10 +604,6 @@ public class CLISession {
         return config;
     }
 
-    private static boolean isNodeField(Field f) {
-        return f.getDeclaringClass() == Node.class;
-    }
-
     // --- Platform-specific session directory ---
 
     static String sessionDir() {
@@ -456,10 +649,6 @@ public class CLISession {
         }
     }
 
-    private static boolean sessionReady(String sessionID) {
-        return sessionDialAddr(sessionID) != null;
-    }
-
     private static void sessionCleanup(String sessionID) {
         Path dir = Path.of(sessionDir());
         try { Files.deleteIfExists(dir.resolve(sessionID + ".port")); } catch (Exception e) { }
@@ -529,6 +718,44 @@ public class CLISession {
         }
     }
 
+    // --- Node pool keys ---
+
+    /**
+     * Returns the guid for a node built from configJSON (serialized with an
+     * empty guid): the command name plus a hash of the config.
+     */
+    static String pooledGuid(String commandName, byte[] configJSON) {
+        String hash = LMO.hashRef(configJSON != null ? configJSON : new byte[0]);
+        return commandName + "-" + hash.substring(hash.indexOf(':') + 1, hash.indexOf(':') + 17);
+    }
+
+    /**
+     * Returns a guid for one call: the pool key and a random nonce.
+     */
+    static String callGuid(String key) {
+        return key + "." + generateSessionID();
+    }
+
+    /**
+     * Returns the pool key of a call guid, or null if guid has no nonce.
+     */
+    static String poolKey(String guid) {
+        int dot = guid.lastIndexOf('.');
+        return dot > 0 ? guid.substring(0, dot) : null;
+    }
+
+    /**
+     * Extracts the guid from an OnCreate config, or null if it has none.
+     */
+    static String configGuid(byte[] config) {
+        try {
+            com.fasterxml.jackson.databind.JsonNode guid = mapper.readTree(config).get("guid");
+            return guid != null && !guid.asText().isEmpty() ? guid.asText() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     // --- Utilities ---
 
     static String generateSessionID() {
@@ -561,13 +788,22 @@ public class CLISession {
 
     /**
      * Builds the command to start a new JVM running the same application.
-     * Handles both JAR mode and GraalVM native-image mode.
+     * Handles both JAR mode and GraalVM native-image mode. Uses the AppCDS
+     * archive when there is one.
      */
     private static List<String> getBaseCommand() {
+        return launchCommand(AppCDS.jvmOptions());
+    }
+
+    /**
+     * Builds the command to start a new JVM running the same application
+     * with the given JVM options (ignored for native images).
+     */
+    static List<String> launchCommand(List<String> jvmOptions) {
         List<String> cmd = new ArrayList<>();
 
         // Check GraalVM native image
-        if (System.getProperty("org.graalvm.nativeimage.imagecode") != null) {
+        if (isNativeImage()) {
             String exe = ProcessHandle.current().info().command().orElse(null);
             if (exe != null) {
                 cmd.add(exe);
@@ -578,30 +814,45 @@ public class CLISession {
         // JAR mode
         String javaExe = ProcessHandle.current().info().command().orElse("java");
         cmd.add(javaExe);
+        cmd.addAll(jvmOptions);
 
-        // Detect JAR path from sun.java.command or java.class.path
-        String sunCmd = System.getProperty("sun.java.command", "");
-        String mainPart = sunCmd.split("\\s+")[0];
-        if (mainPart.endsWith(".jar")) {
+        String jar = jarPath();
+        if (jar != null) {
             cmd.add("-jar");
-            cmd.add(new File(mainPart).getAbsolutePath());
+            cmd.add(jar);
         } else {
-            // Fallback: try classpath
-            String cp = System.getProperty("java.class.path", "");
-            if (cp.endsWith(".jar")) {
-                cmd.add("-jar");
-                cmd.add(new File(cp).getAbsolutePath());
-            } else {
-                // Last resort: use classpath and main class
-                cmd.add("-cp");
-                cmd.add(cp);
-                cmd.add(mainPart);
-            }
+            // Last resort: use classpath and main class
+            String sunCmd = System.getProperty("sun.java.command", "");
+            cmd.add("-cp");
+            cmd.add(System.getProperty("java.class.path", ""));
+            cmd.add(sunCmd.split("\\s+")[0]);
         }
 
         return cmd;
     }
 
+    static boolean isNativeImage() {
+        return System.getProperty("org.graalvm.nativeimage.imagecode") != null;
+    }
+
+    /**
+     * Returns the absolute path of the application jar, or null when not
+     * started with -jar (or a single-jar class path).
+     */
+    static String jarPath() {
+        // Detect JAR path from sun.java.command or java.class.path
+        String sunCmd = System.getProperty("sun.java.command", "");
+        String mainPart = sunCmd.split("\\s+")[0];
+        if (mainPart.endsWith(".jar")) {
+            return new File(mainPart).getAbsolutePath();
+        }
+        String cp = System.getProperty("java.class.path", "");
+        if (cp.endsWith(".jar") && !cp.contains(File.pathSeparator)) {
+            return new File(cp).getAbsolutePath();
+        }
+        return null;
+    }
+
     private static void daemonError(String format, Object... args) {
         String msg = String.format(format, args);
         System.err.printf("{\"error\":\"%s\"}%n", msg.replace("\"", "\\\""));
@@ -0,0 +1,410 @@
+package com.robomotion.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps pre-started, unnamed session daemons ("spares") so a session start
+ * can adopt an already running, warmed-up JVM instead of forking one.
+ * <p>
+ * Spares live in {sessionDir}/spares/{key}, where key is a hash of the base
+ * command, so only daemons of the same binary are handed out. A spare
+ * announces itself with {id}.spare, holding its pid, working directory and a
+ * fingerprint of its environment; a client only claims spares whose
+ * directory and environment match its own, since the session inherits both.
+ * A client claims it by
+ * renaming that file to {id}.claimed — the rename is atomic, so exactly one
+ * client wins — and then drops the session settings into {id}.claim. A spare
+ * that is not claimed within its idle time deletes its .spare file and exits;
+ * if the delete fails, a client won the race and the spare takes the claim.
+ * <p>
+ * Spares being started are marked with {id}.starting until they register, so
+ * concurrent clients topping up the pool (serialized by a lock file) do not
+ * start more than the configured number.
+ * <p>
+ * The pool is off by default; robomotion.session.spares sets its size.
+ */
+final class CLISparePool {
+
+    static final String SPARE = ".spare";
+    static final String CLAIMED = ".claimed";
+    static final String CLAIM = ".claim";
+    static final String STARTING = ".starting";
+    static final String LOCK = "replenish.lock";
+
+    static final long DEFAULT_IDLE_MS = 15 * 60 * 1000;
+    static final long DEFAULT_MIN_FREE_MB = 512;
+
+    // How long a claimed spare waits for the client's settings.
+    private static final long CLAIM_WAIT_MS = 5000;
+    // How long a started spare may take to register before it is not counted.
+    private static final long START_WAIT_MS = 60_000;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private CLISparePool() {
+    }
+
+    /** Session settings handed to a claimed spare. */
+    static class Claim {
+        public String session_id;
+        public long timeout_ms;
+        public String vault_id;
+        public String item_id;
+        public String work_dir;
+        public String env_hash;
+
+        /** Fills in the caller's working directory and environment. */
+        void fromCurrentProcess() {
+            work_dir = workDir();
+            env_hash = envHash();
+        }
+
+        /** Returns true if the claim was made from this process's directory and environment. */
+        boolean matchesCurrentProcess() {
+            return workDir().equals(work_dir) && envHash().equals(env_hash);
+        }
+    }
+
+    /** A spare won by {@link #claim}. */
+    static class Claimed {
+        final String id;
+        final long pid;
+
+        Claimed(String id, long pid) {
+            this.id = id;
+            this.pid = pid;
+        }
+    }
+
+    /**
+     * Returns the spare directory for daemons started with baseCommand.
+     */
+    static Path dir(List<String> baseCommand) {
+        String hash = LMO.hashRef(String.join("\0", baseCommand).getBytes(StandardCharsets.UTF_8));
+        return Path.of(CLISession.sessionDir(), "spares", hash.substring(hash.indexOf(':') + 1, hash.indexOf(':') + 17));
+    }
+
+    static int targetSize() {
+        try {
+            return Math.max(0, Integer.parseInt(Runtime.getProperty("robomotion.session.spares", "0").trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // --- Client side ---
+
+    /**
+     * Claims a live spare in dir started from the claim's working directory
+     * and environment, and hands it the session settings. Returns null if
+     * none is available; spares whose process is gone are removed.
+     */
+    static Claimed claim(Path dir, Claim claim) {
+        for (Path spare : list(dir, SPARE)) {
+            String[] info = readInfo(spare);
+            if (info == null || !info[1].equals(claim.work_dir) || !info[2].equals(claim.env_hash)) {
+                continue; // another directory or environment, or not fully written
+            }
+            String id = spareID(spare);
+            Path claimed = dir.resolve(id + CLAIMED);
+            try {
+                Files.move(spare, claimed, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                continue; // claimed by someone else or expired
+            }
+            if (!alive(claimed)) {
+                deleteQuietly(claimed);
+                continue;
+            }
+            try {
+                writeAtomic(dir.resolve(id + CLAIM), mapper.writeValueAsBytes(claim));
+                return new Claimed(id, Long.parseLong(info[0].trim()));
+            } catch (IOException | NumberFormatException e) {
+                deleteQuietly(claimed);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Kills a claimed spare that did not come up and removes its files.
+     */
+    static void abandon(Path dir, Claimed spare) {
+        ProcessHandle.of(spare.pid).ifPresent(ProcessHandle::destroyForcibly);
+        deleteQuietly(dir.resolve(spare.id + CLAIMED));
+        deleteQuietly(dir.resolve(spare.id + CLAIM));
+    }
+
+    /**
+     * Counts live spares in dir, including ones still starting, removing
+     * stale ones.
+     */
+    static int count(Path dir) {
+        int n = 0;
+        for (Path spare : list(dir, SPARE)) {
+            if (alive(spare)) {
+                n++;
+            } else {
+                deleteQuietly(spare);
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (Path starting : list(dir, STARTING)) {
+            try {
+                if (now - Files.getLastModifiedTime(starting).toMillis() < START_WAIT_MS) {
+                    n++;
+                    continue;
+                }
+            } catch (IOException e) {
+                // registered meanwhile
+            }
+            deleteQuietly(starting);
+        }
+        return n;
+    }
+
+    /**
+     * Starts spares until dir holds the configured number. Stops early when
+     * free memory drops below robomotion.session.spare_min_free_mb.
+     */
+    static void replenish(List<String> baseCommand) {
+        int target = targetSize();
+        if (target == 0) {
+            return;
+        }
+        long minFreeMb = DEFAULT_MIN_FREE_MB;
+        long idleMs = DEFAULT_IDLE_MS;
+        try {
+            minFreeMb = Long.parseLong(Runtime.getProperty("robomotion.session.spare_min_free_mb",
+                    String.valueOf(minFreeMb)).trim());
+            idleMs = Long.parseLong(Runtime.getProperty("robomotion.session.spare_idle_seconds",
+                    String.valueOf(idleMs / 1000)).trim()) * 1000;
+        } catch (NumberFormatException e) {
+            // keep defaults
+        }
+
+        Path dir = dir(baseCommand);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            return;
+        }
+        // One client tops up at a time; the others leave it to the lock holder.
+        try (FileChannel ch = FileChannel.open(dir.resolve(LOCK), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+             FileLock lock = ch.tryLock()) {
+            if (lock == null) {
+                return;
+            }
+            for (int n = count(dir); n < target; n++) {
+                if (freeMemoryMb() < minFreeMb) {
+                    return;
+                }
+                String id = newSpareID();
+                Path starting = dir.resolve(id + STARTING);
+                List<String> cmd = new ArrayList<>(baseCommand);
+                cmd.add("--session-daemon-spare");
+                cmd.add(id);
+                cmd.add("--session-timeout=" + idleMs + "ms");
+                try {
+                    Files.write(starting, new byte[0]);
+                    ProcessBuilder pb = new ProcessBuilder(cmd);
+                    pb.directory(new File("."));
+                    pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+                    pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+                    pb.start().getOutputStream().close();
+                } catch (IOException e) {
+                    deleteQuietly(starting);
+                    return;
+                }
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            // locked elsewhere or not lockable: leave the pool as is
+        }
+    }
+
+    // --- Spare side ---
+
+    /**
+     * Announces a spare in dir.
+     */
+    static void register(Path dir, String spareID) throws IOException {
+        Files.createDirectories(dir);
+        String info = ProcessHandle.current().pid() + "\n" + workDir() + "\n" + envHash() + "\n";
+        writeAtomic(dir.resolve(spareID + SPARE), info.getBytes(StandardCharsets.UTF_8));
+        deleteQuietly(dir.resolve(spareID + STARTING));
+    }
+
+    /**
+     * Waits up to idleMs for a client to claim spareID. Returns the claim, or
+     * null if the spare expired unclaimed (its .spare file is removed).
+     */
+    static Claim await(Path dir, String spareID, long idleMs) {
+        Path claimFile = dir.resolve(spareID + CLAIM);
+        long deadline = System.currentTimeMillis() + idleMs;
+        boolean claimed = false;
+
+        try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (true) {
+                Claim c = readClaim(dir, spareID);
+                if (c != null) {
+                    return c;
+                }
+                long now = System.currentTimeMillis();
+                if (now >= deadline) {
+                    if (!claimed) {
+                        try {
+                            Files.delete(dir.resolve(spareID + SPARE));
+                            return null;
+                        } catch (NoSuchFileException e) {
+                            // A client renamed it first: give it time to write the claim.
+                            claimed = true;
+                            deadline = now + CLAIM_WAIT_MS;
+                            continue;
+                        }
+                    }
+                    deleteQuietly(dir.resolve(spareID + CLAIMED));
+                    return null;
+                }
+                // The poll bound also covers file systems without change events.
+                var key = watcher.poll(Math.min(deadline - now, 1000), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (IOException | ClosedWatchServiceException e) {
+            deleteQuietly(dir.resolve(spareID + SPARE));
+            deleteQuietly(claimFile);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static Claim readClaim(Path dir, String spareID) {
+        Path claimFile = dir.resolve(spareID + CLAIM);
+        if (!Files.exists(claimFile)) {
+            return null;
+        }
+        try {
+            Claim c = mapper.readValue(Files.readAllBytes(claimFile), Claim.class);
+            deleteQuietly(claimFile);
+            deleteQuietly(dir.resolve(spareID + CLAIMED));
+            return c;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // --- Helpers ---
+
+    private static List<Path> list(Path dir, String suffix) {
+        List<Path> spares = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return spares;
+        }
+        try (Stream<Path> s = Files.list(dir)) {
+            s.filter(p -> p.getFileName().toString().endsWith(suffix)).forEach(spares::add);
+        } catch (IOException e) {
+            // treat as empty
+        }
+        return spares;
+    }
+
+    private static String spareID(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+    /** Returns a spare's pid, working directory and environment hash, or null. */
+    private static String[] readInfo(Path file) {
+        try {
+            String[] info = Files.readString(file).split("\n");
+            return info.length >= 3 ? info : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean alive(Path file) {
+        try {
+            long pid = Long.parseLong(Files.readString(file).split("\n", 2)[0].trim());
+            return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+        } catch (IOException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static String workDir() {
+        return Path.of("").toAbsolutePath().normalize().toString();
+    }
+
+    /** Hashes the process environment, so differing variables never share a spare. */
+    static String envHash() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : new TreeMap<>(System.getenv()).entrySet()) {
+            sb.append(e.getKey()).append('=').append(e.getValue()).append('\0');
+        }
+        return LMO.hashRef(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeAtomic(Path file, byte[] data) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, data);
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    static String newSpareID() {
+        byte[] b = new byte[8];
+        new SecureRandom().nextBytes(b);
+        StringBuilder sb = new StringBuilder();
+        for (byte v : b) sb.append(String.format("%02x", v & 0xFF));
+        return sb.toString();
+    }
+
+    private static long freeMemoryMb() {
+        try {
+            var os = ManagementFactory.getOperatingSystemMXBean();
+            if (os instanceof com.sun.management.OperatingSystemMXBean sun) {
+                return sun.getFreeMemorySize() / (1024 * 1024);
+            }
+        } catch (Throwable t) {
+            // not available on this VM
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,208 @@
+package com.robomotion.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cache for {@link CLIVaultClient}: derived vault keys, vault metadata and
+ * name-to-id mappings. It is shared by all clients of a process, so a
+ * session daemon decrypts a vault key once rather than on every command.
+ * <p>
+ * Entries expire after robomotion.vault.cache_ttl seconds (default 600; 0
+ * turns the cache off). With robomotion.vault.disk_cache=true the cache is
+ * also kept in {keysDir}/{robotID}.vaultcache, so separate CLI runs share it.
+ * The file is AES-GCM encrypted with a key derived from the robot private
+ * key and bound to the API URL and robot ID.
+ */
+final class CLIVaultCache {
+
+    static final long DEFAULT_TTL_SECONDS = 600;
+
+    private static final int IV_LENGTH = 12;
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Map<String, CLIVaultCache> caches = new ConcurrentHashMap<>();
+
+    /** A cached value and its expiry (epoch milliseconds). */
+    static class Entry {
+        public String value;
+        public long expires;
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final String scope;
+    private final long ttlMs;
+    private final Path file;
+    private final SecretKeySpec fileKey;
+
+    private CLIVaultCache(String scope, long ttlMs, Path file, SecretKeySpec fileKey) {
+        this.scope = scope;
+        this.ttlMs = ttlMs;
+        this.file = file;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * Returns the cache of a robot; keysDir holds the disk cache, if enabled.
+     */
+    static CLIVaultCache of(String apiBaseURL, String robotID, PrivateKey robotKey, Path keysDir) {
+        String scope = apiBaseURL + "\n" + robotID;
+        return caches.computeIfAbsent(scope, s -> {
+            long ttl = DEFAULT_TTL_SECONDS;
+            try {
+                ttl = Long.parseLong(Runtime.getProperty("robomotion.vault.cache_ttl",
+                        String.valueOf(DEFAULT_TTL_SECONDS)).trim());
+            } catch (NumberFormatException e) {
+                // keep default
+            }
+            boolean disk = ttl > 0 && Runtime.getPropertyBool("robomotion.vault.disk_cache", false);
+            return open(s, Math.max(0, ttl) * 1000,
+                    disk ? keysDir.resolve(robotID + ".vaultcache") : null,
+                    disk ? deriveKey(robotKey) : null);
+        });
+    }
+
+    /**
+     * Creates a cache, loading file (encrypted with fileKey) if it is not null.
+     */
+    static CLIVaultCache open(String scope, long ttlMs, Path file, SecretKeySpec fileKey) {
+        CLIVaultCache cache = new CLIVaultCache(scope, ttlMs, file, fileKey);
+        cache.load();
+        return cache;
+    }
+
+    static SecretKeySpec deriveKey(PrivateKey robotKey) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update("robomotion.vault.cache\0".getBytes(StandardCharsets.UTF_8));
+            sha.update(robotKey.getEncoded());
+            return new SecretKeySpec(sha.digest(), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    String get(String key) {
+        Entry e = entries.get(key);
+        if (e == null) {
+            return null;
+        }
+        if (e.expires <= System.currentTimeMillis()) {
+            entries.remove(key, e);
+            return null;
+        }
+        return e.value;
+    }
+
+    byte[] getBytes(String key) {
+        String v = get(key);
+        return v != null ? Base64.getDecoder().decode(v) : null;
+    }
+
+    void put(String key, String value) {
+        if (ttlMs <= 0) {
+            return;
+        }
+        Entry e = new Entry();
+        e.value = value;
+        e.expires = System.currentTimeMillis() + ttlMs;
+        entries.put(key, e);
+        save();
+    }
+
+    void putBytes(String key, byte[] value) {
+        put(key, Base64.getEncoder().encodeToString(value));
+    }
+
+    void remove(String key) {
+        if (entries.remove(key) != null) {
+            save();
+        }
+    }
+
+    // --- Disk ---
+
+    private void load() {
+        if (file == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            byte[] data = Files.readAllBytes(file);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, fileKey, new GCMParameterSpec(128, data, 0, IV_LENGTH));
+            cipher.updateAAD(scope.getBytes(StandardCharsets.UTF_8));
+            byte[] plain = cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+            Map<String, Entry> stored = mapper.readValue(plain, new TypeReference<Map<String, Entry>>() {});
+            long now = System.currentTimeMillis();
+            stored.forEach((k, e) -> {
+                if (e.expires > now) {
+                    entries.put(k, e);
+                }
+            });
+        } catch (IOException | GeneralSecurityException | IllegalArgumentException e) {
+            // Another robot key, another scope or a damaged file: start over.
+        }
+    }
+
+    private synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        Path tmp = null;
+        try {
+            long now = System.currentTimeMillis();
+            Map<String, Entry> live = new LinkedHashMap<>();
+            entries.forEach((k, e) -> {
+                if (e.expires > now) {
+                    live.put(k, e);
+                }
+            });
+
+            byte[] iv = new byte[IV_LENGTH];
+            new SecureRandom().nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, fileKey, new GCMParameterSpec(128, iv));
+            cipher.updateAAD(scope.getBytes(StandardCharsets.UTF_8));
+            byte[] sealed = cipher.doFinal(mapper.writeValueAsBytes(live));
+
+            tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // not a POSIX file system
+            }
+            Files.write(tmp, ByteBuffer.allocate(iv.length + sealed.length).put(iv).put(sealed).array());
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            tmp = null;
+        } catch (IOException | GeneralSecurityException e) {
+            // The in-memory cache still works.
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
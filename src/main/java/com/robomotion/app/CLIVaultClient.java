@@ -18,63 +18,129 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Direct vault API access for CLI mode without gRPC/robot runtime.
  * Auth via env vars ROBOMOTION_API_TOKEN + ROBOMOTION_ROBOT_ID.
+ * <p>
+ * Robot keys are loaded once per process. Vault keys, the vault list and
+ * item names are kept in a {@link CLIVaultCache}, so a warm fetch is a
+ * single vaults.items.get request; a cold one sends it together with the
+ * vaults.list request for the key.
  */
 public class CLIVaultClient {
 
     private final String apiBaseURL;
     private final String accessToken;
     private final String robotID;
+    private final Path keysDir;
     private final RSAPrivateKey robotPrivateKey;
-    private final Map<String, byte[]> vaultSecrets;
+    private final CLIVaultCache cache;
 
     private static final ObjectMapper mapper = new ObjectMapper();
     private static final HttpClient httpClient = HttpClient.newHttpClient();
 
+    // Per robot key file, for the life of the process
+    private static final Map<String, RSAPrivateKey> privateKeys = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, byte[]>> vaultSecrets = new ConcurrentHashMap<>();
+
     public CLIVaultClient() throws Exception {
-        accessToken = System.getenv("ROBOMOTION_API_TOKEN");
+        this(System.getenv("ROBOMOTION_API_URL"), System.getenv("ROBOMOTION_API_TOKEN"),
+                System.getenv("ROBOMOTION_ROBOT_ID"), defaultKeysDir());
+    }
+
+    CLIVaultClient(String apiURL, String accessToken, String robotID, Path keysDir) throws Exception {
+        this.accessToken = accessToken;
         if (accessToken == null || accessToken.isEmpty()) {
             throw new Exception("ROBOMOTION_API_TOKEN env var is required");
         }
 
-        robotID = System.getenv("ROBOMOTION_ROBOT_ID");
+        this.robotID = robotID;
         if (robotID == null || robotID.isEmpty()) {
             throw new Exception("ROBOMOTION_API_TOKEN set but ROBOMOTION_ROBOT_ID is missing");
         }
 
-        String apiURL = System.getenv("ROBOMOTION_API_URL");
         apiBaseURL = (apiURL != null && !apiURL.isEmpty()) ? apiURL : "https://api.robomotion.io";
+        this.keysDir = keysDir;
 
-        robotPrivateKey = loadRobotPrivateKey(robotID);
-        vaultSecrets = loadVaultSecrets(robotID);
+        String keyFile = keysDir.resolve(robotID).toString();
+        RSAPrivateKey key = privateKeys.get(keyFile);
+        if (key == null) {
+            key = loadRobotPrivateKey(keysDir, robotID);
+            privateKeys.put(keyFile, key);
+        }
+        robotPrivateKey = key;
+        cache = CLIVaultCache.of(apiBaseURL, robotID, robotPrivateKey, keysDir);
     }
 
     // --- Vault item fetch and decrypt ---
 
-    @SuppressWarnings("unchecked")
     public Map<String, Object> fetchVaultItem(String vaultID, String itemID) throws Exception {
+        try {
+            return fetchVaultItemAsync(vaultID, itemID).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Fetches and decrypts a vault item without blocking. When the vault key
+     * is not cached, it is requested together with the item, so a cold fetch
+     * costs one round trip rather than two.
+     */
+    public CompletableFuture<Map<String, Object>> fetchVaultItemAsync(String vaultID, String itemID) {
+        byte[] cachedKey = cache.getBytes(vaultKeyKey(vaultID));
+        CompletableFuture<byte[]> vaultKey = cachedKey != null
+                ? CompletableFuture.completedFuture(cachedKey)
+                : vaultKeyAsync(vaultID);
+
         // 1. Fetch encrypted item from API
         String endpoint = String.format("/v1/vaults.items.get?vault_id=%s&item_id=%s", vaultID, itemID);
-        byte[] body = apiGet(endpoint);
+        return apiGetAsync(endpoint)
+                .thenApply(unchecked(body -> encryptedItem(body, vaultID, itemID)))
+                .thenCompose(item -> vaultKey.thenCompose(key -> {
+                    try {
+                        return CompletableFuture.completedFuture(decryptItem(key, item));
+                    } catch (Exception e) {
+                        if (key != cachedKey) {
+                            return CompletableFuture.failedFuture(e);
+                        }
+                        // The vault key was rotated: derive it again.
+                        cache.remove(vaultKeyKey(vaultID));
+                        cache.remove(VAULTS_KEY);
+                        return vaultKeyAsync(vaultID).thenApply(unchecked(k -> decryptItem(k, item)));
+                    }
+                }));
+    }
 
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> encryptedItem(byte[] body, String vaultID, String itemID) throws Exception {
         Map<String, Object> resp = mapper.readValue(body, Map.class);
         if (!Boolean.TRUE.equals(resp.get("ok"))) {
+            // The item may have been renamed or deleted.
+            cache.remove(itemsKey(vaultID));
             String error = resp.get("error") != null ? resp.get("error").toString() : "";
             if (!error.isEmpty()) {
                 throw new Exception(String.format("vault error: %s (vault=%s item=%s)", error, vaultID, itemID));
             }
             throw new Exception(String.format("vault item not found: vault=%s item=%s", vaultID, itemID));
         }
+        return resp;
+    }
 
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> decryptItem(byte[] vaultKey, Map<String, Object> resp) throws Exception {
         // 2. Decode encrypted data from hex
         String dataHex = resp.get("data").toString();
         byte[] encData = hexDecode(dataHex);
@@ -83,20 +149,50 @@ public class CLIVaultClient {
         Map<String, Object> item = (Map<String, Object>) resp.get("item");
         String ivHex = item.get("iv").toString();
 
-        // 4. Get vault key and decrypt
-        byte[] vaultKey = getVaultKey(vaultID);
+        // 4. Decrypt with the vault key
         byte[] plaintext = decryptAESCBC(vaultKey, encData, ivHex);
 
         // 5. Parse decrypted JSON into credential map
         return mapper.readValue(plaintext, Map.class);
     }
 
+    // --- Cache keys ---
+
+    private static final String VAULTS_KEY = "vaults";
+
+    private static String vaultKeyKey(String vaultID) {
+        return "key:" + vaultID;
+    }
+
+    private static String itemsKey(String vaultID) {
+        return "items:" + vaultID;
+    }
+
     // --- Vault key derivation ---
 
-    private byte[] getVaultKey(String vaultID) throws Exception {
-        // Fetch vault metadata for encrypted vault key
-        Map<String, Object> vault = fetchVault(vaultID);
+    /**
+     * Derives the vault key, from the cached vault list when it has the vault.
+     */
+    private CompletableFuture<byte[]> vaultKeyAsync(String vaultID) {
+        CompletableFuture<List<Map<String, Object>>> vaults;
+        try {
+            List<Map<String, Object>> cached = listVaults(false);
+            vaults = findVault(cached, vaultID) != null ? CompletableFuture.completedFuture(cached) : listVaultsAsync();
+        } catch (Exception e) {
+            vaults = listVaultsAsync();
+        }
+        return vaults.thenApply(unchecked(list -> {
+            Map<String, Object> vault = findVault(list, vaultID);
+            if (vault == null) {
+                throw new Exception("vault " + vaultID + " not found");
+            }
+            byte[] key = deriveVaultKey(vaultID, vault);
+            cache.putBytes(vaultKeyKey(vaultID), key);
+            return key;
+        }));
+    }
 
+    private byte[] deriveVaultKey(String vaultID, Map<String, Object> vault) throws Exception {
         // RSA-OAEP decrypt the vault key
         String encVaultKeyB64 = vault.get("enc_vault_key").toString();
         byte[] encVaultKey = Base64.getDecoder().decode(encVaultKeyB64);
@@ -118,56 +214,105 @@ public class CLIVaultClient {
         return xored;
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> fetchVault(String vaultID) throws Exception {
-        String endpoint = "/v1/vaults.list";
-        if (robotID != null && !robotID.isEmpty()) {
-            endpoint += "?robot_id=" + robotID;
-        }
-        byte[] body = apiGet(endpoint);
-
-        Map<String, Object> resp = mapper.readValue(body, Map.class);
-        List<Map<String, Object>> vaults = (List<Map<String, Object>>) resp.get("vaults");
-
-        if (vaults != null) {
-            for (Map<String, Object> v : vaults) {
-                if (vaultID.equals(v.get("id"))) {
-                    return v;
-                }
+    private static Map<String, Object> findVault(List<Map<String, Object>> vaults, String vaultID) {
+        for (Map<String, Object> v : vaults) {
+            if (vaultID.equals(v.get("id"))) {
+                return v;
             }
         }
-
-        throw new Exception("vault " + vaultID + " not found");
+        return null;
     }
 
     private byte[] getSecretKey(String vaultID) throws Exception {
-        byte[] secret = vaultSecrets.get(vaultID);
+        String keyFile = keysDir.resolve(robotID).toString();
+        byte[] secret = vaultSecrets.computeIfAbsent(keyFile, k -> loadVaultSecrets(keysDir, robotID)).get(vaultID);
+        if (secret == null) {
+            // The robot may have been given the vault after the files were read.
+            Map<String, byte[]> secrets = loadVaultSecrets(keysDir, robotID);
+            vaultSecrets.put(keyFile, secrets);
+            secret = secrets.get(vaultID);
+        }
         if (secret != null) {
             return secret;
         }
         throw new Exception("no vault secret for " + vaultID + " in .vaults files");
     }
 
-    // --- Name resolution ---
+    /**
+     * Returns the robot's vaults, from the cache unless fresh is set. A list
+     * from the cache is empty when the cache has none.
+     */
+    private List<Map<String, Object>> listVaults(boolean fresh) throws Exception {
+        String cached = cache.get(VAULTS_KEY);
+        if (!fresh) {
+            return cached != null ? mapper.readValue(cached, new TypeReference<List<Map<String, Object>>>() {})
+                    : List.of();
+        }
+        return storeVaults(apiGet(vaultsEndpoint()));
+    }
 
-    @SuppressWarnings("unchecked")
-    public String resolveVaultByName(String name) throws Exception {
+    private CompletableFuture<List<Map<String, Object>>> listVaultsAsync() {
+        return apiGetAsync(vaultsEndpoint()).thenApply(unchecked(this::storeVaults));
+    }
+
+    private String vaultsEndpoint() {
         String endpoint = "/v1/vaults.list";
         if (robotID != null && !robotID.isEmpty()) {
             endpoint += "?robot_id=" + robotID;
         }
-        byte[] body = apiGet(endpoint);
+        return endpoint;
+    }
 
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> storeVaults(byte[] body) throws Exception {
         Map<String, Object> resp = mapper.readValue(body, Map.class);
         List<Map<String, Object>> vaults = (List<Map<String, Object>>) resp.get("vaults");
+        if (vaults == null) {
+            vaults = List.of();
+        }
+        cache.put(VAULTS_KEY, mapper.writeValueAsString(vaults));
+        return vaults;
+    }
 
-        List<Map<String, Object>> matches = new java.util.ArrayList<>();
-        if (vaults != null) {
-            for (Map<String, Object> v : vaults) {
-                if (name.equalsIgnoreCase(v.get("name").toString())) {
-                    matches.add(v);
-                }
-            }
+    /**
+     * Returns the items of a vault, from the cache unless fresh is set.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> listItems(String vaultID, boolean fresh) throws Exception {
+        String cached = cache.get(itemsKey(vaultID));
+        if (!fresh) {
+            return cached != null ? mapper.readValue(cached, new TypeReference<List<Map<String, Object>>>() {})
+                    : List.of();
+        }
+
+        String endpoint = String.format("/v1/vaults.items.list?vault_id=%s", vaultID);
+        byte[] body = apiGet(endpoint);
+
+        Map<String, Object> resp = mapper.readValue(body, Map.class);
+        List<Map<String, Object>> items = (List<Map<String, Object>>) resp.get("items");
+        if (items == null) {
+            items = List.of();
+        }
+
+        // Only what name resolution needs; item metadata is not cached.
+        List<Map<String, Object>> names = new java.util.ArrayList<>();
+        for (Map<String, Object> item : items) {
+            Map<String, Object> n = new LinkedHashMap<>();
+            n.put("id", item.get("id"));
+            n.put("name", item.get("name"));
+            names.add(n);
+        }
+        cache.put(itemsKey(vaultID), mapper.writeValueAsString(names));
+        return names;
+    }
+
+    // --- Name resolution ---
+
+    public String resolveVaultByName(String name) throws Exception {
+        // A name missing from the cached list may be new: ask the API.
+        List<Map<String, Object>> matches = matchName(listVaults(false), name);
+        if (matches.isEmpty()) {
+            matches = matchName(listVaults(true), name);
         }
 
         if (matches.isEmpty()) {
@@ -184,21 +329,10 @@ public class CLIVaultClient {
         return matches.get(0).get("id").toString();
     }
 
-    @SuppressWarnings("unchecked")
     public String resolveItemByName(String vaultID, String name) throws Exception {
-        String endpoint = String.format("/v1/vaults.items.list?vault_id=%s", vaultID);
-        byte[] body = apiGet(endpoint);
-
-        Map<String, Object> resp = mapper.readValue(body, Map.class);
-        List<Map<String, Object>> items = (List<Map<String, Object>>) resp.get("items");
-
-        List<Map<String, Object>> matches = new java.util.ArrayList<>();
-        if (items != null) {
-            for (Map<String, Object> item : items) {
-                if (name.equalsIgnoreCase(item.get("name").toString())) {
-                    matches.add(item);
-                }
-            }
+        List<Map<String, Object>> matches = matchName(listItems(vaultID, false), name);
+        if (matches.isEmpty()) {
+            matches = matchName(listItems(vaultID, true), name);
         }
 
         if (matches.isEmpty()) {
@@ -216,20 +350,39 @@ public class CLIVaultClient {
         return matches.get(0).get("id").toString();
     }
 
+    private static List<Map<String, Object>> matchName(List<Map<String, Object>> entries, String name) {
+        List<Map<String, Object>> matches = new java.util.ArrayList<>();
+        for (Map<String, Object> e : entries) {
+            if (name.equalsIgnoreCase(String.valueOf(e.get("name")))) {
+                matches.add(e);
+            }
+        }
+        return matches;
+    }
+
     // --- HTTP ---
 
     private byte[] apiGet(String endpoint) throws Exception {
+        return checkResponse(httpClient.send(request(endpoint), HttpResponse.BodyHandlers.ofByteArray()));
+    }
+
+    private CompletableFuture<byte[]> apiGetAsync(String endpoint) {
+        return httpClient.sendAsync(request(endpoint), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(unchecked(CLIVaultClient::checkResponse));
+    }
+
+    private HttpRequest request(String endpoint) {
         String url = apiBaseURL.replaceAll("/+$", "") + endpoint;
 
-        HttpRequest request = HttpRequest.newBuilder()
+        return HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Authorization", "Bearer " + accessToken)
                 .header("Content-Type", "application/json")
                 .GET()
                 .build();
+    }
 
-        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-
+    private static byte[] checkResponse(HttpResponse<byte[]> response) throws Exception {
         if (response.statusCode() == 401) {
             throw new Exception("authentication expired; run 'robomotion login' again");
         }
@@ -241,10 +394,30 @@ public class CLIVaultClient {
         return response.body();
     }
 
+    private interface Step<T, R> {
+        R apply(T t) throws Exception;
+    }
+
+    /** Adapts a throwing step for CompletableFuture, wrapping checked exceptions. */
+    private static <T, R> Function<T, R> unchecked(Step<T, R> step) {
+        return t -> {
+            try {
+                return step.apply(t);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        };
+    }
+
+    static Exception unwrap(CompletionException e) {
+        return e.getCause() instanceof Exception cause ? cause : e;
+    }
+
     // --- Crypto ---
 
-    private static RSAPrivateKey loadRobotPrivateKey(String robotID) throws Exception {
-        Path keysDir = defaultKeysDir();
+    private static RSAPrivateKey loadRobotPrivateKey(Path keysDir, String robotID) throws Exception {
         Path privPath = keysDir.resolve(robotID);
 
         byte[] pemData = Files.readAllBytes(privPath);
@@ -307,9 +480,8 @@ public class CLIVaultClient {
         return result;
     }
 
-    private static Map<String, byte[]> loadVaultSecrets(String robotID) {
+    private static Map<String, byte[]> loadVaultSecrets(Path keysDir, String robotID) {
         Map<String, byte[]> secrets = new HashMap<>();
-        Path keysDir = defaultKeysDir();
 
         // Try robot-specific file first
         Path robotFile = keysDir.resolve(robotID + ".vaults");
@@ -5,8 +5,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Context interface for message handling in Robomotion nodes.
@@ -73,4 +78,65 @@ public interface Context {
      * Checks if the context is empty
      */
     boolean isEmpty();
+
+    /**
+     * Streams the elements of the array at the given path. If the value is an
+     * LMO BlobRef the blob is decoded incrementally instead of being loaded
+     * whole; inline arrays are streamed from memory. A missing value yields an
+     * empty stream. Close the returned stream when done.
+     */
+    @SuppressWarnings("unchecked")
+    default Stream<Object> getStream(String path) throws Exception {
+        Object value = get(path);
+        if (value == null) {
+            return Stream.empty();
+        }
+        if (LMO.isBlobRefMap(value)) {
+            return LMO.streamBlobRefArray((Map<String, Object>) value);
+        }
+        if (value instanceof List) {
+            return ((List<Object>) value).stream();
+        }
+        throw new IllegalArgumentException("value at " + path + " is not an array");
+    }
+
+    /**
+     * Returns the bytes of the base64 value at the given path. A binary LMO
+     * BlobRef is read directly without a base64 round trip; other values are
+     * base64-decoded (a data: URI header is skipped). Returns null if missing.
+     */
+    @SuppressWarnings("unchecked")
+    default byte[] getBytes(String path) throws Exception {
+        Object value = get(path);
+        if (value == null) {
+            return null;
+        }
+        if (LMO.isBlobRefMap(value)) {
+            Map<String, Object> m = (Map<String, Object>) value;
+            if (LMO.TYPE_BINARY.equals(m.get("__type"))) {
+                return LMO.readBinary(m);
+            }
+            value = LMO.resolveBlobRefValue(m);
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("value at " + path + " is not a base64 string");
+        }
+        String s = (String) value;
+        return Base64.getDecoder().decode(s.substring(LMO.dataUriPrefix(s).length()));
+    }
+
+    /**
+     * Opens the base64 value at the given path as a byte stream. A binary LMO
+     * BlobRef is streamed from the blob store; other values are decoded in
+     * memory. Returns null if missing. Close the returned stream when done.
+     */
+    @SuppressWarnings("unchecked")
+    default InputStream getInputStream(String path) throws Exception {
+        Object value = get(path);
+        if (LMO.isBlobRefMap(value) && LMO.TYPE_BINARY.equals(((Map<String, Object>) value).get("__type"))) {
+            return LMO.openBinary((Map<String, Object>) value);
+        }
+        byte[] data = getBytes(path);
+        return data != null ? new ByteArrayInputStream(data) : null;
+    }
 }
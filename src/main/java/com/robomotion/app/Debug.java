@@ -1,9 +1,21 @@
 package com.robomotion.app;
 
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.google.protobuf.ByteString;
@@ -165,6 +177,9 @@ public class Debug {
 	};
 
 	public static List<SockTabEntry> GetNetStatPorts(State state, String processName) throws Exception {
+		if (SystemUtils.IS_OS_LINUX && Files.isReadable(PROC_NET_TCP)) {
+			return getProcPortsLinux(state, processName);
+		}
 		if (SystemUtils.IS_OS_WINDOWS) {
 			return getNetStatPortsWin(state, processName);
 		} else if (SystemUtils.IS_OS_UNIX) {
@@ -338,6 +353,144 @@ public class Debug {
 		return tabs;
 	}
 
+	// --- Linux: /proc ---
+
+	private static final Path PROC = Paths.get("/proc");
+	private static final Path PROC_NET_TCP = PROC.resolve("net/tcp");
+	private static final Path PROC_NET_TCP6 = PROC.resolve("net/tcp6");
+
+	// st column of /proc/net/tcp, by State ordinal
+	private static final int[] statesLinux = {
+			-1, 0x07, 0x0A, 0x02, 0x03, 0x01, 0x04, 0x05, 0x08, 0x0B, 0x09, 0x06, -1,
+	};
+
+	/**
+	 * Reads the sockets of processes named processName from /proc/net/tcp{,6}
+	 * and their /proc/&lt;pid&gt;/fd socket inodes. Sockets of processes owned
+	 * by other users are not visible, as with netstat -p. A process listening
+	 * on both IPv4 and IPv6 is reported once per port.
+	 */
+	private static List<SockTabEntry> getProcPortsLinux(State state, String processName) {
+		// comm holds the first 15 characters of the name
+		String comm = processName.length() > 15 ? processName.substring(0, 15) : processName;
+
+		Map<Long, String> inodes = new HashMap<>();
+		for (String pid : findPids(comm)) {
+			try (DirectoryStream<Path> fds = Files.newDirectoryStream(PROC.resolve(pid).resolve("fd"))) {
+				for (Path fd : fds) {
+					long inode = socketInode(fd);
+					if (inode > 0) {
+						inodes.put(inode, pid);
+					}
+				}
+			} catch (IOException | SecurityException e) {
+				// exited or not ours
+			}
+		}
+
+		List<SockTabEntry> tabs = new ArrayList<SockTabEntry>();
+		if (inodes.isEmpty()) {
+			return tabs;
+		}
+		int st = statesLinux[state.ordinal()];
+		Set<String> seen = new HashSet<>();
+		for (Path table : new Path[] { PROC_NET_TCP, PROC_NET_TCP6 }) {
+			List<String> rows;
+			try {
+				rows = Files.readAllLines(table, StandardCharsets.US_ASCII);
+			} catch (IOException e) {
+				continue; // no IPv6
+			}
+			for (String row : rows.subList(Math.min(1, rows.size()), rows.size())) {
+				String[] tokens = row.trim().split("\\s+");
+				if (tokens.length < 10 || Integer.parseInt(tokens[3], 16) != st) {
+					continue;
+				}
+				String pid = inodes.get(Long.parseLong(tokens[9]));
+				// A dual-stack listener can show up twice: report each pid/port once.
+				if (pid == null || !seen.add(pid + tokens[1].substring(tokens[1].indexOf(':')))) {
+					continue;
+				}
+				ProcessInfo info = new ProcessInfo();
+				info.setPid(pid);
+				info.setName(processName);
+				String localAddr = ProcAddress(tokens[1]);
+				tabs.add(new SockTabEntry() {
+					{
+						process = info;
+						localAddress = localAddr;
+					}
+				});
+			}
+		}
+
+		return tabs;
+	}
+
+	private static List<String> findPids(String comm) {
+		List<String> pids = new ArrayList<>();
+		try (DirectoryStream<Path> procs = Files.newDirectoryStream(PROC, "[0-9]*")) {
+			for (Path proc : procs) {
+				String pid = proc.getFileName().toString();
+				if (comm.equals(readComm(pid))) {
+					pids.add(pid);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println(e.toString());
+		}
+		return pids;
+	}
+
+	private static String readComm(String pid) {
+		try {
+			return new String(Files.readAllBytes(PROC.resolve(pid).resolve("comm")), StandardCharsets.UTF_8).trim();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static long socketInode(Path fd) {
+		try {
+			String target = Files.readSymbolicLink(fd).toString();
+			if (target.startsWith("socket:[") && target.endsWith("]")) {
+				return Long.parseLong(target.substring(8, target.length() - 1));
+			}
+		} catch (IOException | UnsupportedOperationException | NumberFormatException e) {
+			// closed meanwhile
+		}
+		return -1;
+	}
+
+	/**
+	 * Converts a /proc/net/tcp{,6} address ("0100007F:1F90") to host:port.
+	 * The address words are in host (little-endian) byte order. Wildcard
+	 * addresses map to loopback, so the result can be dialed.
+	 */
+	static String ProcAddress(String hex) {
+		int colon = hex.indexOf(':');
+		int port = Integer.parseInt(hex.substring(colon + 1), 16);
+		String ip = hex.substring(0, colon);
+
+		byte[] addr = new byte[ip.length() / 2];
+		for (int word = 0; word < addr.length; word += 4) {
+			for (int i = 0; i < 4; i++) {
+				int at = (word + 3 - i) * 2;
+				addr[word + i] = (byte) Integer.parseInt(ip.substring(at, at + 2), 16);
+			}
+		}
+		try {
+			InetAddress a = InetAddress.getByAddress(addr);
+			if (a.isAnyLocalAddress()) {
+				a = InetAddress.getByName(addr.length == 4 ? "127.0.0.1" : "::1");
+			}
+			String host = a.getHostAddress();
+			return (host.indexOf(':') >= 0 ? "[" + host + "]" : host) + ":" + port;
+		} catch (UnknownHostException e) {
+			throw new IllegalArgumentException("invalid address " + hex, e);
+		}
+	}
+
 	public static class SockTabEntry {
 		public ProcessInfo process;
 		public String localAddress;
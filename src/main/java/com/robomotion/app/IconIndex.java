@@ -0,0 +1,73 @@
+package com.robomotion.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * By-name lookup of the Material Design icons in {@link Icons}, backed by the
+ * compressed icons.tsv.gz resource (one "name\tpath" line per icon), which
+ * scripts/IconIndexGen.java generates from Icons.java.
+ * <p>
+ * The {@link Icons} constants are inlined by javac, so using them never loads
+ * that class; this index serves code that only has an icon name. It is read
+ * on first use, so a node can declare {@code icon = "mdiAccount"} and have the
+ * path resolved only when its spec is generated.
+ */
+public final class IconIndex {
+
+    private static final String RESOURCE = "icons.tsv.gz";
+
+    private IconIndex() {
+    }
+
+    private static final class Holder {
+        static final Map<String, String> ICONS = load();
+    }
+
+    /**
+     * Returns the SVG path of an icon such as "mdiAccount", or null.
+     */
+    public static String get(String name) {
+        return Holder.ICONS.get(name);
+    }
+
+    /**
+     * Returns the path for an icon name, or icon itself if it is not one
+     * (an inline SVG path, an empty string, ...).
+     */
+    static String resolve(String icon) {
+        if (icon == null || !icon.startsWith("mdi") || icon.length() > 64) {
+            return icon;
+        }
+        String path = get(icon);
+        return path != null ? path : icon;
+    }
+
+    static Map<String, String> load() {
+        Map<String, String> icons = new HashMap<>(8192);
+        try (InputStream in = IconIndex.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                return Collections.emptyMap();
+            }
+            BufferedReader r = new BufferedReader(
+                    new InputStreamReader(new GZIPInputStream(in, 64 * 1024), StandardCharsets.UTF_8));
+            for (String line; (line = r.readLine()) != null;) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    icons.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read " + RESOURCE, e);
+        }
+        return Collections.unmodifiableMap(icons);
+    }
+}
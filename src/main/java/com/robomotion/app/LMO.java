@@ -1,18 +1,40 @@
 package com.robomotion.app;
 
 import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import net.openhft.hashing.LongTupleHashFunction;
 
+import java.io.BufferedInputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * LMO manages a content-addressed, zstd-compressed blob store on disk.
@@ -25,6 +47,20 @@ public class LMO {
     public static final int MAGIC = 20260301;
     public static final int THRESHOLD = 4096; // 4KB
 
+    // Extraction threshold and zstd level for new blobs:
+    //   robomotion.lmo.threshold      bytes at which a value is extracted (default THRESHOLD)
+    //   robomotion.lmo.level          zstd level (default: zstd's default level)
+    //   robomotion.lmo.adaptive       retune both from recent puts, see LMOPolicy
+    //   robomotion.lmo.max_threshold  adaptive upper bound for the threshold
+    //   robomotion.lmo.level_budget_us adaptive per-blob compress+write budget
+    // The robot info fields lmo_threshold / lmo_level set per-store values;
+    // properties take precedence over them.
+    static final long DEFAULT_MAX_THRESHOLD = 64 * 1024;
+    static final long DEFAULT_LEVEL_BUDGET_US = 5000;
+    private static volatile long robotThreshold = -1;
+    private static volatile long robotLevel = Long.MIN_VALUE;
+    private static volatile LMOPolicy policy;
+
     private static final LongTupleHashFunction xxh128 = LongTupleHashFunction.xx128();
 
     // Store state — lazily initialised on first use.
@@ -33,6 +69,74 @@ public class LMO {
     private static String root;
     private static String relPath;
 
+    // Blob index for the active store (null until init). Drives dedup checks
+    // and quota-based LRU eviction; see LMOIndex.
+    private static volatile LMOIndex index;
+
+    // Reads blobs referenced by inbound messages ahead of resolution (off by
+    // default); see LMOPrefetcher. Settings:
+    //   robomotion.lmo.prefetch          enable prefetch on message arrival
+    //   robomotion.lmo.prefetch_mb       limit on decompressed blobs held in memory
+    //   robomotion.lmo.prefetch_threads  I/O pool size
+    static final long DEFAULT_PREFETCH_THREADS = 2;
+    static final long DEFAULT_PREFETCH_MB = 64;
+    static final int PREFETCH_MAX_ENTRIES = 256;
+    static final long PREFETCH_TTL_MS = 30_000;
+    private static volatile LMOPrefetcher prefetcher;
+
+    // Write-behind persistence (off by default); see LMOWriter. Settings:
+    //   robomotion.lmo.write_behind          stage new blobs in memory, write in background
+    //   robomotion.lmo.write_behind_mb       staging buffer limit, putBlob blocks beyond it
+    //   robomotion.lmo.write_behind_threads  compression/write pool size
+    //   robomotion.lmo.write_behind_barrier  "message" (before each OnMessage reply, wait
+    //                                        for the blobs it refers to; the default) or
+    //                                        "close" (flush on OnClose/exit)
+    static final long DEFAULT_WRITE_BEHIND_MB = 64;
+    static final long DEFAULT_WRITE_BEHIND_THREADS = 2;
+    private static volatile LMOWriter writer;
+
+    // Refs of blobs still being written that the message being packed by
+    // packDurable refers to; also set on the worker threads packing its fields.
+    private static final ThreadLocal<Set<String>> stagedRefs = new ThreadLocal<>();
+
+    // Process-wide counters and histograms; see stats(). Only a plugin
+    // process serving a robot has a store, so robomotion.lmo.stats_log
+    // (printed by the shutdown hook) is the way to see them from outside.
+    static final LMOStats STATS = new LMOStats();
+
+    // Quota / GC settings, read from Runtime properties:
+    //   robomotion.lmo.quota_mb            store size limit, 0 disables eviction
+    //   robomotion.lmo.grace_seconds       blobs accessed this recently are never evicted
+    //   robomotion.lmo.gc_interval_seconds period of the background eviction pass
+    static final long DEFAULT_QUOTA_MB = 2048;
+    static final long DEFAULT_GRACE_SECONDS = 3600;
+    static final long DEFAULT_GC_INTERVAL_SECONDS = 60;
+
+    // Cross-process index shared by every plugin using the store:
+    //   robomotion.lmo.shared_index        map {root}/shared-index (default true)
+    //   robomotion.lmo.shared_index_slots  table size for a newly created index
+    static final long DEFAULT_SHARED_INDEX_SLOTS = 1 << 17;
+
+    private static ScheduledExecutorService gcExecutor;
+    private static final AtomicBoolean gcPending = new AtomicBoolean();
+    private static boolean shutdownHookInstalled;
+
+    // Chunked blob settings (off by default until every reader understands "chunked"):
+    //   robomotion.lmo.chunking         enable content-defined chunking
+    //   robomotion.lmo.chunk_threshold  value size in bytes at which chunking starts
+    //   robomotion.lmo.chunk_avg_kb     target average chunk size
+    static final String TYPE_CHUNKED = "chunked";
+    static final long DEFAULT_CHUNK_THRESHOLD = 8L * 1024 * 1024;
+    static final long DEFAULT_CHUNK_AVG_KB = 1024;
+
+    // Binary blobs (off by default, same reason as chunking):
+    //   robomotion.lmo.binary  store base64 string payloads as decoded bytes
+    static final String TYPE_BINARY = "binary";
+
+    // Worker pool for pack/resolve of independent top-level fields; created on first use.
+    static final int PARALLEL_MIN_FIELDS = 2;
+    private static ForkJoinPool workerPool;
+
     /**
      * Initialise the store with the given relative store path.
      * root = configDir/store/{storePath}
@@ -44,6 +148,25 @@ public class LMO {
 
         Path blobDir = Paths.get(root, "blobs");
         Files.createDirectories(blobDir);
+        openIndex();
+    }
+
+    /**
+     * Loads (or rebuilds) the blob index for the current root and starts the
+     * background eviction pass.
+     */
+    private static void openIndex() {
+        LMOIndex idx = LMOIndex.open(Paths.get(root));
+        if (Runtime.getPropertyBool("robomotion.lmo.shared_index", true)) {
+            try {
+                int slots = (int) propertyLong("robomotion.lmo.shared_index_slots", DEFAULT_SHARED_INDEX_SLOTS);
+                idx.share(LMOSharedIndex.open(Paths.get(root), slots, idx.sizes()));
+            } catch (Exception e) {
+                System.err.println("lmo: shared index unavailable: " + e.getMessage());
+            }
+        }
+        index = idx;
+        startGc();
     }
 
     /**
@@ -57,6 +180,7 @@ public class LMO {
         }
         try {
             Map<String, Object> info = Runtime.GetRobotInfo();
+            configure(info);
             Object storePath = info.get("lmo_store_path");
             if (storePath == null || storePath.toString().isEmpty()) {
                 return;
@@ -81,7 +205,7 @@ public class LMO {
      * them with BlobRef markers. Returns the original data if nothing was extracted.
      */
     public static byte[] pack(byte[] data) {
-        if (data == null || data.length == 0 || data.length < THRESHOLD) {
+        if (data == null || data.length == 0 || data.length < threshold()) {
             return data;
         }
         if (!Runtime.IsLMOCapable()) {
@@ -100,16 +224,7 @@ public class LMO {
             }
 
             JsonObject obj = parsed.getAsJsonObject();
-            boolean modified = false;
-
-            for (Map.Entry<String, JsonElement> entry : obj.entrySet().toArray(new Map.Entry[0])) {
-                JsonElement value = entry.getValue();
-                JsonElement extracted = extractField(value);
-                if (extracted != null) {
-                    obj.add(entry.getKey(), extracted);
-                    modified = true;
-                }
-            }
+            boolean modified = transformFields(obj, LMO::isPackCandidate, LMO::extractField);
 
             if (!modified) {
                 return data;
@@ -138,7 +253,13 @@ public class LMO {
 
         // Array or scalar: extract if large (use byte length to match Go's len())
         byte[] rawBytes = value.toString().getBytes(StandardCharsets.UTF_8);
-        if (rawBytes.length >= THRESHOLD) {
+        if (rawBytes.length >= threshold()) {
+            if (binaryEnabled() && value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+                JsonElement br = buildBinaryBlobRefElement(value.getAsString());
+                if (br != null) {
+                    return br;
+                }
+            }
             return buildBlobRefElement(rawBytes, value);
         }
 
@@ -152,7 +273,7 @@ public class LMO {
         byte[] rawBytes = obj.toString().getBytes(StandardCharsets.UTF_8);
 
         // If the whole object is small, skip (use byte length to match Go's len())
-        if (rawBytes.length < THRESHOLD) {
+        if (rawBytes.length < threshold()) {
             return null;
         }
 
@@ -177,8 +298,14 @@ public class LMO {
 
     /**
      * Stores data as a blob and returns a BlobRef JSON element.
+     * Values at or above the chunking threshold are stored chunked when
+     * chunking is enabled.
      */
     private static JsonElement buildBlobRefElement(byte[] rawBytes, JsonElement value) throws Exception {
+        if (chunkingEnabled() && rawBytes.length >= chunkThreshold()) {
+            return buildChunkedBlobRefElement(rawBytes, value);
+        }
+
         String ref = putBlob(rawBytes);
 
         JsonObject br = new JsonObject();
@@ -187,27 +314,307 @@ public class LMO {
         br.addProperty("__size", rawBytes.length);
         br.addProperty("__path", relPath);
 
+        String type = valueType(value);
+        if (type != null) {
+            br.addProperty("__type", type);
+        }
+        addValueLength(br, value);
+
+        return br;
+    }
+
+    /**
+     * Returns the BlobRef __type for a JSON value, or null for JSON null.
+     */
+    private static String valueType(JsonElement value) {
         if (value.isJsonArray()) {
-            br.addProperty("__type", "array");
-            br.addProperty("__len", value.getAsJsonArray().size());
+            return "array";
         } else if (value.isJsonObject()) {
-            br.addProperty("__type", "object");
+            return "object";
         } else if (value.isJsonPrimitive()) {
             JsonPrimitive prim = value.getAsJsonPrimitive();
             if (prim.isString()) {
-                br.addProperty("__type", "string");
-                String s = prim.getAsString();
-                br.addProperty("__len", s.codePointCount(0, s.length()));
+                return "string";
             } else if (prim.isNumber()) {
-                br.addProperty("__type", "number");
+                return "number";
             } else if (prim.isBoolean()) {
-                br.addProperty("__type", "boolean");
+                return "boolean";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds __len (element count or code point count) for arrays and strings.
+     */
+    private static void addValueLength(JsonObject br, JsonElement value) {
+        if (value.isJsonArray()) {
+            br.addProperty("__len", value.getAsJsonArray().size());
+        } else if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+            String s = value.getAsString();
+            br.addProperty("__len", s.codePointCount(0, s.length()));
+        }
+    }
+
+    // --- Chunked blobs ---
+
+    /**
+     * Stores a large value as content-defined chunks plus a manifest blob and
+     * returns a BlobRef with __type "chunked" whose __ref is the manifest.
+     * Every chunk and the manifest are ordinary zstd blobs, so the store
+     * layout is unchanged. The original value type is kept in __value_type.
+     * <p>
+     * Manifest: {"version":1,"type":..,"size":..,"chunks":[{"ref","size"[,"first","count"]}]}
+     * For arrays every chunk is a standalone JSON array of consecutive
+     * elements; first/count give the element range it holds.
+     */
+    private static JsonElement buildChunkedBlobRefElement(byte[] rawBytes, JsonElement value) throws Exception {
+        LMOChunker chunker = new LMOChunker(chunkAvgSize());
+        JsonArray chunks = new JsonArray();
+
+        if (value.isJsonArray()) {
+            JsonArray arr = value.getAsJsonArray();
+            List<byte[]> elems = new ArrayList<>(arr.size());
+            for (JsonElement e : arr) {
+                elems.add(e.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            int start = 0;
+            for (int end : chunker.elementCuts(elems)) {
+                java.io.ByteArrayOutputStream buf = new java.io.ByteArrayOutputStream();
+                buf.write('[');
+                for (int i = start; i < end; i++) {
+                    if (i > start) {
+                        buf.write(',');
+                    }
+                    buf.write(elems.get(i));
+                }
+                buf.write(']');
+                byte[] chunk = buf.toByteArray();
+
+                JsonObject c = new JsonObject();
+                c.addProperty("ref", putBlob(chunk));
+                c.addProperty("size", chunk.length);
+                c.addProperty("first", start);
+                c.addProperty("count", end - start);
+                chunks.add(c);
+                start = end;
+            }
+        } else {
+            int start = 0;
+            for (int end : chunker.cutPoints(rawBytes)) {
+                byte[] chunk = java.util.Arrays.copyOfRange(rawBytes, start, end);
+                JsonObject c = new JsonObject();
+                c.addProperty("ref", putBlob(chunk));
+                c.addProperty("size", chunk.length);
+                chunks.add(c);
+                start = end;
             }
         }
 
+        String type = valueType(value);
+        JsonObject manifest = new JsonObject();
+        manifest.addProperty("version", 1);
+        manifest.addProperty("type", type);
+        manifest.addProperty("size", rawBytes.length);
+        manifest.add("chunks", chunks);
+        String manifestRef = putBlob(manifest.toString().getBytes(StandardCharsets.UTF_8));
+
+        JsonObject br = new JsonObject();
+        br.addProperty("__ref", manifestRef);
+        br.addProperty("__magic", MAGIC);
+        br.addProperty("__size", rawBytes.length);
+        br.addProperty("__path", relPath);
+        br.addProperty("__type", TYPE_CHUNKED);
+        if (type != null) {
+            br.addProperty("__value_type", type);
+        }
+        addValueLength(br, value);
         return br;
     }
 
+    // --- Binary blobs ---
+
+    /**
+     * Stores a base64 string (optionally a data: URI) as its decoded bytes and
+     * returns a BlobRef with __type "binary". __size is the decoded byte count,
+     * __len the code point count of the original string and __prefix the data
+     * URI header, if any. Returns null if s is not canonical base64, so the
+     * caller falls back to a plain string blob.
+     */
+    private static JsonElement buildBinaryBlobRefElement(String s) throws Exception {
+        String prefix = dataUriPrefix(s);
+        String b64 = prefix.isEmpty() ? s : s.substring(prefix.length());
+        byte[] decoded = decodeCanonicalBase64(b64);
+        if (decoded == null) {
+            return null;
+        }
+
+        String ref = putBlob(decoded);
+
+        JsonObject br = new JsonObject();
+        br.addProperty("__ref", ref);
+        br.addProperty("__magic", MAGIC);
+        br.addProperty("__size", decoded.length);
+        br.addProperty("__path", relPath);
+        br.addProperty("__type", TYPE_BINARY);
+        br.addProperty("__len", s.codePointCount(0, s.length()));
+        if (!prefix.isEmpty()) {
+            br.addProperty("__prefix", prefix);
+        }
+        return br;
+    }
+
+    /**
+     * Returns the "data:...;base64," header of s, or "" if s is not a base64 data URI.
+     */
+    static String dataUriPrefix(String s) {
+        if (!s.startsWith("data:")) {
+            return "";
+        }
+        int comma = s.indexOf(',');
+        if (comma < 0 || comma > 256 || !s.regionMatches(true, comma - 7, ";base64", 0, 7)) {
+            return "";
+        }
+        return s.substring(0, comma + 1);
+    }
+
+    /**
+     * Decodes s if it is standard, padded base64 that re-encodes to exactly s;
+     * returns null otherwise. The round-trip check guarantees the BlobRef
+     * resolves back to the identical string.
+     */
+    static byte[] decodeCanonicalBase64(String s) {
+        int n = s.length();
+        if (n == 0 || n % 4 != 0) {
+            return null;
+        }
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            boolean ok = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '+' || c == '/' || (c == '=' && i >= n - 2);
+            if (!ok) {
+                return null;
+            }
+        }
+        if (s.charAt(n - 1) != '=' && s.charAt(n - 2) == '=') {
+            return null;
+        }
+        try {
+            byte[] decoded = java.util.Base64.getDecoder().decode(s);
+            if (!java.util.Base64.getEncoder().encodeToString(decoded).equals(s)) {
+                return null;
+            }
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean binaryEnabled() {
+        return Runtime.getPropertyBool("robomotion.lmo.binary", false);
+    }
+
+    /**
+     * Returns the raw bytes held by a binary BlobRef without base64 encoding them.
+     */
+    public static byte[] readBinary(Map<String, Object> m) throws Exception {
+        String ref = binaryRef(m);
+        Object path = m.get("__path");
+        return getBlob(ref, path != null ? path.toString() : "");
+    }
+
+    /**
+     * Opens a streaming reader over the raw bytes of a binary BlobRef.
+     */
+    public static InputStream openBinary(Map<String, Object> m) throws Exception {
+        String ref = binaryRef(m);
+        Object path = m.get("__path");
+        return openBlobStream(ref, path != null ? path.toString() : "");
+    }
+
+    private static String binaryRef(Map<String, Object> m) throws Exception {
+        String ref = m.get("__ref") != null ? m.get("__ref").toString() : "";
+        String path = m.get("__path") != null ? m.get("__path").toString() : "";
+        if (ref.isEmpty()) {
+            throw new Exception("lmo: missing __ref");
+        }
+        if (!TYPE_BINARY.equals(String.valueOf(m.get("__type")))) {
+            throw new Exception("lmo: blob " + ref + " is not binary");
+        }
+        if (relPath == null && !path.isEmpty()) {
+            init(path);
+        }
+        return ref;
+    }
+
+    /**
+     * Returns the serialized JSON bytes of a BlobRef's value, reassembling
+     * chunked blobs from their manifest and re-encoding binary blobs as a
+     * base64 JSON string (with prefix prepended).
+     */
+    static byte[] readBlobRefBytes(String ref, String path, String type, String prefix) throws Exception {
+        if (TYPE_BINARY.equals(type)) {
+            String b64 = java.util.Base64.getEncoder().encodeToString(getBlob(ref, path));
+            String s = prefix != null ? prefix + b64 : b64;
+            return new JsonPrimitive(s).toString().getBytes(StandardCharsets.UTF_8);
+        }
+        if (!TYPE_CHUNKED.equals(type)) {
+            return getBlob(ref, path);
+        }
+
+        JsonObject manifest = readManifest(ref, path);
+        boolean isArray = "array".equals(manifest.get("type").getAsString());
+        long size = manifest.get("size").getAsLong();
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream((int) Math.min(size, Integer.MAX_VALUE - 8));
+
+        if (isArray) {
+            out.write('[');
+        }
+        boolean first = true;
+        for (JsonElement c : manifest.getAsJsonArray("chunks")) {
+            byte[] chunk = getBlob(c.getAsJsonObject().get("ref").getAsString(), path);
+            if (isArray) {
+                // Strip the chunk's own brackets and join with commas.
+                if (chunk.length <= 2) {
+                    continue;
+                }
+                if (!first) {
+                    out.write(',');
+                }
+                out.write(chunk, 1, chunk.length - 2);
+            } else {
+                out.write(chunk);
+            }
+            first = false;
+        }
+        if (isArray) {
+            out.write(']');
+        }
+
+        if (out.size() != size) {
+            throw new Exception("lmo: chunked blob " + ref + " reassembled to " + out.size()
+                    + " bytes, manifest says " + size);
+        }
+        return out.toByteArray();
+    }
+
+    private static JsonObject readManifest(String ref, String path) throws Exception {
+        byte[] raw = getBlob(ref, path);
+        return JsonParser.parseString(new String(raw, StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    private static boolean chunkingEnabled() {
+        return Runtime.getPropertyBool("robomotion.lmo.chunking", false);
+    }
+
+    private static long chunkThreshold() {
+        return propertyLong("robomotion.lmo.chunk_threshold", DEFAULT_CHUNK_THRESHOLD);
+    }
+
+    private static int chunkAvgSize() {
+        return (int) propertyLong("robomotion.lmo.chunk_avg_kb", DEFAULT_CHUNK_AVG_KB) * 1024;
+    }
+
     // --- Resolve (read) side ---
 
     /**
@@ -218,6 +625,11 @@ public class LMO {
         if (data == null || data.length == 0) {
             return data;
         }
+        // Most messages carry no refs; don't pay for a parse to find that out.
+        if (!mayContainBlobRef(data)) {
+            STATS.skippedParses.increment();
+            return data;
+        }
 
         try {
             String json = new String(data, StandardCharsets.UTF_8);
@@ -227,16 +639,7 @@ public class LMO {
             }
 
             JsonObject root = parsed.getAsJsonObject();
-            boolean modified = false;
-
-            for (Map.Entry<String, JsonElement> entry : root.entrySet().toArray(new Map.Entry[0])) {
-                JsonElement value = entry.getValue();
-                JsonElement resolved = resolveValue(value);
-                if (resolved != null) {
-                    root.add(entry.getKey(), resolved);
-                    modified = true;
-                }
-            }
+            boolean modified = transformFields(root, LMO::isResolveCandidate, LMO::resolveValue);
 
             if (!modified) {
                 return data;
@@ -247,6 +650,31 @@ public class LMO {
         }
     }
 
+    private static final byte[] MAGIC_KEY = "\"__magic\"".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Returns false only if data cannot contain a BlobRef, i.e. the "__magic"
+     * key never appears. A true result may be a false positive (for example
+     * the key inside a string value), which the full parse sorts out.
+     */
+    static boolean mayContainBlobRef(byte[] data) {
+        byte first = MAGIC_KEY[0];
+        int last = data.length - MAGIC_KEY.length;
+        outer:
+        for (int i = 0; i <= last; i++) {
+            if (data[i] != first || data[i + 1] != '_' || data[i + 2] != '_') {
+                continue;
+            }
+            for (int j = 3; j < MAGIC_KEY.length; j++) {
+                if (data[i + j] != MAGIC_KEY[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Resolves a single JSON value. Returns the resolved element if changed, null otherwise.
      */
@@ -280,6 +708,168 @@ public class LMO {
         return modified ? obj : null;
     }
 
+    // --- Parallel field processing ---
+
+    /**
+     * Transforms one top-level field; returns the replacement or null if unchanged.
+     */
+    @FunctionalInterface
+    private interface FieldTransform {
+        JsonElement apply(JsonElement value) throws Exception;
+    }
+
+    /**
+     * Applies fn to every top-level field of obj and writes the replacements
+     * back in the original key order, so the output is identical to a
+     * sequential pass. When at least PARALLEL_MIN_FIELDS fields pass the
+     * candidate filter they are processed on the LMO worker pool; the rest run
+     * on the calling thread. Returns true if any field was replaced.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean transformFields(JsonObject obj, Predicate<JsonElement> candidate,
+            FieldTransform fn) throws Exception {
+        Map.Entry<String, JsonElement>[] entries = obj.entrySet().toArray(new Map.Entry[0]);
+        JsonElement[] results = new JsonElement[entries.length];
+
+        int candidates = 0;
+        if (parallelEnabled()) {
+            for (Map.Entry<String, JsonElement> entry : entries) {
+                if (candidate.test(entry.getValue())) {
+                    candidates++;
+                }
+            }
+        }
+
+        if (candidates < PARALLEL_MIN_FIELDS) {
+            for (int i = 0; i < entries.length; i++) {
+                results[i] = fn.apply(entries[i].getValue());
+            }
+        } else {
+            Set<String> refs = stagedRefs.get();
+            List<Future<JsonElement>> futures = new ArrayList<>(entries.length);
+            for (Map.Entry<String, JsonElement> entry : entries) {
+                JsonElement value = entry.getValue();
+                futures.add(candidate.test(value) ? workerPool().submit(() -> applyWith(refs, fn, value)) : null);
+            }
+            for (int i = 0; i < entries.length; i++) {
+                if (futures.get(i) == null) {
+                    results[i] = fn.apply(entries[i].getValue());
+                }
+            }
+            for (int i = 0; i < entries.length; i++) {
+                if (futures.get(i) != null) {
+                    results[i] = awaitField(futures.get(i));
+                }
+            }
+        }
+
+        boolean modified = false;
+        for (int i = 0; i < entries.length; i++) {
+            if (results[i] != null) {
+                obj.add(entries[i].getKey(), results[i]);
+                modified = true;
+            }
+        }
+        return modified;
+    }
+
+    private static JsonElement applyWith(Set<String> refs, FieldTransform fn, JsonElement value) throws Exception {
+        if (refs == null) {
+            return fn.apply(value);
+        }
+        stagedRefs.set(refs);
+        try {
+            return fn.apply(value);
+        } finally {
+            stagedRefs.remove();
+        }
+    }
+
+    private static JsonElement awaitField(Future<JsonElement> f) throws Exception {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new Exception(cause);
+        }
+    }
+
+    /**
+     * A field is worth a worker if it could be at or above the threshold.
+     * Strings are bounded by 3 UTF-8 bytes per char; containers are estimated
+     * the same way, element by element, until the estimate reaches the threshold.
+     */
+    static boolean isPackCandidate(JsonElement value) {
+        if (value.isJsonObject() && isBlobRef(value.getAsJsonObject())) {
+            return false;
+        }
+        if (value.isJsonPrimitive() && !value.getAsJsonPrimitive().isString()) {
+            return false;
+        }
+        long threshold = threshold();
+        return estimateSize(value, threshold) >= threshold;
+    }
+
+    /**
+     * Estimates the serialized size of value from above, returning early once
+     * the estimate reaches limit.
+     */
+    private static long estimateSize(JsonElement value, long limit) {
+        if (value.isJsonPrimitive()) {
+            JsonPrimitive p = value.getAsJsonPrimitive();
+            // A number or boolean serializes to at most 24 chars.
+            return p.isString() ? p.getAsString().length() * 3L + 2 : 24;
+        }
+        long size = 2;
+        if (value.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> e : value.getAsJsonObject().entrySet()) {
+                size += e.getKey().length() * 3L + 4 + estimateSize(e.getValue(), limit - size);
+                if (size >= limit) {
+                    return size;
+                }
+            }
+        } else if (value.isJsonArray()) {
+            for (JsonElement e : value.getAsJsonArray()) {
+                size += 1 + estimateSize(e, limit - size);
+                if (size >= limit) {
+                    return size;
+                }
+            }
+        } else {
+            size = 4; // null
+        }
+        return size;
+    }
+
+    private static boolean isResolveCandidate(JsonElement value) {
+        return value.isJsonObject() && isBlobRef(value.getAsJsonObject());
+    }
+
+    private static boolean parallelEnabled() {
+        return Runtime.getPropertyBool("robomotion.lmo.parallel", true);
+    }
+
+    /**
+     * Bounded pool shared by pack and resolve. Parallelism defaults to
+     * min(4, cores) and can be set with robomotion.lmo.parallelism.
+     */
+    private static synchronized ForkJoinPool workerPool() {
+        if (workerPool == null) {
+            int cores = java.lang.Runtime.getRuntime().availableProcessors();
+            int parallelism = (int) propertyLong("robomotion.lmo.parallelism", Math.min(4, cores));
+            workerPool = new ForkJoinPool(Math.max(1, parallelism), pool -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                t.setName("lmo-worker-" + t.getPoolIndex());
+                t.setDaemon(true);
+                return t;
+            }, null, false);
+        }
+        return workerPool;
+    }
+
     // --- Blob I/O ---
 
     /**
@@ -287,34 +877,431 @@ public class LMO {
      * If the blob already exists (dedup), it skips writing.
      */
     static String putBlob(byte[] data) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return putBlobTimed(data);
+        } finally {
+            STATS.putNanos.record(System.nanoTime() - start);
+        }
+    }
+
+    private static String putBlobTimed(byte[] data) throws Exception {
         String ref = hashRef(data);
 
+        LMOWriter w = writer;
+        if (w != null && w.get(ref) != null) {
+            STATS.dedupHits.increment();
+            trackStaged(ref);
+            return ref; // staged, write in progress
+        }
+
+        LMOIndex idx = index;
+        if (idx != null && idx.touchIfPresent(ref)) {
+            STATS.dedupHits.increment();
+            return ref; // already exists
+        }
+
         Path p = blobPath(ref);
         if (Files.exists(p)) {
-            return ref; // already exists
+            // Written by another process since the index was loaded.
+            if (idx != null) {
+                idx.add(ref, Files.size(p));
+            }
+            STATS.dedupHits.increment();
+            return ref;
         }
 
-        Files.createDirectories(p.getParent());
-        byte[] compressed = Zstd.compress(data);
-        Files.write(p, compressed);
+        STATS.packedBlobs.increment();
+        STATS.packedBytes.add(data.length);
+        STATS.packedSize.record(data.length);
 
+        if (writeBehindEnabled()) {
+            writer().stage(ref, data);
+            trackStaged(ref);
+            return ref;
+        }
+        persistBlob(ref, data);
         return ref;
     }
 
+    /**
+     * Compresses data and writes it as the blob for ref, then records it in
+     * the index.
+     */
+    private static void persistBlob(String ref, byte[] data) throws Exception {
+        long start = System.nanoTime();
+        Path p = blobPath(ref);
+        Files.createDirectories(p.getParent());
+        byte[] compressed = Zstd.compress(data, level());
+        writeAtomically(p, compressed);
+        STATS.storedBytes.add(compressed.length);
+
+        LMOPolicy pol = policy();
+        if (pol != null) {
+            pol.record(data.length, System.nanoTime() - start);
+        }
+
+        LMOIndex idx = index;
+        if (idx != null) {
+            idx.add(ref, compressed.length);
+            if (idx.totalBytes() > quotaBytes()) {
+                requestGc();
+            }
+        }
+    }
+
+    // --- Threshold / compression level ---
+
+    /**
+     * Picks up per-store settings from GetRobotInfo(): lmo_threshold (bytes)
+     * and lmo_level (zstd level). Missing fields leave the defaults in place.
+     */
+    static void configure(Map<String, Object> info) {
+        if (info == null) {
+            return;
+        }
+        Object t = info.get("lmo_threshold");
+        if (t instanceof Number && ((Number) t).longValue() > 0) {
+            robotThreshold = ((Number) t).longValue();
+        }
+        Object l = info.get("lmo_level");
+        if (l instanceof Number) {
+            robotLevel = ((Number) l).longValue();
+        }
+        synchronized (LMO.class) {
+            policy = null; // rebuilt from the new base values
+        }
+    }
+
+    /**
+     * Returns the size in bytes at or above which a value is stored as a blob.
+     */
+    static int threshold() {
+        LMOPolicy pol = policy();
+        return pol != null ? pol.threshold() : baseThreshold();
+    }
+
+    /**
+     * Returns the zstd level for new blobs.
+     */
+    static int level() {
+        LMOPolicy pol = policy();
+        return pol != null ? pol.level() : baseLevel();
+    }
+
+    private static int baseThreshold() {
+        long def = robotThreshold > 0 ? robotThreshold : THRESHOLD;
+        long t = propertyLong("robomotion.lmo.threshold", def);
+        return (int) Math.min(Math.max(t, 1), Integer.MAX_VALUE);
+    }
+
+    private static int baseLevel() {
+        long def = robotLevel != Long.MIN_VALUE ? robotLevel : Zstd.defaultCompressionLevel();
+        long l = propertyLong("robomotion.lmo.level", def);
+        return (int) Math.min(Math.max(l, Zstd.minCompressionLevel()), Zstd.maxCompressionLevel());
+    }
+
+    private static LMOPolicy policy() {
+        if (!Runtime.getPropertyBool("robomotion.lmo.adaptive", false)) {
+            return null;
+        }
+        LMOPolicy pol = policy;
+        if (pol != null) {
+            return pol;
+        }
+        synchronized (LMO.class) {
+            if (policy == null) {
+                long budgetUs = propertyLong("robomotion.lmo.level_budget_us", DEFAULT_LEVEL_BUDGET_US);
+                policy = new LMOPolicy(baseThreshold(),
+                        (int) propertyLong("robomotion.lmo.max_threshold", DEFAULT_MAX_THRESHOLD),
+                        baseLevel(), budgetUs * 1000);
+            }
+            return policy;
+        }
+    }
+
+    // --- Write-behind ---
+
+    private static boolean writeBehindEnabled() {
+        return Runtime.getPropertyBool("robomotion.lmo.write_behind", false);
+    }
+
+    private static synchronized LMOWriter writer() {
+        if (writer == null) {
+            int threads = (int) propertyLong("robomotion.lmo.write_behind_threads", DEFAULT_WRITE_BEHIND_THREADS);
+            long maxBytes = propertyLong("robomotion.lmo.write_behind_mb", DEFAULT_WRITE_BEHIND_MB) * 1024 * 1024;
+            writer = new LMOWriter(threads, maxBytes, LMO::persistBlob);
+        }
+        return writer;
+    }
+
+    /**
+     * Durability barrier: waits until every blob staged by write-behind is on
+     * disk. Throws if any background write failed since the last flush.
+     * A no-op when write-behind is not in use.
+     */
+    public static void flush() throws Exception {
+        LMOWriter w = writer;
+        if (w != null) {
+            w.flush();
+        }
+    }
+
+    /**
+     * Packs data like pack and, unless the write-behind barrier is "close",
+     * waits until the blobs it refers to are on disk. Only the blobs this
+     * message refers to are waited on, so writes staged for other messages
+     * neither delay nor fail it.
+     */
+    static byte[] packDurable(byte[] data) throws Exception {
+        Set<String> refs = ConcurrentHashMap.newKeySet();
+        stagedRefs.set(refs);
+        byte[] out;
+        try {
+            out = pack(data);
+        } finally {
+            stagedRefs.remove();
+        }
+        LMOWriter w = writer;
+        // out == data when nothing was packed (or packing failed): no refs leave.
+        if (w != null && out != data && !refs.isEmpty() && flushPerMessage()) {
+            w.await(refs);
+        }
+        return out;
+    }
+
+    private static void trackStaged(String ref) {
+        Set<String> refs = stagedRefs.get();
+        if (refs != null) {
+            refs.add(ref);
+        }
+    }
+
+    /**
+     * Returns true if NodeServer should flush after packing each outbound
+     * message. Refs leave the process with the reply and may be read from
+     * disk by the runtime or other nodes, so this is the default.
+     */
+    static boolean flushPerMessage() {
+        return !"close".equals(Runtime.getProperty("robomotion.lmo.write_behind_barrier", "message"));
+    }
+
+    private static void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Writes data to a temp file beside p and renames it into place, so
+     * concurrent writers of the same ref never expose a partial blob.
+     */
+    private static void writeAtomically(Path p, byte[] data) throws Exception {
+        Path tmp = Files.createTempFile(p.getParent(), p.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, data);
+            try {
+                Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (java.io.IOException e) {
+                // Another writer won the race (Windows refuses to replace an open file).
+                if (!Files.exists(p)) {
+                    throw e;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
     /**
      * Reads and decompresses a blob identified by its ref from the given store path.
      * Uses the stored configDir (set once at init), matching Go's Store.configDir field.
      */
     static byte[] getBlob(String ref, String storePath) throws Exception {
+        long start = System.nanoTime();
+        byte[] data = null;
+        LMOWriter w = writer;
+        if (w != null && storePath.equals(relPath)) {
+            data = w.get(ref);
+        }
+        LMOPrefetcher pf = prefetcher;
+        if (data == null && pf != null) {
+            data = pf.take(ref, storePath);
+        }
+        if (data != null) {
+            STATS.cacheHits.increment();
+        } else {
+            STATS.cacheMisses.increment();
+            data = readBlob(ref, storePath);
+        }
+        STATS.resolvedBlobs.increment();
+        STATS.resolvedBytes.add(data.length);
+        STATS.resolveNanos.record(System.nanoTime() - start);
+        return data;
+    }
+
+    /**
+     * Reads and decompresses a blob from disk, bypassing the prefetch cache.
+     */
+    private static byte[] readBlob(String ref, String storePath) throws Exception {
         String hash = ref.startsWith("xxh3:") ? ref.substring(5) : ref;
         String dir = hash.substring(0, 2);
         String file = hash.substring(2);
 
         Path blobFile = Paths.get(configDir, "store", storePath, "blobs", dir, file);
         byte[] compressed = Files.readAllBytes(blobFile);
+
+        LMOIndex idx = index;
+        if (idx != null && storePath.equals(relPath)) {
+            idx.touch(ref);
+        }
         return Zstd.decompress(compressed, (int) Zstd.decompressedSize(compressed));
     }
 
+    // --- Statistics ---
+
+    /**
+     * Returns a snapshot of the process-wide LMO statistics as a JSON-friendly
+     * map: pack and resolve counters, byte totals, dedup and cache hits,
+     * size/latency histograms (count, sum, mean, p50, p90, p99, max) and the
+     * current store size.
+     */
+    public static Map<String, Object> stats() {
+        Map<String, Object> out = STATS.snapshot();
+        Map<String, Object> store = new java.util.LinkedHashMap<>();
+        store.put("size", storeSize());
+        store.put("blobs", blobCount());
+        store.put("quota", quotaBytes());
+        out.put("store", store);
+        return out;
+    }
+
+    /**
+     * Clears all counters and histograms.
+     */
+    public static void resetStats() {
+        STATS.reset();
+    }
+
+    /**
+     * Writes the current statistics as one JSON line to stderr.
+     */
+    static void printStats() {
+        System.err.println("lmo: stats " + new Gson().toJson(stats()));
+    }
+
+    // --- Quota / garbage collection ---
+
+    /**
+     * Returns the total compressed size in bytes of the blobs in the active
+     * store, or 0 if the store is not initialised.
+     */
+    public static long storeSize() {
+        LMOIndex idx = index;
+        return idx != null ? idx.totalBytes() : 0;
+    }
+
+    /**
+     * Returns the number of blobs in the active store.
+     */
+    public static int blobCount() {
+        LMOIndex idx = index;
+        return idx != null ? idx.count() : 0;
+    }
+
+    /**
+     * Runs one eviction pass against the configured quota and persists the
+     * index. Returns the number of blobs removed.
+     */
+    static int gc() {
+        LMOIndex idx = index;
+        if (idx == null) {
+            return 0;
+        }
+        idx.catchUp();
+        int removed = idx.evict(quotaBytes(), graceMillis(), System.currentTimeMillis());
+        STATS.evictedBlobs.add(removed);
+        try {
+            idx.save();
+        } catch (Exception e) {
+            System.err.println("lmo: save index: " + e.getMessage());
+        }
+        return removed;
+    }
+
+    private static synchronized void startGc() {
+        if (gcExecutor == null) {
+            gcExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "lmo-gc");
+                t.setDaemon(true);
+                return t;
+            });
+            long interval = propertyLong("robomotion.lmo.gc_interval_seconds", DEFAULT_GC_INTERVAL_SECONDS);
+            gcExecutor.scheduleWithFixedDelay(LMO::gcQuietly, interval, interval, TimeUnit.SECONDS);
+        }
+        if (!shutdownHookInstalled) {
+            shutdownHookInstalled = true;
+            java.lang.Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                flushQuietly();
+                saveIndexQuietly();
+                if (Runtime.getPropertyBool("robomotion.lmo.stats_log", false)) {
+                    printStats();
+                }
+            }, "lmo-index-save"));
+        }
+    }
+
+    /**
+     * Schedules an out-of-band eviction pass; coalesces concurrent requests.
+     */
+    private static void requestGc() {
+        ScheduledExecutorService ex = gcExecutor;
+        if (ex != null && gcPending.compareAndSet(false, true)) {
+            ex.execute(() -> {
+                gcPending.set(false);
+                gcQuietly();
+            });
+        }
+    }
+
+    private static void gcQuietly() {
+        try {
+            gc();
+        } catch (Exception e) {
+            System.err.println("lmo: gc: " + e.getMessage());
+        }
+    }
+
+    private static void saveIndexQuietly() {
+        LMOIndex idx = index;
+        if (idx == null) {
+            return;
+        }
+        try {
+            idx.save();
+        } catch (Exception e) {
+            System.err.println("lmo: save index: " + e.getMessage());
+        }
+    }
+
+    static long quotaBytes() {
+        return propertyLong("robomotion.lmo.quota_mb", DEFAULT_QUOTA_MB) * 1024 * 1024;
+    }
+
+    static long graceMillis() {
+        return propertyLong("robomotion.lmo.grace_seconds", DEFAULT_GRACE_SECONDS) * 1000;
+    }
+
+    private static long propertyLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(Runtime.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     // --- Helpers ---
 
     /**
@@ -341,7 +1328,11 @@ public class LMO {
     private static JsonElement resolveRef(JsonObject blobRef) throws Exception {
         String ref = blobRef.get("__ref").getAsString();
         String path = blobRef.get("__path").getAsString();
-        byte[] blob = getBlob(ref, path);
+        JsonElement type = blobRef.get("__type");
+        JsonElement prefix = blobRef.get("__prefix");
+        byte[] blob = readBlobRefBytes(ref, path,
+                type != null && type.isJsonPrimitive() ? type.getAsString() : null,
+                prefix != null && prefix.isJsonPrimitive() ? prefix.getAsString() : null);
         String json = new String(blob, StandardCharsets.UTF_8);
         return JsonParser.parseString(json);
     }
@@ -412,12 +1403,180 @@ public class LMO {
             init(path);
         }
 
-        byte[] blob = getBlob(ref, path);
+        Object type = m.get("__type");
+        Object prefix = m.get("__prefix");
+        byte[] blob = readBlobRefBytes(ref, path, type != null ? type.toString() : null,
+                prefix != null ? prefix.toString() : null);
         String json = new String(blob, StandardCharsets.UTF_8);
         Gson gson = new Gson();
         return gson.fromJson(json, Object.class);
     }
 
+    /**
+     * Resolves elements [from, to) of an array BlobRef. For chunked arrays
+     * only the chunks overlapping the range are read; plain blobs are
+     * decoded in full. The range is clamped to the array bounds.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Object> resolveBlobRefRange(Map<String, Object> m, int from, int to) throws Exception {
+        String ref = m.get("__ref") != null ? m.get("__ref").toString() : "";
+        String path = m.get("__path") != null ? m.get("__path").toString() : "";
+        if (ref.isEmpty()) {
+            throw new Exception("lmo: missing __ref");
+        }
+        if (relPath == null && !path.isEmpty()) {
+            init(path);
+        }
+
+        from = Math.max(0, from);
+        to = Math.max(from, to);
+
+        Gson gson = new Gson();
+        if (!TYPE_CHUNKED.equals(String.valueOf(m.get("__type")))) {
+            Object value = gson.fromJson(new String(getBlob(ref, path), StandardCharsets.UTF_8), Object.class);
+            if (!(value instanceof List)) {
+                throw new Exception("lmo: blob " + ref + " is not an array");
+            }
+            return new ArrayList<>(slice((List<Object>) value, from, to));
+        }
+
+        JsonObject manifest = readManifest(ref, path);
+        if (!"array".equals(manifest.get("type").getAsString())) {
+            throw new Exception("lmo: blob " + ref + " is not an array");
+        }
+        List<Object> out = new ArrayList<>();
+        for (JsonElement ce : manifest.getAsJsonArray("chunks")) {
+            JsonObject c = ce.getAsJsonObject();
+            int first = c.get("first").getAsInt();
+            int count = c.get("count").getAsInt();
+            if (first + count <= from || first >= to) {
+                continue;
+            }
+            byte[] chunk = getBlob(c.get("ref").getAsString(), path);
+            List<Object> elems = gson.fromJson(new String(chunk, StandardCharsets.UTF_8), List.class);
+            out.addAll(slice(elems, from - first, to - first));
+        }
+        return out;
+    }
+
+    /**
+     * Returns list[from, to) with both bounds clamped to the list.
+     */
+    private static List<Object> slice(List<Object> list, int from, int to) {
+        int lo = Math.max(0, Math.min(from, list.size()));
+        int hi = Math.max(lo, Math.min(to, list.size()));
+        return list.subList(lo, hi);
+    }
+
+    /**
+     * Returns a sequential, ordered stream over the elements of an array
+     * BlobRef. The blob is decoded incrementally, so memory use does not grow
+     * with the array length. __len, when present, is reported as the stream
+     * size. Close the stream (or exhaust it) to release the underlying file.
+     */
+    public static Stream<Object> streamBlobRefArray(Map<String, Object> m) throws Exception {
+        String ref = m.get("__ref") != null ? m.get("__ref").toString() : "";
+        String path = m.get("__path") != null ? m.get("__path").toString() : "";
+        if (ref.isEmpty()) {
+            throw new Exception("lmo: missing __ref");
+        }
+        if (relPath == null && !path.isEmpty()) {
+            init(path);
+        }
+
+        String type = String.valueOf(m.get("__type"));
+        if (TYPE_BINARY.equals(type)) {
+            throw new Exception("lmo: blob " + ref + " is not an array");
+        }
+
+        List<String> refs = new ArrayList<>();
+        if (TYPE_CHUNKED.equals(type)) {
+            JsonObject manifest = readManifest(ref, path);
+            if (!"array".equals(manifest.get("type").getAsString())) {
+                throw new Exception("lmo: blob " + ref + " is not an array");
+            }
+            for (JsonElement c : manifest.getAsJsonArray("chunks")) {
+                refs.add(c.getAsJsonObject().get("ref").getAsString());
+            }
+        } else {
+            refs.add(ref);
+        }
+
+        LMOArrayReader reader = new LMOArrayReader(path, refs);
+        int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+        Spliterator<Object> split;
+        Object len = m.get("__len");
+        if (len instanceof Number) {
+            split = Spliterators.spliterator(reader, ((Number) len).longValue(), characteristics);
+        } else {
+            split = Spliterators.spliteratorUnknownSize(reader, characteristics);
+        }
+        return StreamSupport.stream(split, false).onClose(reader::close);
+    }
+
+    /**
+     * Returns a streaming zstd decoder over a blob file. Used for incremental
+     * reads; getBlob remains the fast path for whole-blob reads.
+     */
+    static InputStream openBlobStream(String ref, String storePath) throws java.io.IOException {
+        LMOWriter w = writer;
+        if (w != null && storePath.equals(relPath)) {
+            byte[] staged = w.get(ref);
+            if (staged != null) {
+                STATS.cacheHits.increment();
+                STATS.resolvedBlobs.increment();
+                return new java.io.ByteArrayInputStream(staged);
+            }
+        }
+        STATS.cacheMisses.increment();
+        STATS.resolvedBlobs.increment();
+        String hash = ref.startsWith("xxh3:") ? ref.substring(5) : ref;
+        Path blobFile = Paths.get(configDir, "store", storePath, "blobs", hash.substring(0, 2), hash.substring(2));
+        InputStream in = new ZstdInputStream(new BufferedInputStream(Files.newInputStream(blobFile)));
+
+        LMOIndex idx = index;
+        if (idx != null && storePath.equals(relPath)) {
+            idx.touch(ref);
+        }
+        return in;
+    }
+
+    /**
+     * Starts reading every blob referenced by data on the prefetch pool, so
+     * the following resolveAll or lazy Get finds it decompressed in memory.
+     * Returns the number of reads scheduled. Cheap when data has no refs.
+     */
+    public static int prefetch(byte[] data) {
+        if (data == null || configDir == null || !Runtime.getPropertyBool("robomotion.lmo.prefetch", false)) {
+            return 0;
+        }
+        try {
+            return prefetcher().prefetch(data, relPath);
+        } catch (Exception e) {
+            System.err.println("lmo: prefetch: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static synchronized LMOPrefetcher prefetcher() {
+        if (prefetcher == null) {
+            int threads = (int) propertyLong("robomotion.lmo.prefetch_threads", DEFAULT_PREFETCH_THREADS);
+            long maxBytes = propertyLong("robomotion.lmo.prefetch_mb", DEFAULT_PREFETCH_MB) * 1024 * 1024;
+            prefetcher = new LMOPrefetcher(threads, PREFETCH_MAX_ENTRIES, maxBytes, PREFETCH_TTL_MS, LMO::readBlob);
+        }
+        return prefetcher;
+    }
+
+    /**
+     * Returns true if inbound messages should keep their BlobRefs in place and
+     * resolve them on access (InVariable.Get / GetStream) instead of expanding
+     * every ref up front in NodeServer.onMessage. Off by default because
+     * nodes that read ctx.get() directly would then see BlobRef maps.
+     */
+    static boolean lazyResolve() {
+        return Runtime.getPropertyBool("robomotion.lmo.lazy_resolve", false);
+    }
+
     /**
      * Marshals a value to JSON and packs it into the blob store if it exceeds
      * the threshold. Returns the packed BlobRef map if packed, or null if the
@@ -434,7 +1593,7 @@ public class LMO {
             String json = gson.toJson(value);
             byte[] data = json.getBytes(StandardCharsets.UTF_8);
 
-            if (data.length < THRESHOLD) {
+            if (data.length < threshold()) {
                 return null;
             }
 
@@ -488,6 +1647,7 @@ public class LMO {
         root = Paths.get(configDir, "store", relPath).toString();
         Path blobDir = Paths.get(root, "blobs");
         Files.createDirectories(blobDir);
+        openIndex();
     }
 
     /**
@@ -497,6 +1657,26 @@ public class LMO {
         configDir = null;
         root = null;
         relPath = null;
+        index = null;
+        robotThreshold = -1;
+        robotLevel = Long.MIN_VALUE;
+        policy = null;
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+            prefetcher = null;
+        }
+        if (writer != null) {
+            flushQuietly();
+            writer.close(0);
+            writer = null;
+        }
+    }
+
+    /**
+     * Returns the active blob index (for testing).
+     */
+    static LMOIndex getIndex() {
+        return index;
     }
 
     /**
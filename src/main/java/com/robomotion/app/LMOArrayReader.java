@@ -0,0 +1,109 @@
+package com.robomotion.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * LMOArrayReader is a forward-only iterator over the elements of an array
+ * blob. It decodes the blob incrementally (streaming zstd into a streaming
+ * JSON reader), so only the current element is held on the heap.
+ * <p>
+ * A chunked array is read as a sequence of its chunk blobs, each of which is
+ * a standalone JSON array. Elements are decoded the same way as
+ * {@link LMO#resolveBlobRefValue}: objects become Maps, arrays Lists and
+ * numbers Doubles.
+ */
+final class LMOArrayReader implements Iterator<Object>, Closeable {
+
+    private static final TypeAdapter<Object> ELEMENT = new Gson().getAdapter(Object.class);
+
+    private final String path;
+    private final Deque<String> pending;
+    private JsonReader reader;
+
+    /**
+     * Creates a reader over the given blob refs, read in order.
+     */
+    LMOArrayReader(String path, Iterable<String> refs) {
+        this.path = path;
+        this.pending = new ArrayDeque<>();
+        for (String ref : refs) {
+            pending.add(ref);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (true) {
+                if (reader != null) {
+                    if (reader.hasNext()) {
+                        return true;
+                    }
+                    reader.endArray();
+                    closeCurrent();
+                }
+                if (pending.isEmpty()) {
+                    return false;
+                }
+                open(pending.poll());
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return ELEMENT.read(reader);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        pending.clear();
+        closeCurrent();
+    }
+
+    private void open(String ref) throws IOException {
+        InputStream in = LMO.openBlobStream(ref, path);
+        reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            closeCurrent();
+            throw new IOException("lmo: blob " + ref + " is not an array");
+        }
+        reader.beginArray();
+    }
+
+    private void closeCurrent() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            reader = null;
+        }
+    }
+}
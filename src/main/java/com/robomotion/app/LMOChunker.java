@@ -0,0 +1,112 @@
+package com.robomotion.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * LMOChunker splits large values into content-defined chunks using a gear
+ * rolling hash (as in FastCDC). Cut points depend only on nearby content, so
+ * an edit in one place changes the chunks around it and leaves the rest
+ * byte-identical — which lets the content-addressed store dedup them.
+ * <p>
+ * Arrays are chunked on element boundaries so each chunk is a standalone
+ * JSON array and element ranges can be read without the whole value.
+ */
+final class LMOChunker {
+
+    // Fixed seed: cut points must be stable across processes and releases,
+    // otherwise identical content would stop deduplicating.
+    private static final long[] GEAR = new long[256];
+    static {
+        SplittableRandom rnd = new SplittableRandom(0x4c4d4f4344434bL);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = rnd.nextLong();
+        }
+    }
+
+    final int minSize;
+    final int maxSize;
+    private final int maskShift;
+
+    /**
+     * Creates a chunker targeting avgSize bytes per chunk (rounded to a power
+     * of two). Chunks are kept between avgSize/4 and avgSize*4.
+     */
+    LMOChunker(int avgSize) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(avgSize, 64) - 1);
+        this.minSize = (1 << bits) / 4;
+        this.maxSize = (1 << bits) * 4;
+        this.maskShift = 64 - bits;
+    }
+
+    /**
+     * Returns the exclusive end offset of every chunk of data.
+     */
+    int[] cutPoints(byte[] data) {
+        List<Integer> cuts = new ArrayList<>();
+        int start = 0;
+        while (start < data.length) {
+            int end = nextCut(data, start);
+            cuts.add(end);
+            start = end;
+        }
+        return toArray(cuts);
+    }
+
+    private int nextCut(byte[] data, int start) {
+        int remaining = data.length - start;
+        if (remaining <= minSize) {
+            return data.length;
+        }
+        int limit = start + Math.min(remaining, maxSize);
+        long hash = 0;
+        for (int i = start; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xFF];
+            if (i - start >= minSize && (hash >>> maskShift) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Groups serialized array elements into content-defined runs and returns
+     * the exclusive end index of every run. A run ends after the element in
+     * which the rolling hash hits a cut point (once the run is at least
+     * minSize bytes), or once it reaches maxSize.
+     */
+    int[] elementCuts(List<byte[]> elements) {
+        List<Integer> cuts = new ArrayList<>();
+        long hash = 0;
+        int runSize = 0;
+        for (int i = 0; i < elements.size(); i++) {
+            byte[] e = elements.get(i);
+            boolean cut = false;
+            for (byte b : e) {
+                hash = (hash << 1) + GEAR[b & 0xFF];
+                runSize++;
+                if (runSize >= minSize && (hash >>> maskShift) == 0) {
+                    cut = true;
+                }
+            }
+            if (cut || runSize >= maxSize) {
+                cuts.add(i + 1);
+                hash = 0;
+                runSize = 0;
+            }
+        }
+        if (cuts.isEmpty() || cuts.get(cuts.size() - 1) != elements.size()) {
+            cuts.add(elements.size());
+        }
+        return toArray(cuts);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] out = new int[list.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = list.get(i);
+        }
+        return out;
+    }
+}
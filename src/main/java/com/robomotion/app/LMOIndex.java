@@ -0,0 +1,456 @@
+package com.robomotion.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LMOIndex keeps an in-memory view of the blobs held by an LMO store:
+ * on-disk size, last access time and a reference-count hint per ref.
+ * <p>
+ * The index is persisted as a compact binary file at {root}/index and is
+ * rebuilt from the blobs directory when the file is missing or unreadable.
+ * A loaded file is trusted as is, so opening costs no per-blob I/O. Entries
+ * whose blob another process removed are dropped when they are next looked
+ * up, and the first background GC pass ({@link #catchUp}) adopts blobs the
+ * file does not list. Processes sharing a store each save their own view and
+ * saving merges the entries already on disk, so every blob stays subject to
+ * eviction.
+ * It lets putBlob answer dedup checks from memory and drives quota-based
+ * LRU eviction.
+ */
+final class LMOIndex {
+
+    static final String FILE_NAME = "index";
+
+    private static final int FILE_MAGIC = 0x4c4d4f49; // "LMOI"
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Per-blob bookkeeping. lastAccess is epoch millis.
+     */
+    static final class Entry {
+        final long size;
+        volatile long lastAccess;
+        final AtomicInteger refs;
+
+        Entry(long size, long lastAccess, int refs) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+            this.refs = new AtomicInteger(refs);
+        }
+    }
+
+    private final Path blobDir;
+    private final Path indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    // Dedup checks take the read lock, eviction takes the write lock so a blob
+    // is never deleted between a successful contains() and the caller's use.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean dirty;
+    // Set once the blobs directory has been walked since the file was loaded.
+    private volatile boolean scanned;
+
+    // Cross-process view of the same store, if attached; see LMOSharedIndex.
+    private volatile LMOSharedIndex shared;
+
+    private LMOIndex(Path root) {
+        this.blobDir = root.resolve("blobs");
+        this.indexFile = root.resolve(FILE_NAME);
+    }
+
+    /**
+     * Opens the index for the store rooted at root, loading the persisted file
+     * or rebuilding it from the blobs directory.
+     */
+    static LMOIndex open(Path root) {
+        LMOIndex idx = new LMOIndex(root);
+        if (!idx.load()) {
+            idx.rebuild();
+        }
+        return idx;
+    }
+
+    /**
+     * Attaches the cross-process index: lookups that miss locally consult it,
+     * and adds, reads and evictions are mirrored into it.
+     */
+    void share(LMOSharedIndex s) {
+        this.shared = s;
+    }
+
+    LMOSharedIndex shared() {
+        return shared;
+    }
+
+    /**
+     * Returns a snapshot of ref to on-disk size, used to seed a new shared index.
+     */
+    Map<String, Long> sizes() {
+        Map<String, Long> out = new java.util.HashMap<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            out.put(e.getKey(), e.getValue().size);
+        }
+        return out;
+    }
+
+    // --- Lookup / update ---
+
+    /**
+     * Returns true if ref is known to be on disk, and records the access.
+     * A local entry is confirmed against the shared index, or the file when
+     * the shared index does not list it: another process may have evicted
+     * the blob. The entry is dropped if the blob is gone.
+     */
+    boolean touchIfPresent(String ref) {
+        lock.readLock().lock();
+        try {
+            Entry e = entries.get(ref);
+            LMOSharedIndex s = shared;
+            if (e == null) {
+                // Written by another process: adopt it from the shared index.
+                long size = s != null ? s.touch(ref) : -1;
+                if (size < 0) {
+                    return false;
+                }
+                if (entries.putIfAbsent(ref, new Entry(size, System.currentTimeMillis(), 1)) == null) {
+                    totalBytes.addAndGet(size);
+                }
+                dirty = true;
+                return true;
+            }
+            if ((s == null || s.touch(ref) < 0) && !Files.exists(blobPath(ref))) {
+                if (entries.remove(ref, e)) {
+                    totalBytes.addAndGet(-e.size);
+                }
+                dirty = true;
+                return false;
+            }
+            e.lastAccess = System.currentTimeMillis();
+            e.refs.incrementAndGet();
+            dirty = true;
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a read of ref without changing its reference hint.
+     */
+    void touch(String ref) {
+        Entry e = entries.get(ref);
+        if (e != null) {
+            e.lastAccess = System.currentTimeMillis();
+            dirty = true;
+        }
+        LMOSharedIndex s = shared;
+        if (s != null) {
+            s.touch(ref);
+        }
+    }
+
+    /**
+     * Adds a newly written blob to the index.
+     */
+    void add(String ref, long size) {
+        Entry prev = entries.putIfAbsent(ref, new Entry(size, System.currentTimeMillis(), 1));
+        if (prev == null) {
+            totalBytes.addAndGet(size);
+        } else {
+            prev.lastAccess = System.currentTimeMillis();
+            prev.refs.incrementAndGet();
+        }
+        LMOSharedIndex s = shared;
+        if (s != null) {
+            s.put(ref, size, System.currentTimeMillis());
+        }
+        dirty = true;
+    }
+
+    boolean contains(String ref) {
+        return entries.containsKey(ref);
+    }
+
+    Entry get(String ref) {
+        return entries.get(ref);
+    }
+
+    int count() {
+        return entries.size();
+    }
+
+    long totalBytes() {
+        return totalBytes.get();
+    }
+
+    // --- Eviction ---
+
+    /**
+     * Deletes least-recently-used blobs until the store is at or below quota.
+     * Blobs accessed within graceMs of now are never removed, so refs carried
+     * by in-flight messages stay resolvable. Returns the number of blobs removed.
+     */
+    int evict(long quota, long graceMs, long now) {
+        if (quota <= 0 || totalBytes.get() <= quota) {
+            return 0;
+        }
+
+        LMOSharedIndex s = shared;
+        List<Candidate> candidates = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            long seen = -1;
+            if (s != null) {
+                // Reads by other processes up to now count as access too.
+                seen = s.lastAccess(e.getKey());
+                if (seen > e.getValue().lastAccess && seen <= now) {
+                    e.getValue().lastAccess = seen;
+                }
+            }
+            if (now - e.getValue().lastAccess >= graceMs) {
+                candidates.add(new Candidate(e.getKey(), e.getValue(), seen));
+            }
+        }
+        candidates.sort(Comparator
+                .comparingLong((Candidate c) -> c.entry.lastAccess)
+                .thenComparingInt(c -> c.entry.refs.get()));
+
+        int removed = 0;
+        for (Candidate c : candidates) {
+            if (totalBytes.get() <= quota) {
+                break;
+            }
+            lock.writeLock().lock();
+            try {
+                Entry e = c.entry;
+                // Re-check under the lock: a concurrent put here, or a read by
+                // another process since the scan, may have touched it.
+                if (now - e.lastAccess < graceMs
+                        || (s != null && s.lastAccess(c.ref) > c.sharedAccess)
+                        || !entries.remove(c.ref, e)) {
+                    continue;
+                }
+                if (s != null) {
+                    s.remove(c.ref);
+                }
+                Files.deleteIfExists(blobPath(c.ref));
+                totalBytes.addAndGet(-e.size);
+                removed++;
+                dirty = true;
+            } catch (IOException ex) {
+                System.err.println("lmo: evict " + c.ref + ": " + ex.getMessage());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return removed;
+    }
+
+    /** An eviction candidate and the shared access time seen when it was picked. */
+    private static final class Candidate {
+        final String ref;
+        final Entry entry;
+        final long sharedAccess;
+
+        Candidate(String ref, Entry entry, long sharedAccess) {
+            this.ref = ref;
+            this.entry = entry;
+            this.sharedAccess = sharedAccess;
+        }
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Writes the index to disk if it changed since the last save, first
+     * adopting entries saved by other processes whose blobs still exist.
+     * The file is replaced atomically so readers never see a partial index.
+     */
+    synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        Map<String, Entry> onDisk = read();
+        if (onDisk != null) {
+            for (Map.Entry<String, Entry> e : onDisk.entrySet()) {
+                if (!entries.containsKey(e.getKey()) && Files.exists(blobPath(e.getKey()))
+                        && entries.putIfAbsent(e.getKey(), e.getValue()) == null) {
+                    totalBytes.addAndGet(e.getValue().size);
+                }
+            }
+        }
+
+        Path tmp = Files.createTempFile(indexFile.getParent(), FILE_NAME, ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+                List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> e : snapshot) {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue().size);
+                    out.writeLong(e.getValue().lastAccess);
+                    out.writeInt(e.getValue().refs.get());
+                }
+            }
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    private boolean load() {
+        Map<String, Entry> stored = read();
+        if (stored == null) {
+            return false;
+        }
+        long total = 0;
+        for (Map.Entry<String, Entry> e : stored.entrySet()) {
+            entries.put(e.getKey(), e.getValue());
+            total += e.getValue().size;
+        }
+        totalBytes.set(total);
+        return true;
+    }
+
+    /**
+     * Reconciles a loaded index with the blobs directory, once: adopts blobs
+     * written by a process whose save was overwritten and drops entries whose
+     * blob is gone. Walks the whole store, so it runs on the GC thread.
+     */
+    void catchUp() {
+        if (scanned) {
+            return;
+        }
+        // Only entries listed before the walk can be judged by it.
+        Map<String, Entry> before = new java.util.HashMap<>(entries);
+        java.util.Set<String> seen = new java.util.HashSet<>();
+        int changed = scan(seen);
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Entry> e : before.entrySet()) {
+                if (!seen.contains(e.getKey()) && entries.remove(e.getKey(), e.getValue())) {
+                    totalBytes.addAndGet(-e.getValue().size);
+                    changed++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (changed > 0) {
+            dirty = true;
+        }
+        scanned = true;
+    }
+
+    /**
+     * Reads the persisted index, or returns null if it is missing or unreadable.
+     */
+    private Map<String, Entry> read() {
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+        try (InputStream is = Files.newInputStream(indexFile);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                return null;
+            }
+            int n = in.readInt();
+            Map<String, Entry> out = new java.util.HashMap<>();
+            for (int i = 0; i < n; i++) {
+                String ref = in.readUTF();
+                long size = in.readLong();
+                long lastAccess = in.readLong();
+                int refs = in.readInt();
+                out.put(ref, new Entry(size, lastAccess, refs));
+            }
+            return out;
+        } catch (Exception e) {
+            System.err.println("lmo: index unreadable, rebuilding: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Rebuilds the index by walking blobs/{hash[:2]}/{hash[2:]}.
+     * Last access is approximated by the file modification time.
+     */
+    void rebuild() {
+        entries.clear();
+        totalBytes.set(0);
+        scan(null);
+        dirty = true;
+        scanned = true;
+    }
+
+    /**
+     * Adds the blobs on disk that the index does not list; returns how many.
+     * Every ref found is added to seen, if given.
+     */
+    private int scan(java.util.Set<String> seen) {
+        int added = 0;
+        if (!Files.isDirectory(blobDir)) {
+            return 0;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(blobDir)) {
+            for (Path dir : dirs) {
+                if (!Files.isDirectory(dir) || dir.getFileName().toString().length() != 2) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                    for (Path f : files) {
+                        String name = f.getFileName().toString();
+                        String ref = "xxh3:" + dir.getFileName() + name;
+                        if (name.endsWith(".tmp") || !Files.isRegularFile(f)) {
+                            continue;
+                        }
+                        if (seen != null) {
+                            seen.add(ref);
+                        }
+                        if (entries.containsKey(ref)) {
+                            continue;
+                        }
+                        long size = Files.size(f);
+                        long mtime = Files.getLastModifiedTime(f).toMillis();
+                        if (entries.putIfAbsent(ref, new Entry(size, mtime, 0)) == null) {
+                            totalBytes.addAndGet(size);
+                            added++;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("lmo: index rebuild: " + e.getMessage());
+        }
+        return added;
+    }
+
+    private Path blobPath(String ref) {
+        String hash = ref.startsWith("xxh3:") ? ref.substring(5) : ref;
+        return blobDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+}
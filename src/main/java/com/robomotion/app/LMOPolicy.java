@@ -0,0 +1,84 @@
+package com.robomotion.app;
+
+/**
+ * LMOPolicy adapts the extraction threshold and zstd level to the blobs this
+ * process actually writes. It looks at windows of recent puts:
+ * <ul>
+ * <li>if most new blobs are barely above the threshold, small blobs
+ * dominate I/O and the threshold doubles (up to maxThreshold); once they
+ * are rare it halves back towards the configured base;</li>
+ * <li>if compressing and writing a blob takes longer than the latency
+ * budget on average, the level steps down towards 1 (fast, for hot data
+ * that is written and soon dropped); with headroom it steps back up to the
+ * configured level.</li>
+ * </ul>
+ * Blobs written at any level are plain zstd frames, so readers (including
+ * the Go runtime) are unaffected.
+ */
+final class LMOPolicy {
+
+    static final int WINDOW = 256;
+
+    private final int baseThreshold;
+    private final int maxThreshold;
+    private final int baseLevel;
+    private final long budgetNanos;
+
+    private volatile int threshold;
+    private volatile int level;
+
+    // Current window; guarded by this.
+    private int puts;
+    private int small;
+    private long nanos;
+
+    LMOPolicy(int baseThreshold, int maxThreshold, int baseLevel, long budgetNanos) {
+        this.baseThreshold = baseThreshold;
+        this.maxThreshold = Math.max(baseThreshold, maxThreshold);
+        this.baseLevel = baseLevel;
+        this.budgetNanos = budgetNanos;
+        this.threshold = baseThreshold;
+        this.level = baseLevel;
+    }
+
+    int threshold() {
+        return threshold;
+    }
+
+    int level() {
+        return level;
+    }
+
+    /**
+     * Records a newly written blob of rawSize bytes that took elapsedNanos to
+     * compress and store, and retunes at the end of each window.
+     */
+    synchronized void record(long rawSize, long elapsedNanos) {
+        puts++;
+        if (rawSize < 4L * threshold) {
+            small++;
+        }
+        nanos += elapsedNanos;
+        if (puts < WINDOW) {
+            return;
+        }
+
+        double smallShare = (double) small / puts;
+        if (smallShare > 0.75 && threshold < maxThreshold) {
+            threshold = Math.min(threshold * 2, maxThreshold);
+        } else if (smallShare < 0.25 && threshold > baseThreshold) {
+            threshold = Math.max(threshold / 2, baseThreshold);
+        }
+
+        long avg = nanos / puts;
+        if (avg > budgetNanos && level > 1) {
+            level--;
+        } else if (avg < budgetNanos / 4 && level < baseLevel) {
+            level++;
+        }
+
+        puts = 0;
+        small = 0;
+        nanos = 0;
+    }
+}
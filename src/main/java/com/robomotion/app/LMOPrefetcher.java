@@ -0,0 +1,296 @@
+package com.robomotion.app;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LMOPrefetcher starts reading the blobs referenced by an inbound message on
+ * a small I/O pool as soon as the payload arrives, so that resolution (eager
+ * or lazy) finds them already decompressed in memory.
+ * <p>
+ * Refs are found with a byte scan of the raw payload rather than a JSON
+ * parse. Prefetched blobs are handed out once by {@link #take} and dropped
+ * if nobody claims them within the TTL. The cache is bounded by entry count
+ * and by decompressed bytes; over the byte limit the oldest finished reads
+ * are dropped. Expiry also runs on a timer while anything is cached, so an
+ * idle plugin does not hold blobs.
+ */
+final class LMOPrefetcher {
+
+    private static final byte[] REF_KEY = "\"__ref\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PATH_KEY = "\"__path\":\"".getBytes(StandardCharsets.UTF_8);
+
+    interface Reader {
+        byte[] read(String ref, String storePath) throws Exception;
+    }
+
+    private static final class Pending {
+        final CompletableFuture<byte[]> future;
+        final long startedAt;
+        // Decompressed size once the read completes, -1 before; guarded by pending.
+        long bytes = -1;
+
+        Pending(CompletableFuture<byte[]> future, long startedAt) {
+            this.future = future;
+            this.startedAt = startedAt;
+        }
+    }
+
+    private final ScheduledExecutorService pool;
+    private final Reader reader;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlMs;
+
+    // Insertion order doubles as age order for expiry.
+    private final LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+    // Bytes held by completed reads and whether an expiry sweep is scheduled; guarded by pending.
+    private long bytes;
+    private boolean sweepScheduled;
+
+    LMOPrefetcher(int threads, int maxEntries, long maxBytes, long ttlMs, Reader reader) {
+        AtomicInteger n = new AtomicInteger();
+        this.pool = Executors.newScheduledThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "lmo-prefetch-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        this.reader = reader;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Scans data for BlobRefs and schedules a read for each one not already
+     * in flight. Returns the number of reads scheduled.
+     */
+    int prefetch(byte[] data, String defaultPath) {
+        List<String[]> refs = scan(data, defaultPath);
+        if (refs.isEmpty()) {
+            return 0;
+        }
+
+        int scheduled = 0;
+        long now = System.currentTimeMillis();
+        synchronized (pending) {
+            expire(now);
+            for (String[] r : refs) {
+                String key = key(r[0], r[1]);
+                if (pending.containsKey(key)) {
+                    continue;
+                }
+                if (pending.size() >= maxEntries || bytes >= maxBytes) {
+                    break;
+                }
+                String ref = r[0], path = r[1];
+                CompletableFuture<byte[]> f = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return reader.read(ref, path);
+                    } catch (Exception e) {
+                        throw new java.util.concurrent.CompletionException(e);
+                    }
+                }, pool);
+                Pending p = new Pending(f, now);
+                pending.put(key, p);
+                f.thenAccept(blob -> completed(key, p, blob.length));
+                scheduled++;
+            }
+            scheduleSweep(now);
+        }
+        return scheduled;
+    }
+
+    /**
+     * Counts a finished read against the byte limit, dropping the oldest
+     * finished reads while the cache is over it.
+     */
+    private void completed(String key, Pending p, long size) {
+        synchronized (pending) {
+            if (pending.get(key) != p) {
+                return; // already taken or expired
+            }
+            p.bytes = size;
+            bytes += size;
+            Iterator<Pending> it = pending.values().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                Pending q = it.next();
+                if (q.bytes >= 0) {
+                    it.remove();
+                    bytes -= q.bytes;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the prefetched blob for ref, waiting for an in-flight read, or
+     * null if the ref was not prefetched or the read failed. Each prefetched
+     * blob is returned at most once.
+     */
+    byte[] take(String ref, String storePath) {
+        Pending p;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return null;
+            }
+            expire(System.currentTimeMillis());
+            p = pending.remove(key(ref, storePath));
+            if (p != null) {
+                release(p);
+            }
+        }
+        if (p == null) {
+            return null;
+        }
+        try {
+            return p.future.join();
+        } catch (Exception e) {
+            // Let the caller read from disk and report the error itself.
+            return null;
+        }
+    }
+
+    int size() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    long bytes() {
+        synchronized (pending) {
+            return bytes;
+        }
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+        synchronized (pending) {
+            pending.clear();
+            bytes = 0;
+        }
+    }
+
+    // Callers hold pending.
+    private void expire(long now) {
+        Iterator<Pending> it = pending.values().iterator();
+        while (it.hasNext()) {
+            Pending p = it.next();
+            if (now - p.startedAt < ttlMs) {
+                break;
+            }
+            p.future.cancel(false);
+            it.remove();
+            release(p);
+        }
+    }
+
+    private void release(Pending p) {
+        if (p.bytes > 0) {
+            bytes -= p.bytes;
+        }
+    }
+
+    // Callers hold pending. Schedules a sweep for when the oldest entry expires.
+    private void scheduleSweep(long now) {
+        if (sweepScheduled || pending.isEmpty() || pool.isShutdown()) {
+            return;
+        }
+        long delay = pending.values().iterator().next().startedAt + ttlMs - now;
+        pool.schedule(this::sweep, Math.max(1, delay), TimeUnit.MILLISECONDS);
+        sweepScheduled = true;
+    }
+
+    private void sweep() {
+        synchronized (pending) {
+            sweepScheduled = false;
+            long now = System.currentTimeMillis();
+            expire(now);
+            scheduleSweep(now);
+        }
+    }
+
+    private static String key(String ref, String path) {
+        return path + "\0" + ref;
+    }
+
+    /**
+     * Returns {ref, path} for every BlobRef in data. BlobRefs are flat JSON
+     * objects, so the matching __path is looked up between the braces that
+     * enclose each __ref; defaultPath is used when it is absent.
+     */
+    static List<String[]> scan(byte[] data, String defaultPath) {
+        List<String[]> refs = new ArrayList<>();
+        if (data == null) {
+            return refs;
+        }
+        int i = indexOf(data, REF_KEY, 0, data.length);
+        while (i >= 0) {
+            int start = i + REF_KEY.length;
+            int end = indexOfQuote(data, start);
+            if (end < 0) {
+                break;
+            }
+            String ref = new String(data, start, end - start, StandardCharsets.UTF_8);
+
+            int open = lastIndexOf(data, (byte) '{', i);
+            int close = indexOf(data, new byte[] {'}'}, end, data.length);
+            String path = defaultPath;
+            if (open >= 0 && close >= 0) {
+                int p = indexOf(data, PATH_KEY, open, close);
+                if (p >= 0) {
+                    int ps = p + PATH_KEY.length;
+                    int pe = indexOfQuote(data, ps);
+                    if (pe >= 0) {
+                        path = new String(data, ps, pe - ps, StandardCharsets.UTF_8);
+                    }
+                }
+            }
+            if (!ref.isEmpty() && path != null && !path.isEmpty()) {
+                refs.add(new String[] {ref, path});
+            }
+            i = indexOf(data, REF_KEY, end, data.length);
+        }
+        return refs;
+    }
+
+    private static int indexOf(byte[] data, byte[] needle, int from, int to) {
+        outer:
+        for (int i = from; i <= to - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (data[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] data, byte b, int from) {
+        for (int i = from; i >= 0; i--) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Refs and store paths never contain escapes, so the next quote ends the string.
+    private static int indexOfQuote(byte[] data, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,425 @@
+package com.robomotion.app;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * LMOSharedIndex is a memory-mapped hash table of known refs shared by every
+ * plugin process using the same store directory ({root}/shared-index).
+ * Lookups and inserts are lock-free (CAS on the mapped file), so one
+ * process's blob is a memory lookup away for all others.
+ * <p>
+ * Layout: a 64-byte header (magic, version, capacity, used slots, removed
+ * slots, retired flag) followed by open-addressed 32-byte slots {tag, lo,
+ * size, lastAccess}. The tag is the ref's high 64 bits; three values are
+ * reserved for empty, claimed (an insert in progress) and removed. A writer
+ * claims an empty or removed slot by CAS, fills it in and publishes the tag
+ * last, so readers never match a partly written slot. A crash mid-insert
+ * only leaks a claimed slot.
+ * <p>
+ * A file is never resized or rewritten in place, since other processes have
+ * it mapped. When the table reaches its load limit, the live slots are
+ * copied into a new file (twice as large if they still fill most of it),
+ * which is renamed into place; the old file is then flagged retired and
+ * every process remaps on its next operation. Creation and compaction are
+ * serialized by {root}/shared-index.lock.
+ * <p>
+ * The table is a hint: a miss falls back to the filesystem, and a file with
+ * a bad header is rebuilt from the caller's view of the blobs on disk.
+ * Updates made to a table while it is being compacted may be lost.
+ */
+final class LMOSharedIndex {
+
+    static final String FILE_NAME = "shared-index";
+
+    private static final int FILE_MAGIC = 0x4c4d4f53; // "LMOS"
+    private static final int FILE_VERSION = 2;
+    private static final int HEADER = 64;
+    private static final int SLOT = 32;
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_CAPACITY = 8;
+    private static final int OFF_USED = 16;
+    private static final int OFF_REMOVED = 24;
+    private static final int OFF_RETIRED = 32;
+    // Slot offsets are ints, which caps the file at 1 GiB.
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    private static final long EMPTY = 0;
+    private static final long CLAIMED = -1;
+    private static final long REMOVED = -2;
+
+    // Inserts stop at this load so probe sequences stay short.
+    private static final double MAX_LOAD = 0.75;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    // FileLock is per process; this serializes its use between threads.
+    private static final Object LOCK = new Object();
+
+    /** One mapped file. Typed as ByteBuffer: the view VarHandle's coordinates are (ByteBuffer, int). */
+    private static final class Table {
+        final ByteBuffer buf;
+        final int capacity;
+
+        Table(ByteBuffer buf, int capacity) {
+            this.buf = buf;
+            this.capacity = capacity;
+        }
+
+        boolean retired() {
+            return (long) LONGS.getVolatile(buf, OFF_RETIRED) != 0;
+        }
+    }
+
+    private final Path root;
+    private volatile Table table;
+
+    private LMOSharedIndex(Path root, Table table) {
+        this.root = root;
+        this.table = table;
+    }
+
+    /**
+     * Maps the shared index under root, creating it with the given number of
+     * slots if needed. A missing or invalid file is replaced by a new one
+     * seeded with the given refs and sizes. An existing valid file keeps its
+     * own capacity.
+     */
+    static LMOSharedIndex open(Path root, int slots, Map<String, Long> seed) throws IOException {
+        synchronized (LOCK) {
+            try (FileChannel lockCh = FileChannel.open(root.resolve(FILE_NAME + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockCh.lock();
+                try {
+                    Table t = map(root);
+                    if (t == null) {
+                        if (Files.exists(root.resolve(FILE_NAME))) {
+                            System.err.println("lmo: shared index invalid, rebuilding");
+                        }
+                        int capacity = Integer.highestOneBit(Math.min(Math.max(slots, 1024), MAX_CAPACITY));
+                        long now = System.currentTimeMillis();
+                        t = create(root, capacity, fresh -> {
+                            for (Map.Entry<String, Long> e : seed.entrySet()) {
+                                put(fresh, e.getKey(), e.getValue(), now);
+                            }
+                        });
+                    }
+                    return new LMOSharedIndex(root, t);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps the current file, or returns null if it is missing, invalid or retired.
+     */
+    private static Table map(Path root) throws IOException {
+        try (FileChannel ch = FileChannel.open(root.resolve(FILE_NAME),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (ch.size() < HEADER) {
+                return null;
+            }
+            MappedByteBuffer hdr = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            hdr.order(ByteOrder.nativeOrder());
+            long cap = hdr.getLong(OFF_CAPACITY);
+            if (hdr.getLong(OFF_MAGIC) != magicWord() || cap <= 0 || cap > MAX_CAPACITY
+                    || ch.size() != HEADER + cap * SLOT || hdr.getLong(OFF_RETIRED) != 0) {
+                return null;
+            }
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+            return new Table(buf, (int) cap);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Builds a table in a temp file, filled by fill, and renames it into
+     * place. The magic is written last so a crash leaves no valid-looking file.
+     */
+    private static Table create(Path root, int capacity, Consumer<Table> fill) throws IOException {
+        Path tmp = Files.createTempFile(root, FILE_NAME, ".tmp");
+        try {
+            MappedByteBuffer buf;
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) capacity * SLOT);
+            }
+            buf.order(ByteOrder.nativeOrder());
+            buf.putLong(OFF_CAPACITY, capacity);
+            Table t = new Table(buf, capacity);
+            fill.accept(t);
+            buf.force();
+            buf.putLong(OFF_MAGIC, magicWord());
+            buf.force();
+            Files.move(tmp, root.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+            return t;
+        } finally {
+            if (tmp != null) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private static long magicWord() {
+        return ((long) FILE_MAGIC << 32) | FILE_VERSION;
+    }
+
+    int capacity() {
+        return current().capacity;
+    }
+
+    long used() {
+        return (long) LONGS.getVolatile(current().buf, OFF_USED);
+    }
+
+    long removed() {
+        return (long) LONGS.getVolatile(current().buf, OFF_REMOVED);
+    }
+
+    /**
+     * Returns the live table, remapping if another process replaced it.
+     */
+    private Table current() {
+        Table t = table;
+        if (!t.retired()) {
+            return t;
+        }
+        synchronized (LOCK) {
+            if (table == t) {
+                try {
+                    Table next = map(root);
+                    if (next != null) {
+                        table = next;
+                    }
+                } catch (IOException e) {
+                    System.err.println("lmo: shared index remap: " + e.getMessage());
+                }
+            }
+            return table;
+        }
+    }
+
+    // --- Operations ---
+
+    /**
+     * Returns the blob size recorded for ref and refreshes its access time,
+     * or -1 if ref is not in the table.
+     */
+    long touch(String ref) {
+        Table t = current();
+        int off = find(t, ref);
+        if (off < 0) {
+            return -1;
+        }
+        LONGS.setRelease(t.buf, off + 24, System.currentTimeMillis());
+        return (long) LONGS.getAcquire(t.buf, off + 16);
+    }
+
+    /**
+     * Returns the last access time recorded by any process, or -1 if unknown.
+     */
+    long lastAccess(String ref) {
+        Table t = current();
+        int off = find(t, ref);
+        return off < 0 ? -1 : (long) LONGS.getAcquire(t.buf, off + 24);
+    }
+
+    /**
+     * Records ref with its on-disk size. Returns false if the table is full
+     * and cannot be compacted, or ref is not an xxh3 ref; the caller then
+     * relies on the filesystem.
+     */
+    boolean put(String ref, long size, long now) {
+        Table t = current();
+        if (put(t, ref, size, now)) {
+            return true;
+        }
+        if (parse(ref) == null || !compact(t)) {
+            return false;
+        }
+        return put(current(), ref, size, now);
+    }
+
+    private static boolean put(Table t, String ref, long size, long now) {
+        long[] key = parse(ref);
+        if (key == null) {
+            return false;
+        }
+        long tag = key[0];
+        long lo = key[1];
+        ByteBuffer buf = t.buf;
+        int reuse = -1;
+        for (int probe = 0, i = slotIndex(t, tag, lo); probe < t.capacity; probe++, i = (i + 1) & (t.capacity - 1)) {
+            int off = HEADER + i * SLOT;
+            long s = (long) LONGS.getAcquire(buf, off);
+            if (s == REMOVED && reuse < 0) {
+                reuse = off;
+                continue;
+            }
+            if (s == EMPTY) {
+                // Not in the table: take the first removed slot on the way, if any.
+                if (reuse >= 0 && LONGS.compareAndSet(buf, reuse, REMOVED, CLAIMED)) {
+                    LONGS.getAndAdd(buf, OFF_REMOVED, -1L);
+                    fill(buf, reuse, tag, lo, size, now);
+                    return true;
+                }
+                if ((long) LONGS.getVolatile(buf, OFF_USED) >= (long) (t.capacity * MAX_LOAD)) {
+                    return false;
+                }
+                if (LONGS.compareAndSet(buf, off, EMPTY, CLAIMED)) {
+                    LONGS.getAndAdd(buf, OFF_USED, 1L);
+                    fill(buf, off, tag, lo, size, now);
+                    return true;
+                }
+                s = (long) LONGS.getAcquire(buf, off);
+            }
+            if (s == tag && (long) LONGS.getAcquire(buf, off + 8) == lo) {
+                LONGS.setRelease(buf, off + 24, now);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void fill(ByteBuffer buf, int off, long tag, long lo, long size, long now) {
+        LONGS.setRelease(buf, off + 8, lo);
+        LONGS.setRelease(buf, off + 16, size);
+        LONGS.setRelease(buf, off + 24, now);
+        LONGS.setRelease(buf, off, tag);
+    }
+
+    /**
+     * Marks ref as removed (after its blob was deleted). The slot is reused
+     * by a later insert on the same probe sequence or dropped by compaction.
+     */
+    void remove(String ref) {
+        Table t = current();
+        int off = find(t, ref);
+        if (off >= 0 && LONGS.compareAndSet(t.buf, off, parse(ref)[0], REMOVED)) {
+            LONGS.getAndAdd(t.buf, OFF_REMOVED, 1L);
+        }
+    }
+
+    /**
+     * Replaces a full table t with a compacted copy. Returns false if there
+     * is nothing to gain: too few removed slots and no room to grow.
+     */
+    private boolean compact(Table t) {
+        synchronized (LOCK) {
+            try (FileChannel lockCh = FileChannel.open(root.resolve(FILE_NAME + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockCh.lock();
+                try {
+                    if (t.retired()) {
+                        return true; // another process compacted it
+                    }
+                    long used = (long) LONGS.getVolatile(t.buf, OFF_USED);
+                    long removed = (long) LONGS.getVolatile(t.buf, OFF_REMOVED);
+                    long live = used - removed;
+                    if (used < (long) (t.capacity * MAX_LOAD)) {
+                        return true; // room left; the insert lost a race
+                    }
+                    int capacity = t.capacity;
+                    if (live >= (long) (capacity * MAX_LOAD / 2) && capacity < MAX_CAPACITY) {
+                        capacity *= 2;
+                    } else if (removed < capacity / 8) {
+                        return false;
+                    }
+                    Table next = create(root, capacity, fresh -> copyLive(t, fresh));
+                    LONGS.setVolatile(t.buf, OFF_RETIRED, 1L);
+                    table = next;
+                    return true;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                System.err.println("lmo: shared index compaction: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private static void copyLive(Table from, Table to) {
+        for (int i = 0; i < from.capacity; i++) {
+            int off = HEADER + i * SLOT;
+            long tag = (long) LONGS.getAcquire(from.buf, off);
+            if (tag == EMPTY || tag == CLAIMED || tag == REMOVED) {
+                continue;
+            }
+            long lo = (long) LONGS.getAcquire(from.buf, off + 8);
+            long size = (long) LONGS.getAcquire(from.buf, off + 16);
+            long lastAccess = (long) LONGS.getAcquire(from.buf, off + 24);
+            put(to, key(tag, lo), size, lastAccess);
+        }
+    }
+
+    private static int find(Table t, String ref) {
+        long[] key = parse(ref);
+        if (key == null) {
+            return -1;
+        }
+        long tag = key[0];
+        long lo = key[1];
+        for (int probe = 0, i = slotIndex(t, tag, lo); probe < t.capacity; probe++, i = (i + 1) & (t.capacity - 1)) {
+            int off = HEADER + i * SLOT;
+            long s = (long) LONGS.getAcquire(t.buf, off);
+            if (s == EMPTY) {
+                return -1;
+            }
+            if (s == tag && (long) LONGS.getAcquire(t.buf, off + 8) == lo) {
+                return off;
+            }
+        }
+        return -1;
+    }
+
+    private static int slotIndex(Table t, long tag, long lo) {
+        return (int) ((tag ^ lo) & (t.capacity - 1));
+    }
+
+    /**
+     * Splits "xxh3:{hi}{lo}" into {tag, lo}; null for anything else. Tags
+     * that collide with a reserved state are remapped — lo still has to match.
+     */
+    static long[] parse(String ref) {
+        if (ref == null || !ref.startsWith("xxh3:") || ref.length() != 37) {
+            return null;
+        }
+        try {
+            long hi = Long.parseUnsignedLong(ref.substring(5, 21), 16);
+            long lo = Long.parseUnsignedLong(ref.substring(21), 16);
+            if (hi == EMPTY || hi == CLAIMED || hi == REMOVED) {
+                hi = 1;
+            }
+            return new long[] {hi, lo};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Rebuilds a ref from a slot; the inverse of parse for unremapped tags.
+     */
+    private static String key(long tag, long lo) {
+        return String.format("xxh3:%016x%016x", tag, lo);
+    }
+}
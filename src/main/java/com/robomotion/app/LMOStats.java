@@ -0,0 +1,151 @@
+package com.robomotion.app;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LMOStats collects process-wide LMO counters and histograms. Updates are
+ * contention-free (LongAdder), so instrumentation stays on in production.
+ * Read it with {@link LMO#stats()}.
+ */
+final class LMOStats {
+
+    /**
+     * Histogram with power-of-two buckets: bucket i counts values in
+     * [2^(i-1), 2^i). Percentiles are reported as the bucket's upper bound.
+     */
+    static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[64];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long value) {
+            long v = Math.max(0, value);
+            buckets[64 - Long.numberOfLeadingZeros(v)].increment();
+            count.increment();
+            sum.add(v);
+            max.accumulate(v);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long percentile(double p) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return i == 0 ? 0 : Math.min(i >= 63 ? Long.MAX_VALUE : 1L << i, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        Map<String, Object> snapshot() {
+            long n = count.sum();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", n);
+            m.put("sum", sum.sum());
+            m.put("mean", n == 0 ? 0 : sum.sum() / n);
+            m.put("p50", percentile(0.50));
+            m.put("p90", percentile(0.90));
+            m.put("p99", percentile(0.99));
+            m.put("max", max.get());
+            return m;
+        }
+
+        void reset() {
+            for (LongAdder b : buckets) {
+                b.reset();
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+    }
+
+    // Write side
+    final LongAdder packedBlobs = new LongAdder();
+    final LongAdder packedBytes = new LongAdder();
+    final LongAdder storedBytes = new LongAdder();
+    final LongAdder dedupHits = new LongAdder();
+    final Histogram packedSize = new Histogram();
+    final Histogram putNanos = new Histogram();
+
+    // Read side
+    final LongAdder resolvedBlobs = new LongAdder();
+    final LongAdder resolvedBytes = new LongAdder();
+    final LongAdder cacheHits = new LongAdder();
+    final LongAdder cacheMisses = new LongAdder();
+    final Histogram resolveNanos = new Histogram();
+
+    // Housekeeping
+    final LongAdder evictedBlobs = new LongAdder();
+    final LongAdder skippedParses = new LongAdder();
+
+    /**
+     * Returns a JSON-friendly snapshot. Latencies are in microseconds.
+     */
+    Map<String, Object> snapshot() {
+        Map<String, Object> pack = new LinkedHashMap<>();
+        pack.put("blobs", packedBlobs.sum());
+        pack.put("bytes_raw", packedBytes.sum());
+        pack.put("bytes_stored", storedBytes.sum());
+        long raw = packedBytes.sum();
+        pack.put("compression_ratio", raw == 0 ? 0.0 : (double) storedBytes.sum() / raw);
+        pack.put("dedup_hits", dedupHits.sum());
+        pack.put("blob_size", packedSize.snapshot());
+        pack.put("put_latency_us", micros(putNanos.snapshot()));
+
+        Map<String, Object> resolve = new LinkedHashMap<>();
+        resolve.put("blobs", resolvedBlobs.sum());
+        resolve.put("bytes", resolvedBytes.sum());
+        long hits = cacheHits.sum();
+        long lookups = hits + cacheMisses.sum();
+        resolve.put("cache_hits", hits);
+        resolve.put("cache_misses", cacheMisses.sum());
+        resolve.put("cache_hit_rate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        resolve.put("skipped_parses", skippedParses.sum());
+        resolve.put("latency_us", micros(resolveNanos.snapshot()));
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("pack", pack);
+        out.put("resolve", resolve);
+        out.put("evicted_blobs", evictedBlobs.sum());
+        return out;
+    }
+
+    void reset() {
+        for (LongAdder a : new LongAdder[] {packedBlobs, packedBytes, storedBytes, dedupHits,
+                resolvedBlobs, resolvedBytes, cacheHits, cacheMisses, evictedBlobs, skippedParses}) {
+            a.reset();
+        }
+        for (Histogram h : new Histogram[] {packedSize, putNanos, resolveNanos}) {
+            h.reset();
+        }
+    }
+
+    private static Map<String, Object> micros(Map<String, Object> nanos) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e : nanos.entrySet()) {
+            Object v = e.getValue();
+            m.put(e.getKey(), "count".equals(e.getKey()) ? v : ((Long) v) / 1000);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,157 @@
+package com.robomotion.app;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LMOWriter persists blobs in the background (write-behind). A staged blob
+ * is held uncompressed in memory and served to readers in this process until
+ * its file lands; compression and the file write run on a small pool.
+ * <p>
+ * Staged bytes are bounded: {@link #stage} blocks while the buffer is full
+ * (backpressure). {@link #await} is the per-message durability barrier: it
+ * waits only for the given refs and fails only if one of them failed.
+ * {@link #flush} drains everything, for OnClose and shutdown.
+ */
+final class LMOWriter {
+
+    interface Sink {
+        void write(String ref, byte[] data) throws Exception;
+    }
+
+    private final Sink sink;
+    private final long maxBytes;
+    private final ExecutorService pool;
+    private final Map<String, byte[]> staged = new ConcurrentHashMap<>();
+
+    // Guarded by this. Failures are kept per ref until the ref is staged
+    // again or flush() reports them.
+    private long stagedBytes;
+    private final Map<String, Exception> failures = new HashMap<>();
+
+    LMOWriter(int threads, long maxBytes, Sink sink) {
+        AtomicInteger n = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "lmo-writer-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        this.maxBytes = maxBytes;
+        this.sink = sink;
+    }
+
+    /**
+     * Stages data under ref and schedules its write. Blocks while the staging
+     * buffer is full; a single blob larger than the whole buffer is admitted
+     * once the buffer is empty. Returns false if ref is already staged.
+     */
+    boolean stage(String ref, byte[] data) throws InterruptedException {
+        synchronized (this) {
+            if (staged.containsKey(ref)) {
+                return false;
+            }
+            while (stagedBytes > 0 && stagedBytes + data.length > maxBytes) {
+                wait();
+            }
+            if (staged.containsKey(ref)) {
+                return false;
+            }
+            staged.put(ref, data);
+            stagedBytes += data.length;
+            failures.remove(ref);
+        }
+        pool.execute(() -> persist(ref, data));
+        return true;
+    }
+
+    private void persist(String ref, byte[] data) {
+        Exception err = null;
+        try {
+            sink.write(ref, data);
+        } catch (Exception e) {
+            System.err.println("lmo: write-behind " + ref + ": " + e.getMessage());
+            err = e;
+        }
+        synchronized (this) {
+            if (err != null) {
+                failures.put(ref, err);
+            }
+            staged.remove(ref);
+            stagedBytes -= data.length;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Returns the staged (uncompressed) blob for ref, or null if it is not
+     * waiting to be written.
+     */
+    byte[] get(String ref) {
+        return staged.get(ref);
+    }
+
+    synchronized long stagedBytes() {
+        return stagedBytes;
+    }
+
+    /**
+     * Waits until none of refs is staged. Throws if the write of any of them
+     * failed, and forgets those failures so a later flush does not report them
+     * again; writes of other refs neither delay nor fail the call.
+     */
+    void await(Collection<String> refs) throws Exception {
+        Exception err = null;
+        synchronized (this) {
+            for (String ref : refs) {
+                while (staged.containsKey(ref)) {
+                    wait();
+                }
+                Exception failed = failures.remove(ref);
+                if (err == null) {
+                    err = failed;
+                }
+            }
+        }
+        if (err != null) {
+            throw new Exception("lmo: write-behind failed: " + err.getMessage(), err);
+        }
+    }
+
+    /**
+     * Waits until every staged blob has been written. Throws one of the write
+     * failures since the previous flush, if any, and forgets them all.
+     */
+    void flush() throws Exception {
+        Exception err = null;
+        synchronized (this) {
+            while (!staged.isEmpty()) {
+                wait();
+            }
+            if (!failures.isEmpty()) {
+                err = failures.values().iterator().next();
+                failures.clear();
+            }
+        }
+        if (err != null) {
+            throw new Exception("lmo: write-behind failed: " + err.getMessage(), err);
+        }
+    }
+
+    /**
+     * Stops the pool, waiting at most timeoutMs for queued writes to finish.
+     */
+    void close(long timeoutMs) {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
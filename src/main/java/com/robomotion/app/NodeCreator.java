@@ -0,0 +1,108 @@
+package com.robomotion.app;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs node OnCreate in the background, so NodeServer.onCreate can answer
+ * as soon as the config is bound. Nodes do not depend on each other while
+ * warming up, so their OnCreate calls run in parallel on a bounded pool.
+ * <p>
+ * The first OnMessage (or OnClose) of a node waits for its OnCreate; an
+ * OnCreate failure is reported on every message of that node.
+ * <p>
+ * Off by default: set robomotion.async_oncreate=true. The pool size is
+ * robomotion.oncreate_threads (default: the number of cores).
+ */
+final class NodeCreator {
+
+    private static final Map<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+    private static ExecutorService pool;
+
+    private NodeCreator() {
+    }
+
+    static boolean enabled() {
+        return Runtime.getPropertyBool("robomotion.async_oncreate", false);
+    }
+
+    private static synchronized ExecutorService pool() {
+        if (pool == null) {
+            int threads = java.lang.Runtime.getRuntime().availableProcessors();
+            try {
+                threads = Integer.parseInt(Runtime.getProperty("robomotion.oncreate_threads",
+                        String.valueOf(threads)).trim());
+            } catch (NumberFormatException e) {
+                // keep default
+            }
+            AtomicInteger n = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+                Thread t = new Thread(r, "node-oncreate-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Starts node.OnCreate() in the background.
+     */
+    static void submit(Node node) {
+        String guid = node.guid;
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        pending.put(guid, f);
+        pool().execute(() -> {
+            try {
+                node.OnCreate();
+                // Ready nodes need no lookup on later messages.
+                pending.remove(guid, f);
+                f.complete(null);
+            } catch (Throwable t) {
+                f.completeExceptionally(t);
+            }
+        });
+    }
+
+    /**
+     * Waits until the node's OnCreate has finished and rethrows its failure.
+     * Returns at once for nodes that were created synchronously.
+     */
+    static void await(String guid) throws Exception {
+        CompletableFuture<Void> f = pending.get(guid);
+        if (f == null) {
+            return;
+        }
+        try {
+            f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) {
+                throw ex;
+            }
+            if (cause instanceof java.lang.Error err) {
+                throw err;
+            }
+            throw new Exception(cause);
+        }
+    }
+
+    /**
+     * Waits for a pending OnCreate, ignoring its outcome, and forgets the node.
+     */
+    static void forget(String guid) {
+        try {
+            await(guid);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception | java.lang.Error e) {
+            // reported on OnMessage already
+        }
+        pending.remove(guid);
+    }
+}
@@ -0,0 +1,315 @@
+package com.robomotion.app;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.robomotion.app.Runtime.InVariable;
+import com.robomotion.app.Runtime.OptVariable;
+import com.robomotion.app.Runtime.OutVariable;
+import com.robomotion.app.Runtime.Variable;
+
+/**
+ * NodeDescriptor is the reflected shape of a node class: its public fields
+ * classified as variables, credentials, options and tools, with their
+ * annotation data and defaults resolved, plus handles to construct the node
+ * and read or write its fields.
+ * <p>
+ * It is built once per class and cached ({@link #of}), so CLI, session,
+ * spec and tool code share one reflection pass instead of walking
+ * getFields() and re-reading annotations on every call.
+ */
+final class NodeDescriptor {
+
+    /** What a public field of a node is. */
+    enum Kind {
+        IN_VARIABLE, OUT_VARIABLE, OPT_VARIABLE,
+        /** Another {@link Variable} subclass. */
+        VARIABLE,
+        /** A parameterized type that is not a variable (List, Map, ...). */
+        GENERIC,
+        CREDENTIAL, TOOL,
+        /** Anything else: plain option fields. */
+        PLAIN
+    }
+
+    private static final ClassValue<NodeDescriptor> CACHE = new ClassValue<>() {
+        @Override
+        protected NodeDescriptor computeValue(Class<?> type) {
+            return new NodeDescriptor(type);
+        }
+    };
+
+    /**
+     * Returns the cached descriptor for a node class.
+     */
+    static NodeDescriptor of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    final Class<?> type;
+    final String namespace;
+    /** Name and description from the first Tool field's @ToolInfo; null if none. */
+    final String toolName;
+    final String toolDescription;
+    /** True if the class has a Tool field at all, public or not. */
+    final boolean hasTool;
+
+    /** All public fields, in getFields() order. */
+    final List<FieldInfo> fields;
+    /**
+     * Non-public instance fields declared by the class itself. Only tool
+     * interception looks at these; everything else works on public fields.
+     */
+    final List<FieldInfo> nonPublicFields;
+
+    // Field lists as reported by Spec.
+    final List<Field> inputs;
+    final List<Field> inputVars;
+    final List<Field> outputs;
+    final List<Field> outputVars;
+    final List<Field> options;
+    final List<Field> optionVars;
+
+    private final MethodHandle constructor;
+
+    private NodeDescriptor(Class<?> type) {
+        this.type = type;
+        this.namespace = Spec.GetNamespace(type);
+
+        MethodHandles.Lookup lookup = lookupFor(type);
+
+        List<FieldInfo> all = new ArrayList<>();
+        String tName = null;
+        String tDesc = null;
+        boolean tool = false;
+        for (Field f : type.getFields()) {
+            FieldInfo fi = new FieldInfo(f, lookup);
+            all.add(fi);
+            if (fi.kind == Kind.TOOL) {
+                tool = true;
+                Tool.ToolInfo info = f.getAnnotation(Tool.ToolInfo.class);
+                if (tName == null && info != null && !info.name().isEmpty()) {
+                    tName = info.name();
+                    tDesc = info.description();
+                }
+            }
+        }
+        this.fields = Collections.unmodifiableList(all);
+
+        List<FieldInfo> hidden = new ArrayList<>();
+        for (Field f : type.getDeclaredFields()) {
+            int mod = f.getModifiers();
+            if (Modifier.isPublic(mod) || Modifier.isStatic(mod) || f.isSynthetic()) {
+                continue;
+            }
+            FieldInfo fi = new FieldInfo(f, lookup);
+            hidden.add(fi);
+            tool |= fi.kind == Kind.TOOL;
+        }
+        this.nonPublicFields = Collections.unmodifiableList(hidden);
+        this.toolName = tName;
+        this.toolDescription = tDesc;
+        this.hasTool = tool;
+
+        Spec.Sections sections = Spec.GetSections(SpecModel.of(type));
+        this.inputs = fieldsOf(sections.inputs);
+        this.inputVars = fieldsOf(sections.inputVars);
+        this.outputs = fieldsOf(sections.outputs);
+        this.outputVars = fieldsOf(sections.outputVars);
+        this.options = fieldsOf(sections.options);
+        this.optionVars = fieldsOf(sections.optionVars);
+
+        MethodHandle ctor = null;
+        try {
+            ctor = lookup.findConstructor(type, MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            // no accessible no-arg constructor
+        }
+        this.constructor = ctor;
+    }
+
+    /**
+     * Creates a node with the no-arg constructor, through its generated
+     * NodeSupport when there is one.
+     */
+    Node newInstance() throws Exception {
+        NodeSupport support = NodeSupports.get(type);
+        if (support != null) {
+            return support.newNode();
+        }
+        if (constructor == null) {
+            return (Node) type.getDeclaredConstructor().newInstance();
+        }
+        try {
+            return (Node) constructor.invoke();
+        } catch (Exception | java.lang.Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new Exception(t);
+        }
+    }
+
+    private static List<Field> fieldsOf(List<SpecModel.SpecField> fields) {
+        List<Field> l = new ArrayList<>(fields.size());
+        for (SpecModel.SpecField f : fields) {
+            l.add(((SpecModel.ReflectField) f).f);
+        }
+        return Collections.unmodifiableList(l);
+    }
+
+    private static MethodHandles.Lookup lookupFor(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException | SecurityException e) {
+            return MethodHandles.publicLookup();
+        }
+    }
+
+    /**
+     * One field of a node class.
+     */
+    static final class FieldInfo {
+        final Field field;
+        final String name;
+        /** Field name with a lower-case first letter, as used in node config. */
+        final String specName;
+        final Kind kind;
+        /** Raw type for parameterized fields, else null. */
+        final Class<?> rawType;
+        final boolean hasTypeArguments;
+        /** Declared on Node itself (guid, name, ...). */
+        final boolean inherited;
+
+        final String title;
+        final String description;
+        /** JSON enum values from @Var or @Enum; null if none. */
+        final String enumValues;
+        /** "string", "number", "boolean", "object" or "array". */
+        final String valueType;
+
+        /** Scope and name for a variable left null by the node. */
+        final String defaultScope;
+        final String defaultName;
+        /** @Default value for plain fields; empty if none. */
+        final String defaultValue;
+
+        private final VarHandle handle;
+
+        private FieldInfo(Field f, MethodHandles.Lookup lookup) {
+            this.field = f;
+            this.name = f.getName();
+            this.specName = Spec.LowerFirstLetter(name);
+            this.inherited = f.getDeclaringClass() == Node.class;
+            this.title = Spec.GetTitle(f);
+            this.description = Spec.GetDescription(f);
+
+            java.lang.reflect.Type t = f.getGenericType();
+            if (t instanceof ParameterizedType pT) {
+                this.rawType = (Class<?>) pT.getRawType();
+                this.hasTypeArguments = pT.getActualTypeArguments().length > 0;
+            } else {
+                this.rawType = null;
+                this.hasTypeArguments = false;
+            }
+            this.kind = SpecModel.kindOf(f);
+
+            Var var = f.getAnnotation(Var.class);
+            FieldAnnotations.Enum enumAnn = f.getAnnotation(FieldAnnotations.Enum.class);
+            if (var != null && !var.enumValues().isEmpty()) {
+                this.enumValues = var.enumValues();
+            } else if (enumAnn != null && !enumAnn.enumeration().isEmpty()) {
+                this.enumValues = enumAnn.enumeration();
+            } else {
+                this.enumValues = null;
+            }
+
+            FieldAnnotations.Default defAnn = f.getAnnotation(FieldAnnotations.Default.class);
+            String scope = "";
+            String varName = "";
+            if (defAnn != null) {
+                scope = defAnn.scope();
+                varName = defAnn.name();
+            }
+            if (scope.isEmpty() && var != null) {
+                scope = var.defaultScope();
+                if (varName.isEmpty()) varName = var.defaultName();
+            }
+            this.defaultScope = scope.isEmpty() ? "Custom" : scope;
+            this.defaultName = varName;
+            this.defaultValue = defAnn != null ? defAnn.value() : "";
+
+            this.valueType = valueType(t);
+
+            VarHandle h = null;
+            try {
+                h = lookup.unreflectVarHandle(f);
+            } catch (IllegalAccessException e) {
+                f.setAccessible(true);
+            }
+            this.handle = h;
+        }
+
+        boolean isVariable() {
+            return kind == Kind.IN_VARIABLE || kind == Kind.OUT_VARIABLE
+                    || kind == Kind.OPT_VARIABLE || kind == Kind.VARIABLE;
+        }
+
+        Object get(Object node) throws IllegalAccessException {
+            if (handle != null) {
+                return handle.get(node);
+            }
+            return field.get(node);
+        }
+
+        void set(Object node, Object value) throws IllegalAccessException {
+            // VarHandles on final fields are read-only.
+            if (handle != null && !Modifier.isFinal(field.getModifiers())) {
+                handle.set(node, value);
+                return;
+            }
+            field.setAccessible(true);
+            field.set(node, value);
+        }
+
+        /**
+         * Creates the variable a null variable field is initialized with,
+         * or null for kinds that are not initialized.
+         */
+        Variable<?> newVariable() {
+            switch (kind) {
+                case IN_VARIABLE:
+                    return new InVariable<>(defaultScope, defaultName);
+                case OUT_VARIABLE:
+                    return new OutVariable<>(defaultScope, defaultName);
+                case OPT_VARIABLE:
+                    return new OptVariable<>(defaultScope, defaultName);
+                default:
+                    return null;
+            }
+        }
+
+        static String valueType(java.lang.reflect.Type t) {
+            if (t instanceof ParameterizedType pT) {
+                java.lang.reflect.Type[] typeArgs = pT.getActualTypeArguments();
+                if (typeArgs.length > 0) {
+                    String typeName = typeArgs[0].getTypeName();
+                    if (typeName.contains("String")) return "string";
+                    if (typeName.contains("Integer") || typeName.contains("Long")) return "number";
+                    if (typeName.contains("Double") || typeName.contains("Float")) return "number";
+                    if (typeName.contains("Boolean")) return "boolean";
+                    if (typeName.contains("Map")) return "object";
+                    if (typeName.contains("List")) return "array";
+                }
+            }
+            return "string";
+        }
+    }
+}
@@ -10,8 +10,21 @@ public class NodeFactory
 	
 	public void OnCreate(byte[] config) throws Exception 
 	{
-		Node node = (Node) Runtime.Deserialize(config, this.c);
+		Create(config).OnCreate();
+	}
+
+	/**
+	 * Binds config into a new node and adds it to the runtime, without
+	 * calling its OnCreate.
+	 */
+	Node Create(byte[] config) throws Exception 
+	{
+		// Generated binder first; reflective Gson binding for other classes.
+		Node node = NodeSupports.bind(this.c, config);
+		if (node == null)
+			node = (Node) Runtime.Deserialize(config, this.c);
 		Runtime.AddNode(node.guid, node);
-		node.OnCreate();
+		Runtime.PrefetchCredentials(node);
+		return node;
 	}
 }
\ No newline at end of file
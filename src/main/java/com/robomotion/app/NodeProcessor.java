@@ -0,0 +1,751 @@
+package com.robomotion.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Generates, for every class annotated with {@code @NodeAnnotations.Name} or
+ * {@code @NodeDef}:
+ * <ul>
+ * <li>its spec, as META-INF/robomotion/specs/{binary name}.json, built by the
+ * same code as {@link Spec#GenerateSpec} so the runtime can skip reflecting
+ * over the class;</li>
+ * <li>a {@link NodeSupport} ({@code <Node>_RobomotionNode}) that constructs
+ * the node and binds its config without reflection, registered in
+ * META-INF/services.</li>
+ * </ul>
+ * It also writes native-image reachability metadata for all of the nodes, to
+ * META-INF/native-image/robomotion-nodes/{id}/reflect-config.json. The file
+ * registers each node class, its superclasses and the plugin classes its
+ * fields hold, such as POJO options. {id} is the -Arobomotion.native.id
+ * option and defaults to the common package of the nodes.
+ * Classes the processor cannot handle (private, non-static inner classes, no
+ * accessible no-arg constructor, ...) are noted and left to the reflective
+ * path, which remains the fallback for everything.
+ * <p>
+ * The processor is registered in the SDK jar, so javac runs it for plugins
+ * that have the SDK on the class path. From JDK 23 javac needs -proc:full
+ * (or the SDK in annotationProcessorPaths) to run discovered processors.
+ */
+@SupportedAnnotationTypes({ "com.robomotion.app.NodeAnnotations.Name", "com.robomotion.app.NodeDef" })
+@SupportedOptions(NodeProcessor.NATIVE_ID)
+public final class NodeProcessor extends AbstractProcessor {
+
+    static final String SUFFIX = "_RobomotionNode";
+    static final String NATIVE_ID = "robomotion.native.id";
+    static final String NATIVE_DIR = "META-INF/native-image/robomotion-nodes/";
+    private static final String SERVICES = "META-INF/services/" + NodeSupport.class.getName();
+
+    // Packages whose classes never need plugin metadata: the JDK, the SDK and
+    // the libraries it registers itself.
+    private static final List<String> LIBRARY_PACKAGES = List.of("java.", "javax.", "jdk.", "sun.", "com.sun.",
+            "com.robomotion.app.", "com.google.", "com.fasterxml.", "io.grpc.");
+
+    private final Set<String> generated = new LinkedHashSet<>();
+    private final Set<String> reflected = new LinkedHashSet<>();
+    private final Set<String> packages = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
+        if (env.processingOver()) {
+            writeServices();
+            writeReflectConfig();
+            return false;
+        }
+        Set<TypeElement> nodes = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element e : env.getElementsAnnotatedWith(annotation)) {
+                if (e.getKind() == ElementKind.CLASS) {
+                    nodes.add((TypeElement) e);
+                }
+            }
+        }
+        for (TypeElement node : nodes) {
+            if (!isNode(node)) {
+                note(node, "not a Node subclass");
+                continue;
+            }
+            writeSpec(node);
+            writeSupport(node);
+            packages.add(elements().getPackageOf(node).getQualifiedName().toString());
+            reflect(node);
+        }
+        return false;
+    }
+
+    // --- Spec ---
+
+    private void writeSpec(TypeElement type) {
+        String json;
+        try {
+            Map<String, Object> spec = Spec.NodeSpec(new ElementNode(type));
+            json = Spec.SpecMapper().writeValueAsString(spec);
+        } catch (Exception | LinkageError e) {
+            note(type, "no compile-time spec (" + e + ")");
+            return;
+        }
+        String name = NodeSupports.SPEC_DIR + elements().getBinaryName(type) + ".json";
+        try {
+            FileObject f = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", name, type);
+            try (Writer w = f.openWriter()) {
+                w.write(json);
+            }
+        } catch (IOException e) {
+            note(type, "cannot write " + name + " (" + e.getMessage() + ")");
+        }
+    }
+
+    // --- NodeSupport ---
+
+    private void writeSupport(TypeElement type) {
+        String reason = constructible(type);
+        if (reason != null) {
+            note(type, "no generated support: " + reason);
+            return;
+        }
+        String pkg = elements().getPackageOf(type).getQualifiedName().toString();
+        String binary = elements().getBinaryName(type).toString();
+        String simple = (pkg.isEmpty() ? binary : binary.substring(pkg.length() + 1)).replace('$', '_') + SUFFIX;
+        String qualified = pkg.isEmpty() ? simple : pkg + "." + simple;
+        String node = type.getQualifiedName().toString();
+
+        List<VariableElement> fields = new ArrayList<>();
+        String unbound = bindable(type, pkg, fields);
+        if (unbound != null) {
+            note(type, "config binding falls back to reflection: " + unbound);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (!pkg.isEmpty()) {
+            sb.append("package ").append(pkg).append(";\n\n");
+        }
+        sb.append("@javax.annotation.processing.Generated(\"").append(NodeProcessor.class.getName()).append("\")\n");
+        sb.append("public final class ").append(simple).append(" implements com.robomotion.app.NodeSupport {\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public Class<? extends com.robomotion.app.Node> nodeClass() {\n");
+        sb.append("        return ").append(node).append(".class;\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public com.robomotion.app.Node newNode() {\n");
+        sb.append("        return new ").append(node).append("();\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public boolean bind(com.robomotion.app.Node target, com.google.gson.stream.JsonReader in)\n");
+        sb.append("            throws java.io.IOException {\n");
+        if (unbound != null) {
+            sb.append("        return false;\n");
+            sb.append("    }\n");
+        } else {
+            appendBinder(sb, node, fields);
+        }
+        sb.append("}\n");
+
+        try (Writer w = processingEnv.getFiler().createSourceFile(qualified, type).openWriter()) {
+            w.write(sb.toString());
+            generated.add(qualified);
+        } catch (IOException e) {
+            note(type, "cannot write " + qualified + " (" + e.getMessage() + ")");
+        }
+    }
+
+    private void appendBinder(StringBuilder sb, String node, List<VariableElement> fields) {
+        sb.append("        ").append(node).append(" node = (").append(node).append(") target;\n");
+        sb.append("        in.beginObject();\n");
+        sb.append("        while (in.hasNext()) {\n");
+        sb.append("            switch (in.nextName()) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            VariableElement f = fields.get(i);
+            String name = f.getSimpleName().toString();
+            sb.append("                case \"").append(name).append("\": {\n");
+            if (f.asType().getKind().isPrimitive()) {
+                // Like Gson, a JSON null leaves primitives untouched.
+                sb.append("                    ").append(boxed(f.asType())).append(" v = Adapters.A").append(i)
+                        .append(".read(in);\n");
+                sb.append("                    if (v != null) node.").append(name).append(" = v;\n");
+            } else {
+                sb.append("                    node.").append(name).append(" = Adapters.A").append(i)
+                        .append(".read(in);\n");
+            }
+            sb.append("                    break;\n");
+            sb.append("                }\n");
+        }
+        sb.append("                default:\n");
+        sb.append("                    in.skipValue();\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        sb.append("        in.endObject();\n");
+        sb.append("        return true;\n");
+        sb.append("    }\n\n");
+
+        // Adapters are resolved on first bind, not when the service is loaded.
+        sb.append("    private static final class Adapters {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            String t = boxed(fields.get(i).asType());
+            sb.append("        static final com.google.gson.TypeAdapter<").append(t).append("> A").append(i)
+                    .append(" = com.robomotion.app.NodeSupports.adapter(new com.google.gson.reflect.TypeToken<")
+                    .append(t).append(">() {});\n");
+        }
+        sb.append("    }\n");
+    }
+
+    /**
+     * Returns why the generated class cannot construct type, or null.
+     */
+    private String constructible(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return "abstract class";
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            return "generic class";
+        }
+        for (Element e = type; e instanceof TypeElement t; e = e.getEnclosingElement()) {
+            if (t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS) {
+                return "local class";
+            }
+            if (t.getModifiers().contains(Modifier.PRIVATE)) {
+                return "private class";
+            }
+            if (t.getNestingKind() == NestingKind.MEMBER && !t.getModifiers().contains(Modifier.STATIC)) {
+                return "inner class";
+            }
+        }
+        List<ExecutableElement> ctors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        for (ExecutableElement c : ctors) {
+            if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE)) {
+                return null;
+            }
+        }
+        return "no accessible no-arg constructor";
+    }
+
+    /**
+     * Collects the fields Gson would bind on type (instance, non-transient,
+     * whole hierarchy) into fields. Returns why they cannot be assigned from
+     * the generated class in pkg, or null.
+     */
+    private String bindable(TypeElement type, String pkg, List<VariableElement> fields) {
+        Set<String> names = new HashSet<>();
+        for (TypeElement t = type; t != null && !t.getQualifiedName().contentEquals("java.lang.Object"); t = superclass(t)) {
+            for (VariableElement f : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                Set<Modifier> mods = f.getModifiers();
+                if (mods.contains(Modifier.STATIC) || mods.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                String name = f.getSimpleName().toString();
+                if (!names.add(name)) {
+                    return "duplicate field " + name;
+                }
+                if (mods.contains(Modifier.PRIVATE) || mods.contains(Modifier.FINAL)) {
+                    return "private or final field " + name;
+                }
+                if (!mods.contains(Modifier.PUBLIC) && !samePackage(f, pkg)) {
+                    return "inaccessible field " + name;
+                }
+                for (AnnotationMirror a : f.getAnnotationMirrors()) {
+                    if (a.getAnnotationType().toString().startsWith("com.google.gson.annotations.")) {
+                        return "Gson annotation on " + name;
+                    }
+                }
+                if (!accessible(f.asType(), pkg)) {
+                    return "type of " + name;
+                }
+                fields.add(f);
+            }
+        }
+        return null;
+    }
+
+    private boolean accessible(TypeMirror t, String pkg) {
+        switch (t.getKind()) {
+            case BOOLEAN: case BYTE: case SHORT: case INT: case LONG: case CHAR: case FLOAT: case DOUBLE:
+                return true;
+            case ARRAY:
+                return accessible(((ArrayType) t).getComponentType(), pkg);
+            case WILDCARD: {
+                WildcardType w = (WildcardType) t;
+                return (w.getExtendsBound() == null || accessible(w.getExtendsBound(), pkg))
+                        && (w.getSuperBound() == null || accessible(w.getSuperBound(), pkg));
+            }
+            case DECLARED: {
+                for (Element e = ((DeclaredType) t).asElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+                    Set<Modifier> mods = e.getModifiers();
+                    if (mods.contains(Modifier.PRIVATE) || (!mods.contains(Modifier.PUBLIC) && !samePackage(e, pkg))) {
+                        return false;
+                    }
+                }
+                for (TypeMirror arg : ((DeclaredType) t).getTypeArguments()) {
+                    if (!accessible(arg, pkg)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            default:
+                // type variables, error types, ...
+                return false;
+        }
+    }
+
+    // --- Services ---
+
+    private void writeServices() {
+        if (generated.isEmpty()) {
+            return;
+        }
+        // Keep providers from earlier (incremental) compilations.
+        Set<String> all = new LinkedHashSet<>();
+        try {
+            FileObject old = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICES);
+            try (BufferedReader r = new BufferedReader(
+                    new InputStreamReader(old.openInputStream(), StandardCharsets.UTF_8))) {
+                for (String line; (line = r.readLine()) != null;) {
+                    if (!line.isBlank()) {
+                        all.add(line.trim());
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // none yet
+        }
+        all.addAll(generated);
+        try {
+            FileObject f = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES);
+            try (Writer w = f.openWriter()) {
+                for (String s : all) {
+                    w.write(s);
+                    w.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "cannot write " + SERVICES + " (" + e.getMessage() + ")");
+        }
+    }
+
+    // --- Native image ---
+
+    /**
+     * Registers type, its superclasses below Node and the plugin classes its
+     * instance fields hold.
+     */
+    private void reflect(TypeElement type) {
+        if (!reflected.add(elements().getBinaryName(type).toString())) {
+            return;
+        }
+        TypeElement s = superclass(type);
+        if (s != null && !library(s)) {
+            reflect(s);
+        }
+        for (VariableElement f : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (!f.getModifiers().contains(Modifier.STATIC)) {
+                reflectTypes(f.asType());
+            }
+        }
+    }
+
+    private void reflectTypes(TypeMirror t) {
+        switch (t.getKind()) {
+            case ARRAY:
+                reflectTypes(((ArrayType) t).getComponentType());
+                break;
+            case WILDCARD: {
+                WildcardType w = (WildcardType) t;
+                if (w.getExtendsBound() != null) {
+                    reflectTypes(w.getExtendsBound());
+                }
+                break;
+            }
+            case DECLARED: {
+                DeclaredType d = (DeclaredType) t;
+                for (TypeMirror a : d.getTypeArguments()) {
+                    reflectTypes(a);
+                }
+                TypeElement e = (TypeElement) d.asElement();
+                if ((e.getKind() == ElementKind.CLASS || e.getKind() == ElementKind.ENUM
+                        || e.getKind() == ElementKind.RECORD) && !library(e)) {
+                    reflect(e);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private boolean library(TypeElement e) {
+        String name = e.getQualifiedName().toString();
+        for (String p : LIBRARY_PACKAGES) {
+            if (name.startsWith(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeReflectConfig() {
+        if (reflected.isEmpty()) {
+            return;
+        }
+        String id = processingEnv.getOptions().getOrDefault(NATIVE_ID, commonPackage(packages));
+        String name = NATIVE_DIR + (id.isEmpty() ? "default" : id) + "/reflect-config.json";
+        ObjectMapper mapper = new ObjectMapper();
+
+        // Keep entries from earlier (incremental) compilations.
+        Map<String, Map<String, Object>> all = new LinkedHashMap<>();
+        try {
+            FileObject old = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", name);
+            try (InputStream in = old.openInputStream()) {
+                for (Map<String, Object> entry : mapper.readValue(in,
+                        new TypeReference<List<Map<String, Object>>>() {})) {
+                    all.put(String.valueOf(entry.get("name")), entry);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // none yet
+        }
+        for (String c : reflected) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", c);
+            entry.put("allDeclaredFields", true);
+            entry.put("allDeclaredMethods", true);
+            entry.put("allDeclaredConstructors", true);
+            all.put(c, entry);
+        }
+        try {
+            FileObject f = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", name);
+            try (Writer w = f.openWriter()) {
+                w.write(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(all.values()));
+                w.write('\n');
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "cannot write " + name + " (" + e.getMessage() + ")");
+        }
+    }
+
+    static String commonPackage(Set<String> packages) {
+        String common = null;
+        for (String p : packages) {
+            if (common == null) {
+                common = p;
+                continue;
+            }
+            while (!common.isEmpty() && !p.equals(common) && !p.startsWith(common + ".")) {
+                int dot = common.lastIndexOf('.');
+                common = dot < 0 ? "" : common.substring(0, dot);
+            }
+        }
+        return common != null ? common : "";
+    }
+
+    // --- Helpers ---
+
+    private Elements elements() {
+        return processingEnv.getElementUtils();
+    }
+
+    private Types types() {
+        return processingEnv.getTypeUtils();
+    }
+
+    private boolean isNode(TypeElement type) {
+        TypeElement node = elements().getTypeElement(Node.class.getCanonicalName());
+        return node != null && types().isSubtype(types().erasure(type.asType()), types().erasure(node.asType()));
+    }
+
+    private static TypeElement superclass(TypeElement t) {
+        TypeMirror s = t.getSuperclass();
+        return s.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) s).asElement() : null;
+    }
+
+    private boolean samePackage(Element e, String pkg) {
+        return elements().getPackageOf(e).getQualifiedName().contentEquals(pkg);
+    }
+
+    private String boxed(TypeMirror t) {
+        if (t.getKind().isPrimitive()) {
+            return types().boxedClass(types().getPrimitiveType(t.getKind())).getQualifiedName().toString();
+        }
+        return t.toString();
+    }
+
+    private void note(Element e, String msg) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "robomotion: " + msg, e);
+    }
+
+    // --- SpecModel over elements ---
+
+    private final class ElementNode implements SpecModel.SpecNode {
+        private final TypeElement type;
+
+        ElementNode(TypeElement type) {
+            this.type = type;
+        }
+
+        @Override
+        public String className() {
+            return elements().getBinaryName(type).toString();
+        }
+
+        @Override
+        public List<SpecModel.SpecField> fields() {
+            // Class.getFields() order: own public fields, then the superclass's.
+            List<SpecModel.SpecField> l = new ArrayList<>();
+            for (TypeElement t = type; t != null; t = superclass(t)) {
+                for (VariableElement f : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                    if (f.getModifiers().contains(Modifier.PUBLIC)) {
+                        l.add(new ElementField(f));
+                    }
+                }
+            }
+            return l;
+        }
+
+        @Override
+        public <A extends Annotation> A getAnnotation(Class<A> a) {
+            return type.getAnnotation(a);
+        }
+
+        @Override
+        public Annotation[] getAnnotations() {
+            return new Annotation[0];
+        }
+
+        @Override
+        public Annotation[] getDeclaredAnnotations() {
+            return new Annotation[0];
+        }
+    }
+
+    private final class ElementField implements SpecModel.SpecField {
+        private final VariableElement f;
+
+        ElementField(VariableElement f) {
+            this.f = f;
+        }
+
+        @Override
+        public String name() {
+            return f.getSimpleName().toString();
+        }
+
+        @Override
+        public String typeString() {
+            return classString(types().erasure(f.asType()));
+        }
+
+        @Override
+        public String typeArgument() {
+            TypeMirror t = f.asType();
+            if (t.getKind() != TypeKind.DECLARED || ((DeclaredType) t).getTypeArguments().isEmpty()) {
+                return null;
+            }
+            TypeMirror arg = ((DeclaredType) t).getTypeArguments().get(0);
+            // Type.toString(): Classes print as "class x.Y", other types by type name.
+            if (arg.getKind() == TypeKind.DECLARED && ((DeclaredType) arg).getTypeArguments().isEmpty()
+                    || arg.getKind() == TypeKind.ARRAY && types().isSameType(arg, types().erasure(arg))) {
+                return classString(arg);
+            }
+            return typeName(arg);
+        }
+
+        @Override
+        public String jsonType() {
+            TypeMirror t = f.asType();
+            switch (t.getKind()) {
+                case BOOLEAN:
+                    return "boolean";
+                case BYTE: case SHORT: case INT: case LONG: case DOUBLE: case FLOAT:
+                    return "number";
+                case DECLARED:
+                    if (((TypeElement) ((DeclaredType) t).asElement()).getQualifiedName().contentEquals("java.lang.String")) {
+                        return "string";
+                    }
+                    return "object";
+                default:
+                    return "object";
+            }
+        }
+
+        @Override
+        public NodeDescriptor.Kind kind() {
+            TypeMirror t = f.asType();
+            if (t.getKind() == TypeKind.DECLARED && !((DeclaredType) t).getTypeArguments().isEmpty()) {
+                if (isA(t, Runtime.InVariable.class)) return NodeDescriptor.Kind.IN_VARIABLE;
+                if (isA(t, Runtime.OutVariable.class)) return NodeDescriptor.Kind.OUT_VARIABLE;
+                if (isA(t, Runtime.OptVariable.class)) return NodeDescriptor.Kind.OPT_VARIABLE;
+                if (isA(t, Runtime.Variable.class)) return NodeDescriptor.Kind.VARIABLE;
+                return NodeDescriptor.Kind.GENERIC;
+            }
+            if (isA(t, Runtime.Credential.class)) return NodeDescriptor.Kind.CREDENTIAL;
+            if (isA(t, Tool.class)) return NodeDescriptor.Kind.TOOL;
+            return NodeDescriptor.Kind.PLAIN;
+        }
+
+        @Override
+        public Class<?> defaultClass(FieldAnnotations.Default d) {
+            try {
+                return d.cls();
+            } catch (MirroredTypeException e) {
+                TypeMirror t = e.getTypeMirror();
+                if (t.getKind().isPrimitive()) {
+                    return primitiveClass(t.getKind());
+                }
+                TypeMirror erased = types().erasure(t);
+                String name = erased.getKind() == TypeKind.ARRAY ? descriptor(erased).replace('/', '.') : typeName(erased);
+                try {
+                    return Class.forName(name, false, NodeProcessor.class.getClassLoader());
+                } catch (ClassNotFoundException cnf) {
+                    throw new IllegalStateException("@Default class " + name + " is not loadable at compile time");
+                }
+            }
+        }
+
+        @Override
+        public <A extends Annotation> A getAnnotation(Class<A> a) {
+            return f.getAnnotation(a);
+        }
+
+        @Override
+        public Annotation[] getAnnotations() {
+            return new Annotation[0];
+        }
+
+        @Override
+        public Annotation[] getDeclaredAnnotations() {
+            return new Annotation[0];
+        }
+
+        private boolean isA(TypeMirror t, Class<?> c) {
+            if (t.getKind() != TypeKind.DECLARED) {
+                return false;
+            }
+            TypeElement e = elements().getTypeElement(c.getCanonicalName());
+            return e != null && types().isSubtype(types().erasure(t), types().erasure(e.asType()));
+        }
+    }
+
+    /** Renders an erased type the way Class.toString() does. */
+    private String classString(TypeMirror t) {
+        if (t.getKind().isPrimitive()) {
+            return t.getKind().name().toLowerCase();
+        }
+        if (t.getKind() == TypeKind.VOID) {
+            return "void";
+        }
+        if (t.getKind() == TypeKind.ARRAY) {
+            return "class " + descriptor(t).replace('/', '.');
+        }
+        if (t.getKind() == TypeKind.DECLARED) {
+            Element e = ((DeclaredType) t).asElement();
+            boolean iface = e.getKind() == ElementKind.INTERFACE || e.getKind() == ElementKind.ANNOTATION_TYPE;
+            return (iface ? "interface " : "class ") + elements().getBinaryName((TypeElement) e);
+        }
+        return t.toString();
+    }
+
+    /** Renders a type the way Type.getTypeName() does. */
+    private String typeName(TypeMirror t) {
+        switch (t.getKind()) {
+            case ARRAY:
+                return typeName(((ArrayType) t).getComponentType()) + "[]";
+            case WILDCARD: {
+                WildcardType w = (WildcardType) t;
+                if (w.getExtendsBound() != null) return "? extends " + typeName(w.getExtendsBound());
+                if (w.getSuperBound() != null) return "? super " + typeName(w.getSuperBound());
+                return "?";
+            }
+            case DECLARED: {
+                DeclaredType d = (DeclaredType) t;
+                String raw = elements().getBinaryName((TypeElement) d.asElement()).toString();
+                if (d.getTypeArguments().isEmpty()) {
+                    return raw;
+                }
+                StringBuilder sb = new StringBuilder(raw).append('<');
+                for (int i = 0; i < d.getTypeArguments().size(); i++) {
+                    if (i > 0) sb.append(", ");
+                    sb.append(typeName(d.getTypeArguments().get(i)));
+                }
+                return sb.append('>').toString();
+            }
+            default:
+                return t.getKind().isPrimitive() ? t.getKind().name().toLowerCase() : t.toString();
+        }
+    }
+
+    /** JVM descriptor of an erased array or class type (Class.getName() form for arrays). */
+    private String descriptor(TypeMirror t) {
+        switch (t.getKind()) {
+            case BOOLEAN: return "Z";
+            case BYTE: return "B";
+            case SHORT: return "S";
+            case INT: return "I";
+            case LONG: return "J";
+            case CHAR: return "C";
+            case FLOAT: return "F";
+            case DOUBLE: return "D";
+            case ARRAY: return "[" + descriptor(((ArrayType) t).getComponentType());
+            default:
+                return "L" + elements().getBinaryName((TypeElement) ((DeclaredType) types().erasure(t)).asElement()) + ";";
+        }
+    }
+
+    private static Class<?> primitiveClass(TypeKind k) {
+        switch (k) {
+            case BOOLEAN: return boolean.class;
+            case BYTE: return byte.class;
+            case SHORT: return short.class;
+            case INT: return int.class;
+            case LONG: return long.class;
+            case CHAR: return char.class;
+            case FLOAT: return float.class;
+            default: return double.class;
+        }
+    }
+}
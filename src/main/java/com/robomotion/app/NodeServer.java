@@ -36,6 +36,7 @@ public class NodeServer extends NodeImplBase
 						if (capsObj instanceof Number) {
 							Runtime.SetRobotCapabilities(((Number) capsObj).longValue());
 						}
+						LMO.configure(info);
 						Object storePath = info.get("lmo_store_path");
 						if (storePath != null && !storePath.toString().isEmpty()) {
 							LMO.init(storePath.toString());
@@ -65,10 +66,25 @@ public class NodeServer extends NodeImplBase
 	public void onCreate(OnCreateRequest request, StreamObserver<OnCreateResponse> responseObserver)
 	{
 		try {
-			Runtime.activeNodes++;
-			
 			byte[] config = request.getConfig().toByteArray();
-			Runtime.Factories().get(request.getName()).OnCreate(config);
+
+			// Session daemons keep nodes warm: each call has its own guid whose
+			// pool key derives from the config, and checks out an idle instance
+			// created for the same config, if there is one.
+			CLINodePool pool = CLISession.nodePool;
+			String guid = pool != null ? CLISession.configGuid(config) : null;
+			String key = guid != null ? CLISession.poolKey(guid) : null;
+			if (key == null || !pool.acquire(key, guid)) {
+				Runtime.activeNodes++;
+				NodeFactory factory = Runtime.Factories().get(request.getName());
+				if (NodeCreator.enabled()) {
+					// Config errors still fail here; OnCreate finishes in the background.
+					NodeCreator.submit(factory.Create(config));
+				} else {
+					factory.OnCreate(config);
+				}
+				if (key != null) pool.add(key, guid);
+			}
 
 			OnCreateResponse response = OnCreateResponse.newBuilder().build();
 			responseObserver.onNext(response);
@@ -89,19 +105,42 @@ public class NodeServer extends NodeImplBase
 	public void onMessage(OnMessageRequest request, StreamObserver<OnMessageResponse> responseObserver)
 	{
 		byte[] data = Runtime.Decompress(request.getInMessage().toByteArray());
-		data = LMO.resolveAll(data);
+		LMO.prefetch(data);
+		if (!LMO.lazyResolve()) {
+			data = LMO.resolveAll(data);
+		}
 		Node node = Runtime.Nodes().get(request.getGuid());
+		CLINodePool pool = CLISession.nodePool;
+		if (pool != null) pool.begin(request.getGuid());
+
+		try {
+			NodeCreator.await(request.getGuid());
+		}
+		catch (Exception e) {
+			// A failed OnCreate fails the message regardless of continueOnError.
+			release(request.getGuid(), false);
+			RpcError err;
+			if (e instanceof RpcError) err = (RpcError)e;
+			else err = new RpcError("Err.Unknown", e.toString());
+			responseObserver.onError(Status.UNKNOWN
+					.withDescription(err.Serialize())
+					.withCause(err)
+					.asRuntimeException());
+			return;
+		}
 
 		try {
 			Context ctx = new Message(data);
 			node.OnMessage(ctx);
 
-			byte[] outMessage = Runtime.IsLMOCapable() ? LMO.pack(ctx.getRaw()) : ctx.getRaw();
+			byte[] outMessage = Runtime.IsLMOCapable() ? LMO.packDurable(ctx.getRaw()) : ctx.getRaw();
+			release(request.getGuid(), true);
 			OnMessageResponse response = OnMessageResponse.newBuilder().setOutMessage(ByteString.copyFrom(outMessage)).build();
 			responseObserver.onNext(response);
 			responseObserver.onCompleted();
 		}
 		catch (Exception e) {
+			release(request.getGuid(), true);
 			if (!node.continueOnError) {
 				RpcError err;
 				if (e instanceof RpcError) err = (RpcError)e;
@@ -118,6 +157,16 @@ public class NodeServer extends NodeImplBase
 		}
 	}
 	
+	/**
+	 * Returns a pooled session node checked out for this call, before the
+	 * reply so the client's next call can reuse it.
+	 */
+	private static void release(String guid, boolean keep)
+	{
+		CLINodePool pool = CLISession.nodePool;
+		if (pool != null) pool.release(guid, keep);
+	}
+	
 	@Override
 	public void getCapabilities(Empty request, StreamObserver<GetCapabilitiesResponse> responseObserver)
 	{
@@ -131,17 +180,36 @@ public class NodeServer extends NodeImplBase
 	@Override
 	public void onClose(OnCloseRequest request, StreamObserver<OnCloseResponse> responseObserver)
 	{
+		Exception closeErr = null;
+		boolean pooled = false;
 		try {
-			Runtime.Nodes().get(request.getGuid()).OnClose();
-			
+			// Session clients close by pool key; the pool closes its instances.
+			pooled = CLISession.nodePool != null && CLISession.nodePool.close(request.getGuid());
+			if (!pooled) {
+				NodeCreator.forget(request.getGuid());
+				Runtime.Nodes().get(request.getGuid()).OnClose();
+			}
+		}
+		catch (Exception e) {
+			closeErr = e;
+		}
+
+		// Pending blob writes must land before the process may exit, but a
+		// failed write (possibly another node's) must not keep this node open.
+		Exception flushErr = null;
+		try {
+			LMO.flush();
+		}
+		catch (Exception e) {
+			flushErr = e;
+		}
+
+		Exception e = closeErr != null ? closeErr : flushErr;
+		if (e == null) {
 			OnCloseResponse response = OnCloseResponse.newBuilder().build();
 			responseObserver.onNext(response);
 			responseObserver.onCompleted();
-			
-			Runtime.activeNodes--;
-			if (Runtime.activeNodes == 0 && !Runtime.sessionMode) App.latch.countDown();
-		}
-		catch (Exception e) {
+		} else {
 			RpcError err;
 			if (e instanceof RpcError) err = (RpcError)e;
 			else err = new RpcError("Err.Unknown", e.toString());
@@ -150,5 +218,9 @@ public class NodeServer extends NodeImplBase
 					.withCause(err)
 					.asRuntimeException());
 		}
+
+		if (pooled || closeErr != null) return;
+		Runtime.activeNodes--;
+		if (Runtime.activeNodes == 0 && !Runtime.sessionMode) App.latch.countDown();
 	}
 }
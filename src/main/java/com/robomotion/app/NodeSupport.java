@@ -0,0 +1,28 @@
+package com.robomotion.app;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Compile-time support for one node class, generated by {@link NodeProcessor}
+ * as {@code <Node>_RobomotionNode} and registered as a service.
+ * <p>
+ * It lets the runtime create and configure nodes without reflection. Classes
+ * without a generated support (or whose support cannot bind them) keep using
+ * the reflective path.
+ */
+public interface NodeSupport {
+
+    Class<? extends Node> nodeClass();
+
+    /** Creates the node with its no-arg constructor. */
+    Node newNode();
+
+    /**
+     * Reads a node config object from in into node, with the same field
+     * semantics as Gson. Returns false, without reading, if the class could
+     * not be bound at compile time.
+     */
+    boolean bind(Node node, JsonReader in) throws IOException;
+}
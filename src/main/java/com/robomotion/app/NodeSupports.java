@@ -0,0 +1,117 @@
+package com.robomotion.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Registry of the {@link NodeSupport}s and specs generated by
+ * {@link NodeProcessor}. Both are optional: lookups return null for classes
+ * the processor did not see.
+ */
+public final class NodeSupports {
+
+    /** Where NodeProcessor writes the spec of a node class, by binary name. */
+    static final String SPEC_DIR = "META-INF/robomotion/specs/";
+
+    private static final Gson gson = new Gson();
+
+    private static volatile Map<Class<?>, NodeSupport> supports;
+
+    private NodeSupports() {
+    }
+
+    /**
+     * Returns the generated support for a node class, or null.
+     */
+    static NodeSupport get(Class<?> c) {
+        Map<Class<?>, NodeSupport> m = supports;
+        if (m == null) {
+            m = load();
+        }
+        return m.get(c);
+    }
+
+    private static synchronized Map<Class<?>, NodeSupport> load() {
+        if (supports != null) {
+            return supports;
+        }
+        Map<Class<?>, NodeSupport> m = new HashMap<>();
+        Iterator<NodeSupport> it = ServiceLoader.load(NodeSupport.class, NodeSupports.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!it.hasNext()) {
+                    break;
+                }
+                NodeSupport s = it.next();
+                m.put(s.nodeClass(), s);
+            } catch (ServiceConfigurationError e) {
+                // A stale registration (e.g. a removed node): that class uses reflection.
+            }
+        }
+        supports = m;
+        return m;
+    }
+
+    /**
+     * Creates a node from its config through the generated support. Returns
+     * null if the class has none or its support cannot bind it. Parsing
+     * follows Gson.fromJson: lenient, and the whole document must be used.
+     */
+    static Node bind(Class<?> c, byte[] config) {
+        NodeSupport s = get(c);
+        if (s == null) {
+            return null;
+        }
+        Node node = s.newNode();
+        JsonReader in = new JsonReader(new InputStreamReader(new ByteArrayInputStream(config), StandardCharsets.UTF_8));
+        in.setLenient(true);
+        try {
+            if (!s.bind(node, in)) {
+                return null;
+            }
+            if (in.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("JSON document was not fully consumed.");
+            }
+        } catch (IllegalStateException | IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the spec NodeProcessor generated for a node class, or null.
+     */
+    static String spec(Class<?> c) {
+        ClassLoader cl = c.getClassLoader();
+        if (cl == null) {
+            return null;
+        }
+        try (InputStream in = cl.getResourceAsStream(SPEC_DIR + c.getName() + ".json")) {
+            return in == null ? null : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the Gson adapter generated binders read a field type with.
+     */
+    public static <T> TypeAdapter<T> adapter(TypeToken<T> type) {
+        return gson.getAdapter(type);
+    }
+}
@@ -9,15 +9,23 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.Gson;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Value;
@@ -35,6 +43,7 @@ public class Runtime {
     private static RuntimeHelperGrpc.RuntimeHelperBlockingStub client;
     private static Map<String, NodeFactory> factories = new HashMap<>();
     private static Map<String, Node> nodes = new HashMap<>();
+    private static final Gson gson = new Gson();
     public static int activeNodes = 0;
     public static Boolean started = false;
     private static List<Class<?>> handlers;
@@ -120,6 +129,28 @@ public class Runtime {
         nodes.put(guid, node);
     }
 
+    /**
+     * Starts reading the vault items of all credentials a node declares, so
+     * they are fetched concurrently rather than one by one on first use.
+     */
+    static void PrefetchCredentials(Node node) {
+        if (client == null || testHelper != null) {
+            return;
+        }
+        for (NodeDescriptor.FieldInfo fi : NodeDescriptor.of(node.getClass()).fields) {
+            if (fi.kind == NodeDescriptor.Kind.CREDENTIAL) {
+                try {
+                    Credential cred = (Credential) fi.get(node);
+                    if (cred != null) {
+                        cred.prefetch();
+                    }
+                } catch (Exception e) {
+                    // read on first use instead
+                }
+            }
+        }
+    }
+
     public static Map<String, Node> Nodes() {
         return nodes;
     }
@@ -180,8 +211,8 @@ public class Runtime {
 
     @SuppressWarnings("unchecked")
     public static <T> T Deserialize(byte[] data, Class<T> classOfT) {
-        Gson g = new Gson();
-        return g.fromJson(new String(data, StandardCharsets.UTF_8), classOfT);
+        // Shared, so Gson's per-class reflective adapters are built once.
+        return gson.fromJson(new String(data, StandardCharsets.UTF_8), classOfT);
     }
 
     // Properties utilities
@@ -226,6 +257,22 @@ public class Runtime {
             return (T) val;
         }
 
+        Object val = fetchVariable(variable, ctx);
+        if (val != null && LMO.isBlobRefMap(val)) {
+            try {
+                val = LMO.resolveBlobRefValue((Map<String, Object>) val);
+            } catch (Exception e) {
+                System.err.println("lmo: resolve blob ref: " + e.getMessage());
+            }
+        }
+        return (T) val;
+    }
+
+    /**
+     * Reads a variable of any scope other than Message and Custom from the
+     * runner, without resolving BlobRefs.
+     */
+    private static Object fetchVariable(Variable<?> variable, Context ctx) throws RuntimeNotInitializedException {
         if (client == null)
             throw new RuntimeNotInitializedException();
 
@@ -239,15 +286,37 @@ public class Runtime {
 
         GetVariableResponse response = client.getVariable(request);
         Struct st = new Struct(response.getValue());
-        Object val = st.Parse();
-        if (val != null && LMO.isBlobRefMap(val)) {
-            try {
-                val = LMO.resolveBlobRefValue((Map<String, Object>) val);
-            } catch (Exception e) {
-                System.err.println("lmo: resolve blob ref: " + e.getMessage());
-            }
+        return st.Parse();
+    }
+
+    /**
+     * Streams the elements of an array variable. BlobRef values are decoded
+     * incrementally from the LMO store, so row-by-row nodes run in constant
+     * memory regardless of the array size.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> java.util.stream.Stream<Object> GetVariableStream(Variable<T> variable, Context ctx) throws Exception {
+        if (variable.scope.equals("Message")) {
+            return ctx.getStream(variable.getNameString());
         }
-        return (T) val;
+
+        Object val;
+        if (variable.scope.equals("Custom")) {
+            val = variable.name;
+        } else {
+            val = fetchVariable(variable, ctx);
+        }
+
+        if (val == null) {
+            return java.util.stream.Stream.empty();
+        }
+        if (LMO.isBlobRefMap(val)) {
+            return LMO.streamBlobRefArray((Map<String, Object>) val);
+        }
+        if (val instanceof List) {
+            return ((List<Object>) val).stream();
+        }
+        throw new IllegalArgumentException("variable " + variable.getNameString() + " is not an array");
     }
 
     public static <T> void SetVariable(Variable<T> variable, Context ctx, T value) throws RuntimeNotInitializedException {
@@ -596,6 +665,14 @@ public class Runtime {
         public T Get(Context ctx) throws RuntimeNotInitializedException {
             return Runtime.GetVariable(this, ctx);
         }
+
+        /**
+         * Streams the elements of an array input without materializing it.
+         * The stream must be closed (try-with-resources) or fully consumed.
+         */
+        public java.util.stream.Stream<Object> GetStream(Context ctx) throws Exception {
+            return Runtime.GetVariableStream(this, ctx);
+        }
     }
 
     public static class OutVariable<T> extends Variable<T> {
@@ -644,20 +721,13 @@ public class Runtime {
             this.itemId = itemId;
         }
 
-        public Map<String, Object> Get(Context ctx) throws RuntimeNotInitializedException {
-            CredentialInfo creds;
-            if (this.vaultId != null && this.itemId != null) {
-                creds = new CredentialInfo(this.vaultId, this.itemId);
-            } else {
-                Object cr = this.name;
-                if (this.scope.equals("Message")) {
-                    InVariable<Object> v = new InVariable<>("Message", this.name.toString());
-                    cr = v.Get(ctx);
-                }
+        // Vault items read through the runner, by vaultId/itemId, kept for the
+        // life of the node (robomotion.credential_cache, on by default). Callers
+        // get copies, so changing a returned item does not change the cache.
+        private transient Map<String, CompletableFuture<Map<String, Object>>> items;
 
-                Map<String, Object> crMap = (Map<String, Object>) cr;
-                creds = new CredentialInfo((String) crMap.get("vaultId"), (String) crMap.get("itemId"));
-            }
+        public Map<String, Object> Get(Context ctx) throws RuntimeNotInitializedException {
+            CredentialInfo creds = resolve(ctx);
 
             // Check for test helper first (for unit testing)
             if (testHelper != null) {
@@ -670,12 +740,105 @@ public class Runtime {
             if (client == null)
                 throw new RuntimeNotInitializedException();
 
-            GetVaultItemRequest request = GetVaultItemRequest.newBuilder()
+            if (!getPropertyBool("robomotion.credential_cache", true)) {
+                return fetch(creds);
+            }
+            Map<String, CompletableFuture<Map<String, Object>>> cache = items();
+            String key = creds.vaultId + "/" + creds.itemId;
+            CompletableFuture<Map<String, Object>> f = cache.get(key);
+            if (f != null) {
+                try {
+                    return copy(f.join());
+                } catch (CompletionException e) {
+                    // A failed prefetch: fetch again and report that error.
+                    cache.remove(key, f);
+                }
+            }
+            Map<String, Object> item = fetch(creds);
+            cache.put(key, CompletableFuture.completedFuture(copy(item)));
+            return item;
+        }
+
+        /**
+         * Drops the vault items cached for this credential, so the next Get
+         * reads them from the vault again.
+         */
+        public synchronized void Invalidate() {
+            items = null;
+        }
+
+        /**
+         * Starts reading the vault item in the background, for credentials
+         * that name it in the node config. Get waits for the result.
+         */
+        void prefetch() {
+            if (client == null || testHelper != null || !getPropertyBool("robomotion.credential_cache", true)) {
+                return;
+            }
+            CredentialInfo creds;
+            if (this.vaultId != null && this.itemId != null) {
+                creds = new CredentialInfo(this.vaultId, this.itemId);
+            } else if (!"Message".equals(this.scope) && this.name instanceof Map) {
+                Map<String, Object> crMap = (Map<String, Object>) this.name;
+                if (!(crMap.get("vaultId") instanceof String) || !(crMap.get("itemId") instanceof String)) {
+                    return;
+                }
+                creds = new CredentialInfo((String) crMap.get("vaultId"), (String) crMap.get("itemId"));
+            } else {
+                return;
+            }
+
+            CompletableFuture<Map<String, Object>> f = new CompletableFuture<>();
+            if (items().putIfAbsent(creds.vaultId + "/" + creds.itemId, f) != null) {
+                return;
+            }
+            // Async stub: the requests of all credentials share the runner
+            // connection and are in flight together.
+            ListenableFuture<GetVaultItemResponse> call = RuntimeHelperGrpc.newFutureStub(client.getChannel())
+                    .getVaultItem(request(creds));
+            Futures.addCallback(call, new FutureCallback<GetVaultItemResponse>() {
+                @Override
+                public void onSuccess(GetVaultItemResponse response) {
+                    f.complete((Map<String, Object>) new Struct(response.getItem()).Parse());
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    f.completeExceptionally(t);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        private synchronized Map<String, CompletableFuture<Map<String, Object>>> items() {
+            if (items == null) {
+                items = new ConcurrentHashMap<>();
+            }
+            return items;
+        }
+
+        private CredentialInfo resolve(Context ctx) throws RuntimeNotInitializedException {
+            if (this.vaultId != null && this.itemId != null) {
+                return new CredentialInfo(this.vaultId, this.itemId);
+            }
+            Object cr = this.name;
+            if (this.scope.equals("Message")) {
+                InVariable<Object> v = new InVariable<>("Message", this.name.toString());
+                cr = v.Get(ctx);
+            }
+
+            Map<String, Object> crMap = (Map<String, Object>) cr;
+            return new CredentialInfo((String) crMap.get("vaultId"), (String) crMap.get("itemId"));
+        }
+
+        private static GetVaultItemRequest request(CredentialInfo creds) {
+            return GetVaultItemRequest.newBuilder()
                     .setItemId(creds.itemId)
                     .setVaultId(creds.vaultId)
                     .build();
+        }
 
-            GetVaultItemResponse response = client.getVaultItem(request);
+        private static Map<String, Object> fetch(CredentialInfo creds) {
+            GetVaultItemResponse response = client.getVaultItem(request(creds));
             Struct st = new Struct(response.getItem());
             return (Map<String, Object>) st.Parse();
         }
@@ -684,19 +847,7 @@ public class Runtime {
             if (client == null)
                 throw new RuntimeNotInitializedException();
 
-            CredentialInfo creds;
-            if (this.vaultId != null && this.itemId != null) {
-                creds = new CredentialInfo(this.vaultId, this.itemId);
-            } else {
-                Object cr = this.name;
-                if (this.scope.equals("Message")) {
-                    InVariable<Object> v = new InVariable<>("Message", this.name.toString());
-                    cr = v.Get(ctx);
-                }
-
-                Map<String, Object> crMap = (Map<String, Object>) cr;
-                creds = new CredentialInfo((String) crMap.get("vaultId"), (String) crMap.get("itemId"));
-            }
+            CredentialInfo creds = resolve(ctx);
 
             SetVaultItemRequest request = SetVaultItemRequest.newBuilder()
                     .setVaultId(creds.vaultId)
@@ -706,7 +857,30 @@ public class Runtime {
 
             SetVaultItemResponse response = client.setVaultItem(request);
             Struct st = new Struct(response.getItem());
-            return (Map<String, Object>) st.Parse();
+            Map<String, Object> item = (Map<String, Object>) st.Parse();
+            if (getPropertyBool("robomotion.credential_cache", true)) {
+                items().put(creds.vaultId + "/" + creds.itemId, CompletableFuture.completedFuture(copy(item)));
+            }
+            return item;
+        }
+
+        /** Deep-copies a parsed vault item (maps, lists and immutable leaves). */
+        private static Map<String, Object> copy(Map<String, Object> item) {
+            return (Map<String, Object>) copyValue(item);
+        }
+
+        private static Object copyValue(Object v) {
+            if (v instanceof Map<?, ?> m) {
+                Map<Object, Object> c = new HashMap<>(m.size() * 2);
+                m.forEach((k, e) -> c.put(k, copyValue(e)));
+                return c;
+            }
+            if (v instanceof List<?> l) {
+                List<Object> c = new ArrayList<>(l.size());
+                l.forEach(e -> c.add(copyValue(e)));
+                return c;
+            }
+            return v;
         }
     }
 
@@ -1,16 +1,9 @@
 package com.robomotion.app;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringJoiner;
 
-import com.robomotion.app.Runtime.Credential;
-import com.robomotion.app.Runtime.InVariable;
-import com.robomotion.app.Runtime.OptVariable;
-import com.robomotion.app.Runtime.OutVariable;
-
 /**
  * Generates SKILL.md documentation from introspecting registered nodes.
  * Only nodes with an embedded Tool field are included.
@@ -33,25 +26,14 @@ public class SkillMD {
         boolean hasDisconnect = false;
 
         for (Class<?> c : classes) {
-            // Find Tool field with @ToolInfo
-            String toolName = null;
-            String toolDescription = null;
-
-            for (Field f : c.getFields()) {
-                if (Tool.class.isAssignableFrom(f.getType())) {
-                    Tool.ToolInfo info = f.getAnnotation(Tool.ToolInfo.class);
-                    if (info != null && !info.name().isEmpty()) {
-                        toolName = info.name();
-                        toolDescription = info.description();
-                        break;
-                    }
-                }
-            }
+            NodeDescriptor d = NodeDescriptor.of(c);
+            String toolName = d.toolName;
+            String toolDescription = d.toolDescription;
 
             if (toolName == null) continue;
 
             // Detect Connect/Disconnect nodes
-            String nodeID = Spec.GetNamespace(c);
+            String nodeID = d.namespace;
             if (nodeID.contains(".Connect") || toolName.equalsIgnoreCase("connect")) {
                 hasConnect = true;
             }
@@ -65,42 +47,35 @@ public class SkillMD {
 
             // Instantiate temp node to read variable names
             try {
-                Node tempNode = (Node) c.getDeclaredConstructor().newInstance();
-
-                for (Field f : c.getFields()) {
-                    if (Tool.class.isAssignableFrom(f.getType())) continue;
+                Node tempNode = d.newInstance();
 
-                    if (Credential.class.isAssignableFrom(f.getType())) {
+                for (NodeDescriptor.FieldInfo fi : d.fields) {
+                    if (fi.kind == NodeDescriptor.Kind.CREDENTIAL) {
                         hasCredentials = true;
                         continue;
                     }
 
-                    java.lang.reflect.Type t = f.getGenericType();
-                    if (!(t instanceof ParameterizedType pT)) continue;
-
-                    Class<?> rawType = (Class<?>) pT.getRawType();
-                    if (!Runtime.Variable.class.isAssignableFrom(rawType)) continue;
+                    if (!fi.isVariable()) continue;
 
-                    f.setAccessible(true);
-                    Runtime.Variable<?> variable = (Runtime.Variable<?>) f.get(tempNode);
+                    Runtime.Variable<?> variable = (Runtime.Variable<?>) fi.get(tempNode);
                     if (variable == null) continue;
 
                     String specName = variable.getNameString();
                     if (specName == null || specName.isEmpty()) continue;
 
-                    String varType = CLI.getVariableType(f);
+                    String varType = fi.valueType;
                     String flagName = CLI.camelToKebab(specName);
-                    String desc = Spec.GetDescription(f);
-                    String title = Spec.GetTitle(f);
+                    String desc = fi.description;
+                    String title = fi.title;
                     if ((desc == null || desc.isEmpty()) && title != null && !title.isEmpty()) {
                         desc = title;
                     }
 
-                    if (InVariable.class.isAssignableFrom(rawType)) {
+                    if (fi.kind == NodeDescriptor.Kind.IN_VARIABLE) {
                         cmd.params.add(new SkillParam(flagName, varType, true, desc));
-                    } else if (OptVariable.class.isAssignableFrom(rawType)) {
+                    } else if (fi.kind == NodeDescriptor.Kind.OPT_VARIABLE) {
                         cmd.params.add(new SkillParam(flagName, varType, false, desc));
-                    } else if (OutVariable.class.isAssignableFrom(rawType)) {
+                    } else if (fi.kind == NodeDescriptor.Kind.OUT_VARIABLE) {
                         cmd.outputs.add(new SkillOutput(specName, varType));
                     }
                 }
@@ -1,9 +1,9 @@
 package com.robomotion.app;
 
 import java.io.IOException;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -17,11 +17,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.gson.Gson;
 import com.robomotion.app.FieldAnnotations.ECategory;
-import com.robomotion.app.Runtime.InVariable;
-import com.robomotion.app.Runtime.OutVariable;
-import com.robomotion.app.Runtime.OptVariable;
-import com.robomotion.app.Runtime.Variable;
-import com.robomotion.app.Runtime.Credential;
+import com.robomotion.app.SpecModel.SpecField;
+import com.robomotion.app.SpecModel.SpecNode;
 
 public class Spec {
 	private static class JObject extends HashMap<String, Object> {
@@ -48,231 +45,106 @@ public class Spec {
 		final JArray nodes = new JArray();
 
 		for (Class<?> c : classes) {
-			JObject node = new JObject();
-			node.put("name", GetTitle(c));
-			node.put("color", GetColor(c));
-			node.put("icon", GetIcon(c));
-			node.put("id", GetNamespace(c));
-			node.put("inputs", GetInputCount(c));
-			node.put("outputs", GetOutputCount(c));
-
-			String editor = GetEditor(c);
-			if (!editor.isEmpty())
-				node.put("editor", editor);
-
-			// Check for Tool field for AI tool support
-			JObject toolInfo = GetToolInfo(c);
-			if (toolInfo != null) {
-				node.put("tool", toolInfo);
-			}
+			// Use the spec the annotation processor generated at compile time, if any.
+			String generated = NodeSupports.spec(c);
+			nodes.add(generated != null ? SpecMapper().readValue(generated, Map.class) : NodeSpec(SpecModel.of(c)));
+		}
 
-			final JArray properties = new JArray();
-			List<Field> inputs = GetInputs(c);
-			List<Field> inputVars = GetInputVars(c);
+		pspec.put("nodes", nodes);
 
-			if (inputs.size() + inputVars.size() > 0) {
-				JObject property = new JObject();
+		String json = SpecMapper().writeValueAsString(pspec);
 
-				JObject pSchema = new JObject();
-				JObject pUISchema = new JObject();
-				JObject formData = new JObject();
+		System.out.println(json);
+	}
 
-				pSchema.put("title", "Input");
-				pSchema.put("type", "object");
+	/**
+	 * Builds the spec of one node. NodeProcessor runs the same code over
+	 * compile-time elements, so generated specs match the reflected ones.
+	 */
+	static Map<String, Object> NodeSpec(SpecNode c) {
+		Sections sections = GetSections(c);
+
+		JObject node = new JObject();
+		node.put("name", GetTitle(c));
+		node.put("color", GetColor(c));
+		node.put("icon", GetIcon(c));
+		node.put("id", GetNamespace(c));
+		node.put("inputs", GetInputCount(c));
+		node.put("outputs", GetOutputCount(c));
+
+		String editor = GetEditor(c);
+		if (!editor.isEmpty())
+			node.put("editor", editor);
+
+		// Check for Tool field for AI tool support
+		JObject toolInfo = GetToolInfo(c);
+		if (toolInfo != null) {
+			node.put("tool", toolInfo);
+		}
 
-				JObject inProperties = new JObject();
-				JArray uiOrder = new JArray();
+		final JArray properties = new JArray();
+		List<SpecField> inputs = sections.inputs;
+		List<SpecField> inputVars = sections.inputVars;
 
-				for (Field input : inputVars) {
-					JObject inObject = new JObject();
-					String[] arrFields = GetArrayFields(input);
+		if (inputs.size() + inputVars.size() > 0) {
+			JObject property = new JObject();
 
-					if (arrFields != null) {
-						inObject.put("type", "array");
+			JObject pSchema = new JObject();
+			JObject pUISchema = new JObject();
+			JObject formData = new JObject();
 
-						JObject arrProps = new JObject();
-						for (String arrField : arrFields) {
-							arrProps.put(ToSnakeCase(arrField), new JObject() {
-								{
-									put("type", "string");
-								}
-								{
-									put("title", arrField);
-								}
-							});
-						}
+			pSchema.put("title", "Input");
+			pSchema.put("type", "object");
 
-						inObject.put("items", new JObject() {
-							{
-								put("type", "object");
-							}
-							{
-								put("properties", new JObject() {
-									{
-										put("scope", new JObject() {
-											{
-												put("type", "string");
-											}
-										});
-									}
-									{
-										put("name", new JObject() {
-											{
-												put("properties", arrProps);
-											}
-										});
-									}
-								});
-							}
-						});
+			JObject inProperties = new JObject();
+			JArray uiOrder = new JArray();
 
-					} else {
-						inObject.put("type", "object");
-						inObject.put("properties", new JObject() {
-							{
-								put("scope", new JObject() {
-									{
-										put("type", "string");
-									}
-								});
-								put("name", new JObject() {
-									{
-										put("type", "string");
-									}
-								});
-							}
-						});
-					}
+			for (SpecField input : inputVars) {
+				JObject inObject = new JObject();
+				String[] arrFields = GetArrayFields(input);
 
-					inObject.put("title", GetTitle(input));
-
-					String varType = ((ParameterizedType) input.getGenericType()).getActualTypeArguments()[0]
-							.toString();
-					String[] parts = varType.split("\\.");
-					inObject.put("variableType", parts[parts.length - 1]);
-
-					if (CustomScope(input))
-						inObject.put("customScope", true);
-					if (MessageScope(input))
-						inObject.put("messageScope", true);
-					if (JsScope(input))
-						inObject.put("jsScope", true);
-					if (MessageOnly(input))
-						inObject.put("messageOnly", true);
-					if (AIScope(input))
-						inObject.put("aiScope", true);
-
-					String description = GetDescription(input);
-					if (description != "")
-						inObject.put("description", description);
-
-					String name = LowerFirstLetter(input.getName());
-					final String format = GetFormat(input);
-					if (format != "") {
-						formData.put(name, GetDefault(input));
-						inObject.put("format", format);
-						pUISchema.put(name, new JObject() {
-							{
-								put("ui:field", format);
-							}
-						});
-					} else if (arrFields != null) {
-						formData.put(name, new JArray() {
-							{
-								add(new Object());
-							}
-						});
-						pUISchema.put(name, new JObject() {
-							{
-								put("ui:field", "array");
-							}
-						});
+				if (arrFields != null) {
+					inObject.put("type", "array");
 
-					} else {
-						formData.put(name, GetDefault(input));
-						pUISchema.put(name, new JObject() {
+					JObject arrProps = new JObject();
+					for (String arrField : arrFields) {
+						arrProps.put(ToSnakeCase(arrField), new JObject() {
 							{
-								put("ui:field", "variable");
+								put("type", "string");
 							}
-						});
-					}
-
-					inProperties.put(name, inObject);
-					uiOrder.add(name);
-				}
-
-				for (Field input : inputs) {
-					JObject inObject = new JObject();
-					String[] parts = input.getType().toString().split("\\.");
-
-					inObject.put("type", parts[parts.length - 1].toLowerCase());
-					inObject.put("title", GetTitle(input));
-
-					String name = LowerFirstLetter(input.getName());
-					String description = GetDescription(input);
-					if (description != "") {
-						inObject.put("description", description);
-						pUISchema.put(name, new JObject() {
 							{
-								put("ui:field", "input");
+								put("title", arrField);
 							}
 						});
 					}
 
-					if (IsHidden(input)) {
-						pUISchema.put(name, new JObject() {
-							{
-								put("ui:widget", "hidden");
-							}
-						});
-					}
-
-					final String format = GetFormat(input);
-					if (format != "") {
-						inObject.put("format", format);
-						pUISchema.put(name, new JObject() {
-							{
-								put("ui:field", format);
-							}
-						});
-					}
-
-					formData.put(name, GetDefault(input));
-					inProperties.put(name, inObject);
-					uiOrder.add(name);
-				}
-
-				pSchema.put("properties", inProperties);
-				pUISchema.put("ui:order", uiOrder);
-
-				property.put("schema", pSchema);
-				property.put("uiSchema", pUISchema);
-				property.put("formData", formData);
-
-				properties.add(property);
-			}
-
-			List<Field> outputs = GetOutputs(c);
-			List<Field> outputVars = GetOutputVars(c);
-
-			if (outputs.size() + outputVars.size() > 0) {
-				JObject property = new JObject();
-
-				JObject pSchema = new JObject();
-				JObject pUISchema = new JObject();
-				JObject formData = new JObject();
-
-				pSchema.put("title", "Output");
-				pSchema.put("type", "object");
-
-				JObject outProperties = new JObject();
-				JArray uiOrder = new JArray();
+					inObject.put("items", new JObject() {
+						{
+							put("type", "object");
+						}
+						{
+							put("properties", new JObject() {
+								{
+									put("scope", new JObject() {
+										{
+											put("type", "string");
+										}
+									});
+								}
+								{
+									put("name", new JObject() {
+										{
+											put("properties", arrProps);
+										}
+									});
+								}
+							});
+						}
+					});
 
-				for (Field output : outputVars) {
-					JObject outObject = new JObject();
-					outObject.put("type", "object");
-					outObject.put("title", GetTitle(output));
-					outObject.put("properties", new JObject() {
+				} else {
+					inObject.put("type", "object");
+					inObject.put("properties", new JObject() {
 						{
 							put("scope", new JObject() {
 								{
@@ -286,341 +158,518 @@ public class Spec {
 							});
 						}
 					});
+				}
 
-					String varType = ((ParameterizedType) output.getGenericType()).getActualTypeArguments()[0]
-							.toString();
-					String[] parts = varType.split("\\.");
-					outObject.put("variableType", parts[parts.length - 1]);
+				inObject.put("title", GetTitle(input));
+
+				String varType = input.typeArgument();
+				String[] parts = varType.split("\\.");
+				inObject.put("variableType", parts[parts.length - 1]);
+
+				if (CustomScope(input))
+					inObject.put("customScope", true);
+				if (MessageScope(input))
+					inObject.put("messageScope", true);
+				if (JsScope(input))
+					inObject.put("jsScope", true);
+				if (MessageOnly(input))
+					inObject.put("messageOnly", true);
+				if (AIScope(input))
+					inObject.put("aiScope", true);
+
+				String description = GetDescription(input);
+				if (description != "")
+					inObject.put("description", description);
+
+				String name = LowerFirstLetter(input.name());
+				final String format = GetFormat(input);
+				if (format != "") {
+					formData.put(name, GetDefault(input));
+					inObject.put("format", format);
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", format);
+						}
+					});
+				} else if (arrFields != null) {
+					formData.put(name, new JArray() {
+						{
+							add(new Object());
+						}
+					});
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", "array");
+						}
+					});
+
+				} else {
+					formData.put(name, GetDefault(input));
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", "variable");
+						}
+					});
+				}
 
-					if (CustomScope(output))
-						outObject.put("customScope", true);
-					if (MessageScope(output))
-						outObject.put("messageScope", true);
-					if (JsScope(output))
-						outObject.put("jsScope", true);
-					if (MessageOnly(output))
-						outObject.put("messageOnly", true);
-					if (AIScope(output))
-						outObject.put("aiScope", true);
+				inProperties.put(name, inObject);
+				uiOrder.add(name);
+			}
 
-					String description = GetDescription(output);
-					if (description != "")
-						outObject.put("description", description);
+			for (SpecField input : inputs) {
+				JObject inObject = new JObject();
+				String[] parts = input.typeString().split("\\.");
 
-					String name = LowerFirstLetter(output.getName());
+				inObject.put("type", parts[parts.length - 1].toLowerCase());
+				inObject.put("title", GetTitle(input));
 
-					formData.put(name, GetDefault(output));
-					outProperties.put(name, outObject);
-					uiOrder.add(name);
+				String name = LowerFirstLetter(input.name());
+				String description = GetDescription(input);
+				if (description != "") {
+					inObject.put("description", description);
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", "input");
+						}
+					});
+				}
 
+				if (IsHidden(input)) {
 					pUISchema.put(name, new JObject() {
 						{
-							put("ui:field", "variable");
+							put("ui:widget", "hidden");
+						}
+					});
+				}
+
+				final String format = GetFormat(input);
+				if (format != "") {
+					inObject.put("format", format);
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", format);
 						}
 					});
 				}
 
-				for (Field output : outputs) {
-					JObject outObject = new JObject();
-					String[] parts = output.getType().toString().split("\\.");
+				formData.put(name, GetDefault(input));
+				inProperties.put(name, inObject);
+				uiOrder.add(name);
+			}
+
+			pSchema.put("properties", inProperties);
+			pUISchema.put("ui:order", uiOrder);
+
+			property.put("schema", pSchema);
+			property.put("uiSchema", pUISchema);
+			property.put("formData", formData);
+
+			properties.add(property);
+		}
+
+		List<SpecField> outputs = sections.outputs;
+		List<SpecField> outputVars = sections.outputVars;
 
-					outObject.put("type", parts[parts.length - 1].toLowerCase());
-					outObject.put("title", GetTitle(output));
+		if (outputs.size() + outputVars.size() > 0) {
+			JObject property = new JObject();
 
-					String name = LowerFirstLetter(output.getName());
-					String description = GetDescription(output);
-					if (description != "") {
-						outObject.put("description", description);
-						pUISchema.put(name, new JObject() {
+			JObject pSchema = new JObject();
+			JObject pUISchema = new JObject();
+			JObject formData = new JObject();
+
+			pSchema.put("title", "Output");
+			pSchema.put("type", "object");
+
+			JObject outProperties = new JObject();
+			JArray uiOrder = new JArray();
+
+			for (SpecField output : outputVars) {
+				JObject outObject = new JObject();
+				outObject.put("type", "object");
+				outObject.put("title", GetTitle(output));
+				outObject.put("properties", new JObject() {
+					{
+						put("scope", new JObject() {
 							{
-								put("ui:field", "input");
+								put("type", "string");
 							}
 						});
-					}
-
-					if (IsHidden(output)) {
-						pUISchema.put(name, new JObject() {
+						put("name", new JObject() {
 							{
-								put("ui:widget", "hidden");
+								put("type", "string");
 							}
 						});
 					}
+				});
+
+				String varType = output.typeArgument();
+				String[] parts = varType.split("\\.");
+				outObject.put("variableType", parts[parts.length - 1]);
+
+				if (CustomScope(output))
+					outObject.put("customScope", true);
+				if (MessageScope(output))
+					outObject.put("messageScope", true);
+				if (JsScope(output))
+					outObject.put("jsScope", true);
+				if (MessageOnly(output))
+					outObject.put("messageOnly", true);
+				if (AIScope(output))
+					outObject.put("aiScope", true);
+
+				String description = GetDescription(output);
+				if (description != "")
+					outObject.put("description", description);
+
+				String name = LowerFirstLetter(output.name());
+
+				formData.put(name, GetDefault(output));
+				outProperties.put(name, outObject);
+				uiOrder.add(name);
+
+				pUISchema.put(name, new JObject() {
+					{
+						put("ui:field", "variable");
+					}
+				});
+			}
 
-					formData.put(name, GetDefault(output));
-					outProperties.put(name, outObject);
-					uiOrder.add(name);
-				}
+			for (SpecField output : outputs) {
+				JObject outObject = new JObject();
+				String[] parts = output.typeString().split("\\.");
 
-				pSchema.put("properties", outProperties);
-				pUISchema.put("ui:order", uiOrder);
+				outObject.put("type", parts[parts.length - 1].toLowerCase());
+				outObject.put("title", GetTitle(output));
+
+				String name = LowerFirstLetter(output.name());
+				String description = GetDescription(output);
+				if (description != "") {
+					outObject.put("description", description);
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", "input");
+						}
+					});
+				}
 
-				property.put("schema", pSchema);
-				property.put("uiSchema", pUISchema);
-				property.put("formData", formData);
+				if (IsHidden(output)) {
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:widget", "hidden");
+						}
+					});
+				}
 
-				properties.add(property);
+				formData.put(name, GetDefault(output));
+				outProperties.put(name, outObject);
+				uiOrder.add(name);
 			}
 
-			List<Field> options = GetOptions(c);
-			List<Field> optionVars = GetOptionVars(c);
-
-			if (options.size() + optionVars.size() > 0) {
-				JObject property = new JObject();
+			pSchema.put("properties", outProperties);
+			pUISchema.put("ui:order", uiOrder);
 
-				JObject pSchema = new JObject();
-				JObject pUISchema = new JObject();
-				JObject formData = new JObject();
+			property.put("schema", pSchema);
+			property.put("uiSchema", pUISchema);
+			property.put("formData", formData);
 
-				pSchema.put("title", "Options");
-				pSchema.put("type", "object");
+			properties.add(property);
+		}
 
-				JObject optProperties = new JObject();
-				JArray uiOrder = new JArray();
+		List<SpecField> options = sections.options;
+		List<SpecField> optionVars = sections.optionVars;
 
-				for (Field option : optionVars) {
-					JObject optObject = new JObject();
-					String[] arrFields = GetArrayFields(option);
+		if (options.size() + optionVars.size() > 0) {
+			JObject property = new JObject();
 
-					if (arrFields != null) {
-						optObject.put("type", "array");
+			JObject pSchema = new JObject();
+			JObject pUISchema = new JObject();
+			JObject formData = new JObject();
 
-						JObject arrProps = new JObject();
-						for (String arrField : arrFields) {
-							arrProps.put(ToSnakeCase(arrField), new JObject() {
-								{
-									put("type", "string");
-								}
-								{
-									put("title", arrField);
-								}
-							});
-						}
+			pSchema.put("title", "Options");
+			pSchema.put("type", "object");
 
-						optObject.put("items", new JObject() {
-							{
-								put("type", "object");
-							}
-							{
-								put("properties", new JObject() {
-									{
-										put("scope", new JObject() {
-											{
-												put("type", "string");
-											}
-										});
-									}
-									{
-										put("name", new JObject() {
-											{
-												put("properties", arrProps);
-											}
-										});
-									}
-								});
-							}
-						});
+			JObject optProperties = new JObject();
+			JArray uiOrder = new JArray();
 
-					} else {
-						optObject.put("type", "object");
-						optObject.put("properties", new JObject() {
-							{
-								put("scope", new JObject() {
-									{
-										put("type", "string");
-									}
-								});
-								put("name", new JObject() {
-									{
-										put("type", "string");
-									}
-								});
-							}
-						});
-					}
+			for (SpecField option : optionVars) {
+				JObject optObject = new JObject();
+				String[] arrFields = GetArrayFields(option);
 
-					optObject.put("title", GetTitle(option));
-
-					String varType = ((ParameterizedType) option.getGenericType()).getActualTypeArguments()[0]
-							.toString();
-					String[] parts = varType.split("\\.");
-					optObject.put("variableType", parts[parts.length - 1]);
-
-					if (CustomScope(option))
-						optObject.put("customScope", true);
-					if (MessageScope(option))
-						optObject.put("messageScope", true);
-					if (JsScope(option))
-						optObject.put("jsScope", true);
-					if (MessageOnly(option))
-						optObject.put("messageOnly", true);
-					if (AIScope(option))
-						optObject.put("aiScope", true);
-
-					String description = GetDescription(option);
-					if (description != "")
-						optObject.put("description", description);
-
-					String name = LowerFirstLetter(option.getName());
-					final String format = GetFormat(option);
-					if (format != "") {
-						optObject.put("format", format);
-						formData.put(name, GetDefault(option));
-						pUISchema.put(name, new JObject() {
-							{
-								put("ui:field", format);
-							}
-						});
+				if (arrFields != null) {
+					optObject.put("type", "array");
 
-					} else if (arrFields != null) {
-						formData.put(name, new JArray() {
+					JObject arrProps = new JObject();
+					for (String arrField : arrFields) {
+						arrProps.put(ToSnakeCase(arrField), new JObject() {
 							{
-								add(new Object());
+								put("type", "string");
 							}
-						});
-						pUISchema.put(name, new JObject() {
-							{
-								put("ui:field", "array");
-							}
-						});
-
-					} else {
-						formData.put(name, GetDefault(option));
-						pUISchema.put(name, new JObject() {
 							{
-								put("ui:field", "variable");
+								put("title", arrField);
 							}
 						});
 					}
 
-					optProperties.put(name, optObject);
-					uiOrder.add(name);
+					optObject.put("items", new JObject() {
+						{
+							put("type", "object");
+						}
+						{
+							put("properties", new JObject() {
+								{
+									put("scope", new JObject() {
+										{
+											put("type", "string");
+										}
+									});
+								}
+								{
+									put("name", new JObject() {
+										{
+											put("properties", arrProps);
+										}
+									});
+								}
+							});
+						}
+					});
+
+				} else {
+					optObject.put("type", "object");
+					optObject.put("properties", new JObject() {
+						{
+							put("scope", new JObject() {
+								{
+									put("type", "string");
+								}
+							});
+							put("name", new JObject() {
+								{
+									put("type", "string");
+								}
+							});
+						}
+					});
 				}
 
-				for (Field option : options) {
-					JObject optObject = new JObject();
+				optObject.put("title", GetTitle(option));
+
+				String varType = option.typeArgument();
+				String[] parts = varType.split("\\.");
+				optObject.put("variableType", parts[parts.length - 1]);
+
+				if (CustomScope(option))
+					optObject.put("customScope", true);
+				if (MessageScope(option))
+					optObject.put("messageScope", true);
+				if (JsScope(option))
+					optObject.put("jsScope", true);
+				if (MessageOnly(option))
+					optObject.put("messageOnly", true);
+				if (AIScope(option))
+					optObject.put("aiScope", true);
+
+				String description = GetDescription(option);
+				if (description != "")
+					optObject.put("description", description);
+
+				String name = LowerFirstLetter(option.name());
+				final String format = GetFormat(option);
+				if (format != "") {
+					optObject.put("format", format);
+					formData.put(name, GetDefault(option));
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", format);
+						}
+					});
 
-					optObject.put("type", GetType(option).toLowerCase());
-					optObject.put("title", GetTitle(option));
+				} else if (arrFields != null) {
+					formData.put(name, new JArray() {
+						{
+							add(new Object());
+						}
+					});
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", "array");
+						}
+					});
 
-					ECategory category = GetCategory(option);
-					if (category != ECategory.Null)
-						optObject.put("category", category.getCategory());
+				} else {
+					formData.put(name, GetDefault(option));
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", "variable");
+						}
+					});
+				}
 
-					Object[] enums = GetEnum(option);
-					if (enums != null) {
-						Object[] enumNames = GetEnumNames(option);
-						optObject.put("enum", enums);
-						optObject.put("enumNames", enumNames);
-					}
+				optProperties.put(name, optObject);
+				uiOrder.add(name);
+			}
 
-					String name = LowerFirstLetter(option.getName());
-					String description = GetDescription(option);
-					if (description != "") {
-						optObject.put("description", description);
-						pUISchema.put(name, new JObject() {
-							{
-								put("ui:field", "input");
-							}
-						});
-					}
+			for (SpecField option : options) {
+				JObject optObject = new JObject();
 
-					final String format = GetFormat(option);
-					if (format != "") {
-						optObject.put("format", format);
-						pUISchema.put(name, new JObject() {
-							{
-								put("ui:field", format);
-							}
-						});
-					}
+				optObject.put("type", option.jsonType().toLowerCase());
+				optObject.put("title", GetTitle(option));
 
-					if (Credential.class.isAssignableFrom(option.getType())) {
-						optObject.put("subtitle", GetTitle(option));
-						optObject.put("customScope", true);
-						optObject.put("messageScope", true);
-						optObject.put("properties", new JObject() {
-							{
-								put("scope", new JObject() {
-									{
-										put("type", "string");
-									}
-								});
-								put("name", new JObject() {
-									{
-										put("type", "object");
-										put("properties", new JObject() {
-											{
-												put("vaultId", new JObject() {
-													{
-														put("type", "string");
-													}
-												});
-												put("itemId", new JObject() {
-													{
-														put("type", "string");
-													}
-												});
-											}
-										});
-									}
-								});
-							}
-						});
-						formData.put(name, new JObject() {
-							{
-								put("scope", "Custom");
-								put("name", new JObject() {
-									{
-										put("vaultId", "_");
-										put("itemId", "_");
-									}
-								});
-							}
-						});
-						pUISchema.put(name, new JObject() {
-							{
-								put("ui:field", "vault");
-							}
-						});
-					}
+				ECategory category = GetCategory(option);
+				if (category != ECategory.Null)
+					optObject.put("category", category.getCategory());
 
-					if (IsHidden(option)) {
-						pUISchema.put(name, new JObject() {
-							{
-								put("ui:widget", "hidden");
-							}
-						});
-					}
+				Object[] enums = GetEnum(option);
+				if (enums != null) {
+					Object[] enumNames = GetEnumNames(option);
+					optObject.put("enum", enums);
+					optObject.put("enumNames", enumNames);
+				}
 
-					optProperties.put(name, optObject);
-					uiOrder.add(name);
+				String name = LowerFirstLetter(option.name());
+				String description = GetDescription(option);
+				if (description != "") {
+					optObject.put("description", description);
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", "input");
+						}
+					});
+				}
 
-					Object def = GetDefault(option);
-					if (def != null)
-						formData.put(name, def);
+				final String format = GetFormat(option);
+				if (format != "") {
+					optObject.put("format", format);
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", format);
+						}
+					});
 				}
 
-				pSchema.put("properties", optProperties);
-				pUISchema.put("ui:order", uiOrder);
+				if (option.kind() == NodeDescriptor.Kind.CREDENTIAL) {
+					optObject.put("subtitle", GetTitle(option));
+					optObject.put("customScope", true);
+					optObject.put("messageScope", true);
+					optObject.put("properties", new JObject() {
+						{
+							put("scope", new JObject() {
+								{
+									put("type", "string");
+								}
+							});
+							put("name", new JObject() {
+								{
+									put("type", "object");
+									put("properties", new JObject() {
+										{
+											put("vaultId", new JObject() {
+												{
+													put("type", "string");
+												}
+											});
+											put("itemId", new JObject() {
+												{
+													put("type", "string");
+												}
+											});
+										}
+									});
+								}
+							});
+						}
+					});
+					formData.put(name, new JObject() {
+						{
+							put("scope", "Custom");
+							put("name", new JObject() {
+								{
+									put("vaultId", "_");
+									put("itemId", "_");
+								}
+							});
+						}
+					});
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:field", "vault");
+						}
+					});
+				}
+
+				if (IsHidden(option)) {
+					pUISchema.put(name, new JObject() {
+						{
+							put("ui:widget", "hidden");
+						}
+					});
+				}
 
-				property.put("schema", pSchema);
-				property.put("uiSchema", pUISchema);
-				property.put("formData", formData);
+				optProperties.put(name, optObject);
+				uiOrder.add(name);
 
-				properties.add(property);
+				Object def = GetDefault(option);
+				if (def != null)
+					formData.put(name, def);
 			}
 
-			node.put("properties", properties);
-			nodes.add(node);
+			pSchema.put("properties", optProperties);
+			pUISchema.put("ui:order", uiOrder);
+
+			property.put("schema", pSchema);
+			property.put("uiSchema", pUISchema);
+			property.put("formData", formData);
+
+			properties.add(property);
 		}
 
-		pspec.put("nodes", nodes);
+		node.put("properties", properties);
+		return node;
+	}
 
-		String json = new ObjectMapper().setSerializationInclusion(Include.NON_NULL)
+	static ObjectMapper SpecMapper() {
+		// Array fields default to [{}], built from a bare Object.
+		return new ObjectMapper().setSerializationInclusion(Include.NON_NULL)
+				.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
 				.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
-				.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true).writeValueAsString(pspec);
+				.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+	}
 
-		System.out.println(json);
+	/**
+	 * Fields of a node, split into the spec's input, output and option sections.
+	 */
+	static final class Sections {
+		final List<SpecField> inputs = new ArrayList<>();
+		final List<SpecField> inputVars = new ArrayList<>();
+		final List<SpecField> outputs = new ArrayList<>();
+		final List<SpecField> outputVars = new ArrayList<>();
+		final List<SpecField> options = new ArrayList<>();
+		final List<SpecField> optionVars = new ArrayList<>();
+	}
+
+	static Sections GetSections(SpecNode c) {
+		Sections s = new Sections();
+		for (SpecField f : c.fields()) {
+			NodeDescriptor.Kind kind = f.kind();
+			// Plain inputs/outputs/options exclude InVariable/OutVariable/OptVariable
+			// (handled by the *Vars lists), but allow other generic types (e.g.
+			// List<>, Map<>) declared with @Input/@Output/@Option.
+			boolean variable = kind == NodeDescriptor.Kind.IN_VARIABLE || kind == NodeDescriptor.Kind.OUT_VARIABLE
+					|| kind == NodeDescriptor.Kind.OPT_VARIABLE || kind == NodeDescriptor.Kind.VARIABLE;
+			if (IsInput(f) && !variable)
+				s.inputs.add(f);
+			if (IsOutput(f) && !variable)
+				s.outputs.add(f);
+			if (IsOption(f) && !variable)
+				s.options.add(f);
+			if (kind == NodeDescriptor.Kind.IN_VARIABLE)
+				s.inputVars.add(f);
+			if (kind == NodeDescriptor.Kind.OUT_VARIABLE)
+				s.outputVars.add(f);
+			if (kind == NodeDescriptor.Kind.OPT_VARIABLE)
+				s.optionVars.add(f);
+		}
+		return s;
 	}
 
 	public static String LowerFirstLetter(String name) {
@@ -704,6 +753,10 @@ public class Spec {
 	}
 
 	public static String GetTitle(Class<?> c) {
+		return GetTitle(SpecModel.of(c));
+	}
+
+	static String GetTitle(SpecNode c) {
 		// Check combined annotation first
 		NodeDef nodeDef = c.getAnnotation(NodeDef.class);
 		if (nodeDef != null) {
@@ -711,10 +764,14 @@ public class Spec {
 		}
 		// Fall back to legacy annotation
 		NodeAnnotations.Title annotation = c.getAnnotation(NodeAnnotations.Title.class);
-		return annotation == null ? c.getName() : annotation.title();
+		return annotation == null ? c.className() : annotation.title();
 	}
 
 	public static String GetColor(Class<?> c) {
+		return GetColor(SpecModel.of(c));
+	}
+
+	static String GetColor(SpecNode c) {
 		// Check combined annotation first
 		NodeDef nodeDef = c.getAnnotation(NodeDef.class);
 		if (nodeDef != null) {
@@ -726,17 +783,25 @@ public class Spec {
 	}
 
 	public static String GetIcon(Class<?> c) {
+		return GetIcon(SpecModel.of(c));
+	}
+
+	static String GetIcon(SpecNode c) {
 		// Check combined annotation first
 		NodeDef nodeDef = c.getAnnotation(NodeDef.class);
 		if (nodeDef != null) {
-			return nodeDef.icon();
+			return IconIndex.resolve(nodeDef.icon());
 		}
 		// Fall back to legacy annotation
 		NodeAnnotations.Icon annotation = c.getAnnotation(NodeAnnotations.Icon.class);
-		return annotation == null ? "" : annotation.icon();
+		return annotation == null ? "" : IconIndex.resolve(annotation.icon());
 	}
 
 	public static String GetEditor(Class<?> c) {
+		return GetEditor(SpecModel.of(c));
+	}
+
+	static String GetEditor(SpecNode c) {
 		// Check combined annotation first
 		NodeDef nodeDef = c.getAnnotation(NodeDef.class);
 		if (nodeDef != null) {
@@ -748,6 +813,10 @@ public class Spec {
 	}
 
 	public static String GetNamespace(Class<?> c) {
+		return GetNamespace(SpecModel.of(c));
+	}
+
+	static String GetNamespace(SpecNode c) {
 		// Check combined annotation first
 		NodeDef nodeDef = c.getAnnotation(NodeDef.class);
 		if (nodeDef != null) {
@@ -759,6 +828,10 @@ public class Spec {
 	}
 
 	public static int GetInputCount(Class<?> c) {
+		return GetInputCount(SpecModel.of(c));
+	}
+
+	static int GetInputCount(SpecNode c) {
 		// Check combined annotation first
 		NodeDef nodeDef = c.getAnnotation(NodeDef.class);
 		if (nodeDef != null) {
@@ -770,6 +843,10 @@ public class Spec {
 	}
 
 	public static int GetOutputCount(Class<?> c) {
+		return GetOutputCount(SpecModel.of(c));
+	}
+
+	static int GetOutputCount(SpecNode c) {
 		// Check combined annotation first
 		NodeDef nodeDef = c.getAnnotation(NodeDef.class);
 		if (nodeDef != null) {
@@ -781,117 +858,30 @@ public class Spec {
 	}
 
 	public static List<Field> GetInputs(Class<?> c) {
-		List<Field> fields = new ArrayList<Field>();
-		Field[] all = c.getFields();
-
-		for (Field f : all) {
-			if (!IsInput(f)) continue;
-			// Exclude InVariable/OutVariable/OptVariable (handled by GetInputVars),
-			// but allow other generic types (e.g. List<>, Map<>) declared with @Input.
-			java.lang.reflect.Type t = f.getGenericType();
-			if (t instanceof ParameterizedType) {
-				Class<?> raw = (Class<?>) ((ParameterizedType) t).getRawType();
-				if (Variable.class.isAssignableFrom(raw)) continue;
-			}
-			fields.add(f);
-		}
-
-		return fields;
+		return new ArrayList<Field>(NodeDescriptor.of(c).inputs);
 	}
 
 	public static List<Field> GetInputVars(Class<?> c) {
-		List<Field> fields = new ArrayList<Field>();
-		Field[] all = c.getFields();
-
-		for (Field f : all) {
-			java.lang.reflect.Type t = f.getGenericType();
-			if (t instanceof ParameterizedType) {
-				ParameterizedType pT = (ParameterizedType) t;
-				java.lang.reflect.Type[] genericArgs = pT.getActualTypeArguments();
-				if (genericArgs.length > 0 && InVariable.class.isAssignableFrom((Class<?>) pT.getRawType())) {
-					fields.add(f);
-				}
-			}
-		}
-
-		return fields;
+		return new ArrayList<Field>(NodeDescriptor.of(c).inputVars);
 	}
 
 	public static List<Field> GetOutputs(Class<?> c) {
-		List<Field> fields = new ArrayList<Field>();
-		Field[] all = c.getFields();
-
-		for (Field f : all) {
-			if (!IsOutput(f)) continue;
-			// Exclude InVariable/OutVariable/OptVariable (handled by GetOutputVars),
-			// but allow other generic types (e.g. List<>, Map<>) declared with @Output.
-			java.lang.reflect.Type t = f.getGenericType();
-			if (t instanceof ParameterizedType) {
-				Class<?> raw = (Class<?>) ((ParameterizedType) t).getRawType();
-				if (Variable.class.isAssignableFrom(raw)) continue;
-			}
-			fields.add(f);
-		}
-
-		return fields;
+		return new ArrayList<Field>(NodeDescriptor.of(c).outputs);
 	}
 
 	public static List<Field> GetOutputVars(Class<?> c) {
-		List<Field> fields = new ArrayList<Field>();
-		Field[] all = c.getFields();
-
-		for (Field f : all) {
-			java.lang.reflect.Type t = f.getGenericType();
-			if (t instanceof ParameterizedType) {
-				ParameterizedType pT = (ParameterizedType) t;
-				java.lang.reflect.Type[] genericArgs = pT.getActualTypeArguments();
-				if (genericArgs.length > 0 && OutVariable.class.isAssignableFrom((Class<?>) pT.getRawType())) {
-					fields.add(f);
-				}
-			}
-		}
-
-		return fields;
+		return new ArrayList<Field>(NodeDescriptor.of(c).outputVars);
 	}
 
 	public static List<Field> GetOptions(Class<?> c) {
-		List<Field> fields = new ArrayList<Field>();
-		Field[] all = c.getFields();
-
-		for (Field f : all) {
-			if (!IsOption(f)) continue;
-			// Exclude InVariable/OutVariable/OptVariable (handled by GetOptionVars),
-			// but allow other generic types (e.g. List<>, Map<>) declared with @Option.
-			java.lang.reflect.Type t = f.getGenericType();
-			if (t instanceof ParameterizedType) {
-				Class<?> raw = (Class<?>) ((ParameterizedType) t).getRawType();
-				if (Variable.class.isAssignableFrom(raw)) continue;
-			}
-			fields.add(f);
-		}
-
-		return fields;
+		return new ArrayList<Field>(NodeDescriptor.of(c).options);
 	}
 
 	public static List<Field> GetOptionVars(Class<?> c) {
-		List<Field> fields = new ArrayList<Field>();
-		Field[] all = c.getFields();
-
-		for (Field f : all) {
-			java.lang.reflect.Type t = f.getGenericType();
-			if (t instanceof ParameterizedType) {
-				ParameterizedType pT = (ParameterizedType) t;
-				java.lang.reflect.Type[] genericArgs = pT.getActualTypeArguments();
-				if (genericArgs.length > 0 && OptVariable.class.isAssignableFrom((Class<?>) pT.getRawType())) {
-					fields.add(f);
-				}
-			}
-		}
-
-		return fields;
+		return new ArrayList<Field>(NodeDescriptor.of(c).optionVars);
 	}
 
-	public static String GetTitle(Field f) {
+	public static String GetTitle(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null && !var.title().isEmpty()) {
@@ -902,7 +892,7 @@ public class Spec {
 		return annotation == null ? "" : annotation.title();
 	}
 
-	public static String GetDescription(Field f) {
+	public static String GetDescription(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null && !var.description().isEmpty()) {
@@ -913,7 +903,7 @@ public class Spec {
 		return annotation == null ? "" : annotation.description();
 	}
 
-	public static String GetFormat(Field f) {
+	public static String GetFormat(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null && !var.format().isEmpty()) {
@@ -924,7 +914,7 @@ public class Spec {
 		return annotation == null ? "" : annotation.format();
 	}
 
-	public static boolean IsInput(Field f) {
+	public static boolean IsInput(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null) {
@@ -935,7 +925,7 @@ public class Spec {
 		return annotation == null ? false : annotation.input();
 	}
 
-	public static boolean IsOutput(Field f) {
+	public static boolean IsOutput(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null) {
@@ -946,7 +936,7 @@ public class Spec {
 		return annotation == null ? false : annotation.output();
 	}
 
-	public static boolean IsOption(Field f) {
+	public static boolean IsOption(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null) {
@@ -957,7 +947,7 @@ public class Spec {
 		return annotation == null ? false : annotation.option();
 	}
 
-	public static boolean CustomScope(Field f) {
+	public static boolean CustomScope(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null) {
@@ -968,7 +958,7 @@ public class Spec {
 		return annotation == null ? false : annotation.customScope();
 	}
 
-	public static boolean MessageScope(Field f) {
+	public static boolean MessageScope(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null) {
@@ -979,7 +969,7 @@ public class Spec {
 		return annotation == null ? false : annotation.messageScope();
 	}
 
-	public static boolean JsScope(Field f) {
+	public static boolean JsScope(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null) {
@@ -990,7 +980,7 @@ public class Spec {
 		return annotation == null ? false : annotation.jsScope();
 	}
 
-	public static boolean MessageOnly(Field f) {
+	public static boolean MessageOnly(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null) {
@@ -1001,7 +991,7 @@ public class Spec {
 		return annotation == null ? false : annotation.messageOnly();
 	}
 
-	public static boolean IsHidden(Field f) {
+	public static boolean IsHidden(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null) {
@@ -1013,18 +1003,23 @@ public class Spec {
 	}
 
 	public static Object GetDefault(Field f) {
+		return GetDefault(SpecModel.of(f));
+	}
+
+	static Object GetDefault(SpecField f) {
 		FieldAnnotations.Default annotation = f.getAnnotation(FieldAnnotations.Default.class);
 		if (annotation == null)
 			return null;
 
-		try {
-			String valJson = annotation.value();
-			if (valJson.compareTo("") != 0) {
+		String valJson = annotation.value();
+		if (valJson.compareTo("") != 0) {
+			Class<?> cls = f.defaultClass(annotation);
+			try {
 				Gson g = new Gson();
-				Object value = g.fromJson(valJson, annotation.cls());
+				Object value = g.fromJson(valJson, cls);
 				return value;
+			} catch (Exception e) {
 			}
-		} catch (Exception e) {
 		}
 
 		final String scope = annotation.scope();
@@ -1042,12 +1037,12 @@ public class Spec {
 		return null;
 	}
 
-	public static ECategory GetCategory(Field f) {
+	public static ECategory GetCategory(AnnotatedElement f) {
 		FieldAnnotations.Category annotation = f.getAnnotation(FieldAnnotations.Category.class);
 		return annotation == null ? ECategory.Null : annotation.category();
 	}
 
-	public static Object[] GetEnum(Field f) {
+	public static Object[] GetEnum(AnnotatedElement f) {
 		FieldAnnotations.Enum annotation = f.getAnnotation(FieldAnnotations.Enum.class);
 		if (annotation == null)
 			return null;
@@ -1060,7 +1055,7 @@ public class Spec {
 		return enumeration.toArray();
 	}
 
-	public static Object[] GetEnumNames(Field f) {
+	public static Object[] GetEnumNames(AnnotatedElement f) {
 		FieldAnnotations.Enum annotation = f.getAnnotation(FieldAnnotations.Enum.class);
 		if (annotation == null)
 			return null;
@@ -1073,12 +1068,12 @@ public class Spec {
 		return enumeration.toArray();
 	}
 
-	public static String[] GetArrayFields(Field f) {
+	public static String[] GetArrayFields(AnnotatedElement f) {
 		FieldAnnotations.ArrayFields annotation = f.getAnnotation(FieldAnnotations.ArrayFields.class);
 		return annotation == null ? null : annotation.arrayFields().split("|");
 	}
 
-	public static boolean AIScope(Field f) {
+	public static boolean AIScope(AnnotatedElement f) {
 		// Check combined annotation first
 		Var var = f.getAnnotation(Var.class);
 		if (var != null) {
@@ -1093,30 +1088,34 @@ public class Spec {
 	 * Gets Tool info from a node class if it has a Tool field with @ToolInfo annotation.
 	 */
 	public static JObject GetToolInfo(Class<?> c) {
-		Field[] all = c.getFields();
-
-		for (Field f : all) {
-			if (Tool.class.isAssignableFrom(f.getType())) {
-				Tool.ToolInfo annotation = f.getAnnotation(Tool.ToolInfo.class);
-				if (annotation != null) {
-					String toolName = annotation.name();
-					String toolDescription = annotation.description();
-
-					if (toolName != null && !toolName.isEmpty()) {
-						JObject toolInfo = new JObject();
-						toolInfo.put("name", toolName);
-						if (toolDescription != null && !toolDescription.isEmpty()) {
-							toolInfo.put("description", toolDescription);
-						}
-						return toolInfo;
-					}
-				}
-			}
-		}
+		NodeDescriptor d = NodeDescriptor.of(c);
+		return ToolInfo(d.toolName, d.toolDescription);
+	}
 
+	static JObject GetToolInfo(SpecNode c) {
+		for (SpecField f : c.fields()) {
+			if (f.kind() != NodeDescriptor.Kind.TOOL)
+				continue;
+			Tool.ToolInfo info = f.getAnnotation(Tool.ToolInfo.class);
+			if (info != null && !info.name().isEmpty())
+				return ToolInfo(info.name(), info.description());
+		}
 		return null;
 	}
 
+	private static JObject ToolInfo(String name, String description) {
+		if (name == null) {
+			return null;
+		}
+
+		JObject toolInfo = new JObject();
+		toolInfo.put("name", name);
+		if (description != null && !description.isEmpty()) {
+			toolInfo.put("description", description);
+		}
+		return toolInfo;
+	}
+
 	private static String ToSnakeCase(String text) {
 		return CaseUtils.toCamelCase(text, false, ' ')
 				.replaceAll("([a-z])([A-Z]+)", "$1_$2").toLowerCase();
@@ -0,0 +1,178 @@
+package com.robomotion.app;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SpecModel is the view of a node class that spec generation works from.
+ * At run time it is backed by reflection ({@link #of(Class)}); at compile
+ * time {@link NodeProcessor} backs it with javax.lang.model elements, so
+ * both paths produce the same spec from the same code in {@link Spec}.
+ */
+final class SpecModel {
+
+    private SpecModel() {
+    }
+
+    /** A node class. */
+    interface SpecNode extends AnnotatedElement {
+        /** Binary class name (the title when none is annotated). */
+        String className();
+
+        /** Public fields, in Class.getFields() order. */
+        List<SpecField> fields();
+    }
+
+    /** A public field of a node class. */
+    interface SpecField extends AnnotatedElement {
+        String name();
+
+        /** The field's type as Class.toString() renders it ("class java.lang.String", "int"). */
+        String typeString();
+
+        /** The first type argument as Type.toString() renders it; null if not parameterized. */
+        String typeArgument();
+
+        /** "string", "boolean", "number" or "object" (see {@link Spec#GetType}). */
+        String jsonType();
+
+        NodeDescriptor.Kind kind();
+
+        /**
+         * The class named by the field's @Default(cls = ...). Throws
+         * IllegalStateException if it cannot be loaded.
+         */
+        Class<?> defaultClass(FieldAnnotations.Default d);
+    }
+
+    static SpecNode of(Class<?> c) {
+        return new ClassNode(c);
+    }
+
+    static SpecField of(Field f) {
+        return new ReflectField(f);
+    }
+
+    /** Kind of a field from its (generic) type, the way NodeDescriptor classifies it. */
+    static NodeDescriptor.Kind kindOf(Field f) {
+        java.lang.reflect.Type t = f.getGenericType();
+        if (t instanceof ParameterizedType pT) {
+            Class<?> raw = (Class<?>) pT.getRawType();
+            if (Runtime.InVariable.class.isAssignableFrom(raw)) return NodeDescriptor.Kind.IN_VARIABLE;
+            if (Runtime.OutVariable.class.isAssignableFrom(raw)) return NodeDescriptor.Kind.OUT_VARIABLE;
+            if (Runtime.OptVariable.class.isAssignableFrom(raw)) return NodeDescriptor.Kind.OPT_VARIABLE;
+            if (Runtime.Variable.class.isAssignableFrom(raw)) return NodeDescriptor.Kind.VARIABLE;
+            return NodeDescriptor.Kind.GENERIC;
+        }
+        if (Runtime.Credential.class.isAssignableFrom(f.getType())) return NodeDescriptor.Kind.CREDENTIAL;
+        if (Tool.class.isAssignableFrom(f.getType())) return NodeDescriptor.Kind.TOOL;
+        return NodeDescriptor.Kind.PLAIN;
+    }
+
+    private static final class ClassNode implements SpecNode {
+        private final Class<?> c;
+        private List<SpecField> fields;
+
+        ClassNode(Class<?> c) {
+            this.c = c;
+        }
+
+        @Override
+        public String className() {
+            return c.getName();
+        }
+
+        @Override
+        public List<SpecField> fields() {
+            if (fields == null) {
+                List<SpecField> l = new ArrayList<>();
+                for (Field f : c.getFields()) {
+                    l.add(new ReflectField(f));
+                }
+                fields = l;
+            }
+            return fields;
+        }
+
+        @Override
+        public <A extends Annotation> A getAnnotation(Class<A> type) {
+            return c.getAnnotation(type);
+        }
+
+        @Override
+        public Annotation[] getAnnotations() {
+            return c.getAnnotations();
+        }
+
+        @Override
+        public Annotation[] getDeclaredAnnotations() {
+            return c.getDeclaredAnnotations();
+        }
+    }
+
+    static final class ReflectField implements SpecField {
+        final Field f;
+
+        ReflectField(Field f) {
+            this.f = f;
+        }
+
+        @Override
+        public String name() {
+            return f.getName();
+        }
+
+        @Override
+        public String typeString() {
+            return f.getType().toString();
+        }
+
+        @Override
+        public String typeArgument() {
+            java.lang.reflect.Type t = f.getGenericType();
+            if (t instanceof ParameterizedType pT && pT.getActualTypeArguments().length > 0) {
+                return pT.getActualTypeArguments()[0].toString();
+            }
+            return null;
+        }
+
+        @Override
+        public String jsonType() {
+            Class<?> t = f.getType();
+            if (t == String.class) return "string";
+            if (t == boolean.class) return "boolean";
+            if (t == byte.class || t == short.class || t == int.class || t == long.class
+                    || t == double.class || t == float.class) return "number";
+            return "object";
+        }
+
+        @Override
+        public NodeDescriptor.Kind kind() {
+            return kindOf(f);
+        }
+
+        @Override
+        public Class<?> defaultClass(FieldAnnotations.Default d) {
+            return d.cls();
+        }
+
+        @Override
+        public <A extends Annotation> A getAnnotation(Class<A> type) {
+            return f.getAnnotation(type);
+        }
+
+        @Override
+        public Annotation[] getAnnotations() {
+            return f.getAnnotations();
+        }
+
+        @Override
+        public Annotation[] getDeclaredAnnotations() {
+            return f.getDeclaredAnnotations();
+        }
+    }
+}
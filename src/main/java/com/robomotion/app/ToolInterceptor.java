@@ -1,7 +1,7 @@
 package com.robomotion.app;
 
-import java.lang.reflect.Field;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -12,7 +12,7 @@ import java.util.Map;
 public class ToolInterceptor {
 
     private final Node originalNode;
-    private final Class<?> nodeType;
+    private final NodeDescriptor descriptor;
     private final boolean hasTool;
 
     /**
@@ -22,20 +22,8 @@ public class ToolInterceptor {
      */
     public ToolInterceptor(Node node) {
         this.originalNode = node;
-        this.nodeType = node.getClass();
-        this.hasTool = hasToolField(nodeType);
-    }
-
-    /**
-     * Checks if a node class has a Tool field.
-     */
-    private static boolean hasToolField(Class<?> nodeType) {
-        for (Field field : nodeType.getDeclaredFields()) {
-            if (field.getType() == Tool.class) {
-                return true;
-            }
-        }
-        return false;
+        this.descriptor = NodeDescriptor.of(node.getClass());
+        this.hasTool = descriptor.hasTool;
     }
 
     /**
@@ -90,33 +78,31 @@ public class ToolInterceptor {
     /**
      * Collects output variables from the node.
      */
-    private Map<String, Object> collectOutputVariables(Context ctx) {
+    Map<String, Object> collectOutputVariables(Context ctx) {
         Map<String, Object> outputData = new HashMap<>();
 
-        // Use reflection to find OutVariable fields and collect their values
-        for (Field field : nodeType.getDeclaredFields()) {
-            String typeName = field.getType().getName();
-
-            // Check if this is an OutVariable field
-            if (typeName.contains("OutVariable")) {
-                try {
-                    field.setAccessible(true);
-                    Object outVar = field.get(originalNode);
-
-                    if (outVar instanceof Runtime.OutVariable) {
-                        Runtime.OutVariable<?> variable = (Runtime.OutVariable<?>) outVar;
-
-                        // Get the value from context if it's a Message scope variable
-                        if ("Message".equals(variable.scope)) {
-                            String varName = variable.getNameString();
-                            Object value = ctx.get(varName);
-                            if (value != null) {
-                                outputData.put(varName, value);
+        // Collect the values of OutVariable fields, public or declared private
+        for (List<NodeDescriptor.FieldInfo> fields : List.of(descriptor.fields, descriptor.nonPublicFields)) {
+            for (NodeDescriptor.FieldInfo field : fields) {
+                if (field.kind == NodeDescriptor.Kind.OUT_VARIABLE) {
+                    try {
+                        Object outVar = field.get(originalNode);
+
+                        if (outVar instanceof Runtime.OutVariable) {
+                            Runtime.OutVariable<?> variable = (Runtime.OutVariable<?>) outVar;
+
+                            // Get the value from context if it's a Message scope variable
+                            if ("Message".equals(variable.scope)) {
+                                String varName = variable.getNameString();
+                                Object value = ctx.get(varName);
+                                if (value != null) {
+                                    outputData.put(varName, value);
+                                }
                             }
                         }
+                    } catch (Exception e) {
+                        // Continue to next field
                     }
-                } catch (Exception e) {
-                    // Continue to next field
                 }
             }
         }
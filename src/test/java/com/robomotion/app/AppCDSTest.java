@@ -0,0 +1,28 @@
+package com.robomotion.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppCDSTest {
+
+    @Test
+    void launchCommandCarriesOptions() {
+        List<String> opts = AppCDS.jvmOptions(Path.of("/tmp/plugin.jsa"));
+        assertEquals("-XX:SharedArchiveFile=/tmp/plugin.jsa", opts.get(0));
+        assertTrue(opts.contains("-Xshare:auto"));
+
+        List<String> cmd = CLISession.launchCommand(opts);
+        assertEquals(opts, cmd.subList(1, 1 + opts.size()));
+        assertEquals(CLISession.launchCommand(List.of()).size() + opts.size(), cmd.size());
+    }
+
+    @Test
+    void medianInMillis() {
+        assertEquals(2.0, AppCDS.median(new long[] { 3_000_000, 1_000_000, 2_000_000 }));
+        assertEquals(2.5, AppCDS.median(new long[] { 4_000_000, 1_000_000, 3_000_000, 2_000_000 }));
+    }
+}
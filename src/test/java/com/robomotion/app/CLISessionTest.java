@@ -0,0 +1,502 @@
+package com.robomotion.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CLISessionTest {
+
+    /** Records OnClose calls. */
+    static class TrackedNode extends Node {
+        final List<String> closed;
+
+        TrackedNode(String guid, List<String> closed) {
+            this.guid = guid;
+            this.closed = closed;
+        }
+
+        @Override
+        public void OnClose() {
+            closed.add(guid);
+        }
+    }
+
+    private final List<String> closed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Runtime.Nodes().clear();
+        Runtime.activeNodes = 0;
+    }
+
+    @AfterEach
+    void tearDown() {
+        Runtime.Nodes().clear();
+        Runtime.activeNodes = 0;
+    }
+
+    /** Creates an instance for key as a call would, and returns it to the pool. */
+    private void create(CLINodePool pool, String key, String guid) {
+        Runtime.AddNode(guid, new TrackedNode(guid, closed));
+        Runtime.activeNodes++;
+        pool.add(key, guid);
+        pool.release(guid, true);
+    }
+
+    // -----------------------------------------------------------------------
+    // Warm node pool
+    // -----------------------------------------------------------------------
+
+    @Nested
+    class NodePool {
+
+        @Test
+        void reusesWarmInstance() {
+            CLINodePool pool = new CLINodePool(4, 60_000, 60_000);
+            assertFalse(pool.acquire("cmd-a", "cmd-a.1"));
+            create(pool, "cmd-a", "cmd-a.1");
+            assertTrue(pool.acquire("cmd-a", "cmd-a.2"));
+            assertSame(Runtime.Nodes().get("cmd-a.1"), Runtime.Nodes().get("cmd-a.2"));
+
+            pool.release("cmd-a.2", true);
+            assertFalse(Runtime.Nodes().containsKey("cmd-a.2"));
+            assertTrue(Runtime.Nodes().containsKey("cmd-a.1"));
+            assertTrue(closed.isEmpty());
+        }
+
+        @Test
+        void checkoutIsExclusive() {
+            CLINodePool pool = new CLINodePool(4, 60_000, 60_000);
+            create(pool, "k", "k.1");
+            assertTrue(pool.acquire("k", "k.2"));
+            // A concurrent identical call gets its own instance.
+            assertFalse(pool.acquire("k", "k.3"));
+            Runtime.AddNode("k.3", new TrackedNode("k.3", closed));
+            pool.add("k", "k.3");
+            assertEquals(2, pool.size());
+
+            pool.release("k.2", true);
+            pool.release("k.3", true);
+            assertTrue(pool.acquire("k", "k.4"));
+            assertTrue(pool.acquire("k", "k.5"));
+            assertFalse(pool.acquire("k", "k.6"));
+        }
+
+        @Test
+        void evictsLeastRecentlyUsed() {
+            CLINodePool pool = new CLINodePool(2, 60_000, 60_000);
+            create(pool, "a", "a.1");
+            create(pool, "b", "b.1");
+            pool.acquire("a", "a.2");
+            pool.release("a.2", true);
+            create(pool, "c", "c.1");
+
+            assertEquals(List.of("b.1"), closed);
+            assertEquals(2, pool.size());
+            assertFalse(Runtime.Nodes().containsKey("b.1"));
+            assertEquals(2, Runtime.activeNodes);
+        }
+
+        @Test
+        void closesIdleInstances() {
+            CLINodePool pool = new CLINodePool(4, 1000, 60_000);
+            create(pool, "idle", "idle.1");
+            pool.sweep(System.currentTimeMillis() + 500);
+            assertTrue(closed.isEmpty());
+            pool.sweep(System.currentTimeMillis() + 2000);
+            assertEquals(List.of("idle.1"), closed);
+            assertFalse(pool.acquire("idle", "idle.2"));
+        }
+
+        @Test
+        void abandonedCheckoutsExpire() {
+            CLINodePool pool = new CLINodePool(4, 60_000, 1000);
+            create(pool, "k", "k.1");
+            // Checked out by OnCreate, but the client never sends the message.
+            assertTrue(pool.acquire("k", "k.2"));
+            Runtime.AddNode("n.1", new TrackedNode("n.1", closed));
+            Runtime.activeNodes++;
+            pool.add("n", "n.1");
+            // A call whose message is running keeps its instance.
+            create(pool, "r", "r.1");
+            assertTrue(pool.acquire("r", "r.2"));
+            pool.begin("r.2");
+
+            pool.sweep(System.currentTimeMillis() + 500);
+            assertTrue(closed.isEmpty());
+            pool.sweep(System.currentTimeMillis() + 2000);
+            assertEquals(List.of("k.1", "n.1"), closed);
+            assertFalse(Runtime.Nodes().containsKey("k.2"));
+            assertEquals(1, pool.size());
+            assertEquals(1, Runtime.activeNodes);
+
+            pool.release("r.2", true);
+            assertTrue(pool.acquire("r", "r.3"));
+        }
+
+        @Test
+        void failedInstanceIsClosed() {
+            CLINodePool pool = new CLINodePool(4, 60_000, 60_000);
+            Runtime.AddNode("f.1", new TrackedNode("f.1", closed));
+            Runtime.activeNodes++;
+            pool.add("f", "f.1");
+            pool.release("f.1", false);
+            assertEquals(List.of("f.1"), closed);
+            assertEquals(0, pool.size());
+        }
+
+        @Test
+        void closesByPoolKey() {
+            CLINodePool pool = new CLINodePool(4, 60_000, 60_000);
+            create(pool, "k", "k.1");
+            pool.acquire("k", "k.2");
+            assertTrue(pool.close("k"));
+            assertEquals(List.of("k.1"), closed);
+            assertFalse(Runtime.Nodes().containsKey("k.2"));
+            assertFalse(pool.close("k"));
+        }
+
+        @Test
+        void forgetsNodesRemovedElsewhere() {
+            CLINodePool pool = new CLINodePool(4, 60_000, 60_000);
+            create(pool, "gone", "gone.1");
+            Runtime.Nodes().remove("gone.1");
+            assertFalse(pool.acquire("gone", "gone.2"));
+            assertEquals(0, pool.size());
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Pool keys
+    // -----------------------------------------------------------------------
+
+    @Nested
+    class PoolKeys {
+
+        @Test
+        void sameConfigSameGuid() {
+            byte[] cfg = "{\"guid\":\"\",\"name\":\"x\",\"optA\":1}".getBytes(StandardCharsets.UTF_8);
+            String g1 = CLISession.pooledGuid("fetch", cfg);
+            assertEquals(g1, CLISession.pooledGuid("fetch", cfg.clone()));
+            assertTrue(g1.startsWith("fetch-"));
+            assertEquals("fetch-".length() + 16, g1.length());
+        }
+
+        @Test
+        void differentConfigDifferentGuid() {
+            byte[] a = "{\"optA\":1}".getBytes(StandardCharsets.UTF_8);
+            byte[] b = "{\"optA\":2}".getBytes(StandardCharsets.UTF_8);
+            assertNotEquals(CLISession.pooledGuid("fetch", a), CLISession.pooledGuid("fetch", b));
+        }
+
+        @Test
+        void callGuidsAreUniquePerCall() {
+            String key = CLISession.pooledGuid("fetch", "{}".getBytes(StandardCharsets.UTF_8));
+            String g1 = CLISession.callGuid(key);
+            assertNotEquals(g1, CLISession.callGuid(key));
+            assertEquals(key, CLISession.poolKey(g1));
+            assertNull(CLISession.poolKey("plain"));
+        }
+
+        @Test
+        void readsGuidFromConfig() {
+            assertEquals("cmd-1", CLISession.configGuid("{\"guid\":\"cmd-1\"}".getBytes(StandardCharsets.UTF_8)));
+            assertNull(CLISession.configGuid("{\"guid\":\"\"}".getBytes(StandardCharsets.UTF_8)));
+            assertNull(CLISession.configGuid("not json".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Spare daemons
+    // -----------------------------------------------------------------------
+
+    @Nested
+    class Spares {
+
+        @TempDir
+        Path dir;
+
+        private CLISparePool.Claim claim(String sessionID) {
+            CLISparePool.Claim c = new CLISparePool.Claim();
+            c.session_id = sessionID;
+            c.timeout_ms = 1234;
+            c.fromCurrentProcess();
+            return c;
+        }
+
+        @Test
+        void spareIsClaimedOnce() throws Exception {
+            CLISparePool.register(dir, "s1");
+            assertEquals(1, CLISparePool.count(dir));
+
+            CLISparePool.Claimed won = CLISparePool.claim(dir, claim("sess-a"));
+            assertNotNull(won);
+            assertEquals("s1", won.id);
+            assertEquals(ProcessHandle.current().pid(), won.pid);
+            assertNull(CLISparePool.claim(dir, claim("sess-b")));
+
+            CLISparePool.Claim got = CLISparePool.await(dir, "s1", 1000);
+            assertNotNull(got);
+            assertEquals("sess-a", got.session_id);
+            assertEquals(1234, got.timeout_ms);
+            assertEquals(0, CLISparePool.count(dir));
+        }
+
+        @Test
+        void staleSparesAreRemoved() throws Exception {
+            Files.writeString(dir.resolve("dead" + CLISparePool.SPARE), String.valueOf(Long.MAX_VALUE));
+            assertEquals(0, CLISparePool.count(dir));
+            assertFalse(Files.exists(dir.resolve("dead" + CLISparePool.SPARE)));
+            assertNull(CLISparePool.claim(dir, claim("sess")));
+        }
+
+        @Test
+        void otherDirectoryOrEnvironmentIsNotClaimed() throws Exception {
+            CLISparePool.register(dir, "s3");
+
+            CLISparePool.Claim otherDir = claim("sess");
+            otherDir.work_dir = "/elsewhere";
+            assertNull(CLISparePool.claim(dir, otherDir));
+
+            CLISparePool.Claim otherEnv = claim("sess");
+            otherEnv.env_hash = "sha256:other";
+            assertNull(CLISparePool.claim(dir, otherEnv));
+            assertFalse(otherEnv.matchesCurrentProcess());
+
+            assertNotNull(CLISparePool.claim(dir, claim("sess")));
+        }
+
+        @Test
+        void abandonedSpareIsKilled() throws Exception {
+            Process proc = new ProcessBuilder("sleep", "30").start();
+            try {
+                Files.writeString(dir.resolve("s4" + CLISparePool.SPARE), proc.pid() + "\n"
+                        + CLISparePool.workDir() + "\n" + CLISparePool.envHash() + "\n");
+                CLISparePool.Claimed spare = CLISparePool.claim(dir, claim("sess"));
+                assertNotNull(spare);
+
+                CLISparePool.abandon(dir, spare);
+                assertTrue(proc.waitFor(5, java.util.concurrent.TimeUnit.SECONDS));
+                assertFalse(Files.exists(dir.resolve("s4" + CLISparePool.CLAIMED)));
+                assertFalse(Files.exists(dir.resolve("s4" + CLISparePool.CLAIM)));
+            } finally {
+                proc.destroyForcibly();
+            }
+        }
+
+        @Test
+        void startingSparesAreCounted() throws Exception {
+            Files.write(dir.resolve("s5" + CLISparePool.STARTING), new byte[0]);
+            assertEquals(1, CLISparePool.count(dir));
+
+            CLISparePool.register(dir, "s5");
+            assertFalse(Files.exists(dir.resolve("s5" + CLISparePool.STARTING)));
+            assertEquals(1, CLISparePool.count(dir));
+
+            Path stale = dir.resolve("s6" + CLISparePool.STARTING);
+            Files.write(stale, new byte[0]);
+            Files.setLastModifiedTime(stale, java.nio.file.attribute.FileTime.fromMillis(0));
+            assertEquals(1, CLISparePool.count(dir));
+            assertFalse(Files.exists(stale));
+        }
+
+        @Test
+        void unclaimedSpareExpires() throws Exception {
+            CLISparePool.register(dir, "s2");
+            assertNull(CLISparePool.await(dir, "s2", 50));
+            assertFalse(Files.exists(dir.resolve("s2" + CLISparePool.SPARE)));
+            assertNull(CLISparePool.claim(dir, claim("late")));
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Readiness handshake
+    // -----------------------------------------------------------------------
+
+    @Nested
+    class Handshake {
+
+        private java.io.InputStream out(String s) {
+            return new java.io.ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void readsAddress() {
+            assertEquals("127.0.0.1:4711", CLISession.readHandshake(out("1|1|tcp|127.0.0.1:4711|grpc\n"), 1000));
+        }
+
+        @Test
+        void skipsOtherOutput() {
+            assertEquals("127.0.0.1:9", CLISession.readHandshake(out("loading\n1|1|tcp|127.0.0.1:9|grpc\n"), 1000));
+        }
+
+        @Test
+        void nullWhenDaemonExitsWithoutHandshake() {
+            assertNull(CLISession.readHandshake(out("{\"error\":\"init\"}\n"), 1000));
+        }
+
+        @Test
+        void nullOnTimeout() throws Exception {
+            try (java.io.PipedOutputStream w = new java.io.PipedOutputStream();
+                 java.io.PipedInputStream r = new java.io.PipedInputStream(w)) {
+                assertNull(CLISession.readHandshake(r, 50));
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Batch mode
+    // -----------------------------------------------------------------------
+
+    /** Doubles "n" after an optional delay; counts OnCreate/OnClose. */
+    public static class DoubleNode extends Node {
+        static final java.util.concurrent.atomic.AtomicInteger creates = new java.util.concurrent.atomic.AtomicInteger();
+        static final java.util.concurrent.atomic.AtomicInteger closes = new java.util.concurrent.atomic.AtomicInteger();
+
+        public Runtime.OutVariable<Object> outResult = new Runtime.OutVariable<>("Message", "result");
+
+        @Override
+        public void OnCreate() {
+            creates.incrementAndGet();
+        }
+
+        @Override
+        public void OnMessage(Context ctx) throws Exception {
+            Thread.sleep(ctx.getInt("delay"));
+            if (ctx.getInt("n") < 0) {
+                throw new Exception("negative");
+            }
+            ctx.set("result", ctx.getInt("n") * 2);
+        }
+
+        @Override
+        public void OnClose() {
+            closes.incrementAndGet();
+        }
+    }
+
+    @Nested
+    class Batch {
+
+        private final java.io.ByteArrayOutputStream buf = new java.io.ByteArrayOutputStream();
+
+        @BeforeEach
+        void reset() {
+            DoubleNode.creates.set(0);
+            DoubleNode.closes.set(0);
+        }
+
+        private int run(int parallel, boolean inputOrder, String... lines) throws Exception {
+            java.util.Map<String, CLI.CommandEntry> commands = java.util.Map.of("double",
+                    new CLI.CommandEntry(DoubleNode.class, "Test.Double", "double", "doubles n"));
+            CLIBatch batch = new CLIBatch(commands, new CLIRuntimeHelper(), parallel, inputOrder,
+                    new java.io.PrintStream(buf, true, StandardCharsets.UTF_8));
+            return batch.run(new java.io.BufferedReader(new java.io.StringReader(String.join("\n", lines))));
+        }
+
+        private List<String> output() {
+            return List.of(buf.toString(StandardCharsets.UTF_8).split("\n"));
+        }
+
+        @Test
+        void streamsResultsInInputOrder() throws Exception {
+            assertEquals(0, run(4, true,
+                    "{\"id\":\"a\",\"command\":\"double\",\"flags\":{\"n\":1,\"delay\":80}}",
+                    "{\"command\":\"double\",\"flags\":{\"n\":2}}",
+                    "",
+                    "{\"command\":\"double\",\"flags\":{\"n\":3,\"delay\":20}}"));
+            assertEquals(List.of(
+                    "{\"seq\":0,\"id\":\"a\",\"command\":\"double\",\"result\":{\"result\":2}}",
+                    "{\"seq\":1,\"command\":\"double\",\"result\":{\"result\":4}}",
+                    "{\"seq\":2,\"command\":\"double\",\"result\":{\"result\":6}}"), output());
+        }
+
+        @Test
+        void completionOrderEmitsFastResultsFirst() throws Exception {
+            run(2, false,
+                    "{\"command\":\"double\",\"flags\":{\"n\":1,\"delay\":200}}",
+                    "{\"command\":\"double\",\"flags\":{\"n\":2}}");
+            assertTrue(output().get(0).startsWith("{\"seq\":1,"));
+        }
+
+        @Test
+        void slowHeadLimitsReadAhead() throws Exception {
+            java.util.concurrent.atomic.AtomicInteger read = new java.util.concurrent.atomic.AtomicInteger();
+            java.util.concurrent.atomic.AtomicInteger readAtFirstOutput = new java.util.concurrent.atomic.AtomicInteger(-1);
+            StringBuilder in = new StringBuilder("{\"command\":\"double\",\"flags\":{\"n\":1,\"delay\":300}}\n");
+            for (int i = 0; i < 50; i++) {
+                in.append("{\"command\":\"double\",\"flags\":{\"n\":1}}\n");
+            }
+            java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.StringReader(in.toString())) {
+                @Override
+                public String readLine() throws java.io.IOException {
+                    String line = super.readLine();
+                    if (line != null) {
+                        read.incrementAndGet();
+                    }
+                    return line;
+                }
+            };
+            java.io.PrintStream ps = new java.io.PrintStream(new java.io.OutputStream() {
+                @Override
+                public void write(int b) {
+                    readAtFirstOutput.compareAndSet(-1, read.get());
+                    buf.write(b);
+                }
+            }, true, StandardCharsets.UTF_8);
+            java.util.Map<String, CLI.CommandEntry> commands = java.util.Map.of("double",
+                    new CLI.CommandEntry(DoubleNode.class, "Test.Double", "double", "doubles n"));
+
+            assertEquals(0, new CLIBatch(commands, new CLIRuntimeHelper(), 2, true, ps).run(reader));
+            // Held-back results keep their permits until printed: 2 * 4 lines read ahead at most.
+            assertTrue(readAtFirstOutput.get() <= 9, "read " + readAtFirstOutput.get() + " lines ahead");
+            assertEquals(51, output().size());
+        }
+
+        @Test
+        void reusesNodesAndClosesThemAtTheEnd() throws Exception {
+            String[] lines = new String[20];
+            java.util.Arrays.fill(lines, "{\"command\":\"double\",\"flags\":{\"n\":1}}");
+            run(1, true, lines);
+            assertEquals(1, DoubleNode.creates.get());
+            assertEquals(1, DoubleNode.closes.get());
+            assertEquals(20, output().size());
+        }
+
+        @Test
+        void reportsFailuresInBand() throws Exception {
+            assertEquals(3, run(2, true,
+                    "{\"command\":\"nope\"}",
+                    "not json",
+                    "{\"command\":\"double\",\"flags\":{\"n\":-1}}",
+                    "{\"command\":\"double\",\"flags\":{\"n\":5}}"));
+            List<String> out = output();
+            assertEquals(4, out.size());
+            assertTrue(out.get(0).contains("unknown command"));
+            assertTrue(out.get(1).contains("invalid input line"));
+            assertTrue(out.get(2).contains("\"error\":\"negative\""));
+            assertTrue(out.get(3).contains("\"result\":10"));
+        }
+
+        @Test
+        void flagValuesBecomeCliStrings() {
+            java.util.Map<String, Object> in = new java.util.LinkedHashMap<>();
+            in.put("a", 1);
+            in.put("b", true);
+            in.put("c", List.of("x", "y"));
+            in.put("d", null);
+            assertEquals(java.util.Map.of("a", "1", "b", "true", "c", "[\"x\",\"y\"]"), CLIBatch.stringFlags(in));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.robomotion.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import com.robomotion.testing.TestRuntimeHelper;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialTest {
+
+    private final AtomicInteger gets = new AtomicInteger();
+    private Server server;
+    private ManagedChannel channel;
+    private RuntimeHelperGrpc.RuntimeHelperBlockingStub savedClient;
+    private TestRuntimeHelper savedHelper;
+
+    @BeforeEach
+    void startRunner() throws Exception {
+        server = ServerBuilder.forPort(0).addService(new RuntimeHelperGrpc.RuntimeHelperImplBase() {
+            @Override
+            public void getVaultItem(GetVaultItemRequest request, StreamObserver<GetVaultItemResponse> observer) {
+                gets.incrementAndGet();
+                observer.onNext(GetVaultItemResponse.newBuilder().setItem(item("fetched")).build());
+                observer.onCompleted();
+            }
+
+            @Override
+            public void setVaultItem(SetVaultItemRequest request, StreamObserver<SetVaultItemResponse> observer) {
+                observer.onNext(SetVaultItemResponse.newBuilder().setItem(item("stored")).build());
+                observer.onCompleted();
+            }
+        }).build().start();
+        channel = ManagedChannelBuilder.forAddress("127.0.0.1", server.getPort()).usePlaintext().build();
+
+        savedClient = Runtime.GetClient();
+        savedHelper = Runtime.testHelper;
+        Runtime.SetClient(RuntimeHelperGrpc.newBlockingStub(channel));
+        Runtime.testHelper = null;
+    }
+
+    @AfterEach
+    void stopRunner() {
+        Runtime.SetClient(savedClient);
+        Runtime.testHelper = savedHelper;
+        Runtime.getProperties().remove("robomotion.credential_cache");
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    // Items travel as {"value": {...}}, as the runner sends them.
+    private static Struct item(String password) {
+        Struct fields = Struct.newBuilder()
+                .putFields("password", Value.newBuilder().setStringValue(password).build())
+                .build();
+        return Struct.newBuilder().putFields("value", Value.newBuilder().setStructValue(fields).build()).build();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Runtime.Credential credential() {
+        return new Runtime.Credential("Custom", null, "v1", "i1");
+    }
+
+    @Test
+    void cachedItemIsCopiedOut() throws Exception {
+        Runtime.Credential cred = credential();
+        Map<String, Object> first = cred.Get(null);
+        first.put("password", "changed");
+
+        assertEquals("fetched", cred.Get(null).get("password"));
+        assertEquals(1, gets.get());
+    }
+
+    @Test
+    void setRespectsDisabledCache() throws Exception {
+        Runtime.getProperties().setProperty("robomotion.credential_cache", "false");
+        Runtime.Credential cred = credential();
+        assertEquals("stored", cred.Set(null, new byte[0]).get("password"));
+
+        assertEquals("fetched", cred.Get(null).get("password"));
+        assertEquals("fetched", cred.Get(null).get("password"));
+        assertEquals(2, gets.get());
+    }
+
+    @Test
+    void setUpdatesCache() throws Exception {
+        Runtime.Credential cred = credential();
+        cred.Set(null, new byte[0]).put("password", "changed");
+
+        assertEquals("stored", cred.Get(null).get("password"));
+        assertEquals(0, gets.get());
+    }
+}
@@ -0,0 +1,63 @@
+package com.robomotion.app;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DebugTest {
+
+    @Test
+    void procAddress() {
+        assertEquals("127.0.0.1:8080", Debug.ProcAddress("0100007F:1F90"));
+        assertEquals("127.0.0.1:50051", Debug.ProcAddress("00000000:C383"));
+        assertEquals("[0:0:0:0:0:0:0:1]:443", Debug.ProcAddress("00000000000000000000000001000000:01BB"));
+        assertEquals("[0:0:0:0:0:0:0:1]:443", Debug.ProcAddress("00000000000000000000000000000000:01BB"));
+        assertEquals("10.0.0.5:22", Debug.ProcAddress("0000000000000000FFFF00000500000A:0016"));
+    }
+
+    @Test
+    void findsOwnListeningSocket() throws Exception {
+        assumeTrue(SystemUtils.IS_OS_LINUX && Files.isReadable(Path.of("/proc/self/comm")));
+        String comm = Files.readString(Path.of("/proc/self/comm")).trim();
+
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            List<Debug.SockTabEntry> tabs = Debug.GetNetStatPorts(Debug.State.LISTENING, comm);
+            String addr = "127.0.0.1:" + server.getLocalPort();
+            assertTrue(tabs.stream().anyMatch(t -> t.localAddress.equals(addr)), addr);
+            assertEquals(String.valueOf(ProcessHandle.current().pid()),
+                    tabs.stream().filter(t -> t.localAddress.equals(addr)).findFirst().get().process.getPid());
+        }
+        assertTrue(Debug.GetNetStatPorts(Debug.State.LISTENING, "no-such-process").isEmpty());
+    }
+
+    @Test
+    void dualStackListenerIsReportedOnce() throws Exception {
+        assumeTrue(SystemUtils.IS_OS_LINUX && Files.isReadable(Path.of("/proc/self/comm")));
+        String comm = Files.readString(Path.of("/proc/self/comm")).trim();
+
+        try (ServerSocket v4 = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+            ServerSocket v6;
+            try {
+                v6 = new ServerSocket(v4.getLocalPort(), 1, InetAddress.getByName("::1"));
+            } catch (java.io.IOException e) {
+                assumeTrue(false, "no IPv6 loopback");
+                return;
+            }
+            try (v6) {
+                String port = ":" + v4.getLocalPort();
+                List<Debug.SockTabEntry> tabs = Debug.GetNetStatPorts(Debug.State.LISTENING, comm);
+                List<String> addrs = tabs.stream().map(t -> t.localAddress).filter(a -> a.endsWith(port)).toList();
+                // The JVM may open both as IPv6 sockets, so either entry can be the one kept.
+                assertEquals(1, addrs.size(), addrs.toString());
+            }
+        }
+    }
+}
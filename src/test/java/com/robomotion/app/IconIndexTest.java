@@ -0,0 +1,35 @@
+package com.robomotion.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IconIndexTest {
+
+    @Test
+    void matchesIconsConstants() throws Exception {
+        Map<String, String> index = IconIndex.load();
+        int n = 0;
+        for (Field f : Icons.class.getDeclaredFields()) {
+            if (Modifier.isStatic(f.getModifiers()) && f.getType() == String.class) {
+                assertEquals(f.get(null), index.get(f.getName()),
+                        f.getName() + ": run java scripts/IconIndexGen.java");
+                n++;
+            }
+        }
+        assertEquals(n, index.size());
+    }
+
+    @Test
+    void resolvesNamesOnly() {
+        assertEquals(Icons.mdiAccount, IconIndex.resolve("mdiAccount"));
+        assertEquals(Icons.mdiAccount, IconIndex.resolve(Icons.mdiAccount));
+        assertEquals("mdiNoSuchIcon", IconIndex.resolve("mdiNoSuchIcon"));
+        assertEquals("", IconIndex.resolve(""));
+        assertNull(IconIndex.get("account"));
+    }
+}
@@ -1,6 +1,8 @@
 package com.robomotion.app;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 import com.robomotion.testing.MockContext;
 
 import org.junit.jupiter.api.AfterEach;
@@ -304,9 +306,284 @@ class LMOTest {
         }
     }
 
+    // -----------------------------------------------------------------------
+    // Blob index, quota and LRU eviction
+    // -----------------------------------------------------------------------
+    @Nested
+    class BlobIndex {
+
+        @BeforeEach
+        void init() throws Exception { initTestStore(); }
+
+        private Path storeRoot() {
+            return tempDir.resolve("store").resolve(STORE_PATH);
+        }
+
+        @Test
+        void putBlobAddsToIndex() throws Exception {
+            String ref = LMO.putBlob("indexed blob".getBytes(StandardCharsets.UTF_8));
+            assertTrue(LMO.getIndex().contains(ref));
+            assertEquals(1, LMO.blobCount());
+            assertEquals(Files.size(blobFilePath(ref)), LMO.storeSize());
+        }
+
+        @Test
+        void dedupDoesNotGrowStore() throws Exception {
+            byte[] data = "same bytes".getBytes(StandardCharsets.UTF_8);
+            LMO.putBlob(data);
+            long size = LMO.storeSize();
+            LMO.putBlob(data);
+            assertEquals(size, LMO.storeSize());
+            assertEquals(1, LMO.blobCount());
+        }
+
+        @Test
+        void indexPersistsAcrossReopen() throws Exception {
+            String ref = LMO.putBlob("persisted".getBytes(StandardCharsets.UTF_8));
+            LMO.getIndex().save();
+            assertTrue(Files.exists(storeRoot().resolve(LMOIndex.FILE_NAME)));
+
+            LMOIndex reopened = LMOIndex.open(storeRoot());
+            assertTrue(reopened.contains(ref));
+            assertEquals(LMO.storeSize(), reopened.totalBytes());
+        }
+
+        @Test
+        void indexRebuildsFromDiskWhenMissing() throws Exception {
+            String a = LMO.putBlob("blob a".getBytes(StandardCharsets.UTF_8));
+            String b = LMO.putBlob("blob b".getBytes(StandardCharsets.UTF_8));
+            Files.deleteIfExists(storeRoot().resolve(LMOIndex.FILE_NAME));
+
+            LMOIndex rebuilt = LMOIndex.open(storeRoot());
+            assertTrue(rebuilt.contains(a));
+            assertTrue(rebuilt.contains(b));
+            assertEquals(2, rebuilt.count());
+        }
+
+        @Test
+        void corruptIndexIsRebuilt() throws Exception {
+            String ref = LMO.putBlob("survives".getBytes(StandardCharsets.UTF_8));
+            Files.write(storeRoot().resolve(LMOIndex.FILE_NAME), new byte[] {1, 2, 3});
+
+            assertTrue(LMOIndex.open(storeRoot()).contains(ref));
+        }
+
+        @Test
+        void saveMergesAnotherProcessIndex() throws Exception {
+            LMOIndex other = LMOIndex.open(storeRoot());
+            String ref = LMO.putBlob("ours".getBytes(StandardCharsets.UTF_8));
+            LMO.getIndex().save();
+
+            // The other process never saw ref, but its save keeps it listed.
+            String theirs = LMO.putBlob("theirs".getBytes(StandardCharsets.UTF_8));
+            other.add(theirs, Files.size(blobFilePath(theirs)));
+            other.save();
+            assertTrue(other.contains(ref));
+            assertEquals(LMO.storeSize(), other.totalBytes());
+        }
+
+        @Test
+        void catchUpAdoptsUnlistedBlobs() throws Exception {
+            String a = LMO.putBlob("listed".getBytes(StandardCharsets.UTF_8));
+            String gone = LMO.putBlob("removed".getBytes(StandardCharsets.UTF_8));
+            LMO.getIndex().save();
+            String b = LMO.putBlob("unlisted".getBytes(StandardCharsets.UTF_8));
+            Files.delete(blobFilePath(gone));
+
+            // The file is trusted on open; reconciling waits for the GC pass.
+            LMOIndex reopened = LMOIndex.open(storeRoot());
+            assertTrue(reopened.contains(a));
+            assertTrue(reopened.contains(gone));
+            assertFalse(reopened.contains(b));
+
+            reopened.catchUp();
+            assertTrue(reopened.contains(a));
+            assertTrue(reopened.contains(b));
+            assertFalse(reopened.contains(gone));
+            assertEquals(Files.size(blobFilePath(a)) + Files.size(blobFilePath(b)), reopened.totalBytes());
+        }
+
+        @Test
+        void evictRemovesLeastRecentlyUsedFirst() throws Exception {
+            LMOIndex idx = LMO.getIndex();
+            String old = LMO.putBlob("old".repeat(100).getBytes(StandardCharsets.UTF_8));
+            String recent = LMO.putBlob("recent".repeat(100).getBytes(StandardCharsets.UTF_8));
+            idx.get(old).lastAccess = 1_000;
+            idx.get(recent).lastAccess = 2_000;
+
+            long quota = idx.totalBytes() - 1;
+            assertEquals(1, idx.evict(quota, 0, 10_000));
+            assertFalse(idx.contains(old));
+            assertFalse(Files.exists(blobFilePath(old)));
+            assertTrue(idx.contains(recent));
+            assertTrue(Files.exists(blobFilePath(recent)));
+        }
+
+        @Test
+        void evictRespectsGracePeriod() throws Exception {
+            LMOIndex idx = LMO.getIndex();
+            String ref = LMO.putBlob("in flight".getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(0, idx.evict(1, 60_000, System.currentTimeMillis()));
+            assertTrue(idx.contains(ref));
+            assertTrue(Files.exists(blobFilePath(ref)));
+        }
+
+        @Test
+        void evictIsNoopUnderQuota() throws Exception {
+            LMOIndex idx = LMO.getIndex();
+            LMO.putBlob("small".getBytes(StandardCharsets.UTF_8));
+            assertEquals(0, idx.evict(idx.totalBytes(), 0, Long.MAX_VALUE));
+            assertEquals(0, idx.evict(0, 0, Long.MAX_VALUE), "quota 0 disables eviction");
+        }
+
+        @Test
+        void evictedBlobIsRewrittenOnNextPut() throws Exception {
+            LMOIndex idx = LMO.getIndex();
+            byte[] data = "comes back".getBytes(StandardCharsets.UTF_8);
+            String ref = LMO.putBlob(data);
+            idx.get(ref).lastAccess = 0;
+            idx.evict(1, 0, 10_000);
+            assertFalse(Files.exists(blobFilePath(ref)));
+
+            assertEquals(ref, LMO.putBlob(data));
+            assertArrayEquals(data, LMO.getBlob(ref, STORE_PATH));
+        }
+    }
+
     // -----------------------------------------------------------------------
     // pack / resolveAll roundtrip
     // -----------------------------------------------------------------------
+    @Nested
+    class SharedIndex {
+
+        private static final String REF_A = "xxh3:0123456789abcdef0123456789abcdef";
+        private static final String REF_B = "xxh3:fedcba9876543210fedcba9876543210";
+
+        @Test
+        void processesSeeEachOthersRefs() throws Exception {
+            LMOSharedIndex a = LMOSharedIndex.open(tempDir, 1024, Map.of());
+            LMOSharedIndex b = LMOSharedIndex.open(tempDir, 1024, Map.of());
+
+            assertEquals(-1, b.touch(REF_A));
+            assertTrue(a.put(REF_A, 123, System.currentTimeMillis()));
+            assertEquals(123, b.touch(REF_A));
+            assertEquals(1, b.used());
+        }
+
+        @Test
+        void removedRefIsNotFound() throws Exception {
+            LMOSharedIndex idx = LMOSharedIndex.open(tempDir, 1024, Map.of());
+            idx.put(REF_A, 10, 1);
+            idx.put(REF_B, 20, 1);
+            idx.remove(REF_A);
+            assertEquals(-1, idx.touch(REF_A));
+            assertEquals(20, idx.touch(REF_B));
+        }
+
+        @Test
+        void invalidFileIsRebuiltFromSeed() throws Exception {
+            Files.write(tempDir.resolve(LMOSharedIndex.FILE_NAME), new byte[100]);
+            LMOSharedIndex idx = LMOSharedIndex.open(tempDir, 1024, Map.of(REF_A, 42L));
+            assertEquals(42, idx.touch(REF_A));
+        }
+
+        @Test
+        void existingFileKeepsItsCapacity() throws Exception {
+            LMOSharedIndex.open(tempDir, 2048, Map.of()).put(REF_A, 1, 1);
+            LMOSharedIndex idx = LMOSharedIndex.open(tempDir, 8192, Map.of());
+            assertEquals(2048, idx.capacity());
+            assertEquals(1, idx.touch(REF_A));
+        }
+
+        @Test
+        void fullTableGrowsIntoNewFile() throws Exception {
+            LMOSharedIndex idx = LMOSharedIndex.open(tempDir, 1024, Map.of());
+            LMOSharedIndex other = LMOSharedIndex.open(tempDir, 1024, Map.of());
+            for (int i = 0; i < 1024; i++) {
+                assertTrue(idx.put(String.format("xxh3:%016x%016x", i * 7919L + 3, i), 1, 1));
+            }
+            assertEquals(2048, idx.capacity());
+            // The other process remaps on its next operation.
+            assertEquals(1, other.touch(String.format("xxh3:%016x%016x", 3L, 0)));
+            assertEquals(2048, other.capacity());
+        }
+
+        @Test
+        void removedSlotsAreReused() throws Exception {
+            LMOSharedIndex idx = LMOSharedIndex.open(tempDir, 1024, Map.of());
+            for (int i = 0; i < 10; i++) {
+                idx.put(REF_A, 10, 1);
+                idx.remove(REF_A);
+            }
+            assertEquals(1, idx.used());
+            assertEquals(1, idx.removed());
+            assertTrue(idx.put(REF_A, 10, 1));
+            assertEquals(0, idx.removed());
+        }
+
+        @Test
+        void tombstonesAreCompactedAway() throws Exception {
+            LMOSharedIndex idx = LMOSharedIndex.open(tempDir, 1024, Map.of());
+            // Churn well past the load limit with a small live set.
+            for (int i = 0; i < 5000; i++) {
+                String ref = String.format("xxh3:%016x%016x", i * 7919L + 3, i);
+                assertTrue(idx.put(ref, 1, 1), "insert " + i);
+                idx.remove(ref);
+            }
+            assertEquals(1024, idx.capacity());
+            assertTrue(idx.used() < 768);
+        }
+
+        @Test
+        void nonXxh3RefsAreIgnored() throws Exception {
+            LMOSharedIndex idx = LMOSharedIndex.open(tempDir, 1024, Map.of());
+            assertFalse(idx.put("sha256:abc", 1, 1));
+            assertEquals(-1, idx.touch("sha256:abc"));
+        }
+
+        @Test
+        void storeAdoptsBlobsWrittenByAnotherProcess() throws Exception {
+            initTestStore();
+            Path root = tempDir.resolve("store").resolve(STORE_PATH);
+            // A second process with its own local index over the same store.
+            LMOIndex other = LMOIndex.open(root);
+            other.share(LMOSharedIndex.open(root, 1024, other.sizes()));
+
+            String ref = LMO.putBlob("written elsewhere".getBytes(StandardCharsets.UTF_8));
+            assertFalse(other.contains(ref));
+            assertTrue(other.touchIfPresent(ref));
+            assertEquals(Files.size(blobFilePath(ref)), other.get(ref).size);
+        }
+
+        @Test
+        void blobEvictedByAnotherProcessIsWrittenAgain() throws Exception {
+            initTestStore();
+            Path root = tempDir.resolve("store").resolve(STORE_PATH);
+            byte[] data = "evicted elsewhere".getBytes(StandardCharsets.UTF_8);
+            String ref = LMO.putBlob(data);
+
+            LMOIndex other = LMOIndex.open(root);
+            other.share(LMO.getIndex().shared());
+            assertEquals(1, other.evict(1, 0, System.currentTimeMillis() + 1000));
+
+            // The local entry is stale: the dedup check notices and drops it.
+            assertFalse(LMO.getIndex().touchIfPresent(ref));
+            assertFalse(LMO.getIndex().contains(ref));
+            assertEquals(ref, LMO.putBlob(data));
+            assertArrayEquals(data, LMO.getBlob(ref, STORE_PATH));
+        }
+
+        @Test
+        void evictionRemovesFromSharedIndex() throws Exception {
+            initTestStore();
+            String ref = LMO.putBlob("evict me".getBytes(StandardCharsets.UTF_8));
+            LMOIndex idx = LMO.getIndex();
+            assertEquals(1, idx.evict(1, 0, System.currentTimeMillis() + 1000));
+            assertEquals(-1, idx.shared().touch(ref));
+        }
+    }
+
     @Nested
     class PackResolve {
 
@@ -333,6 +610,21 @@ class LMOTest {
             assertSame(empty, LMO.pack(empty));
         }
 
+        @Test
+        void payloadWithoutMagicSkipsParse() {
+            // Not valid JSON: only a skipped parse can return it untouched.
+            byte[] data = "{\"a\":[1,2".getBytes(StandardCharsets.UTF_8);
+            assertFalse(LMO.mayContainBlobRef(data));
+            assertSame(data, LMO.resolveAll(data));
+        }
+
+        @Test
+        void magicScanFindsBlobRefs() {
+            assertTrue(LMO.mayContainBlobRef("{\"x\":{\"__magic\":1}}".getBytes(StandardCharsets.UTF_8)));
+            assertFalse(LMO.mayContainBlobRef("{\"__magi\":1,\"_magic\":2}".getBytes(StandardCharsets.UTF_8)));
+            assertFalse(LMO.mayContainBlobRef("\"__magic".getBytes(StandardCharsets.UTF_8)));
+        }
+
         @Test
         void largeStringFieldGetsPacked() {
             String largeValue = "\"" + "A".repeat(5000) + "\"";
@@ -436,6 +728,57 @@ class LMOTest {
             assertTrue(packedStr.contains("\"__type\":\"array\""));
         }
 
+        @Test
+        void parallelPackMatchesSequentialOutput() {
+            StringBuilder sb = new StringBuilder("{\"head\":\"h\"");
+            for (int i = 0; i < 12; i++) {
+                sb.append(",\"t").append(i).append("\":\"").append(String.valueOf((char) ('a' + i)).repeat(5000 + i)).append("\"");
+                sb.append(",\"s").append(i).append("\":").append(i);
+            }
+            sb.append("}");
+            byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+            Runtime.getProperties().setProperty("robomotion.lmo.parallel", "false");
+            byte[] sequential;
+            try {
+                sequential = LMO.pack(data);
+            } finally {
+                Runtime.getProperties().remove("robomotion.lmo.parallel");
+            }
+            byte[] parallel = LMO.pack(data);
+
+            assertNotSame(data, parallel);
+            assertArrayEquals(sequential, parallel, "field order and refs must be deterministic");
+        }
+
+        @Test
+        void smallContainersAreNotPackCandidates() {
+            assertFalse(LMO.isPackCandidate(JsonParser.parseString("{\"a\":{\"b\":1},\"c\":[1,2,\"x\"]}")));
+            assertFalse(LMO.isPackCandidate(JsonParser.parseString("[]")));
+            assertFalse(LMO.isPackCandidate(JsonParser.parseString("42")));
+
+            String big = "x".repeat((int) LMO.THRESHOLD);
+            assertTrue(LMO.isPackCandidate(JsonParser.parseString("{\"a\":{\"b\":[\"" + big + "\"]}}")));
+            assertTrue(LMO.isPackCandidate(new JsonPrimitive(big)));
+        }
+
+        @Test
+        void parallelResolveRestoresAllFieldsInOrder() {
+            StringBuilder sb = new StringBuilder("{");
+            for (int i = 0; i < 8; i++) {
+                if (i > 0) sb.append(",");
+                sb.append("\"f").append(i).append("\":\"").append(String.valueOf((char) ('A' + i)).repeat(6000)).append("\"");
+            }
+            sb.append("}");
+            String original = sb.toString();
+
+            byte[] packed = LMO.pack(original.getBytes(StandardCharsets.UTF_8));
+            assertFalse(new String(packed, StandardCharsets.UTF_8).contains("AAAAA"));
+
+            byte[] resolved = LMO.resolveAll(packed);
+            assertEquals(original, new String(resolved, StandardCharsets.UTF_8));
+        }
+
         @Test
         void resolveAllHandlesNullAndEmpty() {
             assertNull(LMO.resolveAll(null));
@@ -450,6 +793,811 @@ class LMOTest {
         }
     }
 
+    // -----------------------------------------------------------------------
+    // Content-defined chunking
+    // -----------------------------------------------------------------------
+    @Nested
+    class ChunkedBlobs {
+
+        @BeforeEach
+        void init() throws Exception {
+            initTestStore();
+            Runtime.SetRobotCapabilities(Runtime.CAPABILITY_LMO);
+            Runtime.getProperties().setProperty("robomotion.lmo.chunking", "true");
+            Runtime.getProperties().setProperty("robomotion.lmo.chunk_threshold", "65536");
+            Runtime.getProperties().setProperty("robomotion.lmo.chunk_avg_kb", "4");
+        }
+
+        @AfterEach
+        void cleanup() {
+            Runtime.getProperties().remove("robomotion.lmo.chunking");
+            Runtime.getProperties().remove("robomotion.lmo.chunk_threshold");
+            Runtime.getProperties().remove("robomotion.lmo.chunk_avg_kb");
+        }
+
+        private String table(int rows, int changedRow) {
+            StringBuilder sb = new StringBuilder("{\"rows\":[");
+            for (int i = 0; i < rows; i++) {
+                if (i > 0) sb.append(",");
+                String name = i == changedRow ? "changed" : "name" + i;
+                sb.append("{\"id\":").append(i).append(",\"name\":\"").append(name)
+                        .append("\",\"city\":\"city").append(i % 97).append("\"}");
+            }
+            sb.append("]}");
+            return sb.toString();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> blobRefOf(byte[] packed, String field) {
+            Map<String, Object> msg = new Gson().fromJson(new String(packed, StandardCharsets.UTF_8), Map.class);
+            return (Map<String, Object>) msg.get(field);
+        }
+
+        private List<String> chunkRefs(Map<String, Object> blobRef) throws Exception {
+            byte[] raw = LMO.getBlob(blobRef.get("__ref").toString(), STORE_PATH);
+            com.google.gson.JsonObject manifest = com.google.gson.JsonParser
+                    .parseString(new String(raw, StandardCharsets.UTF_8)).getAsJsonObject();
+            List<String> refs = new java.util.ArrayList<>();
+            manifest.getAsJsonArray("chunks").forEach(c -> refs.add(c.getAsJsonObject().get("ref").getAsString()));
+            return refs;
+        }
+
+        @Test
+        void largeArrayIsChunked() {
+            byte[] packed = LMO.pack(table(5000, -1).getBytes(StandardCharsets.UTF_8));
+            Map<String, Object> br = blobRefOf(packed, "rows");
+            assertTrue(LMO.isBlobRefMap(br));
+            assertEquals("chunked", br.get("__type"));
+            assertEquals("array", br.get("__value_type"));
+            assertEquals(5000.0, br.get("__len"));
+        }
+
+        @Test
+        void chunkedArrayRoundtrips() {
+            String original = table(5000, -1);
+            byte[] packed = LMO.pack(original.getBytes(StandardCharsets.UTF_8));
+            assertEquals(original, new String(LMO.resolveAll(packed), StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void chunkedStringRoundtrips() throws Exception {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 20000; i++) sb.append("line ").append(i).append(" ü\n");
+            Map<String, Object> m = new HashMap<>();
+            m.put("text", sb.toString());
+            String original = new Gson().toJson(m);
+
+            byte[] packed = LMO.pack(original.getBytes(StandardCharsets.UTF_8));
+            Map<String, Object> br = blobRefOf(packed, "text");
+            assertEquals("chunked", br.get("__type"));
+            assertEquals(sb.toString(), LMO.resolveBlobRefValue(br));
+            assertTrue(chunkRefs(br).size() > 1);
+        }
+
+        @Test
+        void singleRowChangeSharesMostChunks() throws Exception {
+            List<String> a = chunkRefs(blobRefOf(LMO.pack(table(5000, -1).getBytes(StandardCharsets.UTF_8)), "rows"));
+            List<String> b = chunkRefs(blobRefOf(LMO.pack(table(5000, 2500).getBytes(StandardCharsets.UTF_8)), "rows"));
+            assertTrue(a.size() > 4, "expected several chunks, got " + a.size());
+
+            long shared = b.stream().filter(a::contains).count();
+            assertTrue(shared >= a.size() - 2, "only " + shared + " of " + a.size() + " chunks shared");
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void rangeReadOnChunkedArray() throws Exception {
+            Map<String, Object> br = blobRefOf(LMO.pack(table(5000, -1).getBytes(StandardCharsets.UTF_8)), "rows");
+            List<Object> range = LMO.resolveBlobRefRange(br, 1234, 1240);
+            assertEquals(6, range.size());
+            assertEquals("name1234", ((Map<String, Object>) range.get(0)).get("name"));
+            assertEquals("name1239", ((Map<String, Object>) range.get(5)).get("name"));
+            assertEquals(1, LMO.resolveBlobRefRange(br, 4999, 9999).size());
+        }
+
+        @Test
+        void invertedRangeOnChunkedArrayIsEmpty() throws Exception {
+            Map<String, Object> br = blobRefOf(LMO.pack(table(5000, -1).getBytes(StandardCharsets.UTF_8)), "rows");
+            assertEquals("chunked", br.get("__type"));
+            assertEquals(List.of(), LMO.resolveBlobRefRange(br, 1240, 1234));
+            assertEquals(3, LMO.resolveBlobRefRange(br, -5, 3).size());
+        }
+
+        @Test
+        void rangeReadOnPlainArray() throws Exception {
+            String ref = LMO.putBlob("[10,20,30,40]".getBytes(StandardCharsets.UTF_8));
+            Map<String, Object> br = new HashMap<>();
+            br.put("__magic", (double) LMO.MAGIC);
+            br.put("__ref", ref);
+            br.put("__path", STORE_PATH);
+            br.put("__type", "array");
+            assertEquals(List.of(20.0, 30.0), LMO.resolveBlobRefRange(br, 1, 3));
+        }
+
+        @Test
+        void belowChunkThresholdUsesPlainBlob() {
+            byte[] packed = LMO.pack(table(500, -1).getBytes(StandardCharsets.UTF_8));
+            assertEquals("array", blobRefOf(packed, "rows").get("__type"));
+        }
+
+        @Test
+        void chunkingIsOffByDefault() {
+            Runtime.getProperties().remove("robomotion.lmo.chunking");
+            byte[] packed = LMO.pack(table(5000, -1).getBytes(StandardCharsets.UTF_8));
+            assertEquals("array", blobRefOf(packed, "rows").get("__type"));
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Streaming iteration over array BlobRefs
+    // -----------------------------------------------------------------------
+    @Nested
+    class StreamingArrays {
+
+        @BeforeEach
+        void init() throws Exception {
+            initTestStore();
+            Runtime.SetRobotCapabilities(Runtime.CAPABILITY_LMO);
+        }
+
+        private Map<String, Object> arrayRef(String json, int len) throws Exception {
+            Map<String, Object> br = new HashMap<>();
+            br.put("__magic", (double) LMO.MAGIC);
+            br.put("__ref", LMO.putBlob(json.getBytes(StandardCharsets.UTF_8)));
+            br.put("__path", STORE_PATH);
+            br.put("__type", "array");
+            br.put("__len", (double) len);
+            return br;
+        }
+
+        @Test
+        void streamsPlainArrayBlob() throws Exception {
+            try (java.util.stream.Stream<Object> s = LMO.streamBlobRefArray(arrayRef("[1,\"two\",{\"k\":3}]", 3))) {
+                List<Object> items = s.toList();
+                assertEquals(3, items.size());
+                assertEquals(1.0, items.get(0));
+                assertEquals("two", items.get(1));
+                assertInstanceOf(Map.class, items.get(2));
+            }
+        }
+
+        @Test
+        void reportsLenAsStreamSize() throws Exception {
+            try (java.util.stream.Stream<Object> s = LMO.streamBlobRefArray(arrayRef("[1,2,3,4]", 4))) {
+                assertEquals(4, s.spliterator().getExactSizeIfKnown());
+            }
+        }
+
+        @Test
+        void streamsChunkedArray() throws Exception {
+            Runtime.getProperties().setProperty("robomotion.lmo.chunking", "true");
+            Runtime.getProperties().setProperty("robomotion.lmo.chunk_threshold", "16384");
+            Runtime.getProperties().setProperty("robomotion.lmo.chunk_avg_kb", "2");
+            try {
+                StringBuilder sb = new StringBuilder("{\"rows\":[");
+                for (int i = 0; i < 3000; i++) {
+                    if (i > 0) sb.append(",");
+                    sb.append("{\"id\":").append(i).append("}");
+                }
+                sb.append("]}");
+                MockContext ctx = new MockContext(LMO.pack(sb.toString().getBytes(StandardCharsets.UTF_8)));
+                assertEquals("chunked", ((Map<?, ?>) ctx.get("rows")).get("__type"));
+
+                try (java.util.stream.Stream<Object> s = ctx.getStream("rows")) {
+                    long[] expected = {0};
+                    s.forEach(row -> assertEquals((double) expected[0]++, ((Map<?, ?>) row).get("id")));
+                    assertEquals(3000, expected[0]);
+                }
+            } finally {
+                Runtime.getProperties().remove("robomotion.lmo.chunking");
+                Runtime.getProperties().remove("robomotion.lmo.chunk_threshold");
+                Runtime.getProperties().remove("robomotion.lmo.chunk_avg_kb");
+            }
+        }
+
+        @Test
+        void inVariableStreamsBlobRef() throws Exception {
+            MockContext ctx = new MockContext();
+            ctx.set("rows", arrayRef("[\"a\",\"b\",\"c\"]", 3));
+            Runtime.InVariable<List<Object>> rows = new Runtime.InVariable<>("Message", "rows");
+            try (java.util.stream.Stream<Object> s = rows.GetStream(ctx)) {
+                assertEquals(List.of("a", "b", "c"), s.toList());
+            }
+        }
+
+        @Test
+        void inlineArrayStreamsFromMemory() throws Exception {
+            MockContext ctx = new MockContext();
+            ctx.set("rows", List.of("x", "y"));
+            try (java.util.stream.Stream<Object> s = ctx.getStream("rows")) {
+                assertEquals(List.of("x", "y"), s.toList());
+            }
+        }
+
+        @Test
+        void missingValueIsEmptyStream() throws Exception {
+            assertEquals(0, new MockContext().getStream("nothing").count());
+        }
+
+        @Test
+        void nonArrayBlobFails() throws Exception {
+            Map<String, Object> br = arrayRef("{\"not\":\"array\"}", 1);
+            try (java.util.stream.Stream<Object> s = LMO.streamBlobRefArray(br)) {
+                assertThrows(java.io.UncheckedIOException.class, () -> s.iterator().hasNext());
+            }
+        }
+
+        @Test
+        void binaryBlobIsNotAnArray() throws Exception {
+            Map<String, Object> br = arrayRef("[1]", 1);
+            br.put("__type", "binary");
+            Exception e = assertThrows(Exception.class, () -> LMO.streamBlobRefArray(br));
+            assertTrue(e.getMessage().contains("is not an array"));
+        }
+    }
+
+    @Nested
+    class BinaryBlobs {
+
+        @BeforeEach
+        void init() throws Exception {
+            initTestStore();
+            Runtime.SetRobotCapabilities(Runtime.CAPABILITY_LMO);
+            Runtime.getProperties().setProperty("robomotion.lmo.binary", "true");
+        }
+
+        @AfterEach
+        void cleanup() {
+            Runtime.getProperties().remove("robomotion.lmo.binary");
+        }
+
+        private byte[] payload(int n) {
+            byte[] b = new byte[n];
+            new java.util.Random(42).nextBytes(b);
+            return b;
+        }
+
+        private String message(String field, String value) {
+            com.google.gson.JsonObject obj = new com.google.gson.JsonObject();
+            obj.addProperty(field, value);
+            return obj.toString();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> blobRefOf(byte[] packed, String field) {
+            Map<String, Object> msg = new Gson().fromJson(new String(packed, StandardCharsets.UTF_8), Map.class);
+            return (Map<String, Object>) msg.get(field);
+        }
+
+        @Test
+        void base64StringStoredAsDecodedBytes() throws Exception {
+            byte[] raw = payload(12000);
+            String b64 = java.util.Base64.getEncoder().encodeToString(raw);
+            Map<String, Object> br = blobRefOf(LMO.pack(message("file", b64).getBytes(StandardCharsets.UTF_8)), "file");
+
+            assertEquals("binary", br.get("__type"));
+            assertEquals((double) raw.length, br.get("__size"));
+            assertEquals((double) b64.length(), br.get("__len"));
+            assertArrayEquals(raw, LMO.getBlob(br.get("__ref").toString(), STORE_PATH));
+        }
+
+        @Test
+        void binaryRoundtripsToOriginalString() {
+            String original = message("file", java.util.Base64.getEncoder().encodeToString(payload(9000)));
+            byte[] packed = LMO.pack(original.getBytes(StandardCharsets.UTF_8));
+            assertNotEquals(original, new String(packed, StandardCharsets.UTF_8));
+            assertEquals(original, new String(LMO.resolveAll(packed), StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void dataUriPrefixIsPreserved() throws Exception {
+            String uri = "data:image/png;base64," + java.util.Base64.getEncoder().encodeToString(payload(6000));
+            String original = message("img", uri);
+            byte[] packed = LMO.pack(original.getBytes(StandardCharsets.UTF_8));
+            Map<String, Object> br = blobRefOf(packed, "img");
+
+            assertEquals("data:image/png;base64,", br.get("__prefix"));
+            assertEquals(uri, LMO.resolveBlobRefValue(br));
+            assertEquals(original, new String(LMO.resolveAll(packed), StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void nonBase64StringStaysStringBlob() {
+            String text = "not base64! ".repeat(500);
+            Map<String, Object> br = blobRefOf(LMO.pack(message("text", text).getBytes(StandardCharsets.UTF_8)), "text");
+            assertEquals("string", br.get("__type"));
+        }
+
+        @Test
+        void nonCanonicalBase64StaysStringBlob() {
+            // Unpadded base64 would not re-encode to the same string.
+            String b64 = java.util.Base64.getEncoder().withoutPadding().encodeToString(payload(5000));
+            assertNotEquals(0, b64.length() % 4);
+            Map<String, Object> br = blobRefOf(LMO.pack(message("file", b64).getBytes(StandardCharsets.UTF_8)), "file");
+            assertEquals("string", br.get("__type"));
+        }
+
+        @Test
+        void disabledByDefault() {
+            Runtime.getProperties().remove("robomotion.lmo.binary");
+            String b64 = java.util.Base64.getEncoder().encodeToString(payload(6000));
+            Map<String, Object> br = blobRefOf(LMO.pack(message("file", b64).getBytes(StandardCharsets.UTF_8)), "file");
+            assertEquals("string", br.get("__type"));
+        }
+
+        @Test
+        void contextReadsRawBytes() throws Exception {
+            byte[] raw = payload(8000);
+            String b64 = java.util.Base64.getEncoder().encodeToString(raw);
+            MockContext ctx = new MockContext(LMO.pack(message("file", b64).getBytes(StandardCharsets.UTF_8)));
+
+            assertArrayEquals(raw, ctx.getBytes("file"));
+            try (java.io.InputStream in = ctx.getInputStream("file")) {
+                assertArrayEquals(raw, in.readAllBytes());
+            }
+        }
+
+        @Test
+        void contextDecodesInlineBase64() throws Exception {
+            MockContext ctx = new MockContext();
+            ctx.set("a", "aGVsbG8=");
+            ctx.set("b", "data:text/plain;base64,aGVsbG8=");
+            assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), ctx.getBytes("a"));
+            assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), ctx.getBytes("b"));
+            assertNull(ctx.getBytes("missing"));
+        }
+
+        @Test
+        void readBinaryRejectsOtherTypes() throws Exception {
+            Map<String, Object> br = new HashMap<>();
+            br.put("__magic", (double) LMO.MAGIC);
+            br.put("__ref", LMO.putBlob("\"text\"".getBytes(StandardCharsets.UTF_8)));
+            br.put("__path", STORE_PATH);
+            br.put("__type", "string");
+            assertThrows(Exception.class, () -> LMO.readBinary(br));
+        }
+    }
+
+    @Nested
+    class Prefetch {
+
+        @BeforeEach
+        void init() throws Exception {
+            initTestStore();
+            Runtime.SetRobotCapabilities(Runtime.CAPABILITY_LMO);
+            Runtime.getProperties().setProperty("robomotion.lmo.prefetch", "true");
+        }
+
+        @AfterEach
+        void cleanup() {
+            Runtime.getProperties().remove("robomotion.lmo.prefetch");
+        }
+
+        private byte[] packedMessage() {
+            String big = "x".repeat(5000);
+            String msg = "{\"a\":\"" + big + "a\",\"b\":{\"inner\":\"" + big + "b\"},\"c\":1}";
+            return LMO.pack(msg.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void scanFindsRefsAndPaths() {
+            byte[] packed = packedMessage();
+            List<String[]> refs = LMOPrefetcher.scan(packed, null);
+            assertEquals(2, refs.size());
+            for (String[] r : refs) {
+                assertTrue(r[0].startsWith("xxh3:"));
+                assertEquals(STORE_PATH, r[1]);
+            }
+        }
+
+        @Test
+        void scanIgnoresPayloadWithoutRefs() {
+            assertTrue(LMOPrefetcher.scan("{\"a\":1}".getBytes(StandardCharsets.UTF_8), STORE_PATH).isEmpty());
+        }
+
+        @Test
+        void prefetchedBlobsResolve() {
+            String big = "y".repeat(6000);
+            String original = "{\"a\":\"" + big + "\"}";
+            byte[] packed = LMO.pack(original.getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(1, LMO.prefetch(packed));
+            assertEquals(original, new String(LMO.resolveAll(packed), StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void prefetchedBlobIsHandedOutOnce() throws Exception {
+            byte[] data = "z".repeat(5000).getBytes(StandardCharsets.UTF_8);
+            String ref = LMO.putBlob(data);
+            int[] reads = {0};
+            LMOPrefetcher pf = new LMOPrefetcher(1, 16, 1 << 20, 60_000, (r, p) -> {
+                reads[0]++;
+                return LMO.getBlob(r, p);
+            });
+            try {
+                String msg = "{\"f\":{\"__magic\":" + LMO.MAGIC + ",\"__ref\":\"" + ref + "\",\"__path\":\"" + STORE_PATH + "\"}}";
+                assertEquals(1, pf.prefetch(msg.getBytes(StandardCharsets.UTF_8), null));
+                // Same ref while in flight is not scheduled twice.
+                assertEquals(0, pf.prefetch(msg.getBytes(StandardCharsets.UTF_8), null));
+                assertArrayEquals(data, pf.take(ref, STORE_PATH));
+                assertNull(pf.take(ref, STORE_PATH));
+                assertEquals(1, reads[0]);
+            } finally {
+                pf.shutdown();
+            }
+        }
+
+        @Test
+        void failedReadFallsBackToCaller() {
+            LMOPrefetcher pf = new LMOPrefetcher(1, 16, 1 << 20, 60_000, (r, p) -> {
+                throw new java.io.IOException("boom");
+            });
+            try {
+                String msg = "{\"__ref\":\"xxh3:abcdef\",\"__path\":\"p\"}";
+                assertEquals(1, pf.prefetch(msg.getBytes(StandardCharsets.UTF_8), null));
+                assertNull(pf.take("xxh3:abcdef", "p"));
+            } finally {
+                pf.shutdown();
+            }
+        }
+
+        @Test
+        void respectsMaxEntries() {
+            LMOPrefetcher pf = new LMOPrefetcher(1, 1, 1 << 20, 60_000, (r, p) -> new byte[0]);
+            try {
+                String msg = "{\"a\":{\"__ref\":\"xxh3:aa11\"},\"b\":{\"__ref\":\"xxh3:bb22\"}}";
+                assertEquals(1, pf.prefetch(msg.getBytes(StandardCharsets.UTF_8), "p"));
+                assertEquals(1, pf.size());
+            } finally {
+                pf.shutdown();
+            }
+        }
+
+        @Test
+        void respectsMaxBytes() throws Exception {
+            LMOPrefetcher pf = new LMOPrefetcher(1, 16, 150, 60_000, (r, p) -> new byte[100]);
+            try {
+                String msg = "{\"a\":{\"__ref\":\"xxh3:aa11\"},\"b\":{\"__ref\":\"xxh3:bb22\"}}";
+                assertEquals(2, pf.prefetch(msg.getBytes(StandardCharsets.UTF_8), "p"));
+                // The second finished read pushes the cache over the limit; the oldest goes.
+                long deadline = System.currentTimeMillis() + 5000;
+                while (pf.size() > 1 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                }
+                assertEquals(1, pf.size());
+                assertEquals(100, pf.bytes());
+            } finally {
+                pf.shutdown();
+            }
+        }
+
+        @Test
+        void idleEntriesExpire() throws Exception {
+            LMOPrefetcher pf = new LMOPrefetcher(1, 16, 1 << 20, 50, (r, p) -> new byte[10]);
+            try {
+                assertEquals(1, pf.prefetch("{\"__ref\":\"xxh3:aa11\"}".getBytes(StandardCharsets.UTF_8), "p"));
+                long deadline = System.currentTimeMillis() + 5000;
+                while (pf.size() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(0, pf.size());
+                assertEquals(0, pf.bytes());
+            } finally {
+                pf.shutdown();
+            }
+        }
+
+        @Test
+        void disabledByDefault() {
+            Runtime.getProperties().remove("robomotion.lmo.prefetch");
+            assertEquals(0, LMO.prefetch(packedMessage()));
+        }
+    }
+
+    @Nested
+    class WriteBehind {
+
+        @BeforeEach
+        void init() throws Exception {
+            initTestStore();
+            Runtime.SetRobotCapabilities(Runtime.CAPABILITY_LMO);
+            Runtime.getProperties().setProperty("robomotion.lmo.write_behind", "true");
+        }
+
+        @AfterEach
+        void cleanup() {
+            Runtime.getProperties().remove("robomotion.lmo.write_behind");
+            Runtime.getProperties().remove("robomotion.lmo.write_behind_barrier");
+        }
+
+        @Test
+        void packedBlobsLandAfterFlush() throws Exception {
+            String original = "{\"a\":\"" + "w".repeat(6000) + "\",\"b\":\"" + "v".repeat(7000) + "\"}";
+            byte[] packed = LMO.pack(original.getBytes(StandardCharsets.UTF_8));
+            LMO.flush();
+
+            assertEquals(2, LMO.blobCount());
+            assertEquals(original, new String(LMO.resolveAll(packed), StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void stagedBlobIsReadableBeforeWrite() throws Exception {
+            java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+            LMOWriter w = new LMOWriter(1, 1 << 20, (ref, data) -> release.await());
+            try {
+                byte[] data = "staged".getBytes(StandardCharsets.UTF_8);
+                assertTrue(w.stage("xxh3:aabb", data));
+                assertFalse(w.stage("xxh3:aabb", data));
+                assertArrayEquals(data, w.get("xxh3:aabb"));
+                assertEquals(data.length, w.stagedBytes());
+
+                release.countDown();
+                w.flush();
+                assertNull(w.get("xxh3:aabb"));
+                assertEquals(0, w.stagedBytes());
+            } finally {
+                w.close(1000);
+            }
+        }
+
+        @Test
+        void stageBlocksWhenBufferFull() throws Exception {
+            java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+            LMOWriter w = new LMOWriter(2, 10, (ref, data) -> release.await());
+            try {
+                assertTrue(w.stage("xxh3:aa01", new byte[8]));
+                Thread t = new Thread(() -> {
+                    try {
+                        w.stage("xxh3:aa02", new byte[8]);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                t.start();
+                t.join(200);
+                assertTrue(t.isAlive(), "second stage should wait for buffer space");
+                assertNull(w.get("xxh3:aa02"));
+
+                release.countDown();
+                t.join(5000);
+                assertFalse(t.isAlive());
+                w.flush();
+            } finally {
+                w.close(1000);
+            }
+        }
+
+        @Test
+        void flushReportsWriteFailure() throws Exception {
+            LMOWriter w = new LMOWriter(1, 1 << 20, (ref, data) -> {
+                throw new java.io.IOException("disk full");
+            });
+            try {
+                w.stage("xxh3:aacc", new byte[4]);
+                Exception e = assertThrows(Exception.class, w::flush);
+                assertTrue(e.getMessage().contains("disk full"));
+                // The failure is reported once.
+                w.flush();
+            } finally {
+                w.close(1000);
+            }
+        }
+
+        @Test
+        void awaitIgnoresOtherRefs() throws Exception {
+            java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+            LMOWriter w = new LMOWriter(2, 1 << 20, (ref, data) -> {
+                if (ref.equals("xxh3:aa01")) {
+                    release.await();
+                    throw new java.io.IOException("disk full");
+                }
+            });
+            try {
+                w.stage("xxh3:aa01", new byte[4]);
+                w.stage("xxh3:aa02", new byte[4]);
+                // Neither blocked by nor failed with the other message's write.
+                w.await(List.of("xxh3:aa02"));
+                release.countDown();
+                Exception e = assertThrows(Exception.class, () -> w.await(List.of("xxh3:aa01")));
+                assertTrue(e.getMessage().contains("disk full"));
+                w.await(List.of("xxh3:aa02"));
+                // Reported once: neither a later await nor flush repeats it.
+                w.await(List.of("xxh3:aa01"));
+                w.flush();
+            } finally {
+                w.close(1000);
+            }
+        }
+
+        @Test
+        void packDurableWaitsForItsBlobs() throws Exception {
+            String original = "{\"a\":\"" + "d".repeat(6000) + "\",\"b\":\"" + "e".repeat(7000) + "\"}";
+            byte[] packed = LMO.packDurable(original.getBytes(StandardCharsets.UTF_8));
+            List<String[]> refs = LMOPrefetcher.scan(packed, STORE_PATH);
+            assertEquals(2, refs.size());
+            for (String[] r : refs) {
+                assertTrue(Files.exists(blobFilePath(r[0])));
+            }
+            assertEquals(original, new String(LMO.resolveAll(packed), StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void perMessageBarrierIsDefault() {
+            assertTrue(LMO.flushPerMessage());
+            Runtime.getProperties().setProperty("robomotion.lmo.write_behind_barrier", "close");
+            assertFalse(LMO.flushPerMessage());
+        }
+    }
+
+    @Nested
+    class Stats {
+
+        @BeforeEach
+        void init() throws Exception {
+            initTestStore();
+            Runtime.SetRobotCapabilities(Runtime.CAPABILITY_LMO);
+            LMO.resetStats();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> section(String name) {
+            return (Map<String, Object>) LMO.stats().get(name);
+        }
+
+        @Test
+        void countsPackedBlobsAndDedup() throws Exception {
+            byte[] data = "stats".repeat(1000).getBytes(StandardCharsets.UTF_8);
+            LMO.putBlob(data);
+            LMO.putBlob(data);
+
+            Map<String, Object> pack = section("pack");
+            assertEquals(1L, pack.get("blobs"));
+            assertEquals((long) data.length, pack.get("bytes_raw"));
+            assertTrue((long) pack.get("bytes_stored") < data.length);
+            assertEquals(1L, pack.get("dedup_hits"));
+            assertEquals(2L, ((Map<?, ?>) pack.get("put_latency_us")).get("count"));
+        }
+
+        @Test
+        void countsResolvesAndCacheHits() throws Exception {
+            byte[] data = "read me".getBytes(StandardCharsets.UTF_8);
+            String ref = LMO.putBlob(data);
+            LMO.getBlob(ref, STORE_PATH);
+
+            Map<String, Object> resolve = section("resolve");
+            assertEquals(1L, resolve.get("blobs"));
+            assertEquals((long) data.length, resolve.get("bytes"));
+            assertEquals(1L, resolve.get("cache_misses"));
+            assertEquals(0.0, resolve.get("cache_hit_rate"));
+        }
+
+        @Test
+        void countsSkippedParses() {
+            LMO.resolveAll("{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+            assertEquals(1L, section("resolve").get("skipped_parses"));
+        }
+
+        @Test
+        void reportsStoreSize() throws Exception {
+            LMO.putBlob("sized".getBytes(StandardCharsets.UTF_8));
+            Map<String, Object> store = section("store");
+            assertEquals(LMO.storeSize(), store.get("size"));
+            assertEquals(1, store.get("blobs"));
+        }
+
+        @Test
+        void resetClearsCounters() throws Exception {
+            LMO.putBlob("gone".getBytes(StandardCharsets.UTF_8));
+            LMO.resetStats();
+            assertEquals(0L, section("pack").get("blobs"));
+        }
+
+        @Test
+        void histogramPercentiles() {
+            LMOStats.Histogram h = new LMOStats.Histogram();
+            for (int i = 1; i <= 100; i++) {
+                h.record(i);
+            }
+            assertEquals(100, h.count());
+            assertEquals(64, h.percentile(0.50));
+            assertEquals(100, h.percentile(0.99));
+            assertEquals(0, new LMOStats.Histogram().percentile(0.5));
+        }
+    }
+
+    @Nested
+    class ThresholdAndLevel {
+
+        @BeforeEach
+        void init() throws Exception {
+            initTestStore();
+            Runtime.SetRobotCapabilities(Runtime.CAPABILITY_LMO);
+        }
+
+        @AfterEach
+        void cleanup() {
+            Runtime.getProperties().remove("robomotion.lmo.threshold");
+            Runtime.getProperties().remove("robomotion.lmo.level");
+            Runtime.getProperties().remove("robomotion.lmo.adaptive");
+        }
+
+        private String message(int valueSize) {
+            return "{\"v\":\"" + "t".repeat(valueSize) + "\"}";
+        }
+
+        @Test
+        void defaultsToConstant() {
+            assertEquals(LMO.THRESHOLD, LMO.threshold());
+        }
+
+        @Test
+        void propertyOverridesThreshold() {
+            Runtime.getProperties().setProperty("robomotion.lmo.threshold", "16384");
+            byte[] data = message(8000).getBytes(StandardCharsets.UTF_8);
+            assertSame(data, LMO.pack(data));
+
+            Runtime.getProperties().setProperty("robomotion.lmo.threshold", "1024");
+            byte[] small = message(2000).getBytes(StandardCharsets.UTF_8);
+            assertNotSame(small, LMO.pack(small));
+        }
+
+        @Test
+        void robotInfoSetsStoreDefaults() {
+            LMO.configure(Map.of("lmo_threshold", 8192.0, "lmo_level", 1.0));
+            assertEquals(8192, LMO.threshold());
+            assertEquals(1, LMO.level());
+
+            Runtime.getProperties().setProperty("robomotion.lmo.threshold", "2048");
+            assertEquals(2048, LMO.threshold(), "properties win over robot info");
+        }
+
+        @Test
+        void levelIsClampedAndBlobsStayReadable() throws Exception {
+            Runtime.getProperties().setProperty("robomotion.lmo.level", "99");
+            assertEquals(com.github.luben.zstd.Zstd.maxCompressionLevel(), LMO.level());
+
+            Runtime.getProperties().setProperty("robomotion.lmo.level", "1");
+            byte[] data = "level one".repeat(500).getBytes(StandardCharsets.UTF_8);
+            String ref = LMO.putBlob(data);
+            assertArrayEquals(data, LMO.getBlob(ref, STORE_PATH));
+        }
+
+        @Test
+        void adaptivePolicyRaisesThresholdForSmallBlobs() {
+            LMOPolicy p = new LMOPolicy(4096, 65536, 3, 1_000_000_000L);
+            for (int i = 0; i < LMOPolicy.WINDOW; i++) {
+                p.record(5000, 1000);
+            }
+            assertEquals(8192, p.threshold());
+
+            for (int i = 0; i < LMOPolicy.WINDOW; i++) {
+                p.record(1_000_000, 1000);
+            }
+            assertEquals(4096, p.threshold());
+        }
+
+        @Test
+        void adaptivePolicyLowersLevelWhenSlow() {
+            LMOPolicy p = new LMOPolicy(4096, 65536, 3, 1_000_000L);
+            for (int i = 0; i < LMOPolicy.WINDOW; i++) {
+                p.record(1_000_000, 5_000_000L);
+            }
+            assertEquals(2, p.level());
+
+            for (int i = 0; i < LMOPolicy.WINDOW; i++) {
+                p.record(1_000_000, 1000);
+            }
+            assertEquals(3, p.level());
+        }
+
+        @Test
+        void adaptiveModeUsesPolicy() {
+            Runtime.getProperties().setProperty("robomotion.lmo.adaptive", "true");
+            Runtime.getProperties().setProperty("robomotion.lmo.threshold", "5000");
+            assertEquals(5000, LMO.threshold());
+        }
+    }
+
     // -----------------------------------------------------------------------
     // resolveBlobRefValue (Map-based resolution)
     // -----------------------------------------------------------------------
@@ -0,0 +1,73 @@
+package com.robomotion.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeCreatorTest {
+
+    static class SlowNode extends Node {
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean created;
+
+        SlowNode(String guid) {
+            this.guid = guid;
+        }
+
+        @Override
+        public void OnCreate() throws Exception {
+            release.await(5, TimeUnit.SECONDS);
+            created = true;
+        }
+    }
+
+    static class FailingNode extends Node {
+        FailingNode(String guid) {
+            this.guid = guid;
+        }
+
+        @Override
+        public void OnCreate() throws Exception {
+            throw new RpcError("Err.Test", "cannot connect");
+        }
+    }
+
+    @Test
+    void awaitWaitsForOnCreate() throws Exception {
+        SlowNode node = new SlowNode("slow-1");
+        NodeCreator.submit(node);
+        assertFalse(node.created);
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            node.release.countDown();
+        });
+        releaser.start();
+        NodeCreator.await("slow-1");
+        assertTrue(node.created);
+        releaser.join();
+    }
+
+    @Test
+    void failuresSurfaceOnEveryAwait() {
+        NodeCreator.submit(new FailingNode("fail-1"));
+        RpcError e = assertThrows(RpcError.class, () -> NodeCreator.await("fail-1"));
+        assertTrue(e.Serialize().contains("cannot connect"));
+        assertThrows(RpcError.class, () -> NodeCreator.await("fail-1"));
+
+        NodeCreator.forget("fail-1");
+        assertDoesNotThrow(() -> NodeCreator.await("fail-1"));
+    }
+
+    @Test
+    void unknownNodesAreReady() {
+        assertDoesNotThrow(() -> NodeCreator.await("sync-created"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.robomotion.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeDescriptorTest {
+
+    public static class SampleNode extends Node {
+        @Tool.ToolInfo(name = "sample", description = "a sample")
+        public Tool tool = new Tool();
+
+        @Var(title = "Input", type = Var.VarType.INPUT, defaultScope = "Message", defaultName = "in")
+        public Runtime.InVariable<String> inText;
+
+        @Var(title = "Output", type = Var.VarType.OUTPUT)
+        public Runtime.OutVariable<Long> outCount = new Runtime.OutVariable<>("Message", "count");
+
+        public Runtime.Credential optCred;
+
+        @Var(title = "Mode", type = Var.VarType.OPTION, enumValues = "[\"a\",\"b\"]")
+        @FieldAnnotations.Default(value = "a")
+        public String optMode;
+
+        @FieldAnnotations.Default(value = "7")
+        public int optRetries;
+
+        public List<String> tags;
+
+        @Override
+        public void OnMessage(Context ctx) {
+        }
+    }
+
+    public static class PrivateToolNode extends Node {
+        @Tool.ToolInfo(name = "hidden", description = "private tool")
+        private Tool tool = new Tool();
+
+        @Var(title = "Output", type = Var.VarType.OUTPUT)
+        private Runtime.OutVariable<String> outText = new Runtime.OutVariable<>("Message", "text");
+
+        @Override
+        public void OnMessage(Context ctx) {
+        }
+    }
+
+    @Test
+    void isCachedPerClass() {
+        assertSame(NodeDescriptor.of(SampleNode.class), NodeDescriptor.of(SampleNode.class));
+    }
+
+    @Test
+    void classifiesFields() {
+        NodeDescriptor d = NodeDescriptor.of(SampleNode.class);
+        assertEquals("sample", d.toolName);
+        assertEquals("a sample", d.toolDescription);
+        assertTrue(d.hasTool);
+
+        Map<String, NodeDescriptor.Kind> kinds = new java.util.HashMap<>();
+        for (NodeDescriptor.FieldInfo fi : d.fields) {
+            kinds.put(fi.name, fi.kind);
+        }
+        assertEquals(NodeDescriptor.Kind.TOOL, kinds.get("tool"));
+        assertEquals(NodeDescriptor.Kind.IN_VARIABLE, kinds.get("inText"));
+        assertEquals(NodeDescriptor.Kind.OUT_VARIABLE, kinds.get("outCount"));
+        assertEquals(NodeDescriptor.Kind.CREDENTIAL, kinds.get("optCred"));
+        assertEquals(NodeDescriptor.Kind.PLAIN, kinds.get("optMode"));
+        assertEquals(NodeDescriptor.Kind.GENERIC, kinds.get("tags"));
+
+        assertEquals(List.of("inText"), d.inputVars.stream().map(f -> f.getName()).toList());
+        assertEquals(List.of("outCount"), d.outputVars.stream().map(f -> f.getName()).toList());
+        assertEquals(List.of("optMode"), d.options.stream().map(f -> f.getName()).toList());
+    }
+
+    @Test
+    void initializesFieldsFromAnnotations() throws Exception {
+        SampleNode node = (SampleNode) NodeDescriptor.of(SampleNode.class).newInstance();
+        CLI.initializeNodeFields(SampleNode.class, node);
+
+        assertEquals("Message", node.inText.scope);
+        assertEquals("in", node.inText.name);
+        assertNotNull(node.optCred);
+        assertEquals("a", node.optMode);
+        assertEquals(7, node.optRetries);
+    }
+
+    @Test
+    void interceptorSeesPrivateToolFields() throws Exception {
+        NodeDescriptor d = NodeDescriptor.of(PrivateToolNode.class);
+        assertTrue(d.hasTool);
+        assertTrue(d.fields.stream().noneMatch(f -> f.name.equals("outText")));
+
+        ToolInterceptor interceptor = new ToolInterceptor(new PrivateToolNode());
+        assertTrue(interceptor.hasTool());
+
+        Message msg = new Message("{}".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        msg.set("text", "hello");
+        assertEquals(Map.of("text", "hello"), interceptor.collectOutputVariables(msg));
+    }
+
+    @Test
+    void buildsFlagsAndCommands() throws Exception {
+        SampleNode node = new SampleNode();
+        CLI.initializeNodeFields(SampleNode.class, node);
+        Map<String, CLI.FlagEntry> flags = CLI.buildFlagMap(SampleNode.class, node);
+        assertTrue(flags.containsKey("in"));
+        assertTrue(flags.get("mode").isOption);
+
+        Runtime.RegisterNodes(SampleNode.class);
+        CLI.CommandEntry cmd = CLI.buildCommandMap().get("sample");
+        assertNotNull(cmd);
+        assertEquals(SampleNode.class, cmd.nodeClass);
+    }
+}
@@ -0,0 +1,184 @@
+package com.robomotion.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The nodes below are compiled with NodeProcessor (test-compile runs it from
+ * target/classes), so these tests exercise the generated code.
+ */
+class NodeProcessorTest {
+
+    @NodeDef(name = "Robomotion.Test.Echo", title = "Echo", icon = Icons.mdiAccount, outputs = 2)
+    public static class EchoNode extends Node {
+        @Tool.ToolInfo(name = "echo", description = "Echoes its input")
+        public Tool tool;
+
+        @Var(title = "Text", type = Var.VarType.INPUT, customScope = true, messageScope = true)
+        @FieldAnnotations.Default(scope = "Message", name = "text")
+        public Runtime.InVariable<String> inText;
+
+        @Var(title = "Files", type = Var.VarType.INPUT)
+        @FieldAnnotations.ArrayFields(arrayFields = "Path|File Name")
+        public Runtime.InVariable<List<String>> inFiles;
+
+        @Var(title = "Result", type = Var.VarType.OUTPUT, description = "The echoed text")
+        public Runtime.OutVariable<Map<String, Object>> outResult;
+
+        @Var(title = "Mode", type = Var.VarType.OPTION)
+        @FieldAnnotations.Enum(enumeration = "[\"upper\",\"lower\"]", enumNames = "[\"Upper\",\"Lower\"]")
+        @FieldAnnotations.Default(value = "\"upper\"")
+        public String optMode;
+
+        @Var(title = "Retries", type = Var.VarType.OPTION)
+        @FieldAnnotations.Default(value = "3", cls = Integer.class)
+        public int optRetries;
+
+        @Var(title = "Timeout", type = Var.VarType.OPTION)
+        @FieldAnnotations.Default(value = "30.5", cls = double.class)
+        public double optTimeout = 1;
+
+        @Var(title = "Login", type = Var.VarType.OPTION)
+        @FieldAnnotations.Category(category = FieldAnnotations.ECategory.Login)
+        public Runtime.Credential optLogin;
+
+        @Var(title = "Tags", type = Var.VarType.OPTION, hidden = true)
+        public List<String> optTags;
+    }
+
+    @NodeAnnotations.Name(name = "Robomotion.Test.Legacy")
+    @NodeAnnotations.Title(title = "Legacy")
+    public static class LegacyNode extends Node {
+        @FieldAnnotations.Title(title = "Value")
+        @FieldAnnotations.Input
+        @FieldAnnotations.Default(scope = "Message", name = "value")
+        public Runtime.InVariable<Object> inValue;
+
+        @FieldAnnotations.Title(title = "Count")
+        @FieldAnnotations.Output
+        public Runtime.OutVariable<Integer> outCount;
+
+        @FieldAnnotations.Title(title = "Raw")
+        @FieldAnnotations.Option
+        public String optRaw = "x";
+    }
+
+    @NodeDef(name = "Robomotion.Test.Private", title = "Private")
+    public static class PrivateFieldNode extends Node {
+        private String secret;
+    }
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void generatedSpecMatchesReflection() throws Exception {
+        for (Class<?> c : List.of(EchoNode.class, LegacyNode.class, PrivateFieldNode.class)) {
+            String generated = NodeSupports.spec(c);
+            assertNotNull(generated, c.getName());
+            String reflected = Spec.SpecMapper().writeValueAsString(Spec.NodeSpec(SpecModel.of(c)));
+            assertEquals(mapper.readTree(reflected), mapper.readTree(generated), c.getName());
+        }
+    }
+
+    @Test
+    void supportCreatesNodes() {
+        NodeSupport s = NodeSupports.get(EchoNode.class);
+        assertNotNull(s);
+        assertEquals(EchoNode.class, s.nodeClass());
+        assertInstanceOf(EchoNode.class, s.newNode());
+        assertNull(NodeSupports.get(NodeDescriptorTest.SampleNode.class));
+    }
+
+    @Test
+    void bindMatchesGson() throws Exception {
+        String config = "{\"guid\":\"g1\",\"name\":\"echo\",\"delayBefore\":1.5,\"continueOnError\":true,"
+                + "\"inText\":{\"scope\":\"Message\",\"name\":\"msg\"},"
+                + "\"outResult\":{\"scope\":\"Custom\",\"name\":\"out\"},"
+                + "\"optMode\":\"lower\",\"optRetries\":5,\"optTimeout\":null,\"optTags\":[\"a\",\"b\"],"
+                + "\"optLogin\":{\"scope\":\"Custom\",\"name\":{\"vaultId\":\"v\",\"itemId\":\"i\"}},"
+                + "\"unknown\":{\"x\":[1,2]}}";
+
+        EchoNode bound = (EchoNode) NodeSupports.get(EchoNode.class).newNode();
+        assertTrue(NodeSupports.get(EchoNode.class).bind(bound, new JsonReader(new StringReader(config))));
+        EchoNode expected = new Gson().fromJson(config, EchoNode.class);
+
+        assertEquals(expected.guid, bound.guid);
+        assertEquals(expected.name, bound.name);
+        assertEquals(expected.delayBefore, bound.delayBefore);
+        assertEquals(expected.continueOnError, bound.continueOnError);
+        assertEquals(expected.scope, bound.scope);
+        assertEquals(expected.inText.scope, bound.inText.scope);
+        assertEquals(expected.inText.name, bound.inText.name);
+        assertEquals(expected.outResult.name, bound.outResult.name);
+        assertEquals(expected.optMode, bound.optMode);
+        assertEquals(expected.optRetries, bound.optRetries);
+        assertEquals(expected.optTimeout, bound.optTimeout);
+        assertEquals(1, bound.optTimeout);
+        assertEquals(expected.optTags, bound.optTags);
+        assertEquals(expected.optLogin.name, bound.optLogin.name);
+        assertNull(bound.inFiles);
+    }
+
+    @Test
+    void nodeFactoryBindsWithFallback() throws Exception {
+        try {
+            new NodeFactory(EchoNode.class).OnCreate(
+                    "{\"guid\":\"gen-1\",\"optRetries\":5}".getBytes(StandardCharsets.UTF_8));
+            EchoNode echo = (EchoNode) Runtime.Nodes().get("gen-1");
+            assertEquals(5, echo.optRetries);
+
+            // No generated binder: Gson binds the private field.
+            new NodeFactory(PrivateFieldNode.class).OnCreate(
+                    "{\"guid\":\"gen-2\",\"secret\":\"s\"}".getBytes(StandardCharsets.UTF_8));
+            assertEquals("s", ((PrivateFieldNode) Runtime.Nodes().get("gen-2")).secret);
+
+            assertThrows(JsonSyntaxException.class, () -> new NodeFactory(EchoNode.class)
+                    .OnCreate("{\"guid\":\"gen-3\"} []".getBytes(StandardCharsets.UTF_8)));
+            assertThrows(JsonSyntaxException.class, () -> new NodeFactory(EchoNode.class)
+                    .OnCreate("{\"optRetries\":\"many\"}".getBytes(StandardCharsets.UTF_8)));
+        } finally {
+            Runtime.Nodes().remove("gen-1");
+            Runtime.Nodes().remove("gen-2");
+        }
+    }
+
+    @Test
+    void reflectConfigListsNodes() throws Exception {
+        String name = NodeProcessor.NATIVE_DIR + "com.robomotion.app/reflect-config.json";
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(name)) {
+            assertNotNull(in, name);
+            List<?> entries = mapper.readValue(in, List.class);
+            List<?> names = entries.stream().map(e -> ((Map<?, ?>) e).get("name")).toList();
+            assertTrue(names.contains(EchoNode.class.getName()));
+            assertTrue(names.contains(LegacyNode.class.getName()));
+            assertFalse(names.contains(Node.class.getName()));
+        }
+    }
+
+    @Test
+    void nativeIdIsCommonPackage() {
+        assertEquals("com.acme", NodeProcessor.commonPackage(Set.of("com.acme.mail", "com.acme", "com.acme.mail.smtp")));
+        assertEquals("", NodeProcessor.commonPackage(Set.of("com.acme", "org.acme")));
+        assertEquals("", NodeProcessor.commonPackage(Set.of()));
+    }
+
+    @Test
+    void privateFieldsAreNotBound() throws Exception {
+        NodeSupport s = NodeSupports.get(PrivateFieldNode.class);
+        assertNotNull(s);
+        assertFalse(s.bind(s.newNode(), new JsonReader(new StringReader("{\"secret\":\"s\"}"))));
+    }
+}